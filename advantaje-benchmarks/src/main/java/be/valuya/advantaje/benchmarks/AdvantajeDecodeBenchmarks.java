@@ -0,0 +1,99 @@
+package be.valuya.advantaje.benchmarks;
+
+import be.valuya.advantaje.core.AdvantajeDecodePlan;
+import be.valuya.advantaje.core.AdvantajeFieldDecoder;
+import be.valuya.advantaje.core.AdvantajeFieldType;
+import be.valuya.advantaje.core.AdvantajeRecordSource;
+import be.valuya.advantaje.core.AdvantajeTableFile;
+import be.valuya.advantaje.core.AdvantajeTableGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decode throughput of each field type, on a table holding a single field.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AdvantajeDecodeBenchmarks {
+
+    @Param({"LOGICAL", "SHORTINT", "INTEGER", "DATE", "TIMESTAMP", "MONEY", "DOUBLE", "STRING", "CISSTRING", "NCHAR"})
+    public AdvantajeFieldType fieldType;
+    @Param({"100000"})
+    public int recordCount;
+    @Param({"0.1"})
+    public double nullRatio;
+
+    private Path tablePath;
+    private AdvantajeTableFile tableFile;
+    private AdvantajeFieldDecoder<?> fieldDecoder;
+
+    @Setup(Level.Trial)
+    public void generateTable() throws IOException {
+        tablePath = Files.createTempFile("advantaje-benchmark-" + fieldType, ".adt");
+        AdvantajeTableGenerator generator = new AdvantajeTableGenerator();
+        generator.addField("VALUE", fieldType, getFieldLength(fieldType));
+        generator.setRecordCount(recordCount);
+        generator.setNullRatio(nullRatio);
+        generator.write(tablePath);
+
+        tableFile = AdvantajeTableFile.open(tablePath, AdvantajeTableState.CHARSET);
+        AdvantajeDecodePlan decodePlan = AdvantajeDecodePlan.compile(tableFile.getMetaData().getFields(), AdvantajeTableState.CHARSET);
+        fieldDecoder = decodePlan.getDecoder(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteTable() throws IOException {
+        tableFile.close();
+        Files.deleteIfExists(tablePath);
+    }
+
+    @Benchmark
+    public void decode(AdvantajeScanCounters scanCounters, Blackhole blackhole) {
+        try (AdvantajeRecordSource recordSource = tableFile.openRecordSource()) {
+            while (recordSource.next()) {
+                blackhole.consume(fieldDecoder.decode(recordSource.getRecordBuffer(), recordSource.getRecordOffset()));
+            }
+        }
+        scanCounters.addScan(recordCount, tableFile.getMetaData().getRecordLength());
+    }
+
+    private static int getFieldLength(AdvantajeFieldType fieldType) {
+        switch (fieldType) {
+            case LOGICAL:
+                return 1;
+            case SHORTINT:
+                return 2;
+            case TIMESTAMP:
+            case MONEY:
+            case DOUBLE:
+                return 8;
+            case STRING:
+            case CISSTRING:
+            case NCHAR:
+                return 20;
+            default:
+                return 4;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package be.valuya.advantaje.benchmarks;
+
+import be.valuya.advantaje.core.AdvantajeColumnBatch;
+import be.valuya.advantaje.core.AdvantajeCursor;
+import be.valuya.advantaje.core.AdvantajeFilter;
+import be.valuya.advantaje.core.AdvantajeLongColumn;
+import be.valuya.advantaje.core.AdvantajeRecord;
+import be.valuya.advantaje.core.AdvantajeService;
+import be.valuya.advantaje.core.AdvantajeTableFile;
+import be.valuya.advantaje.core.AdvantajeTableMetaData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AdvantajeScanBenchmarks {
+
+    private final AdvantajeService advantajeService = new AdvantajeService();
+
+    @Benchmark
+    public AdvantajeTableMetaData open(AdvantajeTableState tableState) {
+        try (AdvantajeTableFile tableFile = AdvantajeTableFile.open(tableState.tablePath, AdvantajeTableState.CHARSET)) {
+            return tableFile.getMetaData();
+        }
+    }
+
+    @Benchmark
+    public void fullScan(AdvantajeTableState tableState, AdvantajeScanCounters scanCounters, Blackhole blackhole) {
+        try (Stream<AdvantajeRecord> recordStream = advantajeService.streamTable(tableState.tablePath, AdvantajeTableState.CHARSET)) {
+            recordStream.forEach(record -> consumeValues(record, blackhole));
+        }
+        scanCounters.addScan(tableState.recordCount, tableState.recordLength);
+    }
+
+    @Benchmark
+    public void inputStreamScan(AdvantajeTableState tableState, AdvantajeScanCounters scanCounters, Blackhole blackhole) throws IOException {
+        InputStream inputStream = new BufferedInputStream(Files.newInputStream(tableState.tablePath));
+        try (Stream<AdvantajeRecord> recordStream = advantajeService.streamTable(inputStream, AdvantajeTableState.CHARSET)) {
+            recordStream.forEach(record -> consumeValues(record, blackhole));
+        }
+        scanCounters.addScan(tableState.recordCount, tableState.recordLength);
+    }
+
+    @Benchmark
+    public void projectedScan(AdvantajeTableState tableState, AdvantajeScanCounters scanCounters, Blackhole blackhole) {
+        try (Stream<AdvantajeRecord> recordStream = advantajeService.streamTable(tableState.tablePath, AdvantajeTableState.CHARSET,
+                "ACCOUNT", "AMOUNT")) {
+            recordStream.forEach(record -> consumeValues(record, blackhole));
+        }
+        scanCounters.addScan(tableState.recordCount, tableState.recordLength);
+    }
+
+    @Benchmark
+    public void filteredScan(AdvantajeTableState tableState, AdvantajeScanCounters scanCounters, Blackhole blackhole) {
+        AdvantajeFilter filter = AdvantajeFilter.equalTo("JOURNAL", "VEN");
+        try (Stream<AdvantajeRecord> recordStream = advantajeService.streamTable(tableState.tablePath, AdvantajeTableState.CHARSET,
+                filter)) {
+            recordStream.forEach(record -> consumeValues(record, blackhole));
+        }
+        scanCounters.addScan(tableState.recordCount, tableState.recordLength);
+    }
+
+    @Benchmark
+    public long columnBatchScan(AdvantajeTableState tableState, AdvantajeScanCounters scanCounters) {
+        long amountSum = 0;
+        try (AdvantajeCursor cursor = advantajeService.openCursor(tableState.tablePath, AdvantajeTableState.CHARSET);
+             AdvantajeTableFile tableFile = AdvantajeTableFile.open(tableState.tablePath, AdvantajeTableState.CHARSET)) {
+            AdvantajeColumnBatch columnBatch = AdvantajeColumnBatch.create(tableFile.getMetaData(), AdvantajeTableState.CHARSET,
+                    1024, "AMOUNT");
+            AdvantajeLongColumn amountColumn = columnBatch.getLongColumn("AMOUNT");
+            long[] amounts = amountColumn.getValues();
+            int rowCount;
+            while ((rowCount = cursor.nextBatch(columnBatch)) > 0) {
+                for (int row = 0; row < rowCount; row++) {
+                    amountSum += amounts[row];
+                }
+            }
+        }
+        scanCounters.addScan(tableState.recordCount, tableState.recordLength);
+        return amountSum;
+    }
+
+    private static void consumeValues(AdvantajeRecord record, Blackhole blackhole) {
+        int fieldCount = record.getSchema().getFieldCount();
+        for (int fieldIndex = 0; fieldIndex < fieldCount; fieldIndex++) {
+            blackhole.consume(record.getValueOptional(fieldIndex));
+        }
+    }
+}
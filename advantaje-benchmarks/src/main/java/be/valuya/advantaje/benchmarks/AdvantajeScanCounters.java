@@ -0,0 +1,29 @@
+package be.valuya.advantaje.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counts the records and bytes scanned, reported by JMH as records/s and bytes/s.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class AdvantajeScanCounters {
+
+    public long records;
+    public long bytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        records = 0;
+        bytes = 0;
+    }
+
+    void addScan(int recordCount, int recordLength) {
+        records += recordCount;
+        bytes += (long) recordCount * recordLength;
+    }
+}
@@ -0,0 +1,52 @@
+package be.valuya.advantaje.benchmarks;
+
+import be.valuya.advantaje.core.AdvantajeTableFile;
+import be.valuya.advantaje.core.AdvantajeTableGenerator;
+import be.valuya.advantaje.core.AdvantajeTableMetaData;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A generated entry lines table, shared by all benchmark threads.
+ */
+@State(Scope.Benchmark)
+public class AdvantajeTableState {
+
+    static final Charset CHARSET = StandardCharsets.ISO_8859_1;
+
+    @Param({"100000"})
+    public int recordCount;
+    @Param({"0.1"})
+    public double nullRatio;
+
+    Path tablePath;
+    int recordLength;
+
+    @Setup(Level.Trial)
+    public void generateTable() throws IOException {
+        tablePath = Files.createTempFile("advantaje-benchmark", ".adt");
+        AdvantajeTableGenerator generator = AdvantajeTableGenerator.entryLines();
+        generator.setRecordCount(recordCount);
+        generator.setNullRatio(nullRatio);
+        generator.write(tablePath);
+        try (AdvantajeTableFile tableFile = AdvantajeTableFile.open(tablePath, CHARSET)) {
+            AdvantajeTableMetaData metaData = tableFile.getMetaData();
+            recordLength = metaData.getRecordLength();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteTable() throws IOException {
+        Files.deleteIfExists(tablePath);
+    }
+}
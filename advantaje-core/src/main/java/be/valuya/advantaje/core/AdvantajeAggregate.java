@@ -0,0 +1,64 @@
+package be.valuya.advantaje.core;
+
+import java.util.Optional;
+
+/**
+ * An aggregate computed for each group of records by
+ * {@link AdvantajeTableFile#aggregate(AdvantajeFilter, java.util.List, AdvantajeAggregate...)}.
+ * <p>
+ * Sums, minimums and maximums are computed on integral fields, using their raw value like
+ * {@link AdvantajeCursor#getLong(int)} does (the unscaled value for MONEY fields), and on DOUBLE and CURRENCY fields.
+ * Null values are ignored.
+ */
+public class AdvantajeAggregate {
+
+    private final AdvantajeAggregateFunction function;
+    private final String fieldName;
+
+    private AdvantajeAggregate(AdvantajeAggregateFunction function, String fieldName) {
+        this.function = function;
+        this.fieldName = fieldName;
+    }
+
+    /**
+     * Count the records of each group.
+     */
+    public static AdvantajeAggregate count() {
+        return new AdvantajeAggregate(AdvantajeAggregateFunction.COUNT, null);
+    }
+
+    /**
+     * Count the records of each group having a non-null value for a field.
+     */
+    public static AdvantajeAggregate count(String fieldName) {
+        return new AdvantajeAggregate(AdvantajeAggregateFunction.COUNT, fieldName);
+    }
+
+    public static AdvantajeAggregate sum(String fieldName) {
+        return new AdvantajeAggregate(AdvantajeAggregateFunction.SUM, fieldName);
+    }
+
+    public static AdvantajeAggregate min(String fieldName) {
+        return new AdvantajeAggregate(AdvantajeAggregateFunction.MIN, fieldName);
+    }
+
+    public static AdvantajeAggregate max(String fieldName) {
+        return new AdvantajeAggregate(AdvantajeAggregateFunction.MAX, fieldName);
+    }
+
+    public AdvantajeAggregateFunction getFunction() {
+        return function;
+    }
+
+    /**
+     * @return The aggregated field, absent when counting records
+     */
+    public Optional<String> getFieldNameOptional() {
+        return Optional.ofNullable(fieldName);
+    }
+
+    @Override
+    public String toString() {
+        return function + "(" + (fieldName == null ? "*" : fieldName) + ")";
+    }
+}
@@ -0,0 +1,10 @@
+package be.valuya.advantaje.core;
+
+public enum AdvantajeAggregateFunction {
+
+    COUNT,
+    SUM,
+    MIN,
+    MAX
+
+}
@@ -0,0 +1,444 @@
+package be.valuya.advantaje.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Groups the live records of a table by key fields and computes aggregates, without decoding records. Keys are the
+ * raw bytes of the key fields, trimmed for strings and case-folded for CISSTRING fields, and groups are found in an
+ * open-addressing hash table. Record ranges are aggregated in parallel in the common fork-join pool, and their groups
+ * are merged.
+ */
+class AdvantajeAggregator {
+
+    /**
+     * Records aggregated by each fork-join task.
+     */
+    static final int TASK_RECORD_COUNT = 1 << 16;
+
+    private final AdvantajeTableMetaData metaData;
+    private final Charset charset;
+    private final AdvantajeRecordPredicate recordPredicate;
+    private final AdvantajeField<?>[] keyFields;
+    private final int[] keyFieldOffsets;
+    private final int keyLength;
+    private final AdvantajeAggregateFunction[] functions;
+    private final AdvantajeField<?>[] aggregateFields;
+    private final boolean[] floatingPoint;
+
+    /**
+     * @param recordPredicate A predicate selecting the aggregated records, or null to aggregate all records
+     */
+    AdvantajeAggregator(AdvantajeTableMetaData metaData, Charset charset, AdvantajeRecordPredicate recordPredicate,
+                        List<String> groupByFieldNames, AdvantajeAggregate... aggregates) {
+        this.metaData = metaData;
+        this.charset = charset;
+        this.recordPredicate = recordPredicate;
+        this.keyFields = new AdvantajeField<?>[groupByFieldNames.size()];
+        this.keyFieldOffsets = new int[keyFields.length];
+        int keyOffset = 0;
+        for (int keyIndex = 0; keyIndex < keyFields.length; keyIndex++) {
+            AdvantajeField<?> keyField = metaData.getField(groupByFieldNames.get(keyIndex));
+            checkKeyField(keyField);
+            keyFields[keyIndex] = keyField;
+            keyFieldOffsets[keyIndex] = keyOffset;
+            // A null flag, followed by the field bytes
+            keyOffset += 1 + keyField.getStorageLength();
+        }
+        this.keyLength = keyOffset;
+        this.functions = new AdvantajeAggregateFunction[aggregates.length];
+        this.aggregateFields = new AdvantajeField<?>[aggregates.length];
+        this.floatingPoint = new boolean[aggregates.length];
+        for (int aggregateIndex = 0; aggregateIndex < aggregates.length; aggregateIndex++) {
+            AdvantajeAggregate aggregate = aggregates[aggregateIndex];
+            AdvantajeField<?> aggregateField = aggregate.getFieldNameOptional()
+                    .map(metaData::getField)
+                    .orElse(null);
+            AdvantajeAggregateFunction function = aggregate.getFunction();
+            if (function != AdvantajeAggregateFunction.COUNT) {
+                checkNumericField(aggregateField, aggregate);
+            }
+            functions[aggregateIndex] = function;
+            aggregateFields[aggregateIndex] = aggregateField;
+            floatingPoint[aggregateIndex] = aggregateField != null && AdvantajeRawValues.isFloatingPoint(aggregateField.getFieldType());
+        }
+    }
+
+    /**
+     * @param recordCount  The number of records of the table
+     * @param rangeSources Opens a source of a range of records
+     * @return The groups, sorted by key values, nulls first
+     */
+    List<AdvantajeGroup> aggregate(int recordCount, RangeSources rangeSources) {
+        GroupTable groupTable;
+        if (recordCount <= TASK_RECORD_COUNT) {
+            groupTable = aggregateRange(rangeSources, 0, recordCount);
+        } else {
+            groupTable = ForkJoinPool.commonPool()
+                    .invoke(new AggregateTask(rangeSources, 0, recordCount));
+        }
+        return groupTable.toGroups();
+    }
+
+    private GroupTable aggregateRange(RangeSources rangeSources, int fromRecordNumber, int toRecordNumber) {
+        GroupTable groupTable = new GroupTable();
+        try (AdvantajeRecordSource recordSource = rangeSources.open(fromRecordNumber, toRecordNumber)) {
+            while (recordSource.next()) {
+                ByteBuffer recordBuffer = recordSource.getRecordBuffer();
+                int recordOffset = recordSource.getRecordOffset();
+                if (AdvantajeTableReader.isDeletedRecord(recordBuffer, recordOffset)) {
+                    continue;
+                }
+                if (recordPredicate != null && !recordPredicate.test(recordBuffer, recordOffset)) {
+                    continue;
+                }
+                groupTable.add(recordBuffer, recordOffset);
+            }
+        }
+        return groupTable;
+    }
+
+    private static void checkKeyField(AdvantajeField<?> keyField) {
+        switch (keyField.getFieldType()) {
+            case MEMO:
+            case NMEMO:
+            case BINARY:
+            case IMAGE:
+            case RAW:
+            case VARBINARY_FOX:
+                throw new AdvantajeException("Unsupported group-by field type: " + keyField.getFieldType() + " for field " + keyField.getName());
+            default:
+        }
+    }
+
+    private static void checkNumericField(AdvantajeField<?> aggregateField, AdvantajeAggregate aggregate) {
+        AdvantajeFieldType fieldType = aggregateField.getFieldType();
+        if (!AdvantajeRawValues.isIntegral(fieldType) && !AdvantajeRawValues.isFloatingPoint(fieldType)) {
+            throw new AdvantajeException("Unsupported field type: " + fieldType + " for " + aggregate);
+        }
+    }
+
+    private static int hash(byte[] bytes, int start, int length) {
+        int hash = 0x811c9dc5;
+        for (int i = start; i < start + length; i++) {
+            hash = (hash ^ bytes[i]) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Opens sources of record ranges, which may be read concurrently.
+     */
+    @FunctionalInterface
+    interface RangeSources {
+
+        /**
+         * @param fromRecordNumber First record number, inclusive
+         * @param toRecordNumber   Last record number, exclusive
+         */
+        AdvantajeRecordSource open(int fromRecordNumber, int toRecordNumber);
+    }
+
+    private class AggregateTask extends RecursiveTask<GroupTable> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final RangeSources rangeSources;
+        private final int fromRecordNumber;
+        private final int toRecordNumber;
+
+        private AggregateTask(RangeSources rangeSources, int fromRecordNumber, int toRecordNumber) {
+            this.rangeSources = rangeSources;
+            this.fromRecordNumber = fromRecordNumber;
+            this.toRecordNumber = toRecordNumber;
+        }
+
+        @Override
+        protected GroupTable compute() {
+            if (toRecordNumber - fromRecordNumber <= TASK_RECORD_COUNT) {
+                return aggregateRange(rangeSources, fromRecordNumber, toRecordNumber);
+            }
+            int middleRecordNumber = (fromRecordNumber + toRecordNumber) >>> 1;
+            AggregateTask prefixTask = new AggregateTask(rangeSources, fromRecordNumber, middleRecordNumber);
+            prefixTask.fork();
+            GroupTable suffixGroups = new AggregateTask(rangeSources, middleRecordNumber, toRecordNumber).compute();
+            GroupTable prefixGroups = prefixTask.join();
+            prefixGroups.merge(suffixGroups);
+            return prefixGroups;
+        }
+    }
+
+    /**
+     * The groups found in a range of records. Keys are stored one after the other, and aggregates in arrays indexed
+     * by group.
+     */
+    private class GroupTable {
+
+        private final byte[] key = new byte[keyLength];
+        private byte[] keys = new byte[keyLength * 16];
+        private int[] slots = new int[32];
+        private int groupCount;
+        private long[] counts = new long[16];
+        private final long[][] longValues = new long[functions.length][16];
+        private final double[][] doubleValues = new double[functions.length][16];
+        private final long[][] valueCounts = new long[functions.length][16];
+
+        void add(ByteBuffer recordBuffer, int recordOffset) {
+            readKey(recordBuffer, recordOffset);
+            int groupIndex = findOrAddGroup(key, 0);
+            counts[groupIndex]++;
+            for (int aggregateIndex = 0; aggregateIndex < functions.length; aggregateIndex++) {
+                AdvantajeField<?> aggregateField = aggregateFields[aggregateIndex];
+                if (aggregateField == null) {
+                    continue;
+                }
+                if (AdvantajeRawValues.isNull(aggregateField, recordBuffer, recordOffset)) {
+                    continue;
+                }
+                long valueCount = valueCounts[aggregateIndex][groupIndex]++;
+                if (floatingPoint[aggregateIndex]) {
+                    double value = recordBuffer.getDouble(recordOffset + aggregateField.getOffset());
+                    addDouble(aggregateIndex, groupIndex, valueCount, value);
+                } else if (functions[aggregateIndex] != AdvantajeAggregateFunction.COUNT) {
+                    long value = AdvantajeRawValues.getLong(aggregateField, recordBuffer, recordOffset);
+                    addLong(aggregateIndex, groupIndex, valueCount, value);
+                }
+            }
+        }
+
+        void merge(GroupTable otherTable) {
+            for (int otherGroupIndex = 0; otherGroupIndex < otherTable.groupCount; otherGroupIndex++) {
+                int groupIndex = findOrAddGroup(otherTable.keys, otherGroupIndex * keyLength);
+                counts[groupIndex] += otherTable.counts[otherGroupIndex];
+                for (int aggregateIndex = 0; aggregateIndex < functions.length; aggregateIndex++) {
+                    long otherValueCount = otherTable.valueCounts[aggregateIndex][otherGroupIndex];
+                    if (otherValueCount == 0) {
+                        continue;
+                    }
+                    long valueCount = valueCounts[aggregateIndex][groupIndex];
+                    valueCounts[aggregateIndex][groupIndex] += otherValueCount;
+                    if (floatingPoint[aggregateIndex]) {
+                        addDouble(aggregateIndex, groupIndex, valueCount, otherTable.doubleValues[aggregateIndex][otherGroupIndex]);
+                    } else {
+                        addLong(aggregateIndex, groupIndex, valueCount, otherTable.longValues[aggregateIndex][otherGroupIndex]);
+                    }
+                }
+            }
+        }
+
+        List<AdvantajeGroup> toGroups() {
+            List<AdvantajeFieldDecoder<?>> keyDecoders = new ArrayList<>();
+            AdvantajeDecodePlan keyDecodePlan = AdvantajeDecodePlan.compile(Arrays.asList(keyFields), charset);
+            for (int keyIndex = 0; keyIndex < keyFields.length; keyIndex++) {
+                keyDecoders.add(keyDecodePlan.getDecoder(keyIndex));
+            }
+            ByteBuffer keyRecordBuffer = ByteBuffer.allocate(metaData.getRecordLength())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+
+            List<AdvantajeGroup> groups = new ArrayList<>(groupCount);
+            for (int groupIndex = 0; groupIndex < groupCount; groupIndex++) {
+                List<Object> keyValues = new ArrayList<>(keyFields.length);
+                for (int keyIndex = 0; keyIndex < keyFields.length; keyIndex++) {
+                    AdvantajeField<?> keyField = keyFields[keyIndex];
+                    int keyFieldStart = groupIndex * keyLength + keyFieldOffsets[keyIndex];
+                    if (keys[keyFieldStart] != 0) {
+                        keyValues.add(null);
+                        continue;
+                    }
+                    keyRecordBuffer.position(keyField.getOffset());
+                    keyRecordBuffer.put(keys, keyFieldStart + 1, keyField.getStorageLength());
+                    keyValues.add(keyDecoders.get(keyIndex).decode(keyRecordBuffer, 0));
+                }
+                groups.add(createGroup(groupIndex, keyValues));
+            }
+            groups.sort(createKeyComparator());
+            return groups;
+        }
+
+        private AdvantajeGroup createGroup(int groupIndex, List<Object> keyValues) {
+            long[] groupLongValues = new long[functions.length];
+            double[] groupDoubleValues = new double[functions.length];
+            boolean[] groupNullValues = new boolean[functions.length];
+            for (int aggregateIndex = 0; aggregateIndex < functions.length; aggregateIndex++) {
+                long valueCount = valueCounts[aggregateIndex][groupIndex];
+                if (functions[aggregateIndex] == AdvantajeAggregateFunction.COUNT) {
+                    long count = aggregateFields[aggregateIndex] == null ? counts[groupIndex] : valueCount;
+                    groupLongValues[aggregateIndex] = count;
+                    groupDoubleValues[aggregateIndex] = count;
+                } else if (floatingPoint[aggregateIndex]) {
+                    double doubleValue = doubleValues[aggregateIndex][groupIndex];
+                    groupLongValues[aggregateIndex] = (long) doubleValue;
+                    groupDoubleValues[aggregateIndex] = doubleValue;
+                    groupNullValues[aggregateIndex] = valueCount == 0;
+                } else {
+                    long longValue = longValues[aggregateIndex][groupIndex];
+                    groupLongValues[aggregateIndex] = longValue;
+                    groupDoubleValues[aggregateIndex] = longValue;
+                    groupNullValues[aggregateIndex] = valueCount == 0;
+                }
+            }
+            return new AdvantajeGroup(keyValues, counts[groupIndex], groupLongValues, groupDoubleValues, groupNullValues);
+        }
+
+        /**
+         * @param valueCount The number of values aggregated so far
+         */
+        private void addLong(int aggregateIndex, int groupIndex, long valueCount, long value) {
+            long[] aggregateValues = longValues[aggregateIndex];
+            switch (functions[aggregateIndex]) {
+                case SUM:
+                    aggregateValues[groupIndex] += value;
+                    break;
+                case MIN:
+                    aggregateValues[groupIndex] = valueCount == 0 ? value : Math.min(aggregateValues[groupIndex], value);
+                    break;
+                case MAX:
+                    aggregateValues[groupIndex] = valueCount == 0 ? value : Math.max(aggregateValues[groupIndex], value);
+                    break;
+                default:
+            }
+        }
+
+        /**
+         * @param valueCount The number of values aggregated so far
+         */
+        private void addDouble(int aggregateIndex, int groupIndex, long valueCount, double value) {
+            double[] aggregateValues = doubleValues[aggregateIndex];
+            switch (functions[aggregateIndex]) {
+                case SUM:
+                    aggregateValues[groupIndex] += value;
+                    break;
+                case MIN:
+                    aggregateValues[groupIndex] = valueCount == 0 ? value : Math.min(aggregateValues[groupIndex], value);
+                    break;
+                case MAX:
+                    aggregateValues[groupIndex] = valueCount == 0 ? value : Math.max(aggregateValues[groupIndex], value);
+                    break;
+                default:
+            }
+        }
+
+        private void readKey(ByteBuffer recordBuffer, int recordOffset) {
+            for (int keyIndex = 0; keyIndex < keyFields.length; keyIndex++) {
+                AdvantajeField<?> keyField = keyFields[keyIndex];
+                int keyFieldStart = keyFieldOffsets[keyIndex];
+                int keyFieldEnd = keyFieldStart + 1 + keyField.getStorageLength();
+                int keyPosition = keyFieldStart + 1;
+                if (AdvantajeRawValues.isNull(keyField, recordBuffer, recordOffset)) {
+                    key[keyFieldStart] = 1;
+                } else if (AdvantajeRawValues.isFixedString(keyField.getFieldType())) {
+                    key[keyFieldStart] = 0;
+                    boolean ignoreCase = keyField.getFieldType() == AdvantajeFieldType.CISSTRING;
+                    int start = AdvantajeRawValues.getTrimmedStart(keyField, recordBuffer, recordOffset);
+                    int end = AdvantajeRawValues.getTrimmedEnd(keyField, recordBuffer, start, recordOffset);
+                    for (int i = start; i < end; i++) {
+                        int byteValue = recordBuffer.get(i) & 0xff;
+                        key[keyPosition++] = (byte) (ignoreCase ? AdvantajeRawValues.foldCase(byteValue) : byteValue);
+                    }
+                } else {
+                    key[keyFieldStart] = 0;
+                    int fieldStart = recordOffset + keyField.getOffset();
+                    for (int i = 0; i < keyField.getStorageLength(); i++) {
+                        key[keyPosition++] = recordBuffer.get(fieldStart + i);
+                    }
+                }
+                Arrays.fill(key, keyPosition, keyFieldEnd, (byte) 0);
+            }
+        }
+
+        private int findOrAddGroup(byte[] groupKey, int groupKeyStart) {
+            int mask = slots.length - 1;
+            int slotIndex = hash(groupKey, groupKeyStart, keyLength) & mask;
+            while (true) {
+                int slot = slots[slotIndex];
+                if (slot == 0) {
+                    return addGroup(groupKey, groupKeyStart, slotIndex);
+                }
+                int groupIndex = slot - 1;
+                if (isGroupKey(groupIndex, groupKey, groupKeyStart)) {
+                    return groupIndex;
+                }
+                slotIndex = (slotIndex + 1) & mask;
+            }
+        }
+
+        private boolean isGroupKey(int groupIndex, byte[] groupKey, int groupKeyStart) {
+            int keyStart = groupIndex * keyLength;
+            for (int i = 0; i < keyLength; i++) {
+                if (keys[keyStart + i] != groupKey[groupKeyStart + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int addGroup(byte[] groupKey, int groupKeyStart, int slotIndex) {
+            int groupIndex = groupCount++;
+            if (groupIndex == counts.length) {
+                int capacity = counts.length * 2;
+                keys = Arrays.copyOf(keys, capacity * keyLength);
+                counts = Arrays.copyOf(counts, capacity);
+                for (int aggregateIndex = 0; aggregateIndex < functions.length; aggregateIndex++) {
+                    longValues[aggregateIndex] = Arrays.copyOf(longValues[aggregateIndex], capacity);
+                    doubleValues[aggregateIndex] = Arrays.copyOf(doubleValues[aggregateIndex], capacity);
+                    valueCounts[aggregateIndex] = Arrays.copyOf(valueCounts[aggregateIndex], capacity);
+                }
+            }
+            System.arraycopy(groupKey, groupKeyStart, keys, groupIndex * keyLength, keyLength);
+            slots[slotIndex] = groupIndex + 1;
+            if (groupCount * 2 > slots.length) {
+                rehash();
+            }
+            return groupIndex;
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            int mask = slots.length - 1;
+            for (int groupIndex = 0; groupIndex < groupCount; groupIndex++) {
+                int slotIndex = hash(keys, groupIndex * keyLength, keyLength) & mask;
+                while (slots[slotIndex] != 0) {
+                    slotIndex = (slotIndex + 1) & mask;
+                }
+                slots[slotIndex] = groupIndex + 1;
+            }
+        }
+    }
+
+    private static Comparator<AdvantajeGroup> createKeyComparator() {
+        return (group, otherGroup) -> {
+            List<Object> keyValues = group.getKeyValues();
+            List<Object> otherKeyValues = otherGroup.getKeyValues();
+            for (int keyIndex = 0; keyIndex < keyValues.size(); keyIndex++) {
+                Object keyValue = keyValues.get(keyIndex);
+                Object otherKeyValue = otherKeyValues.get(keyIndex);
+                int comparison;
+                if (keyValue == null || otherKeyValue == null) {
+                    comparison = Boolean.compare(keyValue != null, otherKeyValue != null);
+                } else {
+                    comparison = compareKeyValues(keyValue, otherKeyValue);
+                }
+                if (comparison != 0) {
+                    return comparison;
+                }
+            }
+            return 0;
+        };
+    }
+
+    /**
+     * Key values at the same index are decoded from the same field, so that they are comparable with each other.
+     */
+    @SuppressWarnings("unchecked")
+    private static int compareKeyValues(Object keyValue, Object otherKeyValue) {
+        Comparable<Object> comparableKeyValue = (Comparable<Object>) keyValue;
+        return comparableKeyValue.compareTo(otherKeyValue);
+    }
+}
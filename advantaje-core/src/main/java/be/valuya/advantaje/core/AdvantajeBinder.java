@@ -0,0 +1,473 @@
+package be.valuya.advantaje.core;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates objects from records, decoding the bound fields straight from the record bytes, without
+ * {@link AdvantajeValue} nor {@link java.util.Optional}. A binder is created once for a class and a table layout,
+ * checking the types of the bound fields. The {@link #MAX_CACHED_BINDER_COUNT} most recently used binders of each class
+ * are cached. Binders are thread-safe.
+ * <p>
+ * A class is bound using its constructor having the most parameters, when all of them are named, either using
+ * {@link AdvantajeFieldName} or by compiling with -parameters. Otherwise, it is bound using its no-arg constructor and
+ * all its non-static, non-transient fields. Java fields and parameters are bound to the table field having their name,
+ * or the same name ignoring case.
+ * <p>
+ * Table fields are bound to:
+ * <ul>
+ * <li>LOGICAL: boolean, Boolean</li>
+ * <li>NUMERIC, SHORTINT: short, int, long, double and their boxed types</li>
+ * <li>INTEGER, AUTOINC, RAWVERSION: int, long, double and their boxed types</li>
+ * <li>MONEY: long, Long, holding the unscaled value</li>
+ * <li>DOUBLE, CURRENCY: double, Double</li>
+ * <li>DATE: LocalDate; TIME, MODTIME: LocalTime; TIMESTAMP: LocalDateTime</li>
+ * <li>STRING, CISSTRING, VARCHAR_FOX, NCHAR, NVARCHAR: String</li>
+ * <li>MEMO, NMEMO, BINARY, IMAGE: AdvantajeMemo; RAW, VARBINARY_FOX: byte[]</li>
+ * </ul>
+ * Null values are bound as 0 or false to primitive types.
+ *
+ * @param <T> The type of the created objects
+ */
+public class AdvantajeBinder<T> {
+
+    public static final int MAX_CACHED_BINDER_COUNT = 256;
+
+    private static final ClassValue<BinderCache> BINDERS = new ClassValue<BinderCache>() {
+        @Override
+        protected BinderCache computeValue(Class<?> type) {
+            return new BinderCache();
+        }
+    };
+
+    private final Class<T> type;
+    private final List<String> fieldNames = new ArrayList<>();
+    private final MethodHandle constructorHandle;
+    private final ValueReader[] argumentReaders;
+    private final FieldWriter[] fieldWriters;
+
+    private AdvantajeBinder(Class<T> type, AdvantajeSchema schema) {
+        this.type = type;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        Constructor<?> namedConstructor = findNamedConstructor(type);
+        try {
+            if (namedConstructor != null) {
+                namedConstructor.setAccessible(true);
+                Parameter[] parameters = namedConstructor.getParameters();
+                this.argumentReaders = new ValueReader[parameters.length];
+                for (int i = 0; i < parameters.length; i++) {
+                    Parameter parameter = parameters[i];
+                    int fieldIndex = findFieldIndex(schema, getBoundName(parameter), parameter);
+                    argumentReaders[i] = createValueReader(parameter.getType(), schema, fieldIndex, parameter);
+                }
+                this.constructorHandle = lookup.unreflectConstructor(namedConstructor)
+                        .asSpreader(Object[].class, parameters.length)
+                        .asType(MethodType.methodType(Object.class, Object[].class));
+                this.fieldWriters = null;
+            } else {
+                Constructor<T> noArgConstructor = type.getDeclaredConstructor();
+                noArgConstructor.setAccessible(true);
+                this.constructorHandle = lookup.unreflectConstructor(noArgConstructor)
+                        .asType(MethodType.methodType(Object.class));
+                List<Field> boundFields = findBoundFields(type);
+                this.fieldWriters = new FieldWriter[boundFields.size()];
+                for (int i = 0; i < fieldWriters.length; i++) {
+                    Field boundField = boundFields.get(i);
+                    boundField.setAccessible(true);
+                    int fieldIndex = findFieldIndex(schema, getBoundName(boundField), boundField);
+                    MethodHandle setter = lookup.unreflectSetter(boundField);
+                    fieldWriters[i] = createFieldWriter(setter, boundField, schema, fieldIndex);
+                }
+                this.argumentReaders = null;
+            }
+        } catch (NoSuchMethodException exception) {
+            throw new AdvantajeException("No named constructor parameters nor no-arg constructor to bind " + type.getName(), exception);
+        } catch (IllegalAccessException | RuntimeException exception) {
+            throw new AdvantajeException("Cannot bind " + type.getName() + ": " + exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * @param schema The schema of the records, holding the fields which may be bound
+     * @return A binder, created on first use for this class and schema layout
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> AdvantajeBinder<T> create(Class<T> type, AdvantajeSchema schema) {
+        BinderCache typeBinders = BINDERS.get(type);
+        String planKey = schema.getDecodePlan().getKey();
+        synchronized (typeBinders) {
+            // The binders held for a class all create objects of that class
+            return (AdvantajeBinder<T>) typeBinders.computeIfAbsent(planKey, key -> new AdvantajeBinder<>(type, schema));
+        }
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * @return The names of the bound table fields
+     */
+    public List<String> getFieldNames() {
+        return Collections.unmodifiableList(fieldNames);
+    }
+
+    /**
+     * Create an object from the record starting at recordOffset in a little-endian buffer.
+     */
+    public T bind(ByteBuffer buffer, int recordOffset) {
+        return bind(buffer, recordOffset, null);
+    }
+
+    /**
+     * @param memoFile The memo file from which the content of bound memo fields is read. May be null.
+     */
+    T bind(ByteBuffer buffer, int recordOffset, AdvantajeMemoFile memoFile) {
+        try {
+            if (argumentReaders != null) {
+                Object[] arguments = new Object[argumentReaders.length];
+                for (int i = 0; i < arguments.length; i++) {
+                    arguments[i] = argumentReaders[i].read(buffer, recordOffset, memoFile);
+                }
+                Object object = (Object) constructorHandle.invokeExact(arguments);
+                return type.cast(object);
+            }
+            Object object = (Object) constructorHandle.invokeExact();
+            for (FieldWriter fieldWriter : fieldWriters) {
+                fieldWriter.write(object, buffer, recordOffset, memoFile);
+            }
+            return type.cast(object);
+        } catch (RuntimeException | Error exception) {
+            throw exception;
+        } catch (Throwable throwable) {
+            throw new AdvantajeException("Error binding " + type.getName(), throwable);
+        }
+    }
+
+    private int findFieldIndex(AdvantajeSchema schema, String name, Object boundElement) {
+        int fieldIndex = schema.getFieldIndex(name);
+        for (int i = 0; fieldIndex < 0 && i < schema.getFieldCount(); i++) {
+            if (schema.getField(i).getName().equalsIgnoreCase(name)) {
+                fieldIndex = i;
+            }
+        }
+        if (fieldIndex < 0) {
+            throw new AdvantajeException("No field " + name + " to bind to " + boundElement);
+        }
+        fieldNames.add(schema.getField(fieldIndex).getName());
+        return fieldIndex;
+    }
+
+    private static FieldWriter createFieldWriter(MethodHandle setter, Field boundField, AdvantajeSchema schema, int fieldIndex) {
+        Class<?> javaType = boundField.getType();
+        AdvantajeField<?> field = schema.getField(fieldIndex);
+        // Setters are invoked from block lambdas, so that invokeExact is typed as returning void
+        if (javaType == int.class) {
+            IntReader intReader = requireReader(createIntReader(field), field, boundField);
+            MethodHandle intSetter = setter.asType(MethodType.methodType(void.class, Object.class, int.class));
+            return (object, buffer, recordOffset, memoFile) -> {
+                intSetter.invokeExact(object, intReader.read(buffer, recordOffset));
+            };
+        }
+        if (javaType == long.class) {
+            LongReader longReader = requireReader(createLongReader(field), field, boundField);
+            MethodHandle longSetter = setter.asType(MethodType.methodType(void.class, Object.class, long.class));
+            return (object, buffer, recordOffset, memoFile) -> {
+                longSetter.invokeExact(object, longReader.read(buffer, recordOffset));
+            };
+        }
+        if (javaType == double.class) {
+            DoubleReader doubleReader = requireReader(createDoubleReader(field), field, boundField);
+            MethodHandle doubleSetter = setter.asType(MethodType.methodType(void.class, Object.class, double.class));
+            return (object, buffer, recordOffset, memoFile) -> {
+                doubleSetter.invokeExact(object, doubleReader.read(buffer, recordOffset));
+            };
+        }
+        if (javaType == short.class) {
+            IntReader shortReader = requireReader(createShortReader(field), field, boundField);
+            MethodHandle shortSetter = setter.asType(MethodType.methodType(void.class, Object.class, short.class));
+            return (object, buffer, recordOffset, memoFile) -> {
+                shortSetter.invokeExact(object, (short) shortReader.read(buffer, recordOffset));
+            };
+        }
+        if (javaType == boolean.class) {
+            BooleanReader booleanReader = requireReader(createBooleanReader(field), field, boundField);
+            MethodHandle booleanSetter = setter.asType(MethodType.methodType(void.class, Object.class, boolean.class));
+            return (object, buffer, recordOffset, memoFile) -> {
+                booleanSetter.invokeExact(object, booleanReader.read(buffer, recordOffset));
+            };
+        }
+        ValueReader valueReader = createValueReader(javaType, schema, fieldIndex, boundField);
+        MethodHandle objectSetter = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        return (object, buffer, recordOffset, memoFile) -> {
+            objectSetter.invokeExact(object, valueReader.read(buffer, recordOffset, memoFile));
+        };
+    }
+
+    /**
+     * @return A reader of the values bound to a Java type. Values bound to primitive types are never null.
+     */
+    private static ValueReader createValueReader(Class<?> javaType, AdvantajeSchema schema, int fieldIndex, Object boundElement) {
+        AdvantajeField<?> field = schema.getField(fieldIndex);
+        if (javaType == int.class || javaType == Integer.class) {
+            IntReader intReader = requireReader(createIntReader(field), field, boundElement);
+            return createNullableReader(field, javaType, (buffer, recordOffset, memoFile) -> intReader.read(buffer, recordOffset));
+        }
+        if (javaType == long.class || javaType == Long.class) {
+            LongReader longReader = requireReader(createLongReader(field), field, boundElement);
+            return createNullableReader(field, javaType, (buffer, recordOffset, memoFile) -> longReader.read(buffer, recordOffset));
+        }
+        if (javaType == double.class || javaType == Double.class) {
+            DoubleReader doubleReader = requireReader(createDoubleReader(field), field, boundElement);
+            return createNullableReader(field, javaType, (buffer, recordOffset, memoFile) -> doubleReader.read(buffer, recordOffset));
+        }
+        if (javaType == short.class || javaType == Short.class) {
+            IntReader shortReader = requireReader(createShortReader(field), field, boundElement);
+            return createNullableReader(field, javaType, (buffer, recordOffset, memoFile) -> (short) shortReader.read(buffer, recordOffset));
+        }
+        if (javaType == boolean.class || javaType == Boolean.class) {
+            BooleanReader booleanReader = requireReader(createBooleanReader(field), field, boundElement);
+            return createNullableReader(field, javaType, (buffer, recordOffset, memoFile) -> booleanReader.read(buffer, recordOffset));
+        }
+        Class<?> valueType = getValueType(field.getFieldType());
+        if (valueType == null || !javaType.isAssignableFrom(valueType)) {
+            throw new AdvantajeException("Cannot bind " + field.getFieldType() + " field " + field.getName() + " to " + boundElement);
+        }
+        AdvantajeFieldDecoder<?> decoder = schema.getDecodePlan().getDecoder(fieldIndex);
+        if (valueType != AdvantajeMemo.class) {
+            return (buffer, recordOffset, memoFile) -> decoder.decode(buffer, recordOffset);
+        }
+        return (buffer, recordOffset, memoFile) -> {
+            AdvantajeMemo memo = (AdvantajeMemo) decoder.decode(buffer, recordOffset);
+            if (memo != null) {
+                memo.setMemoFile(memoFile);
+            }
+            return memo;
+        };
+    }
+
+    private static ValueReader createNullableReader(AdvantajeField<?> field, Class<?> javaType, ValueReader valueReader) {
+        if (javaType.isPrimitive()) {
+            return valueReader;
+        }
+        return (buffer, recordOffset, memoFile) -> {
+            if (AdvantajeRawValues.isNull(field, buffer, recordOffset)) {
+                return null;
+            }
+            return valueReader.read(buffer, recordOffset, memoFile);
+        };
+    }
+
+    private static IntReader createIntReader(AdvantajeField<?> field) {
+        int offset = field.getOffset();
+        switch (field.getFieldType()) {
+            case NUMERIC:
+            case SHORTINT:
+                return createShortReader(field);
+            case INTEGER:
+            case AUTOINC:
+            case RAWVERSION:
+                return (buffer, recordOffset) -> {
+                    int intValue = buffer.getInt(recordOffset + offset);
+                    return AdvantajeRawValues.isNullInt(intValue) ? 0 : intValue;
+                };
+            default:
+                return null;
+        }
+    }
+
+    private static IntReader createShortReader(AdvantajeField<?> field) {
+        int offset = field.getOffset();
+        switch (field.getFieldType()) {
+            case NUMERIC:
+            case SHORTINT:
+                return (buffer, recordOffset) -> buffer.getShort(recordOffset + offset);
+            default:
+                return null;
+        }
+    }
+
+    private static LongReader createLongReader(AdvantajeField<?> field) {
+        int offset = field.getOffset();
+        if (field.getFieldType() == AdvantajeFieldType.MONEY) {
+            return (buffer, recordOffset) -> buffer.getLong(recordOffset + offset);
+        }
+        IntReader intReader = createIntReader(field);
+        if (intReader == null) {
+            return null;
+        }
+        return intReader::read;
+    }
+
+    private static DoubleReader createDoubleReader(AdvantajeField<?> field) {
+        int offset = field.getOffset();
+        if (AdvantajeRawValues.isFloatingPoint(field.getFieldType())) {
+            return (buffer, recordOffset) -> {
+                double doubleValue = buffer.getDouble(recordOffset + offset);
+                return AdvantajeRawValues.isNullDouble(doubleValue) ? 0 : doubleValue;
+            };
+        }
+        IntReader intReader = createIntReader(field);
+        if (intReader == null) {
+            return null;
+        }
+        return intReader::read;
+    }
+
+    private static BooleanReader createBooleanReader(AdvantajeField<?> field) {
+        int offset = field.getOffset();
+        if (field.getFieldType() != AdvantajeFieldType.LOGICAL) {
+            return null;
+        }
+        return (buffer, recordOffset) -> buffer.get(recordOffset + offset) == 'T';
+    }
+
+    private static <R> R requireReader(R reader, AdvantajeField<?> field, Object boundElement) {
+        if (reader == null) {
+            throw new AdvantajeException("Cannot bind " + field.getFieldType() + " field " + field.getName() + " to " + boundElement);
+        }
+        return reader;
+    }
+
+    /**
+     * @return The type of the values decoded for a field type
+     */
+    private static Class<?> getValueType(AdvantajeFieldType fieldType) {
+        switch (fieldType) {
+            case DATE:
+                return LocalDate.class;
+            case TIME:
+            case MODTIME:
+                return LocalTime.class;
+            case TIMESTAMP:
+                return LocalDateTime.class;
+            case STRING:
+            case CISSTRING:
+            case VARCHAR_FOX:
+            case NCHAR:
+            case NVARCHAR:
+                return String.class;
+            case MEMO:
+            case NMEMO:
+            case BINARY:
+            case IMAGE:
+                return AdvantajeMemo.class;
+            case RAW:
+            case VARBINARY_FOX:
+                return byte[].class;
+            default:
+                return null;
+        }
+    }
+
+    private static Constructor<?> findNamedConstructor(Class<?> type) {
+        Constructor<?> namedConstructor = null;
+        for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+            Parameter[] parameters = constructor.getParameters();
+            if (constructor.isSynthetic() || parameters.length == 0) {
+                continue;
+            }
+            boolean allNamed = true;
+            for (Parameter parameter : parameters) {
+                allNamed &= parameter.isAnnotationPresent(AdvantajeFieldName.class) || parameter.isNamePresent();
+            }
+            if (allNamed && (namedConstructor == null || parameters.length > namedConstructor.getParameterCount())) {
+                namedConstructor = constructor;
+            }
+        }
+        return namedConstructor;
+    }
+
+    private static List<Field> findBoundFields(Class<?> type) {
+        List<Field> boundFields = new ArrayList<>();
+        if (type.getSuperclass() != null && type.getSuperclass() != Object.class) {
+            boundFields.addAll(findBoundFields(type.getSuperclass()));
+        }
+        for (Field field : type.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                continue;
+            }
+            boundFields.add(field);
+        }
+        return boundFields;
+    }
+
+    private static String getBoundName(Parameter parameter) {
+        AdvantajeFieldName fieldName = parameter.getAnnotation(AdvantajeFieldName.class);
+        return fieldName == null ? parameter.getName() : fieldName.value();
+    }
+
+    private static String getBoundName(Field field) {
+        AdvantajeFieldName fieldName = field.getAnnotation(AdvantajeFieldName.class);
+        return fieldName == null ? field.getName() : fieldName.value();
+    }
+
+    /**
+     * The binders of a class, keyed on the layout of their decode plan, so that plans compiled again once evicted from
+     * the plan cache reuse the binders, which would otherwise keep the evicted plans reachable.
+     */
+    private static class BinderCache extends LinkedHashMap<String, AdvantajeBinder<?>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private BinderCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, AdvantajeBinder<?>> eldest) {
+            return size() > MAX_CACHED_BINDER_COUNT;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ValueReader {
+
+        Object read(ByteBuffer buffer, int recordOffset, AdvantajeMemoFile memoFile);
+    }
+
+    @FunctionalInterface
+    private interface FieldWriter {
+
+        void write(Object object, ByteBuffer buffer, int recordOffset, AdvantajeMemoFile memoFile) throws Throwable;
+    }
+
+    @FunctionalInterface
+    private interface IntReader {
+
+        int read(ByteBuffer buffer, int recordOffset);
+    }
+
+    @FunctionalInterface
+    private interface LongReader {
+
+        long read(ByteBuffer buffer, int recordOffset);
+    }
+
+    @FunctionalInterface
+    private interface DoubleReader {
+
+        double read(ByteBuffer buffer, int recordOffset);
+    }
+
+    @FunctionalInterface
+    private interface BooleanReader {
+
+        boolean read(ByteBuffer buffer, int recordOffset);
+    }
+}
@@ -0,0 +1,40 @@
+package be.valuya.advantaje.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Creates an object from each record using a binder, without decoding records.
+ */
+class AdvantajeBoundSpliterator<T> extends AdvantajeRecordSourceSpliterator<T> {
+
+    private final AdvantajeBinder<T> binder;
+    private final AdvantajeMemoFile memoFile;
+
+    /**
+     * @param memoFile        The memo file of the table, from which bound memo fields are read. May be null.
+     * @param recordPredicate A predicate evaluated before binding each record, or null to bind all records
+     * @param includeDeleted  Whether records marked deleted are bound, rather than skipped
+     */
+    AdvantajeBoundSpliterator(AdvantajeRecordSource recordSource, AdvantajeBinder<T> binder, AdvantajeMemoFile memoFile,
+                              AdvantajeRecordPredicate recordPredicate, boolean includeDeleted) {
+        super(recordSource, recordPredicate, includeDeleted);
+        this.binder = binder;
+        this.memoFile = memoFile;
+    }
+
+    private AdvantajeBoundSpliterator(AdvantajeRecordSource recordSource, AdvantajeBoundSpliterator<T> parentSpliterator) {
+        super(recordSource, parentSpliterator);
+        this.binder = parentSpliterator.binder;
+        this.memoFile = parentSpliterator.memoFile;
+    }
+
+    @Override
+    T readRecord(ByteBuffer recordBuffer, int recordOffset) {
+        return binder.bind(recordBuffer, recordOffset, memoFile);
+    }
+
+    @Override
+    AdvantajeBoundSpliterator<T> createSplit(AdvantajeRecordSource prefixSource) {
+        return new AdvantajeBoundSpliterator<>(prefixSource, this);
+    }
+}
@@ -0,0 +1,112 @@
+package be.valuya.advantaje.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reads records from buffers holding the whole record region of a table, split in segments of recordsPerSegment
+ * records. Either a range of records is read, or a list of record numbers.
+ */
+public class AdvantajeBufferRecordSource implements AdvantajeRecordSource {
+
+    private final AdvantajeTableMetaData metaData;
+    private final ByteBuffer[] segments;
+    private final int recordsPerSegment;
+    private final int recordLength;
+    private final int[] recordNumbers;
+    private int nextPosition;
+    private int endPosition;
+    private int recordNumber = -1;
+    private int segmentIndex = -1;
+    private ByteBuffer segmentBuffer;
+    private int recordOffset;
+
+    /**
+     * @param fromRecordNumber First record number, inclusive
+     * @param toRecordNumber   Last record number, exclusive
+     */
+    public AdvantajeBufferRecordSource(AdvantajeTableMetaData metaData, ByteBuffer[] segments, int recordsPerSegment,
+                                       int fromRecordNumber, int toRecordNumber) {
+        this(metaData, segments, recordsPerSegment, null, fromRecordNumber, toRecordNumber);
+    }
+
+    /**
+     * @param recordNumbers The numbers of the records to read, in order
+     */
+    public AdvantajeBufferRecordSource(AdvantajeTableMetaData metaData, ByteBuffer[] segments, int recordsPerSegment,
+                                       int[] recordNumbers) {
+        this(metaData, segments, recordsPerSegment, recordNumbers, 0, recordNumbers.length);
+    }
+
+    private AdvantajeBufferRecordSource(AdvantajeTableMetaData metaData, ByteBuffer[] segments, int recordsPerSegment,
+                                        int[] recordNumbers, int fromPosition, int toPosition) {
+        this.metaData = metaData;
+        this.segments = segments;
+        this.recordsPerSegment = recordsPerSegment;
+        this.recordLength = metaData.getRecordLength();
+        this.recordNumbers = recordNumbers;
+        this.nextPosition = fromPosition;
+        this.endPosition = toPosition;
+    }
+
+    @Override
+    public AdvantajeTableMetaData getMetaData() {
+        return metaData;
+    }
+
+    @Override
+    public boolean next() {
+        if (nextPosition >= endPosition) {
+            return false;
+        }
+        int position = nextPosition++;
+        recordNumber = recordNumbers == null ? position : recordNumbers[position];
+        int recordSegmentIndex = recordNumber / recordsPerSegment;
+        if (recordSegmentIndex != segmentIndex) {
+            // Each source uses its own view, so that positions are never shared between threads
+            segmentBuffer = segments[recordSegmentIndex].duplicate()
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            segmentIndex = recordSegmentIndex;
+        }
+        recordOffset = (recordNumber - recordSegmentIndex * recordsPerSegment) * recordLength;
+        return true;
+    }
+
+    @Override
+    public int getRecordNumber() {
+        return recordNumber;
+    }
+
+    @Override
+    public ByteBuffer getRecordBuffer() {
+        return segmentBuffer;
+    }
+
+    @Override
+    public int getRecordOffset() {
+        return recordOffset;
+    }
+
+    @Override
+    public long estimateSize() {
+        return endPosition - nextPosition;
+    }
+
+    @Override
+    public AdvantajeRecordSource trySplit() {
+        int remainingRecordCount = endPosition - nextPosition;
+        if (remainingRecordCount < 2) {
+            return null;
+        }
+        int splitPosition = nextPosition + remainingRecordCount / 2;
+        AdvantajeBufferRecordSource prefixSource = new AdvantajeBufferRecordSource(metaData, segments, recordsPerSegment,
+                recordNumbers, nextPosition, splitPosition);
+        nextPosition = splitPosition;
+        return prefixSource;
+    }
+
+    @Override
+    public void close() {
+        // buffers are owned by the caller
+    }
+}
@@ -0,0 +1,146 @@
+package be.valuya.advantaje.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * An index on a fixed-length string field, comparing trimmed bytes. Keys of CISSTRING fields are stored case-folded.
+ */
+class AdvantajeBytesIndex extends AdvantajeIndex {
+
+    private final Charset charset;
+    private final boolean ignoreCase;
+    private final byte[] keyData;
+    private final int[] keyOffsets;
+
+    private AdvantajeBytesIndex(AdvantajeField<?> field, int[] recordNumbers, Charset charset, boolean ignoreCase,
+                                byte[] keyData, int[] keyOffsets) {
+        super(field, recordNumbers);
+        this.charset = charset;
+        this.ignoreCase = ignoreCase;
+        this.keyData = keyData;
+        this.keyOffsets = keyOffsets;
+    }
+
+    static AdvantajeBytesIndex build(AdvantajeField<?> field, AdvantajeRecordSource recordSource, Charset charset) {
+        boolean ignoreCase = field.getFieldType() == AdvantajeFieldType.CISSTRING;
+        int capacity = (int) Math.max(16, recordSource.estimateSize());
+        byte[] unsortedKeyData = new byte[capacity * 4];
+        int[] unsortedKeyOffsets = new int[capacity + 1];
+        int[] unsortedRecordNumbers = new int[capacity];
+        int size = 0;
+        int keyDataLength = 0;
+        while (recordSource.next()) {
+            ByteBuffer recordBuffer = recordSource.getRecordBuffer();
+            int recordOffset = recordSource.getRecordOffset();
+            if (AdvantajeTableReader.isDeletedRecord(recordBuffer, recordOffset)) {
+                continue;
+            }
+            int start = AdvantajeRawValues.getTrimmedStart(field, recordBuffer, recordOffset);
+            int end = AdvantajeRawValues.getTrimmedEnd(field, recordBuffer, start, recordOffset);
+            int keyLength = end - start;
+            if (size == unsortedRecordNumbers.length) {
+                unsortedRecordNumbers = Arrays.copyOf(unsortedRecordNumbers, size * 2);
+                unsortedKeyOffsets = Arrays.copyOf(unsortedKeyOffsets, size * 2 + 1);
+            }
+            if (keyDataLength + keyLength > unsortedKeyData.length) {
+                unsortedKeyData = Arrays.copyOf(unsortedKeyData, Math.max(unsortedKeyData.length * 2, keyDataLength + keyLength));
+            }
+            for (int i = 0; i < keyLength; i++) {
+                int byteValue = recordBuffer.get(start + i) & 0xff;
+                unsortedKeyData[keyDataLength + i] = (byte) (ignoreCase ? AdvantajeRawValues.foldCase(byteValue) : byteValue);
+            }
+            unsortedKeyOffsets[size] = keyDataLength;
+            unsortedRecordNumbers[size] = recordSource.getRecordNumber();
+            keyDataLength += keyLength;
+            size++;
+            unsortedKeyOffsets[size] = keyDataLength;
+        }
+
+        byte[] entryKeyData = unsortedKeyData;
+        int[] entryKeyOffsets = unsortedKeyOffsets;
+        int[] sortedOrder = AdvantajeSorts.sortedOrder(size, (left, right) -> compare(
+                entryKeyData, entryKeyOffsets[left], entryKeyOffsets[left + 1],
+                entryKeyData, entryKeyOffsets[right], entryKeyOffsets[right + 1]));
+        byte[] sortedKeyData = new byte[keyDataLength];
+        int[] sortedKeyOffsets = new int[size + 1];
+        int sortedKeyDataLength = 0;
+        for (int i = 0; i < size; i++) {
+            int entryIndex = sortedOrder[i];
+            int keyStart = entryKeyOffsets[entryIndex];
+            int keyLength = entryKeyOffsets[entryIndex + 1] - keyStart;
+            System.arraycopy(entryKeyData, keyStart, sortedKeyData, sortedKeyDataLength, keyLength);
+            sortedKeyOffsets[i] = sortedKeyDataLength;
+            sortedKeyDataLength += keyLength;
+        }
+        sortedKeyOffsets[size] = sortedKeyDataLength;
+        int[] sortedRecordNumbers = collectRecordNumbers(size, sortedOrder, unsortedRecordNumbers);
+        return new AdvantajeBytesIndex(field, sortedRecordNumbers, charset, ignoreCase, sortedKeyData, sortedKeyOffsets);
+    }
+
+    @Override
+    long getKeyByteSize() {
+        return keyData.length + (long) keyOffsets.length * Integer.BYTES;
+    }
+
+    @Override
+    int findFirstNotBelow(Object key) {
+        byte[] keyBytes = getKeyBytes(key);
+        int low = 0;
+        int high = keyOffsets.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareEntry(middle, keyBytes) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    int findFirstAbove(Object key) {
+        byte[] keyBytes = getKeyBytes(key);
+        int low = 0;
+        int high = keyOffsets.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareEntry(middle, keyBytes) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int compareEntry(int entryIndex, byte[] keyBytes) {
+        return compare(keyData, keyOffsets[entryIndex], keyOffsets[entryIndex + 1], keyBytes, 0, keyBytes.length);
+    }
+
+    private byte[] getKeyBytes(Object key) {
+        byte[] keyBytes = AdvantajeRawPredicates.toTrimmedBytes(getField(), charset, key);
+        if (ignoreCase) {
+            for (int i = 0; i < keyBytes.length; i++) {
+                keyBytes[i] = (byte) AdvantajeRawValues.foldCase(keyBytes[i] & 0xff);
+            }
+        }
+        return keyBytes;
+    }
+
+    private static int compare(byte[] bytes, int start, int end, byte[] otherBytes, int otherStart, int otherEnd) {
+        int length = end - start;
+        int otherLength = otherEnd - otherStart;
+        int commonLength = Math.min(length, otherLength);
+        for (int i = 0; i < commonLength; i++) {
+            int byteValue = bytes[start + i] & 0xff;
+            int otherByteValue = otherBytes[otherStart + i] & 0xff;
+            if (byteValue != otherByteValue) {
+                return byteValue - otherByteValue;
+            }
+        }
+        return length - otherLength;
+    }
+}
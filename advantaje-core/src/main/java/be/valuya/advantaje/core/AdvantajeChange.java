@@ -0,0 +1,40 @@
+package be.valuya.advantaje.core;
+
+import java.util.Optional;
+
+public class AdvantajeChange {
+
+    private final AdvantajeChangeType changeType;
+    private final int recordNumber;
+    private final AdvantajeRecord record;
+
+    public AdvantajeChange(AdvantajeChangeType changeType, int recordNumber, AdvantajeRecord record) {
+        this.changeType = changeType;
+        this.recordNumber = recordNumber;
+        this.record = record;
+    }
+
+    public AdvantajeChangeType getChangeType() {
+        return changeType;
+    }
+
+    public int getRecordNumber() {
+        return recordNumber;
+    }
+
+    /**
+     * @return The current record, marked deleted for deleted records, or absent for records removed from the end of
+     * the table. Deleted changes may also hold a live record, updated so that it no longer matches the filter.
+     */
+    public Optional<AdvantajeRecord> getRecordOptional() {
+        return Optional.ofNullable(record);
+    }
+
+    @Override
+    public String toString() {
+        return "AdvantajeChange{" +
+                "changeType=" + changeType +
+                ", recordNumber=" + recordNumber +
+                '}';
+    }
+}
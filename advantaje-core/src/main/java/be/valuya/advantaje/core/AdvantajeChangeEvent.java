@@ -0,0 +1,33 @@
+package be.valuya.advantaje.core;
+
+import java.nio.file.Path;
+
+/**
+ * A change of a record of a table, published by an {@link AdvantajeChangeFeed}.
+ */
+public class AdvantajeChangeEvent {
+
+    private final Path tablePath;
+    private final AdvantajeChange change;
+
+    public AdvantajeChangeEvent(Path tablePath, AdvantajeChange change) {
+        this.tablePath = tablePath;
+        this.change = change;
+    }
+
+    public Path getTablePath() {
+        return tablePath;
+    }
+
+    public AdvantajeChange getChange() {
+        return change;
+    }
+
+    @Override
+    public String toString() {
+        return "AdvantajeChangeEvent{" +
+                "tablePath=" + tablePath +
+                ", change=" + change +
+                '}';
+    }
+}
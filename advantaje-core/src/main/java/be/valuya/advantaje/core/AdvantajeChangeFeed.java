@@ -0,0 +1,350 @@
+package be.valuya.advantaje.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Publishes the changes of the tables of a directory while they are modified.
+ * <p>
+ * Tables present when the feed starts are read once as a baseline. On each modification, a checksum of each block of
+ * records is compared with the previous one, and only the records of the changed blocks are compared and decoded.
+ * Events are published to a bounded queue: when the consumer lags, the feed waits until it catches up.
+ * <p>
+ * The state of a table is updated before its changes are published, so that changes are never published twice: changes
+ * not published when the feed is closed or fails are lost.
+ */
+public class AdvantajeChangeFeed implements Closeable {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+
+    private static final int BLOCK_RECORD_COUNT = 128;
+    private static final String TABLE_EXTENSION = ".adt";
+
+    private final Path directory;
+    private final Charset charset;
+    private final BlockingQueue<AdvantajeChangeEvent> eventQueue;
+    private final Map<Path, TableState> tableStates = new HashMap<>();
+    private final WatchService watchService;
+    private final Thread watchThread;
+    private volatile Consumer<AdvantajeException> errorHandler = exception -> {
+    };
+    private volatile Throwable failure;
+    private volatile boolean closed;
+
+    public AdvantajeChangeFeed(Path directory, Charset charset) {
+        this(directory, charset, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param queueCapacity The maximum number of events waiting for the consumer
+     */
+    public AdvantajeChangeFeed(Path directory, Charset charset, int queueCapacity) {
+        this.directory = directory;
+        this.charset = charset;
+        this.eventQueue = new ArrayBlockingQueue<>(queueCapacity);
+        try {
+            this.watchService = directory.getFileSystem().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException exception) {
+            throw new AdvantajeException("Error watching directory " + directory, exception);
+        }
+        this.watchThread = new Thread(this::watch, "advantaje-change-feed-" + directory.getFileName());
+        watchThread.setDaemon(true);
+    }
+
+    /**
+     * Read the baseline of the tables, then start watching the directory.
+     */
+    public AdvantajeChangeFeed start() {
+        try (DirectoryStream<Path> tablePaths = Files.newDirectoryStream(directory, this::isTablePath)) {
+            for (Path tablePath : tablePaths) {
+                readTableState(tablePath)
+                        .ifPresent(tableState -> tableStates.put(tablePath, tableState));
+            }
+        } catch (IOException exception) {
+            throw new AdvantajeException("Error listing directory " + directory, exception);
+        }
+        watchThread.start();
+        return this;
+    }
+
+    /**
+     * @param errorHandler Notified of errors reading a table, which is read again on its next modification
+     */
+    public void setErrorHandler(Consumer<AdvantajeException> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * Wait for the next event.
+     *
+     * @throws AdvantajeException When the feed is closed or stopped on failure
+     */
+    public AdvantajeChangeEvent take() throws InterruptedException {
+        while (true) {
+            Optional<AdvantajeChangeEvent> eventOptional = poll(1, TimeUnit.SECONDS);
+            if (eventOptional.isPresent()) {
+                return eventOptional.get();
+            }
+        }
+    }
+
+    /**
+     * @return The next event, or empty if none was published before the timeout
+     * @throws AdvantajeException When the feed is closed or stopped on failure
+     */
+    public Optional<AdvantajeChangeEvent> poll(long timeout, TimeUnit timeUnit) throws InterruptedException {
+        checkNotClosed();
+        AdvantajeChangeEvent event = eventQueue.poll(timeout, timeUnit);
+        if (event == null) {
+            checkNotClosed();
+            if (failure != null) {
+                throw new AdvantajeException("Change feed stopped", failure);
+            }
+        }
+        return Optional.ofNullable(event);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        watchThread.interrupt();
+        try {
+            watchService.close();
+        } catch (IOException exception) {
+            throw new AdvantajeException(exception);
+        }
+    }
+
+    private void checkNotClosed() {
+        if (closed) {
+            throw new AdvantajeException("Change feed closed: " + directory);
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey watchKey = watchService.take();
+                Set<Path> changedPaths = new LinkedHashSet<>();
+                boolean overflow = false;
+                for (WatchEvent<?> watchEvent : watchKey.pollEvents()) {
+                    if (watchEvent.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        overflow = true;
+                        continue;
+                    }
+                    Path changedPath = directory.resolve((Path) watchEvent.context());
+                    if (isTablePath(changedPath)) {
+                        changedPaths.add(changedPath);
+                    }
+                }
+                watchKey.reset();
+                if (overflow) {
+                    changedPaths.addAll(tableStates.keySet());
+                }
+                for (Path changedPath : changedPaths) {
+                    publishTableChanges(changedPath);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException exception) {
+            // Closed
+        } catch (Throwable throwable) {
+            failure = throwable;
+        }
+    }
+
+    private void publishTableChanges(Path tablePath) throws InterruptedException {
+        TableState previousState = tableStates.getOrDefault(tablePath, TableState.EMPTY);
+        if (!Files.exists(tablePath)) {
+            tableStates.remove(tablePath);
+            publishDeletions(tablePath, 0, previousState.recordCount);
+            return;
+        }
+        try (AdvantajeTableFile tableFile = AdvantajeTableFile.open(tablePath, charset)) {
+            TableState tableState = readTableState(tableFile);
+            int recordCount = tableState.recordCount;
+            ChangedRecords changedRecords = new ChangedRecords();
+            for (int blockIndex = 0; blockIndex < tableState.blockChecksums.length; blockIndex++) {
+                int fromRecordNumber = blockIndex * BLOCK_RECORD_COUNT;
+                int toRecordNumber = Math.min(recordCount, fromRecordNumber + BLOCK_RECORD_COUNT);
+                if (previousState.hasBlockChecksum(blockIndex, tableState.blockChecksums[blockIndex])) {
+                    System.arraycopy(previousState.recordHashes, fromRecordNumber, tableState.recordHashes,
+                            fromRecordNumber, toRecordNumber - fromRecordNumber);
+                    continue;
+                }
+                findBlockChanges(tableFile, previousState, tableState, fromRecordNumber, toRecordNumber, changedRecords);
+            }
+            // The new state is kept before publishing, so that a failure while publishing does not publish changes again
+            tableStates.put(tablePath, tableState);
+            publishRecordChanges(tablePath, tableFile, previousState, changedRecords.toArray());
+            publishDeletions(tablePath, recordCount, previousState.recordCount);
+        } catch (AdvantajeException exception) {
+            errorHandler.accept(exception);
+        } catch (RuntimeException exception) {
+            // Tables being written may be read partially
+            errorHandler.accept(new AdvantajeException("Error reading table " + tablePath, exception));
+        }
+    }
+
+    private void findBlockChanges(AdvantajeTableFile tableFile, TableState previousState, TableState tableState,
+                                  int fromRecordNumber, int toRecordNumber, ChangedRecords changedRecords) {
+        int recordLength = tableFile.getMetaData().getRecordLength();
+        try (AdvantajeRecordSource recordSource = tableFile.openRecordSource(fromRecordNumber, toRecordNumber)) {
+            while (recordSource.next()) {
+                int recordNumber = recordSource.getRecordNumber();
+                ByteBuffer recordBuffer = recordSource.getRecordBuffer();
+                int recordOffset = recordSource.getRecordOffset();
+                long recordHash = AdvantajeChangeReader.hashRecord(recordBuffer, recordOffset, recordLength);
+                tableState.recordHashes[recordNumber] = recordHash;
+
+                boolean inserted = recordNumber >= previousState.recordCount;
+                if (!inserted && previousState.recordHashes[recordNumber] == recordHash) {
+                    continue;
+                }
+                boolean deleted = AdvantajeTableReader.isDeletedRecord(recordBuffer, recordOffset);
+                if (deleted && inserted) {
+                    continue;
+                }
+                changedRecords.add(recordNumber);
+            }
+        }
+    }
+
+    private void publishRecordChanges(Path tablePath, AdvantajeTableFile tableFile, TableState previousState,
+                                      int[] recordNumbers) throws InterruptedException {
+        AdvantajeSchema schema = tableFile.getSchema();
+        try (AdvantajeRecordSource recordSource = tableFile.openRecordSource(recordNumbers)) {
+            while (recordSource.next()) {
+                int recordNumber = recordSource.getRecordNumber();
+                ByteBuffer recordBuffer = recordSource.getRecordBuffer();
+                int recordOffset = recordSource.getRecordOffset();
+                boolean inserted = recordNumber >= previousState.recordCount;
+                boolean deleted = AdvantajeTableReader.isDeletedRecord(recordBuffer, recordOffset);
+                AdvantajeChangeType changeType = AdvantajeChangeReader.getChangeType(inserted, deleted);
+                AdvantajeRecord record = schema.createRecord(recordBuffer, recordOffset);
+                AdvantajeChange change = new AdvantajeChange(changeType, recordNumber, record);
+                eventQueue.put(new AdvantajeChangeEvent(tablePath, change));
+            }
+        }
+    }
+
+    private void publishDeletions(Path tablePath, int fromRecordNumber, int toRecordNumber) throws InterruptedException {
+        for (int recordNumber = fromRecordNumber; recordNumber < toRecordNumber; recordNumber++) {
+            AdvantajeChange change = new AdvantajeChange(AdvantajeChangeType.DELETED, recordNumber, null);
+            eventQueue.put(new AdvantajeChangeEvent(tablePath, change));
+        }
+    }
+
+    private Optional<TableState> readTableState(Path tablePath) {
+        try (AdvantajeTableFile tableFile = AdvantajeTableFile.open(tablePath, charset)) {
+            TableState tableState = readTableState(tableFile);
+            int recordLength = tableFile.getMetaData().getRecordLength();
+            try (AdvantajeRecordSource recordSource = tableFile.openRecordSource()) {
+                while (recordSource.next()) {
+                    long recordHash = AdvantajeChangeReader.hashRecord(recordSource.getRecordBuffer(),
+                            recordSource.getRecordOffset(), recordLength);
+                    tableState.recordHashes[recordSource.getRecordNumber()] = recordHash;
+                }
+            }
+            return Optional.of(tableState);
+        } catch (AdvantajeException exception) {
+            errorHandler.accept(exception);
+            return Optional.empty();
+        } catch (RuntimeException exception) {
+            errorHandler.accept(new AdvantajeException("Error reading table " + tablePath, exception));
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Compute the block checksums of a table. Record hashes are left to be computed for the changed blocks.
+     */
+    private TableState readTableState(AdvantajeTableFile tableFile) {
+        int recordCount = tableFile.getRecordCount();
+        int recordLength = tableFile.getMetaData().getRecordLength();
+        int blockCount = (recordCount + BLOCK_RECORD_COUNT - 1) / BLOCK_RECORD_COUNT;
+        long[] blockChecksums = new long[blockCount];
+        CRC32 crc32 = new CRC32();
+        try (AdvantajeRecordSource recordSource = tableFile.openRecordSource()) {
+            while (recordSource.next()) {
+                int recordNumber = recordSource.getRecordNumber();
+                if (recordNumber % BLOCK_RECORD_COUNT == 0) {
+                    crc32.reset();
+                }
+                ByteBuffer recordBytes = recordSource.getRecordBuffer().duplicate();
+                int recordOffset = recordSource.getRecordOffset();
+                recordBytes.limit(recordOffset + recordLength);
+                recordBytes.position(recordOffset);
+                crc32.update(recordBytes);
+                blockChecksums[recordNumber / BLOCK_RECORD_COUNT] = crc32.getValue();
+            }
+        }
+        return new TableState(recordCount, blockChecksums);
+    }
+
+    private boolean isTablePath(Path path) {
+        return path.getFileName().toString().toLowerCase().endsWith(TABLE_EXTENSION);
+    }
+
+    /**
+     * The numbers of the changed records of a table, in order.
+     */
+    private static class ChangedRecords {
+
+        private int[] recordNumbers = new int[BLOCK_RECORD_COUNT];
+        private int size;
+
+        private void add(int recordNumber) {
+            if (size == recordNumbers.length) {
+                recordNumbers = Arrays.copyOf(recordNumbers, size * 2);
+            }
+            recordNumbers[size++] = recordNumber;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(recordNumbers, size);
+        }
+    }
+
+    private static class TableState {
+
+        private static final TableState EMPTY = new TableState(0, new long[0]);
+
+        private final int recordCount;
+        private final long[] blockChecksums;
+        private final long[] recordHashes;
+
+        private TableState(int recordCount, long[] blockChecksums) {
+            this.recordCount = recordCount;
+            this.blockChecksums = blockChecksums;
+            this.recordHashes = new long[recordCount];
+        }
+
+        private boolean hasBlockChecksum(int blockIndex, long blockChecksum) {
+            return blockIndex < blockChecksums.length && blockChecksums[blockIndex] == blockChecksum
+                    && (blockIndex + 1) * BLOCK_RECORD_COUNT <= recordCount;
+        }
+    }
+}
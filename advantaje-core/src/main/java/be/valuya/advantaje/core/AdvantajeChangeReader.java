@@ -0,0 +1,172 @@
+package be.valuya.advantaje.core;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Reads the records changed since a checkpoint in a single pass over the encoded records. Only changed records are
+ * decoded.
+ * <p>
+ * Changes are relative to the records selected at the checkpoint, live and matching the filter: records entering the
+ * selection are inserted, selected records whose version or hash changed are updated, and records leaving the
+ * selection are deleted, whether they were marked deleted, removed, or updated so that they no longer match the filter.
+ */
+final class AdvantajeChangeReader {
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private AdvantajeChangeReader() {
+    }
+
+    /**
+     * @param recordPredicate A predicate selecting the live records to return. May be null.
+     * @param changeConsumer  Receives each change, in record number order
+     * @return The checkpoint to use for the next read
+     */
+    static AdvantajeCheckpoint readChanges(AdvantajeTableFile tableFile, AdvantajeCheckpoint checkpoint,
+                                           AdvantajeRecordPredicate recordPredicate, AdvantajeSchema schema,
+                                           Consumer<AdvantajeChange> changeConsumer) {
+        AdvantajeTableMetaData metaData = tableFile.getMetaData();
+        AdvantajeCheckpointType checkpointType = checkpoint.getCheckpointType();
+        AdvantajeField<?> versionField = checkpoint.getFieldNameOptional()
+                .map(metaData::getField)
+                .orElse(null);
+        if (versionField != null) {
+            checkVersionField(checkpointType, versionField);
+        }
+        int recordLength = metaData.getRecordLength();
+        int recordCount = tableFile.getRecordCount();
+        int previousRecordCount = checkpoint.getRecordCount();
+        long previousMaxVersion = checkpoint.getMaxVersion();
+
+        long maxVersion = previousMaxVersion;
+        long[] recordHashes = checkpointType == AdvantajeCheckpointType.RECORD_HASH ? new long[recordCount] : null;
+        long[] selectedBits = new long[(recordCount + 63) / 64];
+        try (AdvantajeRecordSource recordSource = tableFile.openRecordSource()) {
+            while (recordSource.next()) {
+                ByteBuffer recordBuffer = recordSource.getRecordBuffer();
+                int recordOffset = recordSource.getRecordOffset();
+                int recordNumber = recordSource.getRecordNumber();
+                boolean inserted = recordNumber >= previousRecordCount;
+                boolean previouslySelected = !inserted && checkpoint.isSelected(recordNumber);
+
+                boolean changed;
+                if (recordHashes != null) {
+                    long recordHash = hashRecord(recordBuffer, recordOffset, recordLength);
+                    recordHashes[recordNumber] = recordHash;
+                    changed = inserted || checkpoint.getRecordHash(recordNumber) != recordHash;
+                } else {
+                    long version = readVersion(versionField, recordBuffer, recordOffset);
+                    maxVersion = Math.max(maxVersion, version);
+                    changed = inserted || version > previousMaxVersion;
+                }
+                // Records may be deleted without changing their version, so that their status is always read
+                boolean selected;
+                if (AdvantajeTableReader.isDeletedRecord(recordBuffer, recordOffset)) {
+                    selected = false;
+                } else if (previouslySelected && !changed) {
+                    selected = true;
+                } else {
+                    selected = recordPredicate == null || recordPredicate.test(recordBuffer, recordOffset);
+                }
+                AdvantajeChangeType changeType;
+                if (selected) {
+                    selectedBits[recordNumber >>> 6] |= 1L << recordNumber;
+                    if (!previouslySelected) {
+                        changeType = AdvantajeChangeType.INSERTED;
+                    } else if (changed) {
+                        changeType = AdvantajeChangeType.UPDATED;
+                    } else {
+                        continue;
+                    }
+                } else if (previouslySelected) {
+                    changeType = AdvantajeChangeType.DELETED;
+                } else {
+                    continue;
+                }
+                AdvantajeRecord record = schema.createRecord(recordBuffer, recordOffset);
+                changeConsumer.accept(new AdvantajeChange(changeType, recordNumber, record));
+            }
+        }
+        for (int recordNumber = recordCount; recordNumber < previousRecordCount; recordNumber++) {
+            if (checkpoint.isSelected(recordNumber)) {
+                changeConsumer.accept(new AdvantajeChange(AdvantajeChangeType.DELETED, recordNumber, null));
+            }
+        }
+
+        String fieldName = versionField == null ? null : versionField.getName();
+        return new AdvantajeCheckpoint(checkpointType, fieldName, recordCount, maxVersion, recordHashes, selectedBits);
+    }
+
+    static AdvantajeChangeType getChangeType(boolean inserted, boolean deleted) {
+        if (deleted) {
+            return AdvantajeChangeType.DELETED;
+        }
+        return inserted ? AdvantajeChangeType.INSERTED : AdvantajeChangeType.UPDATED;
+    }
+
+    private static void checkVersionField(AdvantajeCheckpointType checkpointType, AdvantajeField<?> versionField) {
+        AdvantajeFieldType fieldType = versionField.getFieldType();
+        switch (checkpointType) {
+            case ROW_VERSION:
+                if (fieldType == AdvantajeFieldType.RAWVERSION || fieldType == AdvantajeFieldType.INTEGER
+                        || fieldType == AdvantajeFieldType.AUTOINC) {
+                    return;
+                }
+                break;
+            case MOD_TIME:
+                if (fieldType == AdvantajeFieldType.MODTIME || fieldType == AdvantajeFieldType.TIMESTAMP) {
+                    return;
+                }
+                break;
+        }
+        throw new AdvantajeException("Invalid field type " + fieldType + " of field " + versionField.getName()
+                + " for " + checkpointType + " checkpoints");
+    }
+
+    /**
+     * @return The version of the record, in epoch milliseconds for modification times, or Long.MIN_VALUE if null
+     */
+    private static long readVersion(AdvantajeField<?> versionField, ByteBuffer recordBuffer, int recordOffset) {
+        int offset = recordOffset + versionField.getOffset();
+        switch (versionField.getFieldType()) {
+            case MODTIME:
+                return getEpochMillis(recordBuffer.getInt(offset + 4), recordBuffer.getInt(offset));
+            case TIMESTAMP:
+                return getEpochMillis(recordBuffer.getInt(offset), recordBuffer.getInt(offset + 4));
+            default: {
+                int intValue = recordBuffer.getInt(offset);
+                if (AdvantajeRawValues.isNullInt(intValue)) {
+                    return Long.MIN_VALUE;
+                }
+                return intValue;
+            }
+        }
+    }
+
+    private static long getEpochMillis(int dateInt, int millis) {
+        if (AdvantajeRawValues.isNullDate(dateInt) || AdvantajeRawValues.isNullInt(millis)) {
+            return Long.MIN_VALUE;
+        }
+        return (dateInt - AdvantajeRawValues.EPOCH_JULIAN_DAY) * MILLIS_PER_DAY + millis;
+    }
+
+    static long hashRecord(ByteBuffer recordBuffer, int recordOffset, int recordLength) {
+        long hash = recordLength;
+        int offset = recordOffset;
+        int end = recordOffset + recordLength;
+        for (; offset + 8 <= end; offset += 8) {
+            hash = mixHash(hash, recordBuffer.getLong(offset));
+        }
+        for (; offset < end; offset++) {
+            hash = mixHash(hash, recordBuffer.get(offset));
+        }
+        return hash;
+    }
+
+    private static long mixHash(long hash, long value) {
+        long mixed = (hash ^ value) * HASH_MULTIPLIER;
+        return mixed ^ (mixed >>> 32);
+    }
+}
@@ -0,0 +1,28 @@
+package be.valuya.advantaje.core;
+
+import java.util.List;
+
+/**
+ * The records changed since a checkpoint, and the checkpoint to use for the next incremental read.
+ */
+public class AdvantajeChangeSet {
+
+    private final List<AdvantajeChange> changes;
+    private final AdvantajeCheckpoint checkpoint;
+
+    public AdvantajeChangeSet(List<AdvantajeChange> changes, AdvantajeCheckpoint checkpoint) {
+        this.changes = changes;
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * @return The changes, in record number order
+     */
+    public List<AdvantajeChange> getChanges() {
+        return changes;
+    }
+
+    public AdvantajeCheckpoint getCheckpoint() {
+        return checkpoint;
+    }
+}
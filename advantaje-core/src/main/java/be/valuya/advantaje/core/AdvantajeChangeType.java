@@ -0,0 +1,9 @@
+package be.valuya.advantaje.core;
+
+public enum AdvantajeChangeType {
+
+    INSERTED,
+    UPDATED,
+    DELETED
+
+}
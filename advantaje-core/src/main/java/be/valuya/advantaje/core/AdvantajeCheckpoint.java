@@ -0,0 +1,100 @@
+package be.valuya.advantaje.core;
+
+import java.io.Serializable;
+import java.util.Optional;
+
+/**
+ * The state of a table after an incremental read, from which the next incremental read only returns changed
+ * records. Checkpoints are immutable and serializable, so that they may be stored between syncs.
+ * <p>
+ * A checkpoint also records which records were selected, live and matching the filter of the read, using one bit per
+ * record. The next read returns records leaving the selection as deleted, even when their version did not change, so
+ * it should use the same filter.
+ * <p>
+ * Start with {@link #rowVersion(String)}, {@link #modTime(String)} or {@link #recordHash()}, for which all records
+ * are new.
+ */
+public class AdvantajeCheckpoint implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final AdvantajeCheckpointType checkpointType;
+    private final String fieldName;
+    private final int recordCount;
+    private final long maxVersion;
+    private final long[] recordHashes;
+    private final long[] selectedBits;
+
+    AdvantajeCheckpoint(AdvantajeCheckpointType checkpointType, String fieldName, int recordCount, long maxVersion,
+                        long[] recordHashes, long[] selectedBits) {
+        this.checkpointType = checkpointType;
+        this.fieldName = fieldName;
+        this.recordCount = recordCount;
+        this.maxVersion = maxVersion;
+        this.recordHashes = recordHashes;
+        this.selectedBits = selectedBits;
+    }
+
+    /**
+     * @param fieldName A RAWVERSION field, or an INTEGER or AUTOINC field incremented on each change
+     */
+    public static AdvantajeCheckpoint rowVersion(String fieldName) {
+        return new AdvantajeCheckpoint(AdvantajeCheckpointType.ROW_VERSION, fieldName, 0, Long.MIN_VALUE, null, new long[0]);
+    }
+
+    /**
+     * @param fieldName A MODTIME field, or a TIMESTAMP field updated on each change
+     */
+    public static AdvantajeCheckpoint modTime(String fieldName) {
+        return new AdvantajeCheckpoint(AdvantajeCheckpointType.MOD_TIME, fieldName, 0, Long.MIN_VALUE, null, new long[0]);
+    }
+
+    /**
+     * Detect changes by comparing a hash of each record bytes, which also detects changes of tables without version
+     * field. The checkpoint holds 8 bytes per record, rather than a bit.
+     */
+    public static AdvantajeCheckpoint recordHash() {
+        return new AdvantajeCheckpoint(AdvantajeCheckpointType.RECORD_HASH, null, 0, Long.MIN_VALUE, new long[0], new long[0]);
+    }
+
+    public AdvantajeCheckpointType getCheckpointType() {
+        return checkpointType;
+    }
+
+    /**
+     * @return The version field, absent for record hash checkpoints
+     */
+    public Optional<String> getFieldNameOptional() {
+        return Optional.ofNullable(fieldName);
+    }
+
+    /**
+     * @return The number of records of the table at this checkpoint
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return The greatest version read, as a number for row versions or as epoch milliseconds for modification times,
+     * or Long.MIN_VALUE if none was read
+     */
+    public long getMaxVersion() {
+        return maxVersion;
+    }
+
+    long getRecordHash(int recordNumber) {
+        return recordHashes[recordNumber];
+    }
+
+    /**
+     * @return Whether the record was live and matched the filter of the read, always true for checkpoints stored
+     * before selected records were recorded
+     */
+    boolean isSelected(int recordNumber) {
+        if (selectedBits == null) {
+            return true;
+        }
+        return (selectedBits[recordNumber >>> 6] & (1L << recordNumber)) != 0;
+    }
+}
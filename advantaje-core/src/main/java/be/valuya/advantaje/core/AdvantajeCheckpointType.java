@@ -0,0 +1,21 @@
+package be.valuya.advantaje.core;
+
+/**
+ * How changed records are detected between two checkpoints.
+ */
+public enum AdvantajeCheckpointType {
+
+    /**
+     * Records having a RAWVERSION (or INTEGER, AUTOINC) field value greater than the checkpoint maximum changed.
+     */
+    ROW_VERSION,
+    /**
+     * Records having a MODTIME (or TIMESTAMP) field value later than the checkpoint maximum changed.
+     */
+    MOD_TIME,
+    /**
+     * Records having a hash of their bytes different from the one stored in the checkpoint changed.
+     */
+    RECORD_HASH
+
+}
@@ -0,0 +1,47 @@
+package be.valuya.advantaje.core;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The values of one field for the rows of an {@link AdvantajeColumnBatch}, stored in a primitive array with a null
+ * bitmap.
+ */
+public abstract class AdvantajeColumn {
+
+    private final AdvantajeField<?> field;
+    private final long[] nullBits;
+
+    AdvantajeColumn(AdvantajeField<?> field, int capacity) {
+        this.field = field;
+        this.nullBits = new long[(capacity + 63) / 64];
+    }
+
+    public AdvantajeField<?> getField() {
+        return field;
+    }
+
+    public boolean isNull(int row) {
+        return (nullBits[row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * @return The null bitmap: bit (row % 64) of word (row / 64) is set for null values
+     */
+    public long[] getNullBits() {
+        return nullBits;
+    }
+
+    void clear() {
+        Arrays.fill(nullBits, 0L);
+    }
+
+    void setNull(int row) {
+        nullBits[row >>> 6] |= 1L << row;
+    }
+
+    /**
+     * Read the value of the record in the given row
+     */
+    abstract void read(int row, ByteBuffer recordBuffer, int recordOffset);
+}
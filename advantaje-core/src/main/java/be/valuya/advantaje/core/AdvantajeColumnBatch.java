@@ -0,0 +1,137 @@
+package be.valuya.advantaje.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * A batch of rows decoded into one primitive column per field. A batch is filled by
+ * {@link AdvantajeCursor#nextBatch(AdvantajeColumnBatch)} and reused between calls, so that a scan allocates a
+ * constant amount of memory, apart from string dictionary entries, which are bounded by
+ * {@link AdvantajeStringColumn#MAX_DICTIONARY_SIZE}.
+ */
+public class AdvantajeColumnBatch {
+
+    private final AdvantajeColumn[] columns;
+    private final int capacity;
+    private int size;
+
+    /**
+     * @param fields   The fields to decode, which must be part of the scanned table
+     * @param capacity The maximum number of rows of each batch
+     */
+    public AdvantajeColumnBatch(List<AdvantajeField<?>> fields, Charset charset, int capacity) {
+        this.capacity = capacity;
+        this.columns = fields.stream()
+                .map(field -> createColumn(field, charset, capacity))
+                .toArray(AdvantajeColumn[]::new);
+    }
+
+    /**
+     * @param fieldNames The fields to decode, or none to decode all fields
+     */
+    public static AdvantajeColumnBatch create(AdvantajeTableMetaData metaData, Charset charset, int capacity, String... fieldNames) {
+        List<AdvantajeField<?>> fields = metaData.selectFields(fieldNames);
+        return new AdvantajeColumnBatch(fields, charset, capacity);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return The number of rows in this batch
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    public AdvantajeColumn getColumn(int columnIndex) {
+        return columns[columnIndex];
+    }
+
+    public AdvantajeColumn getColumn(String fieldName) {
+        for (AdvantajeColumn column : columns) {
+            if (column.getField().getName().equals(fieldName)) {
+                return column;
+            }
+        }
+        throw new AdvantajeException("No such column: " + fieldName);
+    }
+
+    public AdvantajeIntColumn getIntColumn(String fieldName) {
+        return getTypedColumn(fieldName, AdvantajeIntColumn.class);
+    }
+
+    public AdvantajeLongColumn getLongColumn(String fieldName) {
+        return getTypedColumn(fieldName, AdvantajeLongColumn.class);
+    }
+
+    public AdvantajeDoubleColumn getDoubleColumn(String fieldName) {
+        return getTypedColumn(fieldName, AdvantajeDoubleColumn.class);
+    }
+
+    public AdvantajeStringColumn getStringColumn(String fieldName) {
+        return getTypedColumn(fieldName, AdvantajeStringColumn.class);
+    }
+
+    void clear() {
+        size = 0;
+        for (AdvantajeColumn column : columns) {
+            column.clear();
+        }
+    }
+
+    boolean isFull() {
+        return size == capacity;
+    }
+
+    void addRow(ByteBuffer recordBuffer, int recordOffset) {
+        int row = size++;
+        for (AdvantajeColumn column : columns) {
+            column.read(row, recordBuffer, recordOffset);
+        }
+    }
+
+    private <C extends AdvantajeColumn> C getTypedColumn(String fieldName, Class<C> columnType) {
+        AdvantajeColumn column = getColumn(fieldName);
+        if (!columnType.isInstance(column)) {
+            throw new AdvantajeException("Column " + fieldName + " is not a " + columnType.getSimpleName());
+        }
+        return columnType.cast(column);
+    }
+
+    private static AdvantajeColumn createColumn(AdvantajeField<?> field, Charset charset, int capacity) {
+        AdvantajeFieldType fieldType = field.getFieldType();
+        switch (fieldType) {
+            case LOGICAL:
+            case NUMERIC:
+            case SHORTINT:
+            case DATE:
+            case INTEGER:
+            case AUTOINC:
+            case RAWVERSION:
+            case TIME:
+            case MODTIME:
+                return new AdvantajeIntColumn(field, capacity);
+            case MONEY:
+            case TIMESTAMP:
+                return new AdvantajeLongColumn(field, capacity);
+            case DOUBLE:
+            case CURRENCY:
+                return new AdvantajeDoubleColumn(field, capacity);
+            case STRING:
+            case CISSTRING:
+            case VARCHAR_FOX:
+            case NCHAR:
+            case NVARCHAR:
+                return new AdvantajeStringColumn(field, capacity, charset);
+            default:
+                throw new AdvantajeException("Unsupported column field type: " + fieldType + " for field " + field.getName());
+        }
+    }
+}
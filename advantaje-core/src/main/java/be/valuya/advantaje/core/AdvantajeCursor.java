@@ -0,0 +1,361 @@
+package be.valuya.advantaje.core;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Moves record by record over a table, exposing field values by index without allocating objects. Values are read
+ * straight from the record bytes, which are only valid until the next call to {@link #next()}.
+ * <p>
+ * Field indexes are the positions of the fields in the table metadata.
+ */
+public class AdvantajeCursor implements Closeable {
+
+    private final AdvantajeRecordSource recordSource;
+    private final AdvantajeRecordPredicate recordPredicate;
+    private final boolean includeDeleted;
+    private final AdvantajeField<?>[] fields;
+    private final CharsetDecoder charsetDecoder;
+    private final CharsetDecoder unicodeDecoder;
+    private final boolean latin1;
+    private ByteBuffer recordBuffer;
+    private int recordOffset;
+    private Runnable closeHandler;
+    private AdvantajeScanListener scanListener = AdvantajeScanListener.NONE;
+    private AdvantajeScanStatistics scanStatistics;
+    private long recordsRead;
+    private long deletedRecordsSkipped;
+    private long filteredRecordsSkipped;
+    private long recordsReturned;
+
+    public AdvantajeCursor(AdvantajeRecordSource recordSource, Charset charset) {
+        this(recordSource, charset, null);
+    }
+
+    /**
+     * @param recordPredicate A predicate evaluated on each record, skipping records which do not match. May be null.
+     */
+    public AdvantajeCursor(AdvantajeRecordSource recordSource, Charset charset, AdvantajeRecordPredicate recordPredicate) {
+        this(recordSource, charset, recordPredicate, false);
+    }
+
+    /**
+     * @param recordPredicate A predicate evaluated on each record, skipping records which do not match. May be null.
+     * @param includeDeleted  Whether records marked deleted are read, rather than skipped
+     */
+    public AdvantajeCursor(AdvantajeRecordSource recordSource, Charset charset, AdvantajeRecordPredicate recordPredicate,
+                           boolean includeDeleted) {
+        this.recordSource = recordSource;
+        this.recordPredicate = recordPredicate;
+        this.includeDeleted = includeDeleted;
+        List<AdvantajeField<?>> fieldList = recordSource.getMetaData().getFields();
+        this.fields = fieldList.toArray(new AdvantajeField<?>[0]);
+        this.charsetDecoder = createDecoder(charset);
+        this.unicodeDecoder = createDecoder(StandardCharsets.UTF_16LE);
+        this.latin1 = charset.equals(StandardCharsets.ISO_8859_1);
+    }
+
+    public AdvantajeTableMetaData getMetaData() {
+        return recordSource.getMetaData();
+    }
+
+    /**
+     * Move to the next (matching) record.
+     *
+     * @return false when there are no more records
+     */
+    public boolean next() {
+        while (recordSource.next()) {
+            ByteBuffer nextRecordBuffer = recordSource.getRecordBuffer();
+            int nextRecordOffset = recordSource.getRecordOffset();
+            recordsRead++;
+            if (!includeDeleted && AdvantajeTableReader.isDeletedRecord(nextRecordBuffer, nextRecordOffset)) {
+                deletedRecordsSkipped++;
+                continue;
+            }
+            if (recordPredicate == null || recordPredicate.test(nextRecordBuffer, nextRecordOffset)) {
+                recordBuffer = nextRecordBuffer;
+                recordOffset = nextRecordOffset;
+                recordsReturned++;
+                return true;
+            }
+            filteredRecordsSkipped++;
+        }
+        recordBuffer = null;
+        return false;
+    }
+
+    /**
+     * Decode the next (matching) records into a batch, replacing its previous content.
+     *
+     * @return The number of rows read, 0 when there are no more records
+     */
+    public int nextBatch(AdvantajeColumnBatch batch) {
+        batch.clear();
+        while (!batch.isFull() && next()) {
+            batch.addRow(recordBuffer, recordOffset);
+        }
+        return batch.getSize();
+    }
+
+    public int getRecordNumber() {
+        return recordSource.getRecordNumber();
+    }
+
+    /**
+     * @return Whether the current record is marked deleted, which only happens for cursors including deleted records
+     */
+    public boolean isDeleted() {
+        return AdvantajeTableReader.isDeletedRecord(getCurrentRecordBuffer(), recordOffset);
+    }
+
+    public int getFieldCount() {
+        return fields.length;
+    }
+
+    public AdvantajeField<?> getField(int fieldIndex) {
+        return fields[fieldIndex];
+    }
+
+    public int getFieldIndex(String fieldName) {
+        for (int fieldIndex = 0; fieldIndex < fields.length; fieldIndex++) {
+            if (fields[fieldIndex].getName().equals(fieldName)) {
+                return fieldIndex;
+            }
+        }
+        throw new AdvantajeException("No such field: " + fieldName);
+    }
+
+    public boolean isNull(int fieldIndex) {
+        return AdvantajeRawValues.isNull(fields[fieldIndex], getCurrentRecordBuffer(), recordOffset);
+    }
+
+    public boolean getBoolean(int fieldIndex) {
+        AdvantajeField<?> field = fields[fieldIndex];
+        checkFieldType(field, AdvantajeFieldType.LOGICAL);
+        return getCurrentRecordBuffer().get(recordOffset + field.getOffset()) == 'T';
+    }
+
+    public int getInt(int fieldIndex) {
+        long longValue = getLong(fieldIndex);
+        return Math.toIntExact(longValue);
+    }
+
+    /**
+     * @return The raw integral value: julian day for dates, milliseconds of day for times, unscaled value for money.
+     */
+    public long getLong(int fieldIndex) {
+        return AdvantajeRawValues.getLong(fields[fieldIndex], getCurrentRecordBuffer(), recordOffset);
+    }
+
+    public double getDouble(int fieldIndex) {
+        return AdvantajeRawValues.getDouble(fields[fieldIndex], getCurrentRecordBuffer(), recordOffset);
+    }
+
+    /**
+     * @return The number of days since 1970-01-01 of a DATE, TIMESTAMP or MODTIME field
+     */
+    public int getEpochDay(int fieldIndex) {
+        AdvantajeField<?> field = fields[fieldIndex];
+        int fieldOffset = recordOffset + field.getOffset();
+        switch (field.getFieldType()) {
+            case DATE:
+            case TIMESTAMP:
+                return getCurrentRecordBuffer().getInt(fieldOffset) - AdvantajeRawValues.EPOCH_JULIAN_DAY;
+            case MODTIME:
+                return getCurrentRecordBuffer().getInt(fieldOffset + 4) - AdvantajeRawValues.EPOCH_JULIAN_DAY;
+            default:
+                throw new AdvantajeException("Not a date field: " + field.getName());
+        }
+    }
+
+    /**
+     * @return The number of milliseconds since midnight of a TIME, TIMESTAMP or MODTIME field
+     */
+    public int getMillisOfDay(int fieldIndex) {
+        AdvantajeField<?> field = fields[fieldIndex];
+        int fieldOffset = recordOffset + field.getOffset();
+        switch (field.getFieldType()) {
+            case TIME:
+            case MODTIME:
+                return getCurrentRecordBuffer().getInt(fieldOffset);
+            case TIMESTAMP:
+                return getCurrentRecordBuffer().getInt(fieldOffset + 4);
+            default:
+                throw new AdvantajeException("Not a time field: " + field.getName());
+        }
+    }
+
+    /**
+     * Decode a trimmed string field into the target buffer, at its current position. Null chars are removed from
+     * fixed-length strings, as when decoding records.
+     *
+     * @return The number of chars written
+     */
+    public int getString(int fieldIndex, CharBuffer target) {
+        AdvantajeField<?> field = fields[fieldIndex];
+        ByteBuffer buffer = getCurrentRecordBuffer();
+        int fieldOffset = recordOffset + field.getOffset();
+        int storageLength = field.getStorageLength();
+        switch (field.getFieldType()) {
+            case STRING:
+            case CISSTRING:
+                return decodeTrimmed(buffer, fieldOffset, fieldOffset + storageLength, 1, charsetDecoder, true, target);
+            case VARCHAR_FOX: {
+                int size = getVarSize(buffer, fieldOffset, storageLength, 1);
+                return decodeTrimmed(buffer, fieldOffset, fieldOffset + size, 1, charsetDecoder, false, target);
+            }
+            case NCHAR:
+                return decodeTrimmed(buffer, fieldOffset, fieldOffset + storageLength, 2, unicodeDecoder, true, target);
+            case NVARCHAR: {
+                int size = getVarSize(buffer, fieldOffset, storageLength, 2);
+                return decodeTrimmed(buffer, fieldOffset, fieldOffset + size * 2, 2, unicodeDecoder, false, target);
+            }
+            default:
+                throw new AdvantajeException("Not a string field: " + field.getName());
+        }
+    }
+
+    /**
+     * @param closeHandler Called when this cursor is closed, after the record source has been closed
+     */
+    public AdvantajeCursor onClose(Runnable closeHandler) {
+        this.closeHandler = closeHandler;
+        return this;
+    }
+
+    /**
+     * Notify a listener of this scan, unless it is {@link AdvantajeScanListener#NONE}. The scan ends when the cursor is
+     * closed.
+     *
+     * @param tableName The table file name, or null for tables read from an input stream
+     */
+    AdvantajeCursor setScanListener(String tableName, AdvantajeScanListener scanListener) {
+        this.scanListener = scanListener;
+        if (scanListener != AdvantajeScanListener.NONE) {
+            scanStatistics = new AdvantajeScanStatistics(tableName, recordSource.getMetaData());
+            scanListener.scanStarted(scanStatistics);
+        }
+        return this;
+    }
+
+    @Override
+    public void close() {
+        recordSource.close();
+        if (scanStatistics != null) {
+            scanStatistics.add(recordsRead, deletedRecordsSkipped, filteredRecordsSkipped, recordsReturned);
+            recordsRead = 0;
+            deletedRecordsSkipped = 0;
+            filteredRecordsSkipped = 0;
+            recordsReturned = 0;
+            if (scanStatistics.end()) {
+                scanListener.scanEnded(scanStatistics);
+            }
+        }
+        if (closeHandler != null) {
+            closeHandler.run();
+        }
+    }
+
+    /**
+     * @param removeNulls Whether null chars are removed from the decoded value
+     */
+    private int decodeTrimmed(ByteBuffer buffer, int start, int end, int unitLength, CharsetDecoder decoder,
+                              boolean removeNulls, CharBuffer target) {
+        while (start < end && isBlankUnit(buffer, start, unitLength)) {
+            start += unitLength;
+        }
+        while (end > start && isBlankUnit(buffer, end - unitLength, unitLength)) {
+            end -= unitLength;
+        }
+        int length = end - start;
+        if (unitLength == 1 && latin1) {
+            if (target.remaining() < length) {
+                throw new AdvantajeException("Target buffer too small for field value");
+            }
+            int targetStart = target.position();
+            for (int i = 0; i < length; i++) {
+                char charValue = (char) (buffer.get(start + i) & 0xff);
+                if (charValue != 0 || !removeNulls) {
+                    target.put(charValue);
+                }
+            }
+            return target.position() - targetStart;
+        }
+        int targetStart = target.position();
+        int limit = buffer.limit();
+        buffer.limit(end);
+        buffer.position(start);
+        decoder.reset();
+        CoderResult coderResult = decoder.decode(buffer, target, true);
+        if (!coderResult.isError() && !coderResult.isOverflow()) {
+            coderResult = decoder.flush(target);
+        }
+        buffer.limit(limit);
+        if (coderResult.isOverflow()) {
+            throw new AdvantajeException("Target buffer too small for field value");
+        }
+        if (removeNulls) {
+            removeNulls(target, targetStart);
+        }
+        return target.position() - targetStart;
+    }
+
+    /**
+     * Remove the null chars written in the target buffer since targetStart, moving the following chars back.
+     */
+    private static void removeNulls(CharBuffer target, int targetStart) {
+        int end = target.position();
+        int writePosition = targetStart;
+        for (int readPosition = targetStart; readPosition < end; readPosition++) {
+            char charValue = target.get(readPosition);
+            if (charValue != 0) {
+                target.put(writePosition++, charValue);
+            }
+        }
+        target.position(writePosition);
+    }
+
+    /**
+     * @return The size stored in the last 2 bytes of a variable-length field, in units
+     */
+    private int getVarSize(ByteBuffer buffer, int fieldOffset, int storageLength, int unitLength) {
+        int size = buffer.getShort(fieldOffset + storageLength - 2);
+        int maxSize = (storageLength - 2) / unitLength;
+        return Math.max(0, Math.min(size, maxSize));
+    }
+
+    private static CharsetDecoder createDecoder(Charset charset) {
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    private boolean isBlankUnit(ByteBuffer buffer, int offset, int unitLength) {
+        if (unitLength == 1) {
+            return AdvantajeRawValues.isBlank(buffer.get(offset));
+        }
+        char charValue = buffer.getChar(offset);
+        return charValue <= ' ';
+    }
+
+    private ByteBuffer getCurrentRecordBuffer() {
+        if (recordBuffer == null) {
+            throw new AdvantajeException("No current record");
+        }
+        return recordBuffer;
+    }
+
+    private void checkFieldType(AdvantajeField<?> field, AdvantajeFieldType fieldType) {
+        if (field.getFieldType() != fieldType) {
+            throw new AdvantajeException("Field " + field.getName() + " is not of type " + fieldType);
+        }
+    }
+}
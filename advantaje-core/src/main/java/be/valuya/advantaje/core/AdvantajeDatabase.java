@@ -0,0 +1,302 @@
+package be.valuya.advantaje.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * The tables of a directory, like a BOB dossier. Table headers are read concurrently when the database is opened, and
+ * tables are then processed concurrently, a limited number of them at the same time. A table counts against the limit
+ * from the opening of its file until its table processor returns, so that the limit bounds the open files and the
+ * tables being decoded, rather than the reads themselves.
+ * <p>
+ * Tables are named after their file name without extension, ignoring case.
+ */
+public class AdvantajeDatabase implements Closeable {
+
+    public static final int DEFAULT_IO_CONCURRENCY = 8;
+
+    private static final String TABLE_EXTENSION = ".adt";
+
+    private final Path directory;
+    private final Charset charset;
+    private final ExecutorService executorService;
+    private final boolean ownedExecutorService;
+    private final Semaphore tablePermits;
+    private final AdvantajeMetaDataCache metaDataCache;
+    private final AdvantajeService advantajeService = new AdvantajeService();
+    private final Map<String, Path> tablePaths = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final Map<String, AdvantajeTableMetaData> tableMetaData = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final Map<String, AdvantajeException> tableFailures = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    private AdvantajeDatabase(Path directory, Charset charset, ExecutorService executorService,
+                              boolean ownedExecutorService, int ioConcurrency, AdvantajeMetaDataCache metaDataCache) {
+        this.directory = directory;
+        this.charset = charset;
+        this.executorService = executorService;
+        this.ownedExecutorService = ownedExecutorService;
+        // The threads of an owned executor already limit the tables processed at the same time
+        this.tablePermits = ownedExecutorService ? null : new Semaphore(ioConcurrency);
+        this.metaDataCache = metaDataCache;
+        advantajeService.setMetaDataCache(metaDataCache);
+    }
+
+    public static AdvantajeDatabase open(Path directory, Charset charset) {
+        return open(directory, charset, DEFAULT_IO_CONCURRENCY);
+    }
+
+    /**
+     * @param metaDataCache A cache from which table metadata is read, unless table files changed. The headers of
+     *                      cached tables are not read.
+     */
+    public static AdvantajeDatabase open(Path directory, Charset charset, AdvantajeMetaDataCache metaDataCache) {
+        ExecutorService executorService = Executors.newFixedThreadPool(DEFAULT_IO_CONCURRENCY, createThreadFactory(directory));
+        return open(directory, charset, executorService, true, DEFAULT_IO_CONCURRENCY, metaDataCache);
+    }
+
+    /**
+     * @param ioConcurrency The maximum number of tables read or processed at the same time, which is also the number
+     *                      of threads of the database
+     */
+    public static AdvantajeDatabase open(Path directory, Charset charset, int ioConcurrency) {
+        ExecutorService executorService = Executors.newFixedThreadPool(ioConcurrency, createThreadFactory(directory));
+        return open(directory, charset, executorService, true, ioConcurrency, null);
+    }
+
+    /**
+     * @param executorService The executor running the table tasks, which will not be shut down with the database. On
+     *                        recent JVMs, this may be a virtual thread per task executor.
+     * @param ioConcurrency   The maximum number of tables read or processed at the same time
+     */
+    public static AdvantajeDatabase open(Path directory, Charset charset, ExecutorService executorService, int ioConcurrency) {
+        return open(directory, charset, executorService, false, ioConcurrency, null);
+    }
+
+    /**
+     * @param executorService The executor running the table tasks, which will not be shut down with the database
+     * @param ioConcurrency   The maximum number of tables read or processed at the same time
+     * @param metaDataCache   A cache from which table metadata is read, unless table files changed. May be null.
+     */
+    public static AdvantajeDatabase open(Path directory, Charset charset, ExecutorService executorService, int ioConcurrency,
+                                         AdvantajeMetaDataCache metaDataCache) {
+        return open(directory, charset, executorService, false, ioConcurrency, metaDataCache);
+    }
+
+    private static AdvantajeDatabase open(Path directory, Charset charset, ExecutorService executorService,
+                                          boolean ownedExecutorService, int ioConcurrency, AdvantajeMetaDataCache metaDataCache) {
+        AdvantajeDatabase database = new AdvantajeDatabase(directory, charset, executorService, ownedExecutorService,
+                ioConcurrency, metaDataCache);
+        try {
+            database.readTableHeaders();
+            return database;
+        } catch (RuntimeException exception) {
+            database.close();
+            throw exception;
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * @return The service used to stream tables, which may be configured
+     */
+    public AdvantajeService getAdvantajeService() {
+        return advantajeService;
+    }
+
+    /**
+     * @return The names of the tables having a readable header, sorted ignoring case
+     */
+    public Set<String> getTableNames() {
+        return Collections.unmodifiableSet(tableMetaData.keySet());
+    }
+
+    /**
+     * @return The errors reading table headers, by table name
+     */
+    public Map<String, AdvantajeException> getTableFailures() {
+        return Collections.unmodifiableMap(tableFailures);
+    }
+
+    public Path getTablePath(String tableName) {
+        Path tablePath = tablePaths.get(tableName);
+        if (tablePath == null) {
+            throw new AdvantajeException("No such table: " + tableName);
+        }
+        return tablePath;
+    }
+
+    public AdvantajeTableMetaData getTableMetaData(String tableName) {
+        AdvantajeTableMetaData metaData = tableMetaData.get(tableName);
+        if (metaData == null) {
+            throw new AdvantajeException("No such table: " + tableName);
+        }
+        return metaData;
+    }
+
+    /**
+     * Stream a table asynchronously. The table counts against the concurrency limit of the database until processed,
+     * so that processors blocking on other tables may wait forever when the limit is reached.
+     *
+     * @param tableProcessor Processes the table records. The stream is closed once processed.
+     * @param fieldNames     The fields to decode, or none to decode all fields
+     * @return The result of the table processor
+     */
+    public <R> CompletableFuture<R> processTable(String tableName, Function<Stream<AdvantajeRecord>, R> tableProcessor,
+                                                 String... fieldNames) {
+        Path tablePath = getTablePath(tableName);
+        return CompletableFuture.supplyAsync(() -> withTablePermit(() -> {
+            try (Stream<AdvantajeRecord> recordStream = advantajeService.streamTable(tablePath, charset, fieldNames)) {
+                return tableProcessor.apply(recordStream);
+            }
+        }), executorService);
+    }
+
+    /**
+     * Stream tables concurrently.
+     *
+     * @param tableProcessor     Processes the records of each table. Streams are closed once processed.
+     * @param completionCallback Notified with the result of each table, as soon as it is processed. May be null.
+     * @return The results by table name, in the requested order, completed once all tables are processed
+     */
+    public <R> CompletableFuture<Map<String, R>> processTables(Collection<String> tableNames,
+                                                               Function<Stream<AdvantajeRecord>, R> tableProcessor,
+                                                               BiConsumer<String, ? super R> completionCallback) {
+        Map<String, CompletableFuture<R>> tableFutures = new LinkedHashMap<>();
+        for (String tableName : tableNames) {
+            CompletableFuture<R> tableFuture = processTable(tableName, tableProcessor);
+            if (completionCallback != null) {
+                tableFuture = tableFuture.thenApply(result -> {
+                    completionCallback.accept(tableName, result);
+                    return result;
+                });
+            }
+            tableFutures.put(tableName, tableFuture);
+        }
+        CompletableFuture<?>[] futures = tableFutures.values().toArray(new CompletableFuture<?>[0]);
+        return CompletableFuture.allOf(futures)
+                .thenApply(done -> {
+                    Map<String, R> results = new LinkedHashMap<>();
+                    tableFutures.forEach((tableName, tableFuture) -> results.put(tableName, tableFuture.join()));
+                    return results;
+                });
+    }
+
+    @Override
+    public void close() {
+        if (ownedExecutorService) {
+            executorService.shutdown();
+        }
+    }
+
+    private void readTableHeaders() {
+        List<Path> paths = listTablePaths();
+        Map<String, AdvantajeTableMetaData> readMetaData = new ConcurrentHashMap<>();
+        Map<String, AdvantajeException> readFailures = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> headerFutures = new ArrayList<>();
+        for (Path tablePath : paths) {
+            String tableName = getTableName(tablePath);
+            tablePaths.put(tableName, tablePath);
+            CompletableFuture<Void> headerFuture = CompletableFuture.runAsync(() -> {
+                try {
+                    AdvantajeTableMetaData metaData = withTablePermit(() -> readTableHeader(tablePath));
+                    readMetaData.put(tableName, metaData);
+                } catch (AdvantajeException exception) {
+                    readFailures.put(tableName, exception);
+                }
+            }, executorService);
+            headerFutures.add(headerFuture);
+        }
+        CompletableFuture.allOf(headerFutures.toArray(new CompletableFuture<?>[0]))
+                .join();
+        tableMetaData.putAll(readMetaData);
+        tableFailures.putAll(readFailures);
+    }
+
+    private List<Path> listTablePaths() {
+        List<Path> paths = new ArrayList<>();
+        try (Stream<Path> directoryPaths = Files.list(directory)) {
+            directoryPaths.filter(Files::isRegularFile)
+                    .filter(path -> path.getFileName().toString().toLowerCase().endsWith(TABLE_EXTENSION))
+                    .forEach(paths::add);
+        } catch (IOException exception) {
+            throw new AdvantajeException("Error listing directory " + directory, exception);
+        }
+        return paths;
+    }
+
+    private AdvantajeTableMetaData readTableHeader(Path tablePath) {
+        if (metaDataCache != null) {
+            try {
+                return metaDataCache.getMetaData(tablePath, charset);
+            } catch (RuntimeException exception) {
+                throw new AdvantajeException("Error reading table header " + tablePath, exception);
+            }
+        }
+        try (InputStream inputStream = Files.newInputStream(tablePath)) {
+            AdvantajeTableReader tableReader = new AdvantajeTableReader();
+            return tableReader.openTable(inputStream, charset);
+        } catch (IOException | RuntimeException exception) {
+            throw new AdvantajeException("Error reading table header " + tablePath, exception);
+        }
+    }
+
+    private <T> T withTablePermit(Supplier<T> task) {
+        if (tablePermits == null) {
+            return task.get();
+        }
+        try {
+            tablePermits.acquire();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new AdvantajeException("Interrupted", exception);
+        }
+        try {
+            return task.get();
+        } finally {
+            tablePermits.release();
+        }
+    }
+
+    private static String getTableName(Path tablePath) {
+        String fileName = tablePath.getFileName().toString();
+        return fileName.substring(0, fileName.length() - TABLE_EXTENSION.length());
+    }
+
+    private static ThreadFactory createThreadFactory(Path directory) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "advantaje-database-" + directory.getFileName() + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,78 @@
+package be.valuya.advantaje.core;
+
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The decoders of a list of fields, compiled once and cached for all tables sharing the same fields and charset. The
+ * {@link #MAX_CACHED_PLAN_COUNT} most recently used plans are cached.
+ */
+public class AdvantajeDecodePlan {
+
+    public static final int MAX_CACHED_PLAN_COUNT = 256;
+
+    private static final PlanCache PLAN_CACHE = new PlanCache();
+
+    private final String key;
+    private final AdvantajeFieldDecoder<?>[] decoders;
+
+    private AdvantajeDecodePlan(String key, List<AdvantajeField<?>> fields, Charset charset) {
+        this.key = key;
+        this.decoders = fields.stream()
+                .map(field -> AdvantajeFieldDecoders.create(field, charset))
+                .toArray(AdvantajeFieldDecoder<?>[]::new);
+    }
+
+    public static AdvantajeDecodePlan compile(List<AdvantajeField<?>> fields, Charset charset) {
+        String planKey = getPlanKey(fields, charset);
+        synchronized (PLAN_CACHE) {
+            return PLAN_CACHE.computeIfAbsent(planKey, key -> new AdvantajeDecodePlan(key, fields, charset));
+        }
+    }
+
+    /**
+     * @return The names, types, offsets and lengths of the fields, and the charset, equal for plans compiled for the
+     * same layout, including plans compiled again once evicted
+     */
+    String getKey() {
+        return key;
+    }
+
+    public int getDecoderCount() {
+        return decoders.length;
+    }
+
+    public AdvantajeFieldDecoder<?> getDecoder(int fieldIndex) {
+        return decoders[fieldIndex];
+    }
+
+    private static String getPlanKey(List<AdvantajeField<?>> fields, Charset charset) {
+        StringBuilder planKeyBuilder = new StringBuilder(charset.name())
+                .append('[');
+        for (AdvantajeField<?> field : fields) {
+            planKeyBuilder.append(field.getName())
+                    .append(':').append(field.getFieldType())
+                    .append(':').append(field.getOffset())
+                    .append(':').append(field.getLength())
+                    .append(field.isInterned() ? ":interned," : ",");
+        }
+        return planKeyBuilder.append(']')
+                .toString();
+    }
+
+    private static class PlanCache extends LinkedHashMap<String, AdvantajeDecodePlan> {
+
+        private static final long serialVersionUID = 1L;
+
+        private PlanCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, AdvantajeDecodePlan> eldest) {
+            return size() > MAX_CACHED_PLAN_COUNT;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package be.valuya.advantaje.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A column of double values, for DOUBLE and CURRENCY fields.
+ */
+public class AdvantajeDoubleColumn extends AdvantajeColumn {
+
+    private final int fieldOffset;
+    private final double[] values;
+
+    AdvantajeDoubleColumn(AdvantajeField<?> field, int capacity) {
+        super(field, capacity);
+        this.fieldOffset = field.getOffset();
+        this.values = new double[capacity];
+    }
+
+    public double[] getValues() {
+        return values;
+    }
+
+    public double getValue(int row) {
+        return values[row];
+    }
+
+    @Override
+    void read(int row, ByteBuffer recordBuffer, int recordOffset) {
+        double doubleValue = recordBuffer.getDouble(recordOffset + fieldOffset);
+        if (AdvantajeRawValues.isNullDouble(doubleValue)) {
+            setNull(row);
+        }
+        values[row] = doubleValue;
+    }
+}
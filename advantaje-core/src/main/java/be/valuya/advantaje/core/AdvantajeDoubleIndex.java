@@ -0,0 +1,83 @@
+package be.valuya.advantaje.core;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * An index on a floating point field.
+ */
+class AdvantajeDoubleIndex extends AdvantajeIndex {
+
+    private final double[] keys;
+
+    private AdvantajeDoubleIndex(AdvantajeField<?> field, int[] recordNumbers, double[] keys) {
+        super(field, recordNumbers);
+        this.keys = keys;
+    }
+
+    static AdvantajeDoubleIndex build(AdvantajeField<?> field, AdvantajeRecordSource recordSource) {
+        int capacity = (int) Math.max(16, recordSource.estimateSize());
+        double[] unsortedKeys = new double[capacity];
+        int[] unsortedRecordNumbers = new int[capacity];
+        int size = 0;
+        while (recordSource.next()) {
+            ByteBuffer recordBuffer = recordSource.getRecordBuffer();
+            int recordOffset = recordSource.getRecordOffset();
+            if (!isIndexed(field, recordBuffer, recordOffset)) {
+                continue;
+            }
+            if (size == unsortedKeys.length) {
+                unsortedKeys = Arrays.copyOf(unsortedKeys, size * 2);
+                unsortedRecordNumbers = Arrays.copyOf(unsortedRecordNumbers, size * 2);
+            }
+            unsortedKeys[size] = AdvantajeRawValues.getDouble(field, recordBuffer, recordOffset);
+            unsortedRecordNumbers[size] = recordSource.getRecordNumber();
+            size++;
+        }
+        double[] entryKeys = unsortedKeys;
+        int[] sortedOrder = AdvantajeSorts.sortedOrder(size, (left, right) -> Double.compare(entryKeys[left], entryKeys[right]));
+        double[] sortedKeys = new double[size];
+        for (int i = 0; i < size; i++) {
+            sortedKeys[i] = entryKeys[sortedOrder[i]];
+        }
+        int[] sortedRecordNumbers = collectRecordNumbers(size, sortedOrder, unsortedRecordNumbers);
+        return new AdvantajeDoubleIndex(field, sortedRecordNumbers, sortedKeys);
+    }
+
+    @Override
+    long getKeyByteSize() {
+        return (long) keys.length * Double.BYTES;
+    }
+
+    @Override
+    int findFirstNotBelow(Object key) {
+        double doubleKey = AdvantajeRawPredicates.toDouble(getField(), key);
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Double.compare(keys[middle], doubleKey) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    int findFirstAbove(Object key) {
+        double doubleKey = AdvantajeRawPredicates.toDouble(getField(), key);
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Double.compare(keys[middle], doubleKey) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
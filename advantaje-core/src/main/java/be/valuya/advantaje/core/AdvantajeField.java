@@ -5,6 +5,8 @@ public class AdvantajeField<T> {
     private String name;
     private AdvantajeFieldType fieldType;
     private int length;
+    private int offset;
+    private boolean interned;
 
     public AdvantajeField(String name, AdvantajeFieldType fieldType) {
         this.name = name;
@@ -35,6 +37,57 @@ public class AdvantajeField<T> {
         this.length = length;
     }
 
+    /**
+     * @return The offset of this field from the start of the record, including the record header
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    public void setOffset(int offset) {
+        this.offset = offset;
+    }
+
+    /**
+     * @return Whether decoded string values of this field are shared between records having the same bytes
+     */
+    public boolean isInterned() {
+        return interned;
+    }
+
+    /**
+     * Share decoded string values between records having the same bytes. Worth it for low-cardinality fields, like
+     * codes. Applies to schemas created afterwards.
+     */
+    public void setInterned(boolean interned) {
+        this.interned = interned;
+    }
+
+    /**
+     * @return The number of bytes occupied by this field in each record
+     */
+    public int getStorageLength() {
+        switch (fieldType) {
+            case NCHAR:
+                return length * 2;
+            case NVARCHAR:
+                return length * 2 + 2;
+            default:
+                return length;
+        }
+    }
+
+    /**
+     * @return A copy of this field, at another offset, for instance to lay fields out in another record
+     */
+    public AdvantajeField<T> withOffset(int offset) {
+        AdvantajeField<T> fieldCopy = new AdvantajeField<>(name, fieldType);
+        fieldCopy.setLength(length);
+        fieldCopy.setInterned(interned);
+        fieldCopy.setOffset(offset);
+        return fieldCopy;
+    }
+
     @Override
     public String toString() {
         return "AdvantajeField{" +
@@ -0,0 +1,17 @@
+package be.valuya.advantaje.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes the value of a field, bound to its offset, length and charset.
+ */
+@FunctionalInterface
+public interface AdvantajeFieldDecoder<T> {
+
+    /**
+     * @param buffer       A little-endian buffer holding the record. Its position may be modified.
+     * @param recordOffset The offset of the record in the buffer
+     * @return The value, or null for null values
+     */
+    T decode(ByteBuffer buffer, int recordOffset);
+}
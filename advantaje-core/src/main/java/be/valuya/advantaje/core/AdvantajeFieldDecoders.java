@@ -0,0 +1,288 @@
+package be.valuya.advantaje.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.JulianFields;
+
+/**
+ * Creates the decoder of each field type. Field lengths are checked once, when the decoder is created.
+ */
+final class AdvantajeFieldDecoders {
+
+    private AdvantajeFieldDecoders() {
+    }
+
+    static AdvantajeFieldDecoder<?> create(AdvantajeField<?> field, Charset charset) {
+        AdvantajeFieldType fieldType = field.getFieldType();
+        int offset = field.getOffset();
+        int length = field.getLength();
+        switch (fieldType) {
+            case LOGICAL: {
+                checkLength(field, 1);
+                return (buffer, recordOffset) -> getBoolean(buffer.get(recordOffset + offset));
+            }
+            case NUMERIC:
+            case SHORTINT: {
+                checkLength(field, 2);
+                return (buffer, recordOffset) -> buffer.getShort(recordOffset + offset);
+            }
+            case DATE: {
+                checkLength(field, 4);
+                return (buffer, recordOffset) -> getDate(buffer.getInt(recordOffset + offset));
+            }
+            case STRING:
+            case CISSTRING: {
+                return createStringDecoder(field, length, charset);
+            }
+            case MEMO:
+            case NMEMO:
+            case BINARY:
+            case IMAGE: {
+                if (length < 8) {
+                    throw new IllegalArgumentException("Invalid length " + length + " for memo field " + field.getName());
+                }
+                return (buffer, recordOffset) -> getMemo(fieldType, buffer.getInt(recordOffset + offset),
+                        buffer.getInt(recordOffset + offset + 4), charset);
+            }
+            case RAW:
+            case VARBINARY_FOX: {
+                return (buffer, recordOffset) -> getBytes(buffer, recordOffset + offset, length);
+            }
+            case DOUBLE:
+            case CURRENCY: {
+                checkLength(field, 8);
+                return (buffer, recordOffset) -> getDouble(buffer.getDouble(recordOffset + offset));
+            }
+            case INTEGER:
+            case AUTOINC:
+            case RAWVERSION: {
+                checkLength(field, 4);
+                return (buffer, recordOffset) -> getInteger(buffer.getInt(recordOffset + offset));
+            }
+            case TIME: {
+                checkLength(field, 4);
+                return (buffer, recordOffset) -> getTime(buffer.getInt(recordOffset + offset));
+            }
+            case TIMESTAMP: {
+                checkLength(field, 8);
+                return (buffer, recordOffset) -> getDateTime(buffer.getInt(recordOffset + offset), buffer.getInt(recordOffset + offset + 4));
+            }
+            case MONEY: {
+                checkLength(field, 8);
+                return (buffer, recordOffset) -> buffer.getLong(recordOffset + offset);
+            }
+            case MODTIME: {
+                checkLength(field, 8);
+                return (buffer, recordOffset) -> getTime(buffer.getInt(recordOffset + offset));
+            }
+            case VARCHAR_FOX: {
+                return createVarStringDecoder(field, length, charset);
+            }
+            case NCHAR: {
+                return createStringDecoder(field, length * 2, StandardCharsets.UTF_16LE);
+            }
+            case NVARCHAR: {
+                return createVarStringDecoder(field, length * 2 + 2, StandardCharsets.UTF_16LE);
+            }
+            default: {
+                return (buffer, recordOffset) -> {
+                    throw new IllegalArgumentException("Unhandled field type: " + fieldType);
+                };
+            }
+        }
+    }
+
+    /**
+     * Create the decoder of a fixed-length string field. Trimmed bounds are found in the bytes, so that only the
+     * trimmed value is copied and decoded.
+     */
+    private static AdvantajeFieldDecoder<String> createStringDecoder(AdvantajeField<?> field, int size, Charset charset) {
+        int offset = field.getOffset();
+        int unitLength = getUnitLength(charset);
+        if (unitLength == 0) {
+            return (buffer, recordOffset) -> getString(buffer, recordOffset + offset, size, charset);
+        }
+        AdvantajeStringInterner interner = createInterner(field, charset, true);
+        return (buffer, recordOffset) -> {
+            int start = recordOffset + offset;
+            return getTrimmedString(buffer, start, start + size, unitLength, charset, true, interner);
+        };
+    }
+
+    /**
+     * Create the decoder of a string field which stores the string size at the end of the field.
+     */
+    private static AdvantajeFieldDecoder<String> createVarStringDecoder(AdvantajeField<?> field, int fieldSize, Charset charset) {
+        int offset = field.getOffset();
+        int unitLength = getUnitLength(charset);
+        if (unitLength == 0 || charset.equals(StandardCharsets.UTF_8)) {
+            // Sizes are in chars, which may not match bytes
+            return (buffer, recordOffset) -> getVarString(buffer, recordOffset + offset, fieldSize, charset);
+        }
+        int maxSize = (fieldSize - 2) / unitLength;
+        AdvantajeStringInterner interner = createInterner(field, charset, false);
+        return (buffer, recordOffset) -> {
+            int start = recordOffset + offset;
+            int size = buffer.getShort(start + fieldSize - 2);
+            int end = start + Math.max(0, Math.min(size, maxSize)) * unitLength;
+            return getTrimmedString(buffer, start, end, unitLength, charset, false, interner);
+        };
+    }
+
+    private static AdvantajeStringInterner createInterner(AdvantajeField<?> field, Charset charset, boolean removeNulls) {
+        if (!field.isInterned()) {
+            return null;
+        }
+        return new AdvantajeStringInterner(charset, removeNulls);
+    }
+
+    /**
+     * @return The length of the code units of charsets in which blanks can be trimmed from the bytes, or 0
+     */
+    private static int getUnitLength(Charset charset) {
+        if (charset.equals(StandardCharsets.UTF_16LE)) {
+            return 2;
+        }
+        if (charset.equals(StandardCharsets.ISO_8859_1) || charset.equals(StandardCharsets.US_ASCII)
+                || charset.equals(StandardCharsets.UTF_8) || charset.name().equals("windows-1252")) {
+            return 1;
+        }
+        return 0;
+    }
+
+    private static String getTrimmedString(ByteBuffer buffer, int start, int end, int unitLength, Charset charset,
+                                           boolean removeNulls, AdvantajeStringInterner interner) {
+        while (start < end && isBlankUnit(buffer, start, unitLength)) {
+            start += unitLength;
+        }
+        while (end > start && isBlankUnit(buffer, end - unitLength, unitLength)) {
+            end -= unitLength;
+        }
+        if (start == end) {
+            return "";
+        }
+        if (interner != null) {
+            return interner.intern(buffer, start, end);
+        }
+        String value = decodeString(buffer, start, end, charset);
+        return removeNulls ? removeNulls(value) : value;
+    }
+
+    private static boolean isBlankUnit(ByteBuffer buffer, int offset, int unitLength) {
+        if (unitLength == 1) {
+            return AdvantajeRawValues.isBlank(buffer.get(offset));
+        }
+        return buffer.getChar(offset) <= ' ';
+    }
+
+    static String decodeString(ByteBuffer buffer, int start, int end, Charset charset) {
+        int length = end - start;
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + start, length, charset);
+        }
+        byte[] bytes = new byte[length];
+        buffer.position(start);
+        buffer.get(bytes);
+        return new String(bytes, charset);
+    }
+
+    static String removeNulls(String value) {
+        if (value.indexOf('\0') < 0) {
+            return value;
+        }
+        return value.replace("\0", "");
+    }
+
+    private static void checkLength(AdvantajeField<?> field, int expectedLength) {
+        int length = field.getLength();
+        if (length != expectedLength) {
+            throw new IllegalArgumentException("Invalid length " + length + " for field " + field.getName()
+                    + " of type " + field.getFieldType());
+        }
+    }
+
+    private static Boolean getBoolean(byte byteValue) {
+        if (byteValue == 'T') {
+            return Boolean.TRUE;
+        }
+        if (byteValue == 'F') {
+            return Boolean.FALSE;
+        }
+        return null;
+    }
+
+    private static Integer getInteger(int intValue) {
+        if (AdvantajeRawValues.isNullInt(intValue)) {
+            return null;
+        }
+        return intValue;
+    }
+
+    private static Double getDouble(double doubleValue) {
+        if (AdvantajeRawValues.isNullDouble(doubleValue)) {
+            return null;
+        }
+        return doubleValue;
+    }
+
+    private static LocalDate getDate(int dateInt) {
+        if (AdvantajeRawValues.isNullDate(dateInt)) {
+            return null;
+        }
+        return LocalDate.MIN.with(JulianFields.JULIAN_DAY, dateInt);
+    }
+
+    private static LocalTime getTime(int millis) {
+        if (AdvantajeRawValues.isNullInt(millis)) {
+            return null;
+        }
+        if (millis < 0) {
+            return LocalTime.MIN;
+        }
+        return LocalTime.ofNanoOfDay(millis * 1000L * 1000L);
+    }
+
+    private static LocalDateTime getDateTime(int dateInt, int millis) {
+        LocalDate localDate = getDate(dateInt);
+        LocalTime localTime = getTime(millis);
+        if (localDate == null || localTime == null) {
+            return null;
+        }
+        return localDate.atTime(localTime);
+    }
+
+    private static AdvantajeMemo getMemo(AdvantajeFieldType fieldType, int blockNumber, int length, Charset charset) {
+        if (length <= 0) {
+            return null;
+        }
+        return new AdvantajeMemo(fieldType, blockNumber, length, charset);
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer, int fieldOffset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.position(fieldOffset);
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static String getString(ByteBuffer buffer, int fieldOffset, int size, Charset charset) {
+        byte[] bytes = getBytes(buffer, fieldOffset, size);
+        String untrimmedString = new String(bytes, charset);
+        return untrimmedString.replace("\0", "").trim();
+    }
+
+    /**
+     * Read a string field which store the string size at the end of the field.
+     */
+    private static String getVarString(ByteBuffer buffer, int fieldOffset, int fieldSize, Charset charset) {
+        byte[] bytes = getBytes(buffer, fieldOffset, fieldSize - 2);
+        String untrimmedString = new String(bytes, charset);
+        short size = buffer.getShort(fieldOffset + fieldSize - 2);
+        int endIndex = Math.max(0, Math.min(size, untrimmedString.length()));
+        return untrimmedString.substring(0, endIndex).trim();
+    }
+}
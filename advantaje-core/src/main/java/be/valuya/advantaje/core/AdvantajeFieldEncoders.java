@@ -0,0 +1,160 @@
+package be.valuya.advantaje.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.JulianFields;
+
+/**
+ * Encodes field values, as decoded by {@link AdvantajeFieldDecoders}. Null values are encoded as the null value of
+ * the field type, or as blank or zero for types without null value.
+ */
+final class AdvantajeFieldEncoders {
+
+    private static final int MILLIS_PER_SECOND = 1000;
+
+    private AdvantajeFieldEncoders() {
+    }
+
+    static void encode(AdvantajeField<?> field, Object value, ByteBuffer buffer, int recordOffset, Charset charset) {
+        AdvantajeFieldType fieldType = field.getFieldType();
+        int offset = recordOffset + field.getOffset();
+        int length = field.getLength();
+        try {
+            switch (fieldType) {
+                case LOGICAL: {
+                    byte byteValue = value == null ? (byte) ' ' : (Boolean) value ? (byte) 'T' : (byte) 'F';
+                    buffer.put(offset, byteValue);
+                    return;
+                }
+                case NUMERIC:
+                case SHORTINT: {
+                    short shortValue = value == null ? 0 : ((Number) value).shortValue();
+                    buffer.putShort(offset, shortValue);
+                    return;
+                }
+                case DATE: {
+                    buffer.putInt(offset, getDateInt((LocalDate) value));
+                    return;
+                }
+                case STRING:
+                case CISSTRING: {
+                    putString(buffer, offset, length, (String) value, charset, 1);
+                    return;
+                }
+                case NCHAR: {
+                    putString(buffer, offset, length, (String) value, StandardCharsets.UTF_16LE, 2);
+                    return;
+                }
+                case VARCHAR_FOX: {
+                    putVarString(buffer, offset, length, (String) value, charset, 1);
+                    return;
+                }
+                case NVARCHAR: {
+                    putVarString(buffer, offset, length * 2 + 2, (String) value, StandardCharsets.UTF_16LE, 2);
+                    return;
+                }
+                case MEMO:
+                case NMEMO:
+                case BINARY:
+                case IMAGE: {
+                    AdvantajeMemo memo = (AdvantajeMemo) value;
+                    buffer.putInt(offset, memo == null ? 0 : memo.getBlockNumber());
+                    buffer.putInt(offset + 4, memo == null ? 0 : memo.getLength());
+                    return;
+                }
+                case RAW:
+                case VARBINARY_FOX: {
+                    byte[] bytes = value == null ? new byte[0] : (byte[]) value;
+                    for (int i = 0; i < length; i++) {
+                        buffer.put(offset + i, i < bytes.length ? bytes[i] : 0);
+                    }
+                    return;
+                }
+                case DOUBLE:
+                case CURRENCY: {
+                    double doubleValue = value == null ? AdvantajeRawValues.DOUBLE_NULL_VALUE : ((Number) value).doubleValue();
+                    buffer.putDouble(offset, doubleValue);
+                    return;
+                }
+                case INTEGER:
+                case AUTOINC:
+                case RAWVERSION: {
+                    int intValue = value == null ? Integer.MIN_VALUE : ((Number) value).intValue();
+                    buffer.putInt(offset, intValue);
+                    return;
+                }
+                case TIME: {
+                    buffer.putInt(offset, getMillis((LocalTime) value));
+                    return;
+                }
+                case TIMESTAMP: {
+                    LocalDateTime dateTime = (LocalDateTime) value;
+                    buffer.putInt(offset, dateTime == null ? 0 : getDateInt(dateTime.toLocalDate()));
+                    buffer.putInt(offset + 4, dateTime == null ? Integer.MIN_VALUE : getMillis(dateTime.toLocalTime()));
+                    return;
+                }
+                case MONEY: {
+                    long longValue = value == null ? 0 : ((Number) value).longValue();
+                    buffer.putLong(offset, longValue);
+                    return;
+                }
+                case MODTIME: {
+                    // Decoded values only hold the time
+                    LocalTime time = value instanceof LocalDateTime ? ((LocalDateTime) value).toLocalTime() : (LocalTime) value;
+                    LocalDate date = value instanceof LocalDateTime ? ((LocalDateTime) value).toLocalDate() : null;
+                    buffer.putInt(offset, getMillis(time));
+                    buffer.putInt(offset + 4, getDateInt(date));
+                    return;
+                }
+                default:
+                    throw new AdvantajeException("Unhandled field type: " + fieldType);
+            }
+        } catch (ClassCastException exception) {
+            throw new AdvantajeException("Invalid value " + value + " for field " + field.getName() + " of type " + fieldType, exception);
+        }
+    }
+
+    private static int getDateInt(LocalDate date) {
+        if (date == null) {
+            return 0;
+        }
+        return (int) date.getLong(JulianFields.JULIAN_DAY);
+    }
+
+    private static int getMillis(LocalTime time) {
+        if (time == null) {
+            return Integer.MIN_VALUE;
+        }
+        return time.toSecondOfDay() * MILLIS_PER_SECOND + time.getNano() / 1000000;
+    }
+
+    private static void putString(ByteBuffer buffer, int offset, int length, String value, Charset charset, int unitLength) {
+        byte[] valueBytes = value == null ? new byte[0] : value.getBytes(charset);
+        int storageLength = length * unitLength;
+        for (int i = 0; i < storageLength; i++) {
+            byte byteValue = i < valueBytes.length ? valueBytes[i] : getPaddingByte(i, unitLength);
+            buffer.put(offset + i, byteValue);
+        }
+    }
+
+    /**
+     * Write a string field which stores the string size at the end of the field.
+     */
+    private static void putVarString(ByteBuffer buffer, int offset, int fieldSize, String value, Charset charset, int unitLength) {
+        byte[] valueBytes = value == null ? new byte[0] : value.getBytes(charset);
+        int maxLength = fieldSize - 2;
+        int valueLength = Math.min(valueBytes.length, maxLength) / unitLength * unitLength;
+        for (int i = 0; i < maxLength; i++) {
+            buffer.put(offset + i, i < valueLength ? valueBytes[i] : 0);
+        }
+        buffer.putShort(offset + maxLength, (short) (valueLength / unitLength));
+    }
+
+    private static byte getPaddingByte(int index, int unitLength) {
+        return index % unitLength == 0 ? (byte) ' ' : 0;
+    }
+}
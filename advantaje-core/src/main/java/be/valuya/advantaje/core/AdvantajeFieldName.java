@@ -0,0 +1,16 @@
+package be.valuya.advantaje.core;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The name of the table field bound to a Java field or constructor parameter by {@link AdvantajeBinder}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.PARAMETER})
+public @interface AdvantajeFieldName {
+
+    String value();
+}
@@ -66,6 +66,8 @@ public enum AdvantajeFieldType {
 
     ;
 
+    private static final AdvantajeFieldType[] TYPES_BY_CODE = createTypesByCode();
+
     private final int code;
 
     AdvantajeFieldType(int code) {
@@ -73,14 +75,25 @@ public enum AdvantajeFieldType {
     }
 
     public static AdvantajeFieldType fromCode(int code) {
-        return Stream.of(values())
-                .filter(field -> field.hasCode(code))
-                .findFirst()
-                .orElseThrow(() -> getIllegalCodeError(code));
+        if (code < 0 || code >= TYPES_BY_CODE.length || TYPES_BY_CODE[code] == null) {
+            throw getIllegalCodeError(code);
+        }
+        return TYPES_BY_CODE[code];
+    }
+
+    public int getCode() {
+        return code;
     }
 
-    private boolean hasCode(int code) {
-        return this.code == code;
+    private static AdvantajeFieldType[] createTypesByCode() {
+        int maxCode = Stream.of(values())
+                .mapToInt(AdvantajeFieldType::getCode)
+                .max()
+                .orElse(0);
+        AdvantajeFieldType[] typesByCode = new AdvantajeFieldType[maxCode + 1];
+        Stream.of(values())
+                .forEach(fieldType -> typesByCode[fieldType.code] = fieldType);
+        return typesByCode;
     }
 
     private static IllegalArgumentException getIllegalCodeError(int code) {
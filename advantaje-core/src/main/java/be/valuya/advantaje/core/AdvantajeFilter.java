@@ -0,0 +1,134 @@
+package be.valuya.advantaje.core;
+
+import java.nio.charset.Charset;
+import java.util.stream.Stream;
+
+/**
+ * A record filter, which is bound to a table before being evaluated on the encoded record bytes. Only matching
+ * records are decoded.
+ * <p>
+ * Supported field types are INTEGER, AUTOINC, SHORTINT, DATE, MONEY (compared using Number, or LocalDate for dates),
+ * DOUBLE (compared using Number), and STRING, CISSTRING (compared using String, trimmed, CISSTRING ignoring case).
+ * Null values never match, even when a filter is negated using {@link #not(AdvantajeFilter)}.
+ */
+@FunctionalInterface
+public interface AdvantajeFilter {
+
+    AdvantajeRecordPredicate bind(AdvantajeTableMetaData metaData, Charset charset);
+
+    /**
+     * Bind a predicate matching the records for which this filter is unknown, because a compared value is null. Such
+     * records match neither this filter nor its negation.
+     */
+    default AdvantajeRecordPredicate bindUnknown(AdvantajeTableMetaData metaData, Charset charset) {
+        return (recordBuffer, recordOffset) -> false;
+    }
+
+    static AdvantajeFilter equalTo(String fieldName, Object value) {
+        return in(fieldName, value);
+    }
+
+    static AdvantajeFilter in(String fieldName, Object... values) {
+        return new AdvantajeFilter() {
+            @Override
+            public AdvantajeRecordPredicate bind(AdvantajeTableMetaData metaData, Charset charset) {
+                return AdvantajeRawPredicates.in(metaData.getField(fieldName), charset, values);
+            }
+
+            @Override
+            public AdvantajeRecordPredicate bindUnknown(AdvantajeTableMetaData metaData, Charset charset) {
+                return AdvantajeRawPredicates.isNull(metaData.getField(fieldName));
+            }
+        };
+    }
+
+    /**
+     * @param fromValue The lowest matching value, inclusive, or null for no lower bound
+     * @param toValue   The highest matching value, inclusive, or null for no upper bound
+     */
+    static AdvantajeFilter range(String fieldName, Object fromValue, Object toValue) {
+        return new AdvantajeFilter() {
+            @Override
+            public AdvantajeRecordPredicate bind(AdvantajeTableMetaData metaData, Charset charset) {
+                return AdvantajeRawPredicates.range(metaData.getField(fieldName), charset, fromValue, toValue);
+            }
+
+            @Override
+            public AdvantajeRecordPredicate bindUnknown(AdvantajeTableMetaData metaData, Charset charset) {
+                return AdvantajeRawPredicates.isNull(metaData.getField(fieldName));
+            }
+        };
+    }
+
+    /**
+     * @return A filter matching the records not matching a filter. Records for which the filter is unknown, because
+     * of null values, match neither.
+     */
+    static AdvantajeFilter not(AdvantajeFilter filter) {
+        return new AdvantajeFilter() {
+            @Override
+            public AdvantajeRecordPredicate bind(AdvantajeTableMetaData metaData, Charset charset) {
+                return filter.bind(metaData, charset)
+                        .or(filter.bindUnknown(metaData, charset))
+                        .negate();
+            }
+
+            @Override
+            public AdvantajeRecordPredicate bindUnknown(AdvantajeTableMetaData metaData, Charset charset) {
+                return filter.bindUnknown(metaData, charset);
+            }
+        };
+    }
+
+    static AdvantajeFilter and(AdvantajeFilter... filters) {
+        return new AdvantajeFilter() {
+            @Override
+            public AdvantajeRecordPredicate bind(AdvantajeTableMetaData metaData, Charset charset) {
+                return Stream.of(filters)
+                        .map(filter -> filter.bind(metaData, charset))
+                        .reduce(AdvantajeRecordPredicate::and)
+                        .orElse((recordBuffer, recordOffset) -> true);
+            }
+
+            /**
+             * Unknown when no filter is false, and one is unknown.
+             */
+            @Override
+            public AdvantajeRecordPredicate bindUnknown(AdvantajeTableMetaData metaData, Charset charset) {
+                AdvantajeRecordPredicate noneFalse = Stream.of(filters)
+                        .map(filter -> filter.bind(metaData, charset).or(filter.bindUnknown(metaData, charset)))
+                        .reduce(AdvantajeRecordPredicate::and)
+                        .orElse((recordBuffer, recordOffset) -> true);
+                AdvantajeRecordPredicate anyUnknown = Stream.of(filters)
+                        .map(filter -> filter.bindUnknown(metaData, charset))
+                        .reduce(AdvantajeRecordPredicate::or)
+                        .orElse((recordBuffer, recordOffset) -> false);
+                return anyUnknown.and(noneFalse);
+            }
+        };
+    }
+
+    static AdvantajeFilter or(AdvantajeFilter... filters) {
+        return new AdvantajeFilter() {
+            @Override
+            public AdvantajeRecordPredicate bind(AdvantajeTableMetaData metaData, Charset charset) {
+                return Stream.of(filters)
+                        .map(filter -> filter.bind(metaData, charset))
+                        .reduce(AdvantajeRecordPredicate::or)
+                        .orElse((recordBuffer, recordOffset) -> false);
+            }
+
+            /**
+             * Unknown when no filter is true, and one is unknown.
+             */
+            @Override
+            public AdvantajeRecordPredicate bindUnknown(AdvantajeTableMetaData metaData, Charset charset) {
+                return bind(metaData, charset).negate()
+                        .and(Stream.of(filters)
+                                .map(filter -> filter.bindUnknown(metaData, charset))
+                                .reduce(AdvantajeRecordPredicate::or)
+                                .orElse((recordBuffer, recordOffset) -> false));
+            }
+        };
+    }
+}
@@ -0,0 +1,70 @@
+package be.valuya.advantaje.core;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A group of records having the same key values, with its aggregates, in the order they were requested.
+ */
+public class AdvantajeGroup {
+
+    private final List<Object> keyValues;
+    private final long count;
+    private final long[] longValues;
+    private final double[] doubleValues;
+    private final boolean[] nullValues;
+
+    AdvantajeGroup(List<Object> keyValues, long count, long[] longValues, double[] doubleValues, boolean[] nullValues) {
+        this.keyValues = Collections.unmodifiableList(keyValues);
+        this.count = count;
+        this.longValues = longValues;
+        this.doubleValues = doubleValues;
+        this.nullValues = nullValues;
+    }
+
+    /**
+     * @return The values of the group-by fields, which are null for null values. CISSTRING values are upper-cased.
+     */
+    public List<Object> getKeyValues() {
+        return keyValues;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Optional<T> getKeyValueOptional(int keyIndex) {
+        return Optional.ofNullable((T) keyValues.get(keyIndex));
+    }
+
+    /**
+     * @return The number of records in this group
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return Whether the aggregated field had only null values in this group. Counts are never null.
+     */
+    public boolean isNull(int aggregateIndex) {
+        return nullValues[aggregateIndex];
+    }
+
+    /**
+     * @return The aggregate value, truncated for DOUBLE and CURRENCY fields
+     */
+    public long getLong(int aggregateIndex) {
+        return longValues[aggregateIndex];
+    }
+
+    public double getDouble(int aggregateIndex) {
+        return doubleValues[aggregateIndex];
+    }
+
+    @Override
+    public String toString() {
+        return "AdvantajeGroup{" +
+                "keyValues=" + keyValues +
+                ", count=" + count +
+                '}';
+    }
+}
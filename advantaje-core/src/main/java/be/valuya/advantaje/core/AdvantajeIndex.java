@@ -0,0 +1,114 @@
+package be.valuya.advantaje.core;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * An index of the records of a table by the values of one field, holding record numbers sorted by key. Null values
+ * are not indexed.
+ * <p>
+ * Indexes are built by a single scan of the table. Lookups then only touch the matching records, which are read
+ * using their offset.
+ */
+public abstract class AdvantajeIndex {
+
+    private final AdvantajeField<?> field;
+    private final int[] recordNumbers;
+
+    AdvantajeIndex(AdvantajeField<?> field, int[] recordNumbers) {
+        this.field = field;
+        this.recordNumbers = recordNumbers;
+    }
+
+    /**
+     * Build an index scanning the table once.
+     */
+    public static AdvantajeIndex build(AdvantajeTableFile tableFile, String fieldName) {
+        AdvantajeField<?> field = tableFile.getMetaData().getField(fieldName);
+        AdvantajeFieldType fieldType = field.getFieldType();
+        try (AdvantajeRecordSource recordSource = tableFile.openRecordSource()) {
+            if (AdvantajeRawValues.isIntegral(fieldType)) {
+                return AdvantajeLongIndex.build(field, recordSource);
+            }
+            if (AdvantajeRawValues.isFloatingPoint(fieldType)) {
+                return AdvantajeDoubleIndex.build(field, recordSource);
+            }
+            if (AdvantajeRawValues.isFixedString(fieldType)) {
+                return AdvantajeBytesIndex.build(field, recordSource, tableFile.getCharset());
+            }
+        }
+        throw new AdvantajeException("Unsupported index field type: " + fieldType + " for field " + fieldName);
+    }
+
+    public AdvantajeField<?> getField() {
+        return field;
+    }
+
+    public int size() {
+        return recordNumbers.length;
+    }
+
+    /**
+     * @return The number of bytes held by this index
+     */
+    public long getByteSize() {
+        return (long) recordNumbers.length * Integer.BYTES + getKeyByteSize();
+    }
+
+    /**
+     * @return The numbers of the indexed records, sorted by key
+     */
+    public int[] getRecordNumbers() {
+        return recordNumbers.clone();
+    }
+
+    /**
+     * @param key A key, using the same types as {@link AdvantajeFilter}
+     * @return The numbers of the records having this key, in record number order
+     */
+    public int[] seek(Object key) {
+        return range(key, key);
+    }
+
+    /**
+     * @param fromKey The lowest key, inclusive, or null for no lower bound
+     * @param toKey   The highest key, inclusive, or null for no upper bound
+     * @return The numbers of the records having a key in this range, sorted by key
+     */
+    public int[] range(Object fromKey, Object toKey) {
+        int fromIndex = fromKey == null ? 0 : findFirstNotBelow(fromKey);
+        int toIndex = toKey == null ? recordNumbers.length : findFirstAbove(toKey);
+        if (fromIndex >= toIndex) {
+            return new int[0];
+        }
+        return Arrays.copyOfRange(recordNumbers, fromIndex, toIndex);
+    }
+
+    /**
+     * @return The number of bytes held by the keys of this index
+     */
+    abstract long getKeyByteSize();
+
+    /**
+     * @return The index of the first entry whose key is greater than or equal to the given key
+     */
+    abstract int findFirstNotBelow(Object key);
+
+    /**
+     * @return The index of the first entry whose key is greater than the given key
+     */
+    abstract int findFirstAbove(Object key);
+
+    static int[] collectRecordNumbers(int size, int[] sortedOrder, int[] unsortedRecordNumbers) {
+        int[] sortedRecordNumbers = new int[size];
+        for (int i = 0; i < size; i++) {
+            sortedRecordNumbers[i] = unsortedRecordNumbers[sortedOrder[i]];
+        }
+        return sortedRecordNumbers;
+    }
+
+    static boolean isIndexed(AdvantajeField<?> field, ByteBuffer recordBuffer, int recordOffset) {
+        return !AdvantajeTableReader.isDeletedRecord(recordBuffer, recordOffset)
+                && !AdvantajeRawValues.isNull(field, recordBuffer, recordOffset);
+    }
+}
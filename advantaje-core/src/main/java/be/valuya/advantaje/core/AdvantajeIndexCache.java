@@ -0,0 +1,84 @@
+package be.valuya.advantaje.core;
+
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.function.Supplier;
+
+/**
+ * Indexes built once, keyed on table path, charset and field, and valid as long as the table file size and
+ * last-modified time are unchanged. Set it using {@link AdvantajeService#setIndexCache(AdvantajeIndexCache)}, so that
+ * tables opened again are not scanned to build their indexes. Thread-safe.
+ * <p>
+ * Least recently used indexes are evicted when the cached indexes hold more bytes than the cache budget.
+ */
+public class AdvantajeIndexCache {
+
+    public static final long DEFAULT_MAX_BYTE_SIZE = 256L * 1024 * 1024;
+
+    private final AdvantajeVersionedCache<AdvantajeIndex> cache;
+
+    public AdvantajeIndexCache() {
+        this(DEFAULT_MAX_BYTE_SIZE);
+    }
+
+    /**
+     * @param maxByteSize The number of bytes the cached indexes may hold
+     */
+    public AdvantajeIndexCache(long maxByteSize) {
+        this.cache = new AdvantajeVersionedCache<>(maxByteSize, AdvantajeIndex::getByteSize);
+    }
+
+    /**
+     * @return The index of the table on this field, built only when not cached or when the table file changed
+     * @see AdvantajeIndex#build(AdvantajeTableFile, String)
+     */
+    public AdvantajeIndex getIndex(Path path, Charset charset, String fieldName) {
+        BasicFileAttributes attributes = AdvantajeVersionedCache.readAttributes(path);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        return getIndex(path, charset, size, lastModified, fieldName, () -> buildIndex(path, charset, fieldName));
+    }
+
+    /**
+     * @return The number of cached indexes
+     */
+    public int getSize() {
+        return cache.getSize();
+    }
+
+    /**
+     * @return The number of bytes held by the cached indexes
+     */
+    public long getByteSize() {
+        return cache.getByteSize();
+    }
+
+    /**
+     * Remove the indexes of a table.
+     */
+    public void invalidate(Path path, Charset charset) {
+        cache.invalidate(AdvantajeVersionedCache.getTableCacheKey(path, charset));
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * @param size          The size of the table file version to index
+     * @param lastModified  The last-modified time of the table file version to index
+     * @param indexSupplier Builds the index, when not cached or outdated
+     */
+    AdvantajeIndex getIndex(Path path, Charset charset, long size, long lastModified, String fieldName,
+                            Supplier<AdvantajeIndex> indexSupplier) {
+        String cacheKey = AdvantajeVersionedCache.getTableCacheKey(path, charset) + fieldName;
+        return cache.get(cacheKey, size, lastModified, indexSupplier);
+    }
+
+    private static AdvantajeIndex buildIndex(Path path, Charset charset, String fieldName) {
+        try (AdvantajeTableFile tableFile = AdvantajeTableFile.open(path, charset)) {
+            return AdvantajeIndex.build(tableFile, fieldName);
+        }
+    }
+}
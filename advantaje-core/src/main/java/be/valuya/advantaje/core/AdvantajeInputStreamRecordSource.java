@@ -0,0 +1,96 @@
+package be.valuya.advantaje.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+/**
+ * Reads records sequentially from an input stream, one record at a time.
+ */
+public class AdvantajeInputStreamRecordSource implements AdvantajeRecordSource {
+
+    private final InputStream inputStream;
+    private final AdvantajeTableMetaData metaData;
+    private final byte[] recordBytes;
+    private final ByteBuffer recordBuffer;
+    private final int recordCount;
+    private int recordNumber = -1;
+
+    /**
+     * @param inputStream The table inputstream, positioned at the start of the table. It will be closed with this source.
+     */
+    public AdvantajeInputStreamRecordSource(InputStream inputStream, Charset charset) {
+        this.inputStream = inputStream;
+        AdvantajeTableReader tableReader = new AdvantajeTableReader();
+        this.metaData = tableReader.openTable(inputStream, charset);
+        this.recordBytes = new byte[metaData.getRecordLength()];
+        this.recordBuffer = ByteBuffer.wrap(recordBytes).order(ByteOrder.LITTLE_ENDIAN);
+        this.recordCount = metaData.getRecordCount();
+    }
+
+    @Override
+    public AdvantajeTableMetaData getMetaData() {
+        return metaData;
+    }
+
+    @Override
+    public boolean next() {
+        if (recordNumber + 1 >= recordCount) {
+            return false;
+        }
+        readRecordBytes();
+        recordNumber++;
+        return true;
+    }
+
+    @Override
+    public int getRecordNumber() {
+        return recordNumber;
+    }
+
+    @Override
+    public ByteBuffer getRecordBuffer() {
+        return recordBuffer;
+    }
+
+    @Override
+    public int getRecordOffset() {
+        return 0;
+    }
+
+    @Override
+    public long estimateSize() {
+        return recordCount - recordNumber - 1;
+    }
+
+    @Override
+    public AdvantajeRecordSource trySplit() {
+        return null;
+    }
+
+    @Override
+    public void close() {
+        try {
+            inputStream.close();
+        } catch (IOException e) {
+            throw new AdvantajeException(e);
+        }
+    }
+
+    private void readRecordBytes() {
+        try {
+            int readBytes = 0;
+            while (readBytes < recordBytes.length) {
+                int chunkBytes = inputStream.read(recordBytes, readBytes, recordBytes.length - readBytes);
+                if (chunkBytes < 0) {
+                    throw new AdvantajeException("buffer underrun");
+                }
+                readBytes += chunkBytes;
+            }
+        } catch (IOException exception) {
+            throw new AdvantajeException("Error reading buffer", exception);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package be.valuya.advantaje.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A column of int values: integers, epoch days for DATE fields, milliseconds of day for TIME and MODTIME fields, and
+ * 1 or 0 for LOGICAL fields.
+ */
+public class AdvantajeIntColumn extends AdvantajeColumn {
+
+    private final AdvantajeFieldType fieldType;
+    private final int fieldOffset;
+    private final int[] values;
+
+    AdvantajeIntColumn(AdvantajeField<?> field, int capacity) {
+        super(field, capacity);
+        this.fieldType = field.getFieldType();
+        this.fieldOffset = field.getOffset();
+        this.values = new int[capacity];
+    }
+
+    public int[] getValues() {
+        return values;
+    }
+
+    public int getValue(int row) {
+        return values[row];
+    }
+
+    @Override
+    void read(int row, ByteBuffer recordBuffer, int recordOffset) {
+        int offset = recordOffset + fieldOffset;
+        switch (fieldType) {
+            case LOGICAL: {
+                byte byteValue = recordBuffer.get(offset);
+                if (byteValue != 'T' && byteValue != 'F') {
+                    setNull(row);
+                }
+                values[row] = byteValue == 'T' ? 1 : 0;
+                return;
+            }
+            case NUMERIC:
+            case SHORTINT:
+                values[row] = recordBuffer.getShort(offset);
+                return;
+            case DATE: {
+                int dateInt = recordBuffer.getInt(offset);
+                if (AdvantajeRawValues.isNullDate(dateInt)) {
+                    setNull(row);
+                }
+                values[row] = dateInt - AdvantajeRawValues.EPOCH_JULIAN_DAY;
+                return;
+            }
+            default: {
+                int intValue = recordBuffer.getInt(offset);
+                if (AdvantajeRawValues.isNullInt(intValue)) {
+                    setNull(row);
+                }
+                values[row] = intValue;
+            }
+        }
+    }
+}
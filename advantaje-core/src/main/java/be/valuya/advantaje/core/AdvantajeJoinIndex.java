@@ -0,0 +1,313 @@
+package be.valuya.advantaje.core;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The build side of a hash join: the records of a table, usually a small one like accounts or third parties, hashed by
+ * the raw value of a key field. Only the bytes of the joined fields are kept, one row per live record, so that the
+ * index is much smaller than the records.
+ * <p>
+ * Integral keys are compared as raw values, and fixed-length string keys as trimmed bytes; keys of a CISSTRING field
+ * are compared ignoring case. Null keys are not indexed. Thread-safe once built.
+ *
+ * @see AdvantajeService#joinTable(java.nio.file.Path, java.nio.charset.Charset, AdvantajeFilter, String, AdvantajeJoinIndex, String...)
+ */
+public class AdvantajeJoinIndex {
+
+    private static final int NO_ROW = -1;
+
+    private final AdvantajeField<?> keyField;
+    private final boolean integralKey;
+    private final boolean ignoreCase;
+    private final List<AdvantajeField<?>> fields;
+    private final int rowLength;
+    private final int rowCount;
+    private final byte[] rowData;
+    private final long[] longKeys;
+    private final byte[] keyData;
+    private final int[] keyOffsets;
+    /**
+     * For each slot, the first row having a key hashed to this slot, plus one, or 0 for an empty slot
+     */
+    private final int[] slots;
+    /**
+     * For each row, the next row having the same key, plus one, or 0 for the last row having this key
+     */
+    private final int[] nextRows;
+
+    private AdvantajeJoinIndex(AdvantajeField<?> keyField, List<AdvantajeField<?>> fields, int rowLength, int rowCount,
+                               byte[] rowData, long[] longKeys, byte[] keyData, int[] keyOffsets) {
+        this.keyField = keyField;
+        this.integralKey = longKeys != null;
+        this.ignoreCase = keyField.getFieldType() == AdvantajeFieldType.CISSTRING;
+        this.fields = Collections.unmodifiableList(fields);
+        this.rowLength = rowLength;
+        this.rowCount = rowCount;
+        this.rowData = rowData;
+        this.longKeys = longKeys;
+        this.keyData = keyData;
+        this.keyOffsets = keyOffsets;
+        this.slots = new int[Math.max(16, Integer.highestOneBit(Math.max(1, rowCount)) * 4)];
+        this.nextRows = new int[rowCount];
+        // Insert the rows backwards, so that the rows having the same key are listed in record order
+        for (int row = rowCount - 1; row >= 0; row--) {
+            insertRow(row);
+        }
+    }
+
+    /**
+     * Build an index scanning the table once.
+     *
+     * @param keyFieldName The key field, which must be integral or a fixed-length string
+     * @param fieldNames   The fields joined to the probed records, or none to join all fields. Memo fields can not be
+     *                     joined.
+     */
+    public static AdvantajeJoinIndex build(AdvantajeTableFile tableFile, String keyFieldName, String... fieldNames) {
+        try (AdvantajeRecordSource recordSource = tableFile.openRecordSource()) {
+            return build(recordSource, keyFieldName, fieldNames);
+        }
+    }
+
+    static AdvantajeJoinIndex build(AdvantajeRecordSource recordSource, String keyFieldName, String... fieldNames) {
+        AdvantajeTableMetaData metaData = recordSource.getMetaData();
+        AdvantajeField<?> keyField = metaData.getField(keyFieldName);
+        AdvantajeFieldType keyFieldType = keyField.getFieldType();
+        boolean integralKey = AdvantajeRawValues.isIntegral(keyFieldType);
+        if (!integralKey && !AdvantajeRawValues.isFixedString(keyFieldType)) {
+            throw new AdvantajeException("Unsupported join key field type: " + keyFieldType + " for field " + keyFieldName);
+        }
+        boolean ignoreCase = keyFieldType == AdvantajeFieldType.CISSTRING;
+
+        List<AdvantajeField<?>> sourceFields = metaData.selectFields(fieldNames);
+        List<AdvantajeField<?>> rowFields = new ArrayList<>();
+        int rowLength = 0;
+        for (AdvantajeField<?> sourceField : sourceFields) {
+            checkJoinedField(sourceField);
+            rowFields.add(sourceField.withOffset(rowLength));
+            rowLength += sourceField.getStorageLength();
+        }
+
+        int capacity = (int) Math.max(16, recordSource.estimateSize());
+        byte[] rowData = new byte[Math.max(1, capacity * rowLength)];
+        long[] longKeys = integralKey ? new long[capacity] : null;
+        byte[] keyData = integralKey ? null : new byte[capacity * 4];
+        int[] keyOffsets = integralKey ? null : new int[capacity + 1];
+        int rowCount = 0;
+        int keyDataLength = 0;
+        while (recordSource.next()) {
+            ByteBuffer recordBuffer = recordSource.getRecordBuffer();
+            int recordOffset = recordSource.getRecordOffset();
+            if (!AdvantajeIndex.isIndexed(keyField, recordBuffer, recordOffset)) {
+                continue;
+            }
+            if ((rowCount + 1) * rowLength > rowData.length) {
+                rowData = Arrays.copyOf(rowData, rowData.length * 2);
+            }
+            int rowOffset = rowCount * rowLength;
+            for (AdvantajeField<?> sourceField : sourceFields) {
+                recordBuffer.position(recordOffset + sourceField.getOffset());
+                recordBuffer.get(rowData, rowOffset, sourceField.getStorageLength());
+                rowOffset += sourceField.getStorageLength();
+            }
+
+            if (integralKey) {
+                if (rowCount == longKeys.length) {
+                    longKeys = Arrays.copyOf(longKeys, rowCount * 2);
+                }
+                longKeys[rowCount] = AdvantajeRawValues.getLong(keyField, recordBuffer, recordOffset);
+            } else {
+                int start = AdvantajeRawValues.getTrimmedStart(keyField, recordBuffer, recordOffset);
+                int end = AdvantajeRawValues.getTrimmedEnd(keyField, recordBuffer, start, recordOffset);
+                int keyLength = end - start;
+                if (rowCount + 1 == keyOffsets.length) {
+                    keyOffsets = Arrays.copyOf(keyOffsets, rowCount * 2 + 1);
+                }
+                if (keyDataLength + keyLength > keyData.length) {
+                    keyData = Arrays.copyOf(keyData, Math.max(keyData.length * 2, keyDataLength + keyLength));
+                }
+                for (int i = 0; i < keyLength; i++) {
+                    int byteValue = recordBuffer.get(start + i) & 0xff;
+                    keyData[keyDataLength + i] = (byte) (ignoreCase ? AdvantajeRawValues.foldCase(byteValue) : byteValue);
+                }
+                keyOffsets[rowCount] = keyDataLength;
+                keyDataLength += keyLength;
+                keyOffsets[rowCount + 1] = keyDataLength;
+            }
+            rowCount++;
+        }
+        return new AdvantajeJoinIndex(keyField, rowFields, rowLength, rowCount, rowData, longKeys, keyData, keyOffsets);
+    }
+
+    public AdvantajeField<?> getKeyField() {
+        return keyField;
+    }
+
+    /**
+     * @return The joined fields. Their offsets are relative to the rows of this index.
+     */
+    public List<AdvantajeField<?>> getFields() {
+        return fields;
+    }
+
+    /**
+     * @return The number of indexed records
+     */
+    public int size() {
+        return rowCount;
+    }
+
+    /**
+     * @return The number of bytes held by this index
+     */
+    public long getByteSize() {
+        long byteSize = (long) rowData.length + slots.length * 4L + nextRows.length * 4L;
+        if (integralKey) {
+            return byteSize + longKeys.length * 8L;
+        }
+        return byteSize + keyData.length + keyOffsets.length * 4L;
+    }
+
+    /**
+     * @throws AdvantajeException When the probe key can not be compared to the keys of this index
+     */
+    void checkProbeKeyField(AdvantajeField<?> probeKeyField) {
+        AdvantajeFieldType probeKeyFieldType = probeKeyField.getFieldType();
+        boolean compatible = integralKey
+                ? AdvantajeRawValues.isIntegral(probeKeyFieldType)
+                : AdvantajeRawValues.isFixedString(probeKeyFieldType);
+        if (!compatible) {
+            throw new AdvantajeException("Join key field " + probeKeyField.getName() + " of type " + probeKeyFieldType
+                    + " can not be compared to " + keyField.getName() + " of type " + keyField.getFieldType());
+        }
+    }
+
+    int getRowLength() {
+        return rowLength;
+    }
+
+    /**
+     * @return The first row having the key of a record, or -1 if none
+     */
+    int findFirstRow(AdvantajeField<?> probeKeyField, ByteBuffer recordBuffer, int recordOffset) {
+        if (AdvantajeRawValues.isNull(probeKeyField, recordBuffer, recordOffset)) {
+            return NO_ROW;
+        }
+        int mask = slots.length - 1;
+        if (integralKey) {
+            long key = AdvantajeRawValues.getLong(probeKeyField, recordBuffer, recordOffset);
+            int slotIndex = hashLong(key) & mask;
+            for (int slot = slots[slotIndex]; slot != 0; slot = slots[slotIndex]) {
+                if (longKeys[slot - 1] == key) {
+                    return slot - 1;
+                }
+                slotIndex = (slotIndex + 1) & mask;
+            }
+            return NO_ROW;
+        }
+        int start = AdvantajeRawValues.getTrimmedStart(probeKeyField, recordBuffer, recordOffset);
+        int end = AdvantajeRawValues.getTrimmedEnd(probeKeyField, recordBuffer, start, recordOffset);
+        int hash = 0x811c9dc5;
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ getKeyByte(recordBuffer, i)) * 0x01000193;
+        }
+        int slotIndex = (hash ^ (hash >>> 16)) & mask;
+        for (int slot = slots[slotIndex]; slot != 0; slot = slots[slotIndex]) {
+            if (isRowKey(slot - 1, recordBuffer, start, end)) {
+                return slot - 1;
+            }
+            slotIndex = (slotIndex + 1) & mask;
+        }
+        return NO_ROW;
+    }
+
+    /**
+     * @return The next row having the same key, or -1 if none
+     */
+    int findNextRow(int row) {
+        return nextRows[row] - 1;
+    }
+
+    void copyRow(int row, byte[] bytes, int offset) {
+        System.arraycopy(rowData, row * rowLength, bytes, offset, rowLength);
+    }
+
+    private void insertRow(int row) {
+        int mask = slots.length - 1;
+        int slotIndex = hashRow(row) & mask;
+        for (int slot = slots[slotIndex]; slot != 0; slot = slots[slotIndex]) {
+            if (hasSameKey(slot - 1, row)) {
+                nextRows[row] = slot;
+                break;
+            }
+            slotIndex = (slotIndex + 1) & mask;
+        }
+        slots[slotIndex] = row + 1;
+    }
+
+    private int hashRow(int row) {
+        if (integralKey) {
+            return hashLong(longKeys[row]);
+        }
+        int hash = 0x811c9dc5;
+        for (int i = keyOffsets[row]; i < keyOffsets[row + 1]; i++) {
+            hash = (hash ^ (keyData[i] & 0xff)) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private boolean hasSameKey(int row, int otherRow) {
+        if (integralKey) {
+            return longKeys[row] == longKeys[otherRow];
+        }
+        int start = keyOffsets[row];
+        int length = keyOffsets[row + 1] - start;
+        int otherStart = keyOffsets[otherRow];
+        if (keyOffsets[otherRow + 1] - otherStart != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (keyData[start + i] != keyData[otherStart + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isRowKey(int row, ByteBuffer recordBuffer, int start, int end) {
+        int keyStart = keyOffsets[row];
+        if (keyOffsets[row + 1] - keyStart != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if ((keyData[keyStart + i - start] & 0xff) != getKeyByte(recordBuffer, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int getKeyByte(ByteBuffer recordBuffer, int index) {
+        int byteValue = recordBuffer.get(index) & 0xff;
+        return ignoreCase ? AdvantajeRawValues.foldCase(byteValue) : byteValue;
+    }
+
+    private static int hashLong(long key) {
+        long hash = key * 0x9e3779b97f4a7c15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private static void checkJoinedField(AdvantajeField<?> field) {
+        switch (field.getFieldType()) {
+            case MEMO:
+            case NMEMO:
+            case BINARY:
+            case IMAGE:
+                throw new AdvantajeException("Unsupported joined field type: " + field.getFieldType() + " for field " + field.getName());
+            default:
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package be.valuya.advantaje.core;
+
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.function.Supplier;
+
+/**
+ * Join indexes built once, keyed on table path, charset, key field and joined fields, and valid as long as the table
+ * file size and last-modified time are unchanged. Set it using
+ * {@link AdvantajeService#setJoinIndexCache(AdvantajeJoinIndexCache)}, so that the tables joined by each request are not
+ * read again. Thread-safe.
+ * <p>
+ * Least recently used join indexes are evicted when the cached join indexes hold more bytes than the cache budget.
+ */
+public class AdvantajeJoinIndexCache {
+
+    public static final long DEFAULT_MAX_BYTE_SIZE = 256L * 1024 * 1024;
+
+    private final AdvantajeVersionedCache<AdvantajeJoinIndex> cache;
+
+    public AdvantajeJoinIndexCache() {
+        this(DEFAULT_MAX_BYTE_SIZE);
+    }
+
+    /**
+     * @param maxByteSize The number of bytes the cached join indexes may hold
+     */
+    public AdvantajeJoinIndexCache(long maxByteSize) {
+        this.cache = new AdvantajeVersionedCache<>(maxByteSize, AdvantajeJoinIndex::getByteSize);
+    }
+
+    /**
+     * @return The join index of the table, built only when not cached or when the table file changed
+     * @see AdvantajeJoinIndex#build(AdvantajeTableFile, String, String...)
+     */
+    public AdvantajeJoinIndex getJoinIndex(Path path, Charset charset, String keyFieldName, String... fieldNames) {
+        return getJoinIndex(path, charset, keyFieldName, fieldNames, () -> buildJoinIndex(path, charset, keyFieldName, fieldNames));
+    }
+
+    /**
+     * @return The number of cached join indexes
+     */
+    public int getSize() {
+        return cache.getSize();
+    }
+
+    /**
+     * @return The number of bytes held by the cached join indexes
+     */
+    public long getByteSize() {
+        return cache.getByteSize();
+    }
+
+    /**
+     * Remove the join indexes of a table.
+     */
+    public void invalidate(Path path, Charset charset) {
+        cache.invalidate(AdvantajeVersionedCache.getTableCacheKey(path, charset));
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * @param joinIndexSupplier Builds the join index, when not cached or outdated
+     */
+    AdvantajeJoinIndex getJoinIndex(Path path, Charset charset, String keyFieldName, String[] fieldNames,
+                                    Supplier<AdvantajeJoinIndex> joinIndexSupplier) {
+        BasicFileAttributes attributes = AdvantajeVersionedCache.readAttributes(path);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String cacheKey = AdvantajeVersionedCache.getTableCacheKey(path, charset) + keyFieldName + "|" + String.join(",", fieldNames);
+        return cache.get(cacheKey, size, lastModified, joinIndexSupplier);
+    }
+
+    private static AdvantajeJoinIndex buildJoinIndex(Path path, Charset charset, String keyFieldName, String[] fieldNames) {
+        try (AdvantajeTableFile tableFile = AdvantajeTableFile.open(path, charset)) {
+            return AdvantajeJoinIndex.build(tableFile, keyFieldName, fieldNames);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package be.valuya.advantaje.core;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Probes a join index with the key of each record, and creates a record for each matching index row. Joined records
+ * hold the bytes of the probed record fields, followed by the bytes of the index row.
+ */
+class AdvantajeJoinSpliterator extends AdvantajeRecordSourceSpliterator<AdvantajeRecord[]> {
+
+    private static final AdvantajeRecord[] NO_RECORDS = new AdvantajeRecord[0];
+
+    private final AdvantajeField<?> keyField;
+    private final AdvantajeJoinIndex joinIndex;
+    private final AdvantajeSchema schema;
+    private final AdvantajeSchema probeSchema;
+
+    /**
+     * @param keyField        The field of the probed records holding the join key
+     * @param probeSchema     The schema holding the fields of the probed records to join
+     * @param recordPredicate A predicate evaluated before probing each record, or null to probe all records
+     * @param includeDeleted  Whether records marked deleted are probed, rather than skipped
+     */
+    AdvantajeJoinSpliterator(AdvantajeRecordSource recordSource, AdvantajeField<?> keyField, AdvantajeSchema probeSchema,
+                             AdvantajeJoinIndex joinIndex, AdvantajeRecordPredicate recordPredicate, boolean includeDeleted) {
+        super(recordSource, recordPredicate, includeDeleted);
+        joinIndex.checkProbeKeyField(keyField);
+        this.keyField = keyField;
+        this.joinIndex = joinIndex;
+        this.probeSchema = probeSchema;
+        this.schema = createJoinedSchema(probeSchema, joinIndex);
+    }
+
+    private AdvantajeJoinSpliterator(AdvantajeRecordSource recordSource, AdvantajeJoinSpliterator parentSpliterator) {
+        super(recordSource, parentSpliterator);
+        this.keyField = parentSpliterator.keyField;
+        this.joinIndex = parentSpliterator.joinIndex;
+        this.probeSchema = parentSpliterator.probeSchema;
+        this.schema = parentSpliterator.schema;
+    }
+
+    /**
+     * @return The schema of the joined records, holding the probed record fields followed by the index fields
+     */
+    AdvantajeSchema getSchema() {
+        return schema;
+    }
+
+    @Override
+    AdvantajeRecord[] readRecord(ByteBuffer recordBuffer, int recordOffset) {
+        int firstRow = joinIndex.findFirstRow(keyField, recordBuffer, recordOffset);
+        if (firstRow < 0) {
+            return NO_RECORDS;
+        }
+        int rowCount = 0;
+        for (int row = firstRow; row >= 0; row = joinIndex.findNextRow(row)) {
+            rowCount++;
+        }
+        boolean deleted = AdvantajeTableReader.isDeletedRecord(recordBuffer, recordOffset);
+        int probeLength = probeSchema.getRecordBytesLength();
+        int rowLength = joinIndex.getRowLength();
+        AdvantajeRecord[] records = new AdvantajeRecord[rowCount];
+        int recordIndex = 0;
+        for (int row = firstRow; row >= 0; row = joinIndex.findNextRow(row)) {
+            byte[] recordBytes = new byte[probeLength + rowLength];
+            probeSchema.copyRecordBytes(recordBuffer, recordOffset, recordBytes);
+            joinIndex.copyRow(row, recordBytes, probeLength);
+            records[recordIndex++] = new AdvantajeRecord(schema, recordBytes, deleted);
+        }
+        return records;
+    }
+
+    @Override
+    AdvantajeJoinSpliterator createSplit(AdvantajeRecordSource prefixSource) {
+        return new AdvantajeJoinSpliterator(prefixSource, this);
+    }
+
+    private static AdvantajeSchema createJoinedSchema(AdvantajeSchema probeSchema, AdvantajeJoinIndex joinIndex) {
+        List<AdvantajeField<?>> fields = new ArrayList<>(probeSchema.getFields());
+        Set<String> fieldNames = new HashSet<>();
+        for (AdvantajeField<?> field : fields) {
+            fieldNames.add(field.getName());
+        }
+        // Index fields follow the probed record fields, in the record bytes and in the table records
+        int rowOffset = fields.stream()
+                .mapToInt(field -> field.getOffset() + field.getStorageLength())
+                .max()
+                .orElse(0);
+        for (AdvantajeField<?> indexField : joinIndex.getFields()) {
+            if (!fieldNames.add(indexField.getName())) {
+                throw new AdvantajeException("Duplicate joined field: " + indexField.getName());
+            }
+            fields.add(indexField.withOffset(rowOffset + indexField.getOffset()));
+        }
+        return new AdvantajeSchema(fields, probeSchema.getCharset(), probeSchema.getMemoFile());
+    }
+}
@@ -0,0 +1,45 @@
+package be.valuya.advantaje.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A column of long values: unscaled MONEY values, or epoch milliseconds for TIMESTAMP fields.
+ */
+public class AdvantajeLongColumn extends AdvantajeColumn {
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    private final AdvantajeFieldType fieldType;
+    private final int fieldOffset;
+    private final long[] values;
+
+    AdvantajeLongColumn(AdvantajeField<?> field, int capacity) {
+        super(field, capacity);
+        this.fieldType = field.getFieldType();
+        this.fieldOffset = field.getOffset();
+        this.values = new long[capacity];
+    }
+
+    public long[] getValues() {
+        return values;
+    }
+
+    public long getValue(int row) {
+        return values[row];
+    }
+
+    @Override
+    void read(int row, ByteBuffer recordBuffer, int recordOffset) {
+        int offset = recordOffset + fieldOffset;
+        if (fieldType == AdvantajeFieldType.TIMESTAMP) {
+            int dateInt = recordBuffer.getInt(offset);
+            int millis = recordBuffer.getInt(offset + 4);
+            if (AdvantajeRawValues.isNullDate(dateInt) || AdvantajeRawValues.isNullInt(millis)) {
+                setNull(row);
+            }
+            values[row] = (dateInt - AdvantajeRawValues.EPOCH_JULIAN_DAY) * MILLIS_PER_DAY + millis;
+            return;
+        }
+        values[row] = recordBuffer.getLong(offset);
+    }
+}
@@ -0,0 +1,83 @@
+package be.valuya.advantaje.core;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * An index on an integral field, comparing raw values.
+ */
+class AdvantajeLongIndex extends AdvantajeIndex {
+
+    private final long[] keys;
+
+    private AdvantajeLongIndex(AdvantajeField<?> field, int[] recordNumbers, long[] keys) {
+        super(field, recordNumbers);
+        this.keys = keys;
+    }
+
+    static AdvantajeLongIndex build(AdvantajeField<?> field, AdvantajeRecordSource recordSource) {
+        int capacity = (int) Math.max(16, recordSource.estimateSize());
+        long[] unsortedKeys = new long[capacity];
+        int[] unsortedRecordNumbers = new int[capacity];
+        int size = 0;
+        while (recordSource.next()) {
+            ByteBuffer recordBuffer = recordSource.getRecordBuffer();
+            int recordOffset = recordSource.getRecordOffset();
+            if (!isIndexed(field, recordBuffer, recordOffset)) {
+                continue;
+            }
+            if (size == unsortedKeys.length) {
+                unsortedKeys = Arrays.copyOf(unsortedKeys, size * 2);
+                unsortedRecordNumbers = Arrays.copyOf(unsortedRecordNumbers, size * 2);
+            }
+            unsortedKeys[size] = AdvantajeRawValues.getLong(field, recordBuffer, recordOffset);
+            unsortedRecordNumbers[size] = recordSource.getRecordNumber();
+            size++;
+        }
+        long[] entryKeys = unsortedKeys;
+        int[] sortedOrder = AdvantajeSorts.sortedOrder(size, (left, right) -> Long.compare(entryKeys[left], entryKeys[right]));
+        long[] sortedKeys = new long[size];
+        for (int i = 0; i < size; i++) {
+            sortedKeys[i] = entryKeys[sortedOrder[i]];
+        }
+        int[] sortedRecordNumbers = collectRecordNumbers(size, sortedOrder, unsortedRecordNumbers);
+        return new AdvantajeLongIndex(field, sortedRecordNumbers, sortedKeys);
+    }
+
+    @Override
+    long getKeyByteSize() {
+        return (long) keys.length * Long.BYTES;
+    }
+
+    @Override
+    int findFirstNotBelow(Object key) {
+        long longKey = AdvantajeRawPredicates.toRawLong(getField(), key);
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] < longKey) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    int findFirstAbove(Object key) {
+        long longKey = AdvantajeRawPredicates.toRawLong(getField(), key);
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] <= longKey) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,78 @@
+package be.valuya.advantaje.core;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The value of a MEMO, NMEMO, BINARY or IMAGE field: a reference to content stored in the table memo file, read when
+ * first requested.
+ */
+public class AdvantajeMemo {
+
+    private final AdvantajeFieldType fieldType;
+    private final int blockNumber;
+    private final int length;
+    private final Charset charset;
+    private AdvantajeMemoFile memoFile;
+
+    public AdvantajeMemo(AdvantajeFieldType fieldType, int blockNumber, int length, Charset charset) {
+        this.fieldType = fieldType;
+        this.blockNumber = blockNumber;
+        this.length = length;
+        this.charset = charset;
+    }
+
+    public AdvantajeFieldType getFieldType() {
+        return fieldType;
+    }
+
+    public int getBlockNumber() {
+        return blockNumber;
+    }
+
+    /**
+     * @return The content length, in bytes
+     */
+    public int getLength() {
+        return length;
+    }
+
+    public AdvantajeMemoFile getMemoFile() {
+        return memoFile;
+    }
+
+    void setMemoFile(AdvantajeMemoFile memoFile) {
+        this.memoFile = memoFile;
+    }
+
+    /**
+     * @return The content bytes, which must not be modified
+     * @throws AdvantajeException When the memo file is closed, for instance once the stream of the record is closed
+     */
+    public byte[] getBytes() {
+        if (memoFile == null) {
+            throw new AdvantajeException("No memo file available to read memo content");
+        }
+        return memoFile.readContent(blockNumber, length);
+    }
+
+    /**
+     * @return The content as text: using UTF-16 for NMEMO fields, or the table charset otherwise
+     */
+    public String getText() {
+        byte[] bytes = getBytes();
+        if (fieldType == AdvantajeFieldType.NMEMO) {
+            return new String(bytes, StandardCharsets.UTF_16LE);
+        }
+        return new String(bytes, charset);
+    }
+
+    @Override
+    public String toString() {
+        return "AdvantajeMemo{" +
+                "fieldType=" + fieldType +
+                ", blockNumber=" + blockNumber +
+                ", length=" + length +
+                '}';
+    }
+}
@@ -0,0 +1,176 @@
+package be.valuya.advantaje.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A memo file (.adm) holding the content of the MEMO, NMEMO, BINARY and IMAGE fields of a table. Memo content is
+ * stored in blocks; records hold the first block number and the content length.
+ * <p>
+ * The file is memory-mapped on first access. Read content is kept in a least-recently-used cache bounded by size.
+ * Content can not be read once closed.
+ */
+public class AdvantajeMemoFile implements Closeable {
+
+    public static final int DEFAULT_CACHE_SIZE = 8 * 1024 * 1024;
+
+    private static final int MAX_SEGMENT_LENGTH = 1 << 30;
+    private static final int BLOCK_SIZE_OFFSET = 0x06;
+    private static final int DEFAULT_BLOCK_SIZE = 8;
+
+    private final Path path;
+    private final long cacheSize;
+    private final Map<Long, byte[]> contentCache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+    private FileChannel fileChannel;
+    private ByteBuffer[] segments;
+    private int blockSize;
+    private boolean closed;
+
+    public AdvantajeMemoFile(Path path) {
+        this(path, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param cacheSize The maximum number of content bytes kept in cache
+     */
+    public AdvantajeMemoFile(Path path, long cacheSize) {
+        this.path = path;
+        this.cacheSize = cacheSize;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return A copy of the content stored from the given block, which must not be modified
+     * @throws AdvantajeException When this memo file is closed
+     */
+    public synchronized byte[] readContent(int blockNumber, int length) {
+        if (closed) {
+            throw new AdvantajeException("Memo file closed: " + path);
+        }
+        long contentOffset = (long) blockNumber * getBlockSize();
+        byte[] cachedContent = contentCache.get(contentOffset);
+        if (cachedContent != null && cachedContent.length == length) {
+            return cachedContent;
+        }
+        byte[] content = readBytes(contentOffset, length);
+        putInCache(contentOffset, content);
+        return content;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        contentCache.clear();
+        cachedBytes = 0;
+        segments = null;
+        if (fileChannel != null) {
+            try {
+                fileChannel.close();
+            } catch (IOException e) {
+                throw new AdvantajeException(e);
+            } finally {
+                fileChannel = null;
+            }
+        }
+    }
+
+    private int getBlockSize() {
+        openFile();
+        return blockSize;
+    }
+
+    private byte[] readBytes(long position, int length) {
+        openFile();
+        byte[] bytes = new byte[length];
+        int readLength = 0;
+        while (readLength < length) {
+            long bytePosition = position + readLength;
+            int segmentIndex = (int) (bytePosition / MAX_SEGMENT_LENGTH);
+            if (segmentIndex >= segments.length) {
+                throw new AdvantajeException("Memo content out of bounds in " + path + " at " + position);
+            }
+            ByteBuffer segment = segments[segmentIndex].duplicate();
+            int segmentPosition = (int) (bytePosition - (long) segmentIndex * MAX_SEGMENT_LENGTH);
+            int chunkLength = Math.min(length - readLength, segment.limit() - segmentPosition);
+            if (chunkLength <= 0) {
+                throw new AdvantajeException("Memo content out of bounds in " + path + " at " + position);
+            }
+            segment.position(segmentPosition);
+            segment.get(bytes, readLength, chunkLength);
+            readLength += chunkLength;
+        }
+        return bytes;
+    }
+
+    private void putInCache(long contentOffset, byte[] content) {
+        if (content.length > cacheSize) {
+            return;
+        }
+        byte[] replacedContent = contentCache.put(contentOffset, content);
+        if (replacedContent != null) {
+            cachedBytes -= replacedContent.length;
+        }
+        cachedBytes += content.length;
+        Iterator<byte[]> contentIterator = contentCache.values().iterator();
+        while (cachedBytes > cacheSize && contentIterator.hasNext()) {
+            byte[] evictedContent = contentIterator.next();
+            cachedBytes -= evictedContent.length;
+            contentIterator.remove();
+        }
+    }
+
+    private void openFile() {
+        if (segments != null) {
+            return;
+        }
+        try {
+            FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                mapSegments(fileChannel);
+            } catch (IOException | RuntimeException exception) {
+                fileChannel.close();
+                throw exception;
+            }
+            this.fileChannel = fileChannel;
+        } catch (IOException exception) {
+            throw new AdvantajeException("Error opening memo file " + path, exception);
+        }
+    }
+
+    private void mapSegments(FileChannel fileChannel) throws IOException {
+        long fileSize = fileChannel.size();
+        int segmentCount = (int) ((fileSize + MAX_SEGMENT_LENGTH - 1) / MAX_SEGMENT_LENGTH);
+        ByteBuffer[] mappedSegments = new ByteBuffer[segmentCount];
+        for (int segmentIndex = 0; segmentIndex < segmentCount; segmentIndex++) {
+            long segmentPosition = (long) segmentIndex * MAX_SEGMENT_LENGTH;
+            long segmentLength = Math.min(MAX_SEGMENT_LENGTH, fileSize - segmentPosition);
+            mappedSegments[segmentIndex] = fileChannel.map(FileChannel.MapMode.READ_ONLY, segmentPosition, segmentLength)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        blockSize = readBlockSize(mappedSegments);
+        segments = mappedSegments;
+    }
+
+    private int readBlockSize(ByteBuffer[] mappedSegments) {
+        if (mappedSegments.length == 0 || mappedSegments[0].limit() < BLOCK_SIZE_OFFSET + 2) {
+            return DEFAULT_BLOCK_SIZE;
+        }
+        int headerBlockSize = mappedSegments[0].getShort(BLOCK_SIZE_OFFSET) & 0xffff;
+        if (headerBlockSize == 0) {
+            return DEFAULT_BLOCK_SIZE;
+        }
+        return headerBlockSize;
+    }
+}
@@ -0,0 +1,250 @@
+package be.valuya.advantaje.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Table headers parsed once, keyed on table path and charset, and valid as long as the table file size and
+ * last-modified time are unchanged. Thread-safe.
+ * <p>
+ * The cache may be persisted to a sidecar file, so that a restarted process reads table metadata without reading
+ * table headers. Cached metadata is shared by all readers of a table, and should not be modified.
+ */
+public class AdvantajeMetaDataCache {
+
+    private static final int SIDECAR_MAGIC = 0x41444d43;
+    private static final int SIDECAR_VERSION = 2;
+
+    private final Path sidecarPath;
+    private final Map<String, CacheEntry> entries = new ConcurrentHashMap<>();
+    private volatile boolean modified;
+
+    /**
+     * Create a cache held in memory only.
+     */
+    public AdvantajeMetaDataCache() {
+        this.sidecarPath = null;
+    }
+
+    /**
+     * Create a cache persisted to a sidecar file, loading its entries if it exists. A sidecar file that cannot be read,
+     * for instance written by another version, is ignored and will be overwritten on {@link #save()}.
+     */
+    public AdvantajeMetaDataCache(Path sidecarPath) {
+        this.sidecarPath = sidecarPath;
+        if (Files.isRegularFile(sidecarPath)) {
+            load(sidecarPath);
+        }
+    }
+
+    public Optional<Path> getSidecarPathOptional() {
+        return Optional.ofNullable(sidecarPath);
+    }
+
+    /**
+     * @return The metadata of the table, reading its header only when not cached or when the table file changed
+     */
+    public AdvantajeTableMetaData getMetaData(Path path, Charset charset) {
+        BasicFileAttributes attributes = AdvantajeVersionedCache.readAttributes(path);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        return getEntry(path, charset, size, lastModified, () -> readMetaData(path, charset))
+                .getMetaData();
+    }
+
+    /**
+     * @return The number of cached tables
+     */
+    public int getSize() {
+        return entries.size();
+    }
+
+    public void invalidate(Path path, Charset charset) {
+        String cacheKey = AdvantajeVersionedCache.getTableCacheKey(path, charset);
+        if (entries.remove(cacheKey) != null) {
+            modified = true;
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        modified = true;
+    }
+
+    /**
+     * Write the cache to its sidecar file, if modified since loaded or last saved. The file is replaced atomically
+     * where supported.
+     */
+    public void save() {
+        if (sidecarPath == null) {
+            throw new AdvantajeException("No sidecar file for this cache");
+        }
+        if (!modified) {
+            return;
+        }
+        modified = false;
+        List<Map.Entry<String, CacheEntry>> savedEntries = new ArrayList<>(entries.entrySet());
+        Path absoluteSidecarPath = sidecarPath.toAbsolutePath();
+        try {
+            Path tempPath = Files.createTempFile(absoluteSidecarPath.getParent(), absoluteSidecarPath.getFileName().toString(), ".tmp");
+            try {
+                try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+                    outputStream.writeInt(SIDECAR_MAGIC);
+                    outputStream.writeInt(SIDECAR_VERSION);
+                    outputStream.writeInt(savedEntries.size());
+                    for (Map.Entry<String, CacheEntry> savedEntry : savedEntries) {
+                        outputStream.writeUTF(savedEntry.getKey());
+                        writeEntry(outputStream, savedEntry.getValue());
+                    }
+                }
+                moveReplacing(tempPath, absoluteSidecarPath);
+            } finally {
+                Files.deleteIfExists(tempPath);
+            }
+        } catch (IOException exception) {
+            modified = true;
+            throw new AdvantajeException("Error writing metadata cache " + sidecarPath, exception);
+        }
+    }
+
+    /**
+     * @param metaDataSupplier Parses the table header, when not cached or outdated
+     */
+    CacheEntry getEntry(Path path, Charset charset, long size, long lastModified,
+                        Supplier<AdvantajeTableMetaData> metaDataSupplier) {
+        String cacheKey = AdvantajeVersionedCache.getTableCacheKey(path, charset);
+        CacheEntry cacheEntry = entries.get(cacheKey);
+        if (cacheEntry != null && cacheEntry.isValid(size, lastModified)) {
+            return cacheEntry;
+        }
+        AdvantajeTableMetaData metaData = metaDataSupplier.get();
+        CacheEntry newCacheEntry = new CacheEntry(size, lastModified, metaData, charset);
+        entries.put(cacheKey, newCacheEntry);
+        modified = true;
+        return newCacheEntry;
+    }
+
+    private void load(Path path) {
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (inputStream.readInt() != SIDECAR_MAGIC || inputStream.readInt() != SIDECAR_VERSION) {
+                return;
+            }
+            Map<String, CacheEntry> loadedEntries = new ConcurrentHashMap<>();
+            int entryCount = inputStream.readInt();
+            for (int i = 0; i < entryCount; i++) {
+                String cacheKey = inputStream.readUTF();
+                CacheEntry cacheEntry = readEntry(inputStream);
+                loadedEntries.put(cacheKey, cacheEntry);
+            }
+            entries.putAll(loadedEntries);
+        } catch (IOException | RuntimeException exception) {
+            // An unreadable cache is rebuilt
+            modified = true;
+        }
+    }
+
+    private static void writeEntry(DataOutputStream outputStream, CacheEntry cacheEntry) throws IOException {
+        AdvantajeTableMetaData metaData = cacheEntry.getMetaData();
+        outputStream.writeLong(cacheEntry.size);
+        outputStream.writeLong(cacheEntry.lastModified);
+        outputStream.writeUTF(cacheEntry.charset.name());
+        outputStream.writeInt(metaData.getRecordCount());
+        outputStream.writeInt(metaData.getHeaderLength());
+        outputStream.writeInt(metaData.getRecordLength());
+        List<AdvantajeField<?>> fields = metaData.getFields();
+        outputStream.writeInt(fields.size());
+        for (AdvantajeField<?> field : fields) {
+            outputStream.writeUTF(field.getName());
+            outputStream.writeShort(field.getFieldType().getCode());
+            outputStream.writeInt(field.getOffset());
+            outputStream.writeInt(field.getLength());
+            outputStream.writeBoolean(field.isInterned());
+        }
+    }
+
+    private static CacheEntry readEntry(DataInputStream inputStream) throws IOException {
+        long size = inputStream.readLong();
+        long lastModified = inputStream.readLong();
+        Charset charset = Charset.forName(inputStream.readUTF());
+        int recordCount = inputStream.readInt();
+        int headerLength = inputStream.readInt();
+        int recordLength = inputStream.readInt();
+        int fieldCount = inputStream.readInt();
+        List<AdvantajeField<?>> fields = new ArrayList<>();
+        for (int i = 0; i < fieldCount; i++) {
+            String fieldName = inputStream.readUTF();
+            AdvantajeFieldType fieldType = AdvantajeFieldType.fromCode(inputStream.readShort());
+            AdvantajeField<?> field = new AdvantajeField<>(fieldName, fieldType);
+            field.setOffset(inputStream.readInt());
+            field.setLength(inputStream.readInt());
+            field.setInterned(inputStream.readBoolean());
+            fields.add(field);
+        }
+        AdvantajeTableMetaData metaData = new AdvantajeTableMetaData(recordCount, fields, headerLength, recordLength);
+        return new CacheEntry(size, lastModified, metaData, charset);
+    }
+
+    private static AdvantajeTableMetaData readMetaData(Path path, Charset charset) {
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            AdvantajeTableReader tableReader = new AdvantajeTableReader();
+            return tableReader.openTable(inputStream, charset);
+        } catch (IOException exception) {
+            throw new AdvantajeException("Error reading table header " + path, exception);
+        }
+    }
+
+    private static void moveReplacing(Path sourcePath, Path targetPath) throws IOException {
+        try {
+            Files.move(sourcePath, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException atomicMoveException) {
+            Files.move(sourcePath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * The metadata of a table file version, with the decode plan of all its fields.
+     */
+    static class CacheEntry {
+
+        private final long size;
+        private final long lastModified;
+        private final AdvantajeTableMetaData metaData;
+        private final Charset charset;
+        private final AdvantajeDecodePlan decodePlan;
+
+        CacheEntry(long size, long lastModified, AdvantajeTableMetaData metaData, Charset charset) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.metaData = metaData;
+            this.charset = charset;
+            this.decodePlan = AdvantajeDecodePlan.compile(metaData.getFields(), charset);
+        }
+
+        boolean isValid(long size, long lastModified) {
+            return this.size == size && this.lastModified == lastModified;
+        }
+
+        AdvantajeTableMetaData getMetaData() {
+            return metaData;
+        }
+
+        AdvantajeDecodePlan getDecodePlan() {
+            return decodePlan;
+        }
+    }
+}
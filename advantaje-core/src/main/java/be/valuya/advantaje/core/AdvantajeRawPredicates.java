@@ -0,0 +1,129 @@
+package be.valuya.advantaje.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.time.LocalDate;
+import java.time.temporal.JulianFields;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Builds record predicates comparing encoded field bytes against encoded filter values.
+ */
+final class AdvantajeRawPredicates {
+
+    private AdvantajeRawPredicates() {
+    }
+
+    static AdvantajeRecordPredicate isNull(AdvantajeField<?> field) {
+        return (recordBuffer, recordOffset) -> AdvantajeRawValues.isNull(field, recordBuffer, recordOffset);
+    }
+
+    static AdvantajeRecordPredicate in(AdvantajeField<?> field, Charset charset, Object... values) {
+        AdvantajeFieldType fieldType = field.getFieldType();
+        if (AdvantajeRawValues.isIntegral(fieldType)) {
+            long[] longValues = Stream.of(values)
+                    .mapToLong(value -> toRawLong(field, value))
+                    .sorted()
+                    .toArray();
+            return (recordBuffer, recordOffset) -> !AdvantajeRawValues.isNull(field, recordBuffer, recordOffset)
+                    && Arrays.binarySearch(longValues, AdvantajeRawValues.getLong(field, recordBuffer, recordOffset)) >= 0;
+        }
+        if (AdvantajeRawValues.isFloatingPoint(fieldType)) {
+            double[] doubleValues = Stream.of(values)
+                    .mapToDouble(value -> toDouble(field, value))
+                    .sorted()
+                    .toArray();
+            return (recordBuffer, recordOffset) -> !AdvantajeRawValues.isNull(field, recordBuffer, recordOffset)
+                    && Arrays.binarySearch(doubleValues, AdvantajeRawValues.getDouble(field, recordBuffer, recordOffset)) >= 0;
+        }
+        if (AdvantajeRawValues.isFixedString(fieldType)) {
+            boolean ignoreCase = fieldType == AdvantajeFieldType.CISSTRING;
+            byte[][] byteValues = Stream.of(values)
+                    .map(value -> toTrimmedBytes(field, charset, value))
+                    .toArray(byte[][]::new);
+            return (recordBuffer, recordOffset) -> matchesAnyString(field, recordBuffer, recordOffset, byteValues, ignoreCase);
+        }
+        throw new AdvantajeException("Unsupported filter field type: " + fieldType + " for field " + field.getName());
+    }
+
+    static AdvantajeRecordPredicate range(AdvantajeField<?> field, Charset charset, Object fromValue, Object toValue) {
+        AdvantajeFieldType fieldType = field.getFieldType();
+        if (AdvantajeRawValues.isIntegral(fieldType)) {
+            long fromLong = fromValue == null ? Long.MIN_VALUE : toRawLong(field, fromValue);
+            long toLong = toValue == null ? Long.MAX_VALUE : toRawLong(field, toValue);
+            return (recordBuffer, recordOffset) -> {
+                if (AdvantajeRawValues.isNull(field, recordBuffer, recordOffset)) {
+                    return false;
+                }
+                long longValue = AdvantajeRawValues.getLong(field, recordBuffer, recordOffset);
+                return longValue >= fromLong && longValue <= toLong;
+            };
+        }
+        if (AdvantajeRawValues.isFloatingPoint(fieldType)) {
+            double fromDouble = fromValue == null ? Double.NEGATIVE_INFINITY : toDouble(field, fromValue);
+            double toDouble = toValue == null ? Double.POSITIVE_INFINITY : toDouble(field, toValue);
+            return (recordBuffer, recordOffset) -> {
+                if (AdvantajeRawValues.isNull(field, recordBuffer, recordOffset)) {
+                    return false;
+                }
+                double doubleValue = AdvantajeRawValues.getDouble(field, recordBuffer, recordOffset);
+                return doubleValue >= fromDouble && doubleValue <= toDouble;
+            };
+        }
+        if (AdvantajeRawValues.isFixedString(fieldType)) {
+            boolean ignoreCase = fieldType == AdvantajeFieldType.CISSTRING;
+            byte[] fromBytes = fromValue == null ? null : toTrimmedBytes(field, charset, fromValue);
+            byte[] toBytes = toValue == null ? null : toTrimmedBytes(field, charset, toValue);
+            return (recordBuffer, recordOffset) -> {
+                int start = AdvantajeRawValues.getTrimmedStart(field, recordBuffer, recordOffset);
+                int end = AdvantajeRawValues.getTrimmedEnd(field, recordBuffer, start, recordOffset);
+                return (fromBytes == null || AdvantajeRawValues.compareBytes(recordBuffer, start, end, fromBytes, ignoreCase) >= 0)
+                        && (toBytes == null || AdvantajeRawValues.compareBytes(recordBuffer, start, end, toBytes, ignoreCase) <= 0);
+            };
+        }
+        throw new AdvantajeException("Unsupported filter field type: " + fieldType + " for field " + field.getName());
+    }
+
+    private static boolean matchesAnyString(AdvantajeField<?> field, ByteBuffer recordBuffer, int recordOffset,
+                                            byte[][] byteValues, boolean ignoreCase) {
+        int start = AdvantajeRawValues.getTrimmedStart(field, recordBuffer, recordOffset);
+        int end = AdvantajeRawValues.getTrimmedEnd(field, recordBuffer, start, recordOffset);
+        int length = end - start;
+        for (byte[] byteValue : byteValues) {
+            if (byteValue.length == length
+                    && AdvantajeRawValues.compareBytes(recordBuffer, start, end, byteValue, ignoreCase) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static long toRawLong(AdvantajeField<?> field, Object value) {
+        if (field.getFieldType() == AdvantajeFieldType.DATE && value instanceof LocalDate) {
+            LocalDate localDate = (LocalDate) value;
+            return localDate.getLong(JulianFields.JULIAN_DAY);
+        }
+        if (value instanceof Number) {
+            Number number = (Number) value;
+            return number.longValue();
+        }
+        throw new AdvantajeException("Invalid filter value for field " + field.getName() + ": " + value);
+    }
+
+    static double toDouble(AdvantajeField<?> field, Object value) {
+        if (value instanceof Number) {
+            Number number = (Number) value;
+            return number.doubleValue();
+        }
+        throw new AdvantajeException("Invalid filter value for field " + field.getName() + ": " + value);
+    }
+
+    static byte[] toTrimmedBytes(AdvantajeField<?> field, Charset charset, Object value) {
+        if (value instanceof CharSequence) {
+            String stringValue = value.toString().trim();
+            return stringValue.getBytes(charset);
+        }
+        throw new AdvantajeException("Invalid filter value for field " + field.getName() + ": " + value);
+    }
+}
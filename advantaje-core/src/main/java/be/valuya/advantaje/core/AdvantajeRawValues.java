@@ -0,0 +1,182 @@
+package be.valuya.advantaje.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads field values straight from the encoded record bytes, without decoding them to objects. All offsets are
+ * absolute, so the buffer position is left untouched.
+ */
+final class AdvantajeRawValues {
+
+    static final double DOUBLE_NULL_VALUE = -1.58E-322;
+    /**
+     * The julian day of 1970-01-01
+     */
+    static final int EPOCH_JULIAN_DAY = 2440588;
+
+    private AdvantajeRawValues() {
+    }
+
+    static boolean isNull(AdvantajeField<?> field, ByteBuffer buffer, int recordOffset) {
+        int fieldOffset = recordOffset + field.getOffset();
+        switch (field.getFieldType()) {
+            case LOGICAL: {
+                byte byteValue = buffer.get(fieldOffset);
+                return byteValue != 'T' && byteValue != 'F';
+            }
+            case DATE:
+                return isNullDate(buffer.getInt(fieldOffset));
+            case INTEGER:
+            case AUTOINC:
+            case RAWVERSION:
+            case TIME:
+            case MODTIME:
+                return isNullInt(buffer.getInt(fieldOffset));
+            case TIMESTAMP:
+                return isNullDate(buffer.getInt(fieldOffset)) || isNullInt(buffer.getInt(fieldOffset + 4));
+            case DOUBLE:
+            case CURRENCY:
+                return isNullDouble(buffer.getDouble(fieldOffset));
+            default:
+                return false;
+        }
+    }
+
+    static boolean isNullInt(int intValue) {
+        return intValue == Integer.MIN_VALUE || intValue == Integer.MAX_VALUE;
+    }
+
+    static boolean isNullDate(int dateInt) {
+        return dateInt == 0 || isNullInt(dateInt);
+    }
+
+    static boolean isNullDouble(double doubleValue) {
+        return doubleValue == DOUBLE_NULL_VALUE || doubleValue == Double.MIN_VALUE || doubleValue == Double.MAX_VALUE;
+    }
+
+    static boolean isIntegral(AdvantajeFieldType fieldType) {
+        switch (fieldType) {
+            case NUMERIC:
+            case SHORTINT:
+            case INTEGER:
+            case AUTOINC:
+            case RAWVERSION:
+            case DATE:
+            case TIME:
+            case MODTIME:
+            case MONEY:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    static boolean isFloatingPoint(AdvantajeFieldType fieldType) {
+        return fieldType == AdvantajeFieldType.DOUBLE || fieldType == AdvantajeFieldType.CURRENCY;
+    }
+
+    static boolean isFixedString(AdvantajeFieldType fieldType) {
+        return fieldType == AdvantajeFieldType.STRING || fieldType == AdvantajeFieldType.CISSTRING;
+    }
+
+    /**
+     * @return The raw integral value: julian day for dates, milliseconds of day for times, unscaled value for money.
+     */
+    static long getLong(AdvantajeField<?> field, ByteBuffer buffer, int recordOffset) {
+        int fieldOffset = recordOffset + field.getOffset();
+        switch (field.getFieldType()) {
+            case NUMERIC:
+            case SHORTINT:
+                return buffer.getShort(fieldOffset);
+            case INTEGER:
+            case AUTOINC:
+            case RAWVERSION:
+            case DATE:
+            case TIME:
+            case MODTIME:
+                return buffer.getInt(fieldOffset);
+            case MONEY:
+                return buffer.getLong(fieldOffset);
+            default:
+                throw new AdvantajeException("Not an integral field: " + field.getName());
+        }
+    }
+
+    static double getDouble(AdvantajeField<?> field, ByteBuffer buffer, int recordOffset) {
+        if (isFloatingPoint(field.getFieldType())) {
+            return buffer.getDouble(recordOffset + field.getOffset());
+        }
+        return getLong(field, buffer, recordOffset);
+    }
+
+    /**
+     * @return The absolute offset of the first non-blank byte of a fixed-length string field
+     */
+    static int getTrimmedStart(AdvantajeField<?> field, ByteBuffer buffer, int recordOffset) {
+        int start = recordOffset + field.getOffset();
+        int end = start + field.getStorageLength();
+        while (start < end && isBlank(buffer.get(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * @return The absolute offset following the last non-blank byte of a fixed-length string field
+     */
+    static int getTrimmedEnd(AdvantajeField<?> field, ByteBuffer buffer, int trimmedStart, int recordOffset) {
+        int end = recordOffset + field.getOffset() + field.getStorageLength();
+        while (end > trimmedStart && isBlank(buffer.get(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    static boolean isBlank(byte byteValue) {
+        return (byteValue & 0xff) <= ' ';
+    }
+
+    /**
+     * Compare bytes as unsigned values, like {@link String#compareTo(String)} does for latin-1 strings.
+     */
+    static int compareBytes(ByteBuffer buffer, int start, int end, byte[] bytes, boolean ignoreCase) {
+        int length = end - start;
+        int commonLength = Math.min(length, bytes.length);
+        for (int i = 0; i < commonLength; i++) {
+            int byteValue = buffer.get(start + i) & 0xff;
+            int otherByteValue = bytes[i] & 0xff;
+            if (ignoreCase) {
+                byteValue = foldCase(byteValue);
+                otherByteValue = foldCase(otherByteValue);
+            }
+            if (byteValue != otherByteValue) {
+                return byteValue - otherByteValue;
+            }
+        }
+        return length - bytes.length;
+    }
+
+    /**
+     * @return The hash of bytes, spread so that its low bits can index hash tables
+     */
+    static int hash(ByteBuffer buffer, int start, int end) {
+        int hash = 1;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Fold latin-1 letters to upper case.
+     */
+    static int foldCase(int byteValue) {
+        if (byteValue >= 'a' && byteValue <= 'z') {
+            return byteValue - 0x20;
+        }
+        if (byteValue >= 0xe0 && byteValue <= 0xfe && byteValue != 0xf7) {
+            return byteValue - 0x20;
+        }
+        return byteValue;
+    }
+}
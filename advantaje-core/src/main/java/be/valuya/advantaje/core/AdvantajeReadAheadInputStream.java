@@ -0,0 +1,245 @@
+package be.valuya.advantaje.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads an input stream ahead on a dedicated thread, so that blocking reads overlap with record decoding. A ring of
+ * blocks is reused: the read thread fills free blocks while the reader consumes the filled ones.
+ * <p>
+ * The read thread stops when this stream is closed, or when it is no longer referenced without having been closed, for
+ * instance by a partially consumed stream of records. Failures of the read thread are thrown by the next read.
+ */
+public class AdvantajeReadAheadInputStream extends InputStream {
+
+    public static final int DEFAULT_BLOCK_COUNT = 4;
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    private static final long WAIT_MILLIS = 100;
+    private static final Block END_BLOCK = new Block(null, -1, null);
+
+    private final InputStream inputStream;
+    private final BlockingQueue<Block> filledBlocks;
+    private final BlockingQueue<byte[]> freeBlockBytes;
+    private final BlockReader blockReader;
+    private final Thread readThread;
+    private Block currentBlock;
+    private int currentPosition;
+
+    public AdvantajeReadAheadInputStream(InputStream inputStream) {
+        this(inputStream, DEFAULT_BLOCK_COUNT, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param inputStream The stream to read, which will be closed with this stream
+     * @param blockCount  The number of blocks read ahead
+     * @param blockSize   The size of each block, in bytes
+     */
+    public AdvantajeReadAheadInputStream(InputStream inputStream, int blockCount, int blockSize) {
+        if (blockCount < 1 || blockSize < 1) {
+            throw new IllegalArgumentException("Invalid read-ahead blocks: " + blockCount + " x " + blockSize);
+        }
+        this.inputStream = inputStream;
+        this.filledBlocks = new ArrayBlockingQueue<>(blockCount + 1);
+        this.freeBlockBytes = new ArrayBlockingQueue<>(blockCount);
+        for (int blockIndex = 0; blockIndex < blockCount; blockIndex++) {
+            freeBlockBytes.add(new byte[blockSize]);
+        }
+        this.blockReader = new BlockReader(this, inputStream, filledBlocks, freeBlockBytes);
+        this.readThread = new Thread(blockReader, "advantaje-read-ahead");
+        readThread.setDaemon(true);
+        readThread.start();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextBlockAvailable()) {
+            return -1;
+        }
+        return currentBlock.bytes[currentPosition++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        int readLength = 0;
+        while (readLength < length && nextBlockAvailable()) {
+            int chunkLength = Math.min(length - readLength, currentBlock.length - currentPosition);
+            System.arraycopy(currentBlock.bytes, currentPosition, bytes, offset + readLength, chunkLength);
+            currentPosition += chunkLength;
+            readLength += chunkLength;
+        }
+        return readLength == 0 ? -1 : readLength;
+    }
+
+    @Override
+    public int available() {
+        if (currentBlock == null || currentBlock == END_BLOCK) {
+            return 0;
+        }
+        return currentBlock.length - currentPosition;
+    }
+
+    @Override
+    public void close() throws IOException {
+        blockReader.closed = true;
+        readThread.interrupt();
+        inputStream.close();
+    }
+
+    /**
+     * @return Whether the current block has bytes left to read, after waiting for the next block if needed, rather
+     * than the end of the stream being reached or a failure having been thrown
+     */
+    private boolean nextBlockAvailable() throws IOException {
+        while (currentBlock != END_BLOCK && (currentBlock == null || currentPosition == currentBlock.length)) {
+            if (blockReader.closed) {
+                throw new IOException("Read-ahead stream closed");
+            }
+            if (currentBlock != null) {
+                freeBlockBytes.add(currentBlock.bytes);
+            }
+            try {
+                currentBlock = filledBlocks.take();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading ahead", exception);
+            }
+            currentPosition = 0;
+            if (currentBlock.failure != null) {
+                Throwable failure = currentBlock.failure;
+                currentBlock = END_BLOCK;
+                throwFailure(failure);
+            }
+        }
+        return currentBlock != END_BLOCK;
+    }
+
+    private static void throwFailure(Throwable failure) throws IOException {
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        throw new IOException("Error reading ahead", failure);
+    }
+
+    /**
+     * Fills the free blocks on the read thread. Holds a weak reference to the stream, so that an unreferenced stream
+     * stops its read thread.
+     */
+    private static class BlockReader implements Runnable {
+
+        private final WeakReference<AdvantajeReadAheadInputStream> streamReference;
+        private final InputStream inputStream;
+        private final BlockingQueue<Block> filledBlocks;
+        private final BlockingQueue<byte[]> freeBlockBytes;
+        private volatile boolean closed;
+
+        private BlockReader(AdvantajeReadAheadInputStream stream, InputStream inputStream, BlockingQueue<Block> filledBlocks,
+                            BlockingQueue<byte[]> freeBlockBytes) {
+            this.streamReference = new WeakReference<>(stream);
+            this.inputStream = inputStream;
+            this.filledBlocks = filledBlocks;
+            this.freeBlockBytes = freeBlockBytes;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    byte[] blockBytes = takeFreeBlockBytes();
+                    if (blockBytes == null) {
+                        return;
+                    }
+                    int blockLength = 0;
+                    int chunkLength = 0;
+                    while (blockLength < blockBytes.length && chunkLength >= 0) {
+                        chunkLength = inputStream.read(blockBytes, blockLength, blockBytes.length - blockLength);
+                        blockLength += Math.max(0, chunkLength);
+                    }
+                    if (blockLength > 0 && !putFilledBlock(new Block(blockBytes, blockLength, null))) {
+                        return;
+                    }
+                    if (chunkLength < 0) {
+                        putFilledBlock(END_BLOCK);
+                        return;
+                    }
+                }
+            } catch (InterruptedException exception) {
+                // Closed
+            } catch (Throwable throwable) {
+                try {
+                    putFilledBlock(new Block(null, 0, throwable));
+                } catch (InterruptedException exception) {
+                    // Closed
+                }
+            }
+        }
+
+        /**
+         * @return Free block bytes, or null if the stream was closed or is no longer referenced
+         */
+        private byte[] takeFreeBlockBytes() throws InterruptedException {
+            while (isOpen()) {
+                byte[] blockBytes = freeBlockBytes.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                if (blockBytes != null) {
+                    return blockBytes;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return Whether the block was put, rather than the stream being closed or no longer referenced
+         */
+        private boolean putFilledBlock(Block block) throws InterruptedException {
+            while (isOpen()) {
+                if (filledBlocks.offer(block, WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean isOpen() {
+            if (closed) {
+                return false;
+            }
+            if (streamReference.get() == null) {
+                // Never closed: the input stream is closed here
+                closed = true;
+                try {
+                    inputStream.close();
+                } catch (IOException exception) {
+                    // Ignored, as no reader is left to report it to
+                }
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private static class Block {
+
+        private final byte[] bytes;
+        private final int length;
+        private final Throwable failure;
+
+        private Block(byte[] bytes, int length, Throwable failure) {
+            this.bytes = bytes;
+            this.length = length;
+            this.failure = failure;
+        }
+    }
+}
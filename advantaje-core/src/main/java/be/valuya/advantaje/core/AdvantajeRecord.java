@@ -1,32 +1,150 @@
 package be.valuya.advantaje.core;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 
+/**
+ * A table record. Records read from a table share an {@link AdvantajeSchema} and hold their encoded bytes; values are
+ * decoded on first access. Records created using the no-arg constructor hold the values put into them.
+ */
 public class AdvantajeRecord {
 
-    private final Map<String, AdvantajeValue<?>> valueMap = new LinkedHashMap<>();
+    private final AdvantajeSchema schema;
+    private final byte[] recordBytes;
+    private ByteBuffer recordBuffer;
+    private final AdvantajeValue<?>[] values;
+    private final Map<String, AdvantajeValue<?>> valueMap;
+    private final boolean deleted;
+    private boolean[] putValues;
+
+    public AdvantajeRecord() {
+        this.schema = null;
+        this.recordBytes = null;
+        this.values = null;
+        this.valueMap = new LinkedHashMap<>();
+        this.deleted = false;
+    }
+
+    AdvantajeRecord(AdvantajeSchema schema, byte[] recordBytes, boolean deleted) {
+        this.schema = schema;
+        this.recordBytes = recordBytes;
+        this.values = new AdvantajeValue<?>[schema.getFieldCount()];
+        this.valueMap = null;
+        this.deleted = deleted;
+    }
+
+    /**
+     * @return Whether this record is marked deleted in the table. Deleted records are only read when requested.
+     */
+    public boolean isDeleted() {
+        return deleted;
+    }
 
     public <T> T getValue(String key) {
-        return (T) getValueOptional(key)
+        return this.<T>getValueOptional(key)
                 .orElseThrow(() -> new AdvantajeException("No value for this field: " + key));
     }
 
+    @SuppressWarnings("unchecked")
     public <T> Optional<T> getValueOptional(String key) {
-        AdvantajeValue<?> advantajeValueNullable = valueMap.get(key);
+        AdvantajeValue<?> advantajeValueNullable = getAdvantajeValueNullable(key);
         AdvantajeValue<?> advantajeValue = Optional.ofNullable(advantajeValueNullable)
                 .orElseThrow(IllegalArgumentException::new);
         return (Optional<T>) advantajeValue.getValueOptional();
     }
 
+    /**
+     * @param fieldIndex The index of the field in this record schema
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Optional<T> getValueOptional(int fieldIndex) {
+        AdvantajeValue<?> advantajeValue = getAdvantajeValue(fieldIndex);
+        return (Optional<T>) advantajeValue.getValueOptional();
+    }
+
+    /**
+     * @param fieldIndex The index of the field in this record schema
+     */
+    public AdvantajeValue<?> getAdvantajeValue(int fieldIndex) {
+        if (schema == null) {
+            throw new AdvantajeException("This record has no schema");
+        }
+        AdvantajeValue<?> advantajeValue = values[fieldIndex];
+        if (advantajeValue == null) {
+            if (recordBuffer == null) {
+                recordBuffer = ByteBuffer.wrap(recordBytes)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+            }
+            advantajeValue = schema.decodeValue(fieldIndex, recordBuffer);
+            values[fieldIndex] = advantajeValue;
+        }
+        return advantajeValue;
+    }
+
     public <T> void put(AdvantajeValue<T> advantajeValue) {
         AdvantajeField<? extends T> field = advantajeValue.getField();
         String fieldName = field.getName();
-        valueMap.put(fieldName, advantajeValue);
+        if (schema == null) {
+            valueMap.put(fieldName, advantajeValue);
+            return;
+        }
+        int fieldIndex = schema.getFieldIndex(fieldName);
+        if (fieldIndex < 0) {
+            throw new AdvantajeException("No such field in this record: " + fieldName);
+        }
+        values[fieldIndex] = advantajeValue;
+        if (putValues == null) {
+            putValues = new boolean[values.length];
+        }
+        putValues[fieldIndex] = true;
+    }
+
+    /**
+     * @return Whether the value of the field is the one encoded in the record bytes, which is not the case once
+     * another value was put
+     */
+    boolean isEncoded(int fieldIndex) {
+        return putValues == null || !putValues[fieldIndex];
+    }
+
+    byte[] getRecordBytes() {
+        return recordBytes;
     }
 
+    /**
+     * @return The schema shared by the records read from a table, or null for records created using the no-arg
+     * constructor
+     */
+    public AdvantajeSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * @return The values by field name. For records read from a table, this is a snapshot holding all decoded values.
+     */
     public Map<String, AdvantajeValue<?>> getValueMap() {
-        return valueMap;
+        if (schema == null) {
+            return valueMap;
+        }
+        Map<String, AdvantajeValue<?>> decodedValueMap = new LinkedHashMap<>();
+        for (int fieldIndex = 0; fieldIndex < values.length; fieldIndex++) {
+            AdvantajeValue<?> advantajeValue = getAdvantajeValue(fieldIndex);
+            decodedValueMap.put(schema.getField(fieldIndex).getName(), advantajeValue);
+        }
+        return decodedValueMap;
+    }
+
+    private AdvantajeValue<?> getAdvantajeValueNullable(String key) {
+        if (schema == null) {
+            return valueMap.get(key);
+        }
+        int fieldIndex = schema.getFieldIndex(key);
+        if (fieldIndex < 0) {
+            return null;
+        }
+        return getAdvantajeValue(fieldIndex);
     }
 }
@@ -0,0 +1,32 @@
+package be.valuya.advantaje.core;
+
+public class AdvantajeRecordCounts {
+
+    private final int liveRecordCount;
+    private final int deletedRecordCount;
+
+    public AdvantajeRecordCounts(int liveRecordCount, int deletedRecordCount) {
+        this.liveRecordCount = liveRecordCount;
+        this.deletedRecordCount = deletedRecordCount;
+    }
+
+    public int getLiveRecordCount() {
+        return liveRecordCount;
+    }
+
+    public int getDeletedRecordCount() {
+        return deletedRecordCount;
+    }
+
+    public int getRecordCount() {
+        return liveRecordCount + deletedRecordCount;
+    }
+
+    @Override
+    public String toString() {
+        return "AdvantajeRecordCounts{" +
+                "liveRecordCount=" + liveRecordCount +
+                ", deletedRecordCount=" + deletedRecordCount +
+                '}';
+    }
+}
@@ -0,0 +1,28 @@
+package be.valuya.advantaje.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A condition evaluated on the encoded bytes of a record, before it is decoded.
+ */
+@FunctionalInterface
+public interface AdvantajeRecordPredicate {
+
+    /**
+     * @param recordBuffer A little-endian buffer holding the record. Its position must not be relied upon.
+     * @param recordOffset The offset of the record in the buffer
+     */
+    boolean test(ByteBuffer recordBuffer, int recordOffset);
+
+    default AdvantajeRecordPredicate and(AdvantajeRecordPredicate other) {
+        return (recordBuffer, recordOffset) -> test(recordBuffer, recordOffset) && other.test(recordBuffer, recordOffset);
+    }
+
+    default AdvantajeRecordPredicate or(AdvantajeRecordPredicate other) {
+        return (recordBuffer, recordOffset) -> test(recordBuffer, recordOffset) || other.test(recordBuffer, recordOffset);
+    }
+
+    default AdvantajeRecordPredicate negate() {
+        return (recordBuffer, recordOffset) -> !test(recordBuffer, recordOffset);
+    }
+}
@@ -0,0 +1,47 @@
+package be.valuya.advantaje.core;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+
+/**
+ * Iterates over the raw bytes of the records of a table.
+ */
+public interface AdvantajeRecordSource extends Closeable {
+
+    AdvantajeTableMetaData getMetaData();
+
+    /**
+     * Move to the next record.
+     *
+     * @return false when there are no more records
+     */
+    boolean next();
+
+    /**
+     * @return The number of the current record, starting at 0
+     */
+    int getRecordNumber();
+
+    /**
+     * @return A little-endian buffer holding the current record at {@link #getRecordOffset()}. Its position may be
+     * modified by the caller.
+     */
+    ByteBuffer getRecordBuffer();
+
+    int getRecordOffset();
+
+    /**
+     * @return The number of records left
+     */
+    long estimateSize();
+
+    /**
+     * Split off a part of the remaining records into a new source, like {@link java.util.Spliterator#trySplit()}.
+     *
+     * @return A source for a prefix of the remaining records, or null when this source cannot be split
+     */
+    AdvantajeRecordSource trySplit();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,167 @@
+package be.valuya.advantaje.core;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Reads the records of a source, skipping deleted records and records not matching a predicate before reading them.
+ * Splits the source for parallel streams.
+ *
+ * @param <T> The type read from each record
+ */
+abstract class AdvantajeRecordSourceSpliterator<T> implements Spliterator<T>, Closeable {
+
+    private final AdvantajeRecordSource recordSource;
+    private final AdvantajeRecordPredicate recordPredicate;
+    private final boolean includeDeleted;
+    private AdvantajeScanListener scanListener = AdvantajeScanListener.NONE;
+    private AdvantajeScanStatistics scanStatistics;
+    /**
+     * Whether this spliterator is split or the result of a split, so that the scan only ends when the stream is closed.
+     */
+    private boolean split;
+    private long recordsRead;
+    private long deletedRecordsSkipped;
+    private long filteredRecordsSkipped;
+    private long recordsReturned;
+
+    /**
+     * @param recordPredicate A predicate evaluated before reading each record, or null to read all records
+     * @param includeDeleted  Whether records marked deleted are read, rather than skipped without reading them
+     */
+    AdvantajeRecordSourceSpliterator(AdvantajeRecordSource recordSource, AdvantajeRecordPredicate recordPredicate,
+                                     boolean includeDeleted) {
+        this.recordSource = recordSource;
+        this.recordPredicate = recordPredicate;
+        this.includeDeleted = includeDeleted;
+    }
+
+    /**
+     * @param recordSource      A prefix split off the parent source
+     * @param parentSpliterator The spliterator which was split
+     */
+    AdvantajeRecordSourceSpliterator(AdvantajeRecordSource recordSource, AdvantajeRecordSourceSpliterator<T> parentSpliterator) {
+        this.recordSource = recordSource;
+        this.recordPredicate = parentSpliterator.recordPredicate;
+        this.includeDeleted = parentSpliterator.includeDeleted;
+        this.scanListener = parentSpliterator.scanListener;
+        this.scanStatistics = parentSpliterator.scanStatistics;
+        this.split = true;
+    }
+
+    /**
+     * Read the current record, which is not deleted and matches the predicate.
+     */
+    abstract T readRecord(ByteBuffer recordBuffer, int recordOffset);
+
+    /**
+     * @return A spliterator reading a prefix split off this spliterator source
+     */
+    abstract AdvantajeRecordSourceSpliterator<T> createSplit(AdvantajeRecordSource prefixSource);
+
+    /**
+     * Notify a listener of this scan, unless it is {@link AdvantajeScanListener#NONE}. Must be called before reading
+     * records.
+     *
+     * @param tableName The table file name, or null for tables read from an input stream
+     */
+    void setScanListener(String tableName, AdvantajeScanListener scanListener) {
+        this.scanListener = scanListener;
+        if (scanListener != AdvantajeScanListener.NONE) {
+            scanStatistics = new AdvantajeScanStatistics(tableName, recordSource.getMetaData());
+            scanListener.scanStarted(scanStatistics);
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        while (recordSource.next()) {
+            try {
+                ByteBuffer recordBuffer = recordSource.getRecordBuffer();
+                int recordOffset = recordSource.getRecordOffset();
+                recordsRead++;
+                if (!includeDeleted && AdvantajeTableReader.isDeletedRecord(recordBuffer, recordOffset)) {
+                    deletedRecordsSkipped++;
+                    continue;
+                }
+                if (recordPredicate != null && !recordPredicate.test(recordBuffer, recordOffset)) {
+                    filteredRecordsSkipped++;
+                    continue;
+                }
+                T record = readRecord(recordBuffer, recordOffset);
+                recordsReturned++;
+                action.accept(record);
+                return true;
+            } catch (Exception e) {
+                throw new AdvantajeException(e);
+            }
+        }
+        addScanStatistics();
+        if (!split) {
+            endScan();
+        }
+        return false;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        AdvantajeRecordSource prefixSource = recordSource.trySplit();
+        if (prefixSource == null) {
+            return null;
+        }
+        split = true;
+        return createSplit(prefixSource);
+    }
+
+    @Override
+    public long estimateSize() {
+        return recordSource.estimateSize();
+    }
+
+    @Override
+    public long getExactSizeIfKnown() {
+        if (!isSized()) {
+            return -1;
+        }
+        return recordSource.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+        int characteristics = Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+        if (!isSized()) {
+            return characteristics;
+        }
+        return characteristics | Spliterator.SIZED | Spliterator.SUBSIZED;
+    }
+
+    private boolean isSized() {
+        return recordPredicate == null && includeDeleted;
+    }
+
+    @Override
+    public void close() {
+        recordSource.close();
+        addScanStatistics();
+        endScan();
+    }
+
+    private void addScanStatistics() {
+        if (scanStatistics == null) {
+            return;
+        }
+        scanStatistics.add(recordsRead, deletedRecordsSkipped, filteredRecordsSkipped, recordsReturned);
+        recordsRead = 0;
+        deletedRecordsSkipped = 0;
+        filteredRecordsSkipped = 0;
+        recordsReturned = 0;
+    }
+
+    private void endScan() {
+        if (scanStatistics != null && scanStatistics.end()) {
+            scanListener.scanEnded(scanStatistics);
+        }
+    }
+}
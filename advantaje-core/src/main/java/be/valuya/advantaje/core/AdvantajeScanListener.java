@@ -0,0 +1,47 @@
+package be.valuya.advantaje.core;
+
+/**
+ * Notified of table reads, for instance to collect metrics. Methods are called on the reading threads and should
+ * return quickly.
+ * <p>
+ * {@link #NONE} ignores all notifications. Readers check for it, so that no statistics are collected when no listener
+ * is set.
+ */
+public interface AdvantajeScanListener {
+
+    AdvantajeScanListener NONE = new AdvantajeScanListener() {
+    };
+
+    /**
+     * @param tableName     The table file name
+     * @param durationNanos The time spent opening the table, including reading its header
+     */
+    default void tableOpened(String tableName, AdvantajeTableMetaData metaData, long durationNanos) {
+    }
+
+    /**
+     * @param statistics The statistics of the scan, updated until it ends
+     */
+    default void scanStarted(AdvantajeScanStatistics statistics) {
+    }
+
+    default void scanEnded(AdvantajeScanStatistics statistics) {
+    }
+
+    /**
+     * Only the values decoded by the records of streams are timed. Cursors, column batches and bound objects decode
+     * values without timing them, as timing each value would cost more than decoding it.
+     *
+     * @return Whether the decoding of each value should be timed and notified to {@link #valueDecoded}, which costs
+     * two calls to {@link System#nanoTime()} per value
+     */
+    default boolean isValueDecodingTimed() {
+        return false;
+    }
+
+    /**
+     * @param tableName The table file name, or null for tables read from an input stream
+     */
+    default void valueDecoded(String tableName, AdvantajeField<?> field, long durationNanos) {
+    }
+}
@@ -0,0 +1,113 @@
+package be.valuya.advantaje.core;
+
+/**
+ * Counters of a table scan, by a stream or a cursor. A parallel stream adds the counts of each of its parts once
+ * processed.
+ */
+public class AdvantajeScanStatistics {
+
+    private final String tableName;
+    private final AdvantajeTableMetaData metaData;
+    private final long startNanos;
+    private long recordsRead;
+    private long deletedRecordsSkipped;
+    private long filteredRecordsSkipped;
+    private long recordsReturned;
+    private long durationNanos = -1;
+    private volatile Object attachment;
+
+    AdvantajeScanStatistics(String tableName, AdvantajeTableMetaData metaData) {
+        this.tableName = tableName;
+        this.metaData = metaData;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * @return The table file name, or null for tables read from an input stream
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    public AdvantajeTableMetaData getMetaData() {
+        return metaData;
+    }
+
+    public synchronized long getRecordsRead() {
+        return recordsRead;
+    }
+
+    public synchronized long getBytesRead() {
+        return recordsRead * metaData.getRecordLength();
+    }
+
+    public synchronized long getDeletedRecordsSkipped() {
+        return deletedRecordsSkipped;
+    }
+
+    /**
+     * @return The number of records not matching the scan filter, which were not decoded
+     */
+    public synchronized long getFilteredRecordsSkipped() {
+        return filteredRecordsSkipped;
+    }
+
+    /**
+     * @return The number of records returned by a stream, and decoded, or moved to by a cursor
+     */
+    public synchronized long getRecordsReturned() {
+        return recordsReturned;
+    }
+
+    /**
+     * @return The time from the start of the scan to its end, or -1 while it is running
+     */
+    public synchronized long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return The object attached by the scan listener, or null
+     */
+    public Object getAttachment() {
+        return attachment;
+    }
+
+    /**
+     * @param attachment An object kept with the scan, for instance by a listener to span the scan with an event,
+     *                   without holding scans that are never ended
+     */
+    public void setAttachment(Object attachment) {
+        this.attachment = attachment;
+    }
+
+    synchronized void add(long recordsRead, long deletedRecordsSkipped, long filteredRecordsSkipped, long recordsReturned) {
+        this.recordsRead += recordsRead;
+        this.deletedRecordsSkipped += deletedRecordsSkipped;
+        this.filteredRecordsSkipped += filteredRecordsSkipped;
+        this.recordsReturned += recordsReturned;
+    }
+
+    /**
+     * @return Whether the scan ended now, rather than before
+     */
+    synchronized boolean end() {
+        if (durationNanos >= 0) {
+            return false;
+        }
+        durationNanos = System.nanoTime() - startNanos;
+        return true;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "AdvantajeScanStatistics{" +
+                "tableName='" + tableName + '\'' +
+                ", recordsRead=" + recordsRead +
+                ", deletedRecordsSkipped=" + deletedRecordsSkipped +
+                ", filteredRecordsSkipped=" + filteredRecordsSkipped +
+                ", recordsReturned=" + recordsReturned +
+                ", durationNanos=" + durationNanos +
+                '}';
+    }
+}
@@ -0,0 +1,184 @@
+package be.valuya.advantaje.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The fields of the records read from a table, shared by all those records. Field names are resolved to indexes once.
+ * <p>
+ * Records only hold the bytes of their fields, packed one after the other, so that the bytes of the other fields of the
+ * table are not copied.
+ */
+public class AdvantajeSchema {
+
+    private final List<AdvantajeField<?>> fields;
+    private final Map<String, Integer> fieldIndexes;
+    private final Charset charset;
+    private final int[] recordBytesOffsets;
+    private final int recordBytesLength;
+    private final int[] copySourceOffsets;
+    private final int[] copyTargetOffsets;
+    private final int[] copyLengths;
+    private final AdvantajeDecodePlan decodePlan;
+    private final AdvantajeDecodePlan recordBytesDecodePlan;
+    private final AdvantajeMemoFile memoFile;
+    private String tableName;
+    private AdvantajeScanListener scanListener = AdvantajeScanListener.NONE;
+
+    public AdvantajeSchema(List<AdvantajeField<?>> fields, Charset charset) {
+        this(fields, charset, null);
+    }
+
+    /**
+     * @param memoFile The memo file of the table, from which memo field content is read. May be null.
+     */
+    public AdvantajeSchema(List<AdvantajeField<?>> fields, Charset charset, AdvantajeMemoFile memoFile) {
+        this(fields, charset, memoFile, AdvantajeDecodePlan.compile(fields, charset));
+    }
+
+    /**
+     * @param decodePlan The decode plan compiled for these fields and charset
+     */
+    AdvantajeSchema(List<AdvantajeField<?>> fields, Charset charset, AdvantajeMemoFile memoFile, AdvantajeDecodePlan decodePlan) {
+        this.memoFile = memoFile;
+        this.fields = Collections.unmodifiableList(new ArrayList<>(fields));
+        this.charset = charset;
+        this.fieldIndexes = new HashMap<>();
+        for (int fieldIndex = 0; fieldIndex < fields.size(); fieldIndex++) {
+            AdvantajeField<?> field = fields.get(fieldIndex);
+            fieldIndexes.putIfAbsent(field.getName(), fieldIndex);
+        }
+        this.recordBytesOffsets = new int[fields.size()];
+        List<AdvantajeField<?>> recordBytesFields = new ArrayList<>();
+        List<int[]> copyRanges = new ArrayList<>();
+        int recordBytesOffset = 0;
+        for (int fieldIndex = 0; fieldIndex < fields.size(); fieldIndex++) {
+            AdvantajeField<?> field = fields.get(fieldIndex);
+            int storageLength = field.getStorageLength();
+            recordBytesOffsets[fieldIndex] = recordBytesOffset;
+            recordBytesFields.add(field.withOffset(recordBytesOffset));
+            int[] lastCopyRange = copyRanges.isEmpty() ? null : copyRanges.get(copyRanges.size() - 1);
+            if (lastCopyRange != null && lastCopyRange[0] + lastCopyRange[2] == field.getOffset()) {
+                // Adjacent fields are copied at once
+                lastCopyRange[2] += storageLength;
+            } else {
+                copyRanges.add(new int[]{field.getOffset(), recordBytesOffset, storageLength});
+            }
+            recordBytesOffset += storageLength;
+        }
+        this.recordBytesLength = recordBytesOffset;
+        this.copySourceOffsets = copyRanges.stream().mapToInt(copyRange -> copyRange[0]).toArray();
+        this.copyTargetOffsets = copyRanges.stream().mapToInt(copyRange -> copyRange[1]).toArray();
+        this.copyLengths = copyRanges.stream().mapToInt(copyRange -> copyRange[2]).toArray();
+        this.recordBytesDecodePlan = AdvantajeDecodePlan.compile(recordBytesFields, charset);
+        this.decodePlan = decodePlan;
+    }
+
+    public List<AdvantajeField<?>> getFields() {
+        return fields;
+    }
+
+    public int getFieldCount() {
+        return fields.size();
+    }
+
+    public AdvantajeField<?> getField(int fieldIndex) {
+        return fields.get(fieldIndex);
+    }
+
+    /**
+     * @return The index of the field, or -1 if this schema has no such field
+     */
+    public int getFieldIndex(String fieldName) {
+        Integer fieldIndex = fieldIndexes.get(fieldName);
+        if (fieldIndex == null) {
+            return -1;
+        }
+        return fieldIndex;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Create a record holding a copy of the bytes of this schema fields.
+     */
+    AdvantajeRecord createRecord(ByteBuffer buffer, int recordOffset) {
+        byte[] recordBytes = new byte[recordBytesLength];
+        copyRecordBytes(buffer, recordOffset, recordBytes);
+        boolean deleted = AdvantajeTableReader.isDeletedRecord(buffer, recordOffset);
+        return new AdvantajeRecord(this, recordBytes, deleted);
+    }
+
+    /**
+     * Copy the bytes of this schema fields, packed one after the other, at the start of an array.
+     */
+    void copyRecordBytes(ByteBuffer buffer, int recordOffset, byte[] recordBytes) {
+        for (int copyIndex = 0; copyIndex < copyLengths.length; copyIndex++) {
+            buffer.position(recordOffset + copySourceOffsets[copyIndex]);
+            buffer.get(recordBytes, copyTargetOffsets[copyIndex], copyLengths[copyIndex]);
+        }
+    }
+
+    /**
+     * @return The number of bytes held by records of this schema
+     */
+    int getRecordBytesLength() {
+        return recordBytesLength;
+    }
+
+    /**
+     * @return The offset of a field in the bytes held by records of this schema
+     */
+    int getRecordBytesOffset(int fieldIndex) {
+        return recordBytesOffsets[fieldIndex];
+    }
+
+    /**
+     * Notify a listener of the values decoded by records of this schema, when it times value decoding.
+     *
+     * @param tableName The table file name, or null for tables read from an input stream
+     */
+    void setScanListener(String tableName, AdvantajeScanListener scanListener) {
+        this.tableName = tableName;
+        this.scanListener = scanListener;
+    }
+
+    public AdvantajeMemoFile getMemoFile() {
+        return memoFile;
+    }
+
+    public AdvantajeDecodePlan getDecodePlan() {
+        return decodePlan;
+    }
+
+    /**
+     * @param recordBuffer A little-endian buffer wrapping the bytes held by a record of this schema
+     */
+    @SuppressWarnings("unchecked")
+    <T> AdvantajeValue<T> decodeValue(int fieldIndex, ByteBuffer recordBuffer) {
+        // The decoder of a field decodes values of the field type
+        AdvantajeField<T> field = (AdvantajeField<T>) fields.get(fieldIndex);
+        AdvantajeFieldDecoder<T> decoder = (AdvantajeFieldDecoder<T>) recordBytesDecodePlan.getDecoder(fieldIndex);
+        T value;
+        if (scanListener.isValueDecodingTimed()) {
+            long startNanos = System.nanoTime();
+            value = decoder.decode(recordBuffer, 0);
+            scanListener.valueDecoded(tableName, field, System.nanoTime() - startNanos);
+        } else {
+            value = decoder.decode(recordBuffer, 0);
+        }
+        if (value instanceof AdvantajeMemo) {
+            AdvantajeMemo memo = (AdvantajeMemo) value;
+            memo.setMemoFile(memoFile);
+        }
+        return new AdvantajeValue<>(field, Optional.ofNullable(value));
+    }
+}
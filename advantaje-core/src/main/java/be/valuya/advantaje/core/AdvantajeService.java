@@ -8,15 +8,16 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.temporal.JulianFields;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -25,6 +26,107 @@ public class AdvantajeService {
 
     public static final Charset DEFAULT_CHARSET = Charset.forName("iso-8859-1");
 
+    private boolean includeDeleted;
+    private int readAheadBlockCount;
+    private int readAheadBlockSize = AdvantajeReadAheadInputStream.DEFAULT_BLOCK_SIZE;
+    private AdvantajeMetaDataCache metaDataCache;
+    private AdvantajeTableCache tableCache;
+    private AdvantajeJoinIndexCache joinIndexCache;
+    private AdvantajeIndexCache indexCache;
+    private AdvantajeScanListener scanListener = AdvantajeScanListener.NONE;
+
+    public boolean isIncludeDeleted() {
+        return includeDeleted;
+    }
+
+    /**
+     * @param includeDeleted Whether records marked deleted are read, flagged using {@link AdvantajeRecord#isDeleted()},
+     *                       rather than skipped without decoding them. Copied tables then keep their deleted records.
+     */
+    public void setIncludeDeleted(boolean includeDeleted) {
+        this.includeDeleted = includeDeleted;
+    }
+
+    public int getReadAheadBlockCount() {
+        return readAheadBlockCount;
+    }
+
+    /**
+     * @param readAheadBlockCount The number of blocks read ahead on a dedicated thread when reading an input stream,
+     *                            for instance {@link AdvantajeReadAheadInputStream#DEFAULT_BLOCK_COUNT}, or 0, the
+     *                            default, to read on the calling thread
+     */
+    public void setReadAheadBlockCount(int readAheadBlockCount) {
+        this.readAheadBlockCount = readAheadBlockCount;
+    }
+
+    public int getReadAheadBlockSize() {
+        return readAheadBlockSize;
+    }
+
+    public void setReadAheadBlockSize(int readAheadBlockSize) {
+        this.readAheadBlockSize = readAheadBlockSize;
+    }
+
+    public Optional<AdvantajeMetaDataCache> getMetaDataCacheOptional() {
+        return Optional.ofNullable(metaDataCache);
+    }
+
+    /**
+     * @param metaDataCache A cache from which the metadata of tables opened by path is read, or null to read their
+     *                      header each time
+     */
+    public void setMetaDataCache(AdvantajeMetaDataCache metaDataCache) {
+        this.metaDataCache = metaDataCache;
+    }
+
+    public Optional<AdvantajeTableCache> getTableCacheOptional() {
+        return Optional.ofNullable(tableCache);
+    }
+
+    /**
+     * @param tableCache A cache from which tables streamed or read using a cursor by path are read, or null to read
+     *                   their file each time
+     */
+    public void setTableCache(AdvantajeTableCache tableCache) {
+        this.tableCache = tableCache;
+    }
+
+    public Optional<AdvantajeJoinIndexCache> getJoinIndexCacheOptional() {
+        return Optional.ofNullable(joinIndexCache);
+    }
+
+    /**
+     * @param joinIndexCache A cache from which join indexes are read, or null to build them each time
+     */
+    public void setJoinIndexCache(AdvantajeJoinIndexCache joinIndexCache) {
+        this.joinIndexCache = joinIndexCache;
+    }
+
+    public Optional<AdvantajeIndexCache> getIndexCacheOptional() {
+        return Optional.ofNullable(indexCache);
+    }
+
+    /**
+     * @param indexCache A cache from which the indexes of tables opened by path are read, or null to build them for
+     *                   each opened table
+     */
+    public void setIndexCache(AdvantajeIndexCache indexCache) {
+        this.indexCache = indexCache;
+    }
+
+    public AdvantajeScanListener getScanListener() {
+        return scanListener;
+    }
+
+    /**
+     * @param scanListener Notified of the tables opened and scanned by streams and cursors, for instance the
+     *                     AdvantajeJfrScanListener of the advantaje-jfr module. Defaults to
+     *                     {@link AdvantajeScanListener#NONE}.
+     */
+    public void setScanListener(AdvantajeScanListener scanListener) {
+        this.scanListener = scanListener;
+    }
 
     /**
      * @param inputStream The table inputstream will be closed
@@ -40,11 +142,460 @@ public class AdvantajeService {
      * @return
      */
     public Stream<AdvantajeRecord> streamTable(InputStream inputStream, Charset charset) {
-        AdvantajeSpliteraor spliteraor = new AdvantajeSpliteraor(inputStream, charset);
+        return streamTable(inputStream, charset, (AdvantajeFilter) null);
+    }
+
+    /**
+     * @param inputStream The table inputstream will be closed
+     * @param charset
+     * @param fieldNames  The fields to decode. Records will only hold values for those fields.
+     * @return
+     */
+    public Stream<AdvantajeRecord> streamTable(InputStream inputStream, Charset charset, String... fieldNames) {
+        return streamTable(inputStream, charset, null, fieldNames);
+    }
+
+    /**
+     * @param inputStream The table inputstream will be closed
+     * @param charset
+     * @param filter      A filter evaluated on the encoded records, so that only matching records are decoded. May be null.
+     * @param fieldNames  The fields to decode. Records will only hold values for those fields.
+     * @return
+     */
+    public Stream<AdvantajeRecord> streamTable(InputStream inputStream, Charset charset, AdvantajeFilter filter, String... fieldNames) {
+        AdvantajeInputStreamRecordSource recordSource = openRecordSource(inputStream, charset);
+        AdvantajeSchema schema;
+        try {
+            List<AdvantajeField<?>> fields = recordSource.getMetaData().selectFields(fieldNames);
+            schema = new AdvantajeSchema(fields, charset);
+        } catch (RuntimeException exception) {
+            recordSource.close();
+            throw exception;
+        }
+        return streamRecordSource(recordSource, null, schema, filter);
+    }
+
+    /**
+     * @param path The table file, which will be memory-mapped
+     * @return
+     */
+    public Stream<AdvantajeRecord> streamTable(Path path) {
+        return streamTable(path, DEFAULT_CHARSET);
+    }
+
+    /**
+     * @param path    The table file, which will be memory-mapped
+     * @param charset
+     * @return A stream which can be made parallel, splitting the table in record ranges
+     */
+    public Stream<AdvantajeRecord> streamTable(Path path, Charset charset) {
+        return streamTable(path, charset, (AdvantajeFilter) null);
+    }
+
+    /**
+     * @param path       The table file, which will be memory-mapped
+     * @param charset
+     * @param fieldNames The fields to decode. Records will only hold values for those fields.
+     * @return A stream which can be made parallel, splitting the table in record ranges
+     */
+    public Stream<AdvantajeRecord> streamTable(Path path, Charset charset, String... fieldNames) {
+        return streamTable(path, charset, null, fieldNames);
+    }
+
+    /**
+     * @param path       The table file, which will be memory-mapped
+     * @param charset
+     * @param filter     A filter evaluated on the encoded records, so that only matching records are decoded. May be null.
+     * @param fieldNames The fields to decode. Records will only hold values for those fields.
+     * @return A stream which can be made parallel, splitting the table in record ranges
+     */
+    public Stream<AdvantajeRecord> streamTable(Path path, Charset charset, AdvantajeFilter filter, String... fieldNames) {
+        Optional<AdvantajeTableCache.CachedTable> cachedTableOptional = getCachedTableOptional(path, charset);
+        if (cachedTableOptional.isPresent()) {
+            try (AdvantajeTableCache.CachedTable cachedTable = cachedTableOptional.get()) {
+                AdvantajeSchema schema = cachedTable.createSchema(fieldNames);
+                return streamRecordSource(cachedTable.openRecordSource(), getTableName(path), schema, filter);
+            }
+        }
+        AdvantajeTableFile tableFile = openTable(path, charset);
+        try {
+            AdvantajeSchema schema = tableFile.createSchema(fieldNames);
+            return streamRecordSource(tableFile.openRecordSource(), getTableName(path), schema, filter)
+                    .onClose(() -> tableFile.close());
+        } catch (RuntimeException exception) {
+            tableFile.close();
+            throw exception;
+        }
+    }
+
+    /**
+     * @param path The table file, which will be memory-mapped
+     * @param type The class of the objects created from the records, bound using {@link AdvantajeBinder}
+     * @return A stream which can be made parallel, splitting the table in record ranges
+     */
+    public <T> Stream<T> streamTable(Path path, Class<T> type) {
+        return streamTable(path, DEFAULT_CHARSET, type);
+    }
+
+    /**
+     * @param path    The table file, which will be memory-mapped
+     * @param charset
+     * @param type    The class of the objects created from the records, bound using {@link AdvantajeBinder}
+     * @return A stream which can be made parallel, splitting the table in record ranges
+     */
+    public <T> Stream<T> streamTable(Path path, Charset charset, Class<T> type) {
+        return streamTable(path, charset, null, type);
+    }
+
+    /**
+     * @param path    The table file, which will be memory-mapped
+     * @param charset
+     * @param filter  A filter evaluated on the encoded records, so that only matching records are bound. May be null.
+     * @param type    The class of the objects created from the records, bound using {@link AdvantajeBinder}
+     * @return A stream which can be made parallel, splitting the table in record ranges
+     */
+    public <T> Stream<T> streamTable(Path path, Charset charset, AdvantajeFilter filter, Class<T> type) {
+        Optional<AdvantajeTableCache.CachedTable> cachedTableOptional = getCachedTableOptional(path, charset);
+        if (cachedTableOptional.isPresent()) {
+            try (AdvantajeTableCache.CachedTable cachedTable = cachedTableOptional.get()) {
+                AdvantajeSchema schema = cachedTable.createSchema();
+                return streamRecordSource(cachedTable.openRecordSource(), getTableName(path), schema, filter, type);
+            }
+        }
+        AdvantajeTableFile tableFile = openTable(path, charset);
+        try {
+            AdvantajeSchema schema = tableFile.getSchema();
+            return streamRecordSource(tableFile.openRecordSource(), getTableName(path), schema, filter, type)
+                    .onClose(() -> tableFile.close());
+        } catch (RuntimeException exception) {
+            tableFile.close();
+            throw exception;
+        }
+    }
+
+    /**
+     * Get the build side of a hash join, from the join index cache when set.
+     *
+     * @param path         The table file, which will be memory-mapped
+     * @param charset
+     * @param keyFieldName The key field, which must be integral or a fixed-length string
+     * @param fieldNames   The fields joined to the probed records, or none to join all fields
+     */
+    public AdvantajeJoinIndex getJoinIndex(Path path, Charset charset, String keyFieldName, String... fieldNames) {
+        if (joinIndexCache == null) {
+            return buildJoinIndex(path, charset, keyFieldName, fieldNames);
+        }
+        return joinIndexCache.getJoinIndex(path, charset, keyFieldName, fieldNames,
+                () -> buildJoinIndex(path, charset, keyFieldName, fieldNames));
+    }
+
+    /**
+     * Join the records of a table to the rows of a join index having the same key, for instance entry lines to their
+     * account. Records without a matching row are skipped; records matching several rows are joined to each of them.
+     * Only the matching records are decoded.
+     *
+     * @param path         The table file, which will be memory-mapped
+     * @param charset
+     * @param filter       A filter evaluated on the encoded records, so that only matching records are joined. May be
+     *                     null.
+     * @param keyFieldName The field holding the key of the joined row
+     * @param joinIndex    The joined rows, see {@link #getJoinIndex(Path, Charset, String, String...)}
+     * @param fieldNames   The fields to decode. Records will hold values for those fields, followed by the fields of
+     *                     the join index, which must have other names.
+     * @return A stream which can be made parallel, splitting the table in record ranges
+     */
+    public Stream<AdvantajeRecord> joinTable(Path path, Charset charset, AdvantajeFilter filter, String keyFieldName,
+                                             AdvantajeJoinIndex joinIndex, String... fieldNames) {
+        Optional<AdvantajeTableCache.CachedTable> cachedTableOptional = getCachedTableOptional(path, charset);
+        if (cachedTableOptional.isPresent()) {
+            try (AdvantajeTableCache.CachedTable cachedTable = cachedTableOptional.get()) {
+                AdvantajeSchema schema = cachedTable.createSchema(fieldNames);
+                return joinRecordSource(cachedTable.openRecordSource(), getTableName(path), schema, filter, keyFieldName, joinIndex);
+            }
+        }
+        AdvantajeTableFile tableFile = openTable(path, charset);
+        try {
+            AdvantajeSchema schema = tableFile.createSchema(fieldNames);
+            return joinRecordSource(tableFile.openRecordSource(), getTableName(path), schema, filter, keyFieldName, joinIndex)
+                    .onClose(() -> tableFile.close());
+        } catch (RuntimeException exception) {
+            tableFile.close();
+            throw exception;
+        }
+    }
+
+    /**
+     * @param path    The table file, which will be memory-mapped
+     * @param charset
+     * @return An opened table file, which should be closed by the caller
+     */
+    public AdvantajeTableFile openTable(Path path, Charset charset) {
+        if (scanListener == AdvantajeScanListener.NONE) {
+            return AdvantajeTableFile.open(path, charset, metaDataCache, indexCache);
+        }
+        long startNanos = System.nanoTime();
+        AdvantajeTableFile tableFile = AdvantajeTableFile.open(path, charset, metaDataCache, indexCache);
+        scanListener.tableOpened(getTableName(path), tableFile.getMetaData(), System.nanoTime() - startNanos);
+        return tableFile;
+    }
+
+
+    /**
+     * Copy the records of a table matching a filter without decoding them, for instance to compact a table or to
+     * extract a subset of it. The memo file of the table, if any, is copied along.
+     *
+     * @param sourcePath The table file, which will be memory-mapped
+     * @param targetPath The table file to write, which is replaced if it exists
+     * @param charset
+     * @param filter     A filter selecting the records to copy. May be null.
+     * @return The number of records copied
+     */
+    public int copyTable(Path sourcePath, Path targetPath, Charset charset, AdvantajeFilter filter) {
+        try (AdvantajeTableFile tableFile = openTable(sourcePath, charset);
+             AdvantajeTableWriter tableWriter = AdvantajeTableWriter.create(targetPath, tableFile);
+             AdvantajeRecordSource recordSource = tableFile.openRecordSource()) {
+            AdvantajeRecordPredicate recordPredicate = filter == null ? null : filter.bind(tableFile.getMetaData(), charset);
+            if (!includeDeleted) {
+                AdvantajeRecordPredicate liveRecordPredicate = (buffer, recordOffset) -> !AdvantajeTableReader.isDeletedRecord(buffer, recordOffset);
+                recordPredicate = recordPredicate == null ? liveRecordPredicate : liveRecordPredicate.and(recordPredicate);
+            }
+            int copiedRecordCount = tableWriter.copyRecords(recordSource, recordPredicate);
+
+            AdvantajeMemoFile memoFile = tableFile.getMemoFile();
+            if (memoFile != null) {
+                copyMemoFile(memoFile.getPath(), targetPath);
+            }
+            return copiedRecordCount;
+        }
+    }
+
+    /**
+     * Count the live and deleted records of a table, reading only their status.
+     *
+     * @param path    The table file, which will be memory-mapped
+     * @param charset
+     */
+    public AdvantajeRecordCounts countRecords(Path path, Charset charset) {
+        try (AdvantajeTableFile tableFile = openTable(path, charset)) {
+            return tableFile.countRecords();
+        }
+    }
+
+    /**
+     * Group the live records of a table and compute aggregates, without decoding records. Ranges of records are
+     * aggregated in parallel in the common fork-join pool.
+     *
+     * @param path              The table file, which will be memory-mapped
+     * @param charset
+     * @param filter            A filter selecting the aggregated records. May be null.
+     * @param groupByFieldNames The fields to group by, or none to aggregate all records in a single group
+     * @return The groups, sorted by key values, nulls first
+     */
+    public List<AdvantajeGroup> aggregate(Path path, Charset charset, AdvantajeFilter filter, List<String> groupByFieldNames,
+                                          AdvantajeAggregate... aggregates) {
+        Optional<AdvantajeTableCache.CachedTable> cachedTableOptional = getCachedTableOptional(path, charset);
+        if (cachedTableOptional.isPresent()) {
+            try (AdvantajeTableCache.CachedTable cachedTable = cachedTableOptional.get()) {
+                return cachedTable.aggregate(filter, groupByFieldNames, aggregates);
+            }
+        }
+        try (AdvantajeTableFile tableFile = openTable(path, charset)) {
+            return tableFile.aggregate(filter, groupByFieldNames, aggregates);
+        }
+    }
+
+    /**
+     * Read the records changed since a checkpoint. Memo content of the returned records can not be read, as the table
+     * is closed. All changes are held in memory.
+     *
+     * @param path       The table file, which will be memory-mapped
+     * @param charset
+     * @param checkpoint The checkpoint returned by the previous read, or an initial checkpoint
+     * @param filter     A filter selecting the records to return, the same as for the previous read. May be null.
+     * @param fieldNames The fields to decode, or none to decode all fields
+     */
+    public AdvantajeChangeSet readChanges(Path path, Charset charset, AdvantajeCheckpoint checkpoint, AdvantajeFilter filter,
+                                          String... fieldNames) {
+        try (AdvantajeTableFile tableFile = openTable(path, charset)) {
+            return tableFile.readChanges(checkpoint, filter, fieldNames);
+        }
+    }
+
+    /**
+     * Read the records changed since a checkpoint, passing each change to a consumer as it is read. Memo content of
+     * the changed records can be read until the consumer returns.
+     *
+     * @param path           The table file, which will be memory-mapped
+     * @param charset
+     * @param checkpoint     The checkpoint returned by the previous read, or an initial checkpoint
+     * @param filter         A filter selecting the records to return, the same as for the previous read. May be null.
+     * @param changeConsumer Receives each change, in record number order
+     * @param fieldNames     The fields to decode, or none to decode all fields
+     * @return The checkpoint to use for the next read
+     */
+    public AdvantajeCheckpoint readChanges(Path path, Charset charset, AdvantajeCheckpoint checkpoint, AdvantajeFilter filter,
+                                           Consumer<AdvantajeChange> changeConsumer, String... fieldNames) {
+        try (AdvantajeTableFile tableFile = openTable(path, charset)) {
+            return tableFile.readChanges(checkpoint, filter, changeConsumer, fieldNames);
+        }
+    }
+
+    /**
+     * @param inputStream The table inputstream will be closed with the cursor
+     * @param charset
+     * @return A cursor, which should be closed by the caller
+     */
+    public AdvantajeCursor openCursor(InputStream inputStream, Charset charset) {
+        AdvantajeInputStreamRecordSource recordSource = openRecordSource(inputStream, charset);
+        return new AdvantajeCursor(recordSource, charset, null, includeDeleted)
+                .setScanListener(null, scanListener);
+    }
+
+    /**
+     * @param path    The table file, which will be memory-mapped
+     * @param charset
+     * @return A cursor, which should be closed by the caller
+     */
+    public AdvantajeCursor openCursor(Path path, Charset charset) {
+        return openCursor(path, charset, null);
+    }
+
+    /**
+     * @param path    The table file, which will be memory-mapped
+     * @param charset
+     * @param filter  A filter evaluated on the encoded records, so that the cursor skips other records. May be null.
+     * @return A cursor, which should be closed by the caller
+     */
+    public AdvantajeCursor openCursor(Path path, Charset charset, AdvantajeFilter filter) {
+        Optional<AdvantajeTableCache.CachedTable> cachedTableOptional = getCachedTableOptional(path, charset);
+        if (cachedTableOptional.isPresent()) {
+            try (AdvantajeTableCache.CachedTable cachedTable = cachedTableOptional.get()) {
+                AdvantajeRecordPredicate recordPredicate = filter == null ? null : filter.bind(cachedTable.getMetaData(), charset);
+                return new AdvantajeCursor(cachedTable.openRecordSource(), charset, recordPredicate, includeDeleted)
+                        .setScanListener(getTableName(path), scanListener);
+            }
+        }
+        AdvantajeTableFile tableFile = openTable(path, charset);
+        try {
+            AdvantajeRecordPredicate recordPredicate = filter == null ? null : filter.bind(tableFile.getMetaData(), charset);
+            return new AdvantajeCursor(tableFile.openRecordSource(), charset, recordPredicate, includeDeleted)
+                    .onClose(() -> tableFile.close())
+                    .setScanListener(getTableName(path), scanListener);
+        } catch (RuntimeException exception) {
+            tableFile.close();
+            throw exception;
+        }
+    }
+
+    private Optional<AdvantajeTableCache.CachedTable> getCachedTableOptional(Path path, Charset charset) {
+        if (tableCache == null) {
+            return Optional.empty();
+        }
+        return tableCache.getTableOptional(path, charset);
+    }
+
+    private AdvantajeInputStreamRecordSource openRecordSource(InputStream inputStream, Charset charset) {
+        if (readAheadBlockCount <= 0) {
+            return new AdvantajeInputStreamRecordSource(inputStream, charset);
+        }
+        InputStream readAheadInputStream = new AdvantajeReadAheadInputStream(inputStream, readAheadBlockCount, readAheadBlockSize);
+        try {
+            return new AdvantajeInputStreamRecordSource(readAheadInputStream, charset);
+        } catch (RuntimeException exception) {
+            try {
+                readAheadInputStream.close();
+            } catch (IOException closeException) {
+                exception.addSuppressed(closeException);
+            }
+            throw exception;
+        }
+    }
+
+    private Stream<AdvantajeRecord> streamRecordSource(AdvantajeRecordSource recordSource, String tableName,
+                                                       AdvantajeSchema schema, AdvantajeFilter filter) {
+        AdvantajeTableMetaData metaData = recordSource.getMetaData();
+        AdvantajeRecordPredicate recordPredicate;
+        try {
+            recordPredicate = filter == null ? null : filter.bind(metaData, schema.getCharset());
+        } catch (RuntimeException exception) {
+            recordSource.close();
+            throw exception;
+        }
+        AdvantajeSpliteraor spliteraor = new AdvantajeSpliteraor(recordSource, schema, recordPredicate, includeDeleted);
+        schema.setScanListener(tableName, scanListener);
+        spliteraor.setScanListener(tableName, scanListener);
         return StreamSupport.stream(spliteraor, false)
                 .onClose(() -> spliteraor.close());
     }
 
+    private <T> Stream<T> streamRecordSource(AdvantajeRecordSource recordSource, String tableName, AdvantajeSchema schema,
+                                             AdvantajeFilter filter, Class<T> type) {
+        AdvantajeRecordPredicate recordPredicate;
+        AdvantajeBinder<T> binder;
+        try {
+            recordPredicate = filter == null ? null : filter.bind(recordSource.getMetaData(), schema.getCharset());
+            binder = AdvantajeBinder.create(type, schema);
+        } catch (RuntimeException exception) {
+            recordSource.close();
+            throw exception;
+        }
+        AdvantajeBoundSpliterator<T> spliterator = new AdvantajeBoundSpliterator<>(recordSource, binder, schema.getMemoFile(),
+                recordPredicate, includeDeleted);
+        spliterator.setScanListener(tableName, scanListener);
+        return StreamSupport.stream(spliterator, false)
+                .onClose(() -> spliterator.close());
+    }
+
+    private Stream<AdvantajeRecord> joinRecordSource(AdvantajeRecordSource recordSource, String tableName,
+                                                     AdvantajeSchema schema, AdvantajeFilter filter, String keyFieldName,
+                                                     AdvantajeJoinIndex joinIndex) {
+        AdvantajeTableMetaData metaData = recordSource.getMetaData();
+        AdvantajeJoinSpliterator spliterator;
+        try {
+            AdvantajeRecordPredicate recordPredicate = filter == null ? null : filter.bind(metaData, schema.getCharset());
+            AdvantajeField<?> keyField = metaData.getField(keyFieldName);
+            spliterator = new AdvantajeJoinSpliterator(recordSource, keyField, schema, joinIndex, recordPredicate, includeDeleted);
+        } catch (RuntimeException exception) {
+            recordSource.close();
+            throw exception;
+        }
+        spliterator.getSchema().setScanListener(tableName, scanListener);
+        spliterator.setScanListener(tableName, scanListener);
+        return StreamSupport.stream(spliterator, false)
+                .onClose(() -> spliterator.close())
+                .flatMap(Stream::of);
+    }
+
+    private AdvantajeJoinIndex buildJoinIndex(Path path, Charset charset, String keyFieldName, String... fieldNames) {
+        Optional<AdvantajeTableCache.CachedTable> cachedTableOptional = getCachedTableOptional(path, charset);
+        if (cachedTableOptional.isPresent()) {
+            try (AdvantajeTableCache.CachedTable cachedTable = cachedTableOptional.get();
+                 AdvantajeRecordSource recordSource = cachedTable.openRecordSource()) {
+                return AdvantajeJoinIndex.build(recordSource, keyFieldName, fieldNames);
+            }
+        }
+        try (AdvantajeTableFile tableFile = openTable(path, charset)) {
+            return AdvantajeJoinIndex.build(tableFile, keyFieldName, fieldNames);
+        }
+    }
+
+    private static String getTableName(Path path) {
+        return path.getFileName().toString();
+    }
+
+    private static void copyMemoFile(Path memoPath, Path targetTablePath) {
+        String memoFileName = memoPath.getFileName().toString();
+        String memoExtension = memoFileName.substring(memoFileName.lastIndexOf('.'));
+        String targetFileName = targetTablePath.getFileName().toString();
+        int extensionIndex = targetFileName.lastIndexOf('.');
+        String targetBaseName = extensionIndex < 0 ? targetFileName : targetFileName.substring(0, extensionIndex);
+        Path targetMemoPath = targetTablePath.resolveSibling(targetBaseName + memoExtension);
+        try {
+            Files.copy(memoPath, targetMemoPath, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException exception) {
+            throw new AdvantajeException("Error copying memo file " + memoPath, exception);
+        }
+    }
 
     private static void printRecord(AdvantajeRecord advantajeRecord) {
         advantajeRecord.getValueMap()
@@ -77,12 +628,11 @@ public class AdvantajeService {
 
         Path fodlerPath = Paths.get("/home/cghislai/dev/valuya/gestemps/res/bob-data/DL");
 //        Path fodlerPath = Paths.get("/home/cghislai/dev/valuya/gestemps/res/bob-data/DL");
-        Files.list(fodlerPath)
-                .sorted(Comparator.comparing(p -> p.getFileName().toString()))
-                .filter(p -> p.getFileName().toString().endsWith(".adt"))
-                .peek(path -> System.out.print(" Table " + path.getFileName().toString() + " : "))
-                .map(AdvantajeService::getTableMetadata)
-                .forEach(p -> System.out.println(p.getRecordCount() + " records"));
+        try (AdvantajeDatabase database = AdvantajeDatabase.open(fodlerPath, DEFAULT_CHARSET)) {
+            database.getTableNames()
+                    .forEach(tableName -> System.out.println(" Table " + tableName + " : "
+                            + database.getTableMetaData(tableName).getRecordCount() + " records"));
+        }
 
 //        Path path = Paths.get("/home/cghislai/dev/valuya/gestemps/res/bob-data/APIZMEOData/fi_2017nadt.adt");
 //        Path path = Paths.get("/home/cghislai/dev/valuya/gestemps/res/bob-data/DL/ac_entryl.adt");
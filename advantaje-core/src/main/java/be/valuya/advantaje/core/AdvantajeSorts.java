@@ -0,0 +1,48 @@
+package be.valuya.advantaje.core;
+
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Sorting of primitive index permutations, avoiding boxing.
+ */
+final class AdvantajeSorts {
+
+    private AdvantajeSorts() {
+    }
+
+    /**
+     * @param size       The number of entries
+     * @param comparator Compares two entry indexes
+     * @return The entry indexes, in stable sorted order
+     */
+    static int[] sortedOrder(int size, IntBinaryOperator comparator) {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        int[] work = new int[size];
+        for (int width = 1; width < size; width *= 2) {
+            for (int start = 0; start < size; start += 2 * width) {
+                int middle = Math.min(start + width, size);
+                int end = Math.min(start + 2 * width, size);
+                merge(order, work, start, middle, end, comparator);
+            }
+            int[] sorted = work;
+            work = order;
+            order = sorted;
+        }
+        return order;
+    }
+
+    private static void merge(int[] source, int[] target, int start, int middle, int end, IntBinaryOperator comparator) {
+        int left = start;
+        int right = middle;
+        for (int i = start; i < end; i++) {
+            if (left < middle && (right >= end || comparator.applyAsInt(source[left], source[right]) <= 0)) {
+                target[i] = source[left++];
+            } else {
+                target[i] = source[right++];
+            }
+        }
+    }
+}
@@ -1,78 +1,70 @@
 package be.valuya.advantaje.core;
 
-import java.io.Closeable;
-import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.List;
-import java.util.Spliterator;
-import java.util.function.Consumer;
 
-public class AdvantajeSpliteraor implements Spliterator<AdvantajeRecord>, Closeable {
+public class AdvantajeSpliteraor extends AdvantajeRecordSourceSpliterator<AdvantajeRecord> {
 
-
-    private final AdvantajeTableReader tableReader;
-    private final AdvantajeTableMetaData table;
-    private final List<AdvantajeField<?>> fields;
-    private final int recordCount;
-    private int curIndex;
-    private InputStream inputStream;
-    private Charset charset;
+    private final AdvantajeSchema schema;
 
     public AdvantajeSpliteraor(InputStream inputStream, Charset charset) {
-        this.inputStream = inputStream;
-        this.charset = charset;
-        this.tableReader = new AdvantajeTableReader();
-        table = tableReader.openTable(inputStream, charset);
+        this(new AdvantajeInputStreamRecordSource(inputStream, charset), charset);
+    }
 
-        fields = table.getFields();
-        recordCount = table.getRecordCount();
-        curIndex = 0;
+    public AdvantajeSpliteraor(AdvantajeRecordSource recordSource, Charset charset) {
+        this(recordSource, charset, recordSource.getMetaData().getFields());
     }
 
-    @Override
-    public boolean tryAdvance(Consumer<? super AdvantajeRecord> action) {
-        if (curIndex >= recordCount) {
-            return false;
-        }
-        try {
-            AdvantajeRecord advantajeRecord = tableReader.readNextLine(inputStream, fields, charset);
-            action.accept(advantajeRecord);
-            curIndex++;
-            return true;
-        } catch (Exception e) {
-            throw new AdvantajeException(e);
-        }
+    /**
+     * @param fields The fields to decode. Other fields are skipped.
+     */
+    public AdvantajeSpliteraor(AdvantajeRecordSource recordSource, Charset charset, List<AdvantajeField<?>> fields) {
+        this(recordSource, charset, fields, null);
     }
 
-    @Override
-    public Spliterator<AdvantajeRecord> trySplit() {
-        return null;
+    /**
+     * @param fields          The fields to decode. Other fields are skipped.
+     * @param recordPredicate A predicate evaluated before decoding each record, or null to decode all records
+     */
+    public AdvantajeSpliteraor(AdvantajeRecordSource recordSource, Charset charset, List<AdvantajeField<?>> fields,
+                               AdvantajeRecordPredicate recordPredicate) {
+        this(recordSource, new AdvantajeSchema(fields, charset), recordPredicate);
     }
 
-    @Override
-    public long estimateSize() {
-        return recordCount;
+    /**
+     * @param schema          The schema of the records, holding the fields to decode
+     * @param recordPredicate A predicate evaluated before decoding each record, or null to decode all records
+     */
+    public AdvantajeSpliteraor(AdvantajeRecordSource recordSource, AdvantajeSchema schema,
+                               AdvantajeRecordPredicate recordPredicate) {
+        this(recordSource, schema, recordPredicate, false);
     }
 
-    @Override
-    public long getExactSizeIfKnown() {
-        return recordCount;
+    /**
+     * @param schema          The schema of the records, holding the fields to decode
+     * @param recordPredicate A predicate evaluated before decoding each record, or null to decode all records
+     * @param includeDeleted  Whether records marked deleted are read, rather than skipped without decoding them
+     */
+    public AdvantajeSpliteraor(AdvantajeRecordSource recordSource, AdvantajeSchema schema,
+                               AdvantajeRecordPredicate recordPredicate, boolean includeDeleted) {
+        super(recordSource, recordPredicate, includeDeleted);
+        this.schema = schema;
+    }
+
+    private AdvantajeSpliteraor(AdvantajeRecordSource recordSource, AdvantajeSpliteraor parentSpliterator) {
+        super(recordSource, parentSpliterator);
+        this.schema = parentSpliterator.schema;
     }
 
     @Override
-    public int characteristics() {
-        return Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+    AdvantajeRecord readRecord(ByteBuffer recordBuffer, int recordOffset) {
+        return schema.createRecord(recordBuffer, recordOffset);
     }
 
     @Override
-    public void close() {
-        if (inputStream != null) {
-            try {
-                inputStream.close();
-            } catch (IOException e) {
-                throw new AdvantajeException(e);
-            }
-        }
+    AdvantajeSpliteraor createSplit(AdvantajeRecordSource prefixSource) {
+        return new AdvantajeSpliteraor(prefixSource, this);
     }
 }
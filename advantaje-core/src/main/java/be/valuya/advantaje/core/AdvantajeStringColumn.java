@@ -0,0 +1,80 @@
+package be.valuya.advantaje.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A dictionary-encoded column of trimmed strings. Codes index a dictionary which is kept across the batches of a scan,
+ * so that equal values have equal codes, until it holds more than {@link #MAX_DICTIONARY_SIZE} strings. It is then
+ * cleared before the next batch: codes of different batches are only comparable when the dictionary size did not
+ * decrease between them. Null chars are removed from fixed-length strings, as when decoding records.
+ */
+public class AdvantajeStringColumn extends AdvantajeColumn {
+
+    public static final int MAX_DICTIONARY_SIZE = 1 << 16;
+
+    private final int fieldOffset;
+    private final int storageLength;
+    private final int unitLength;
+    private final boolean varString;
+    private final int[] codes;
+    private final AdvantajeStringDictionary dictionary;
+
+    AdvantajeStringColumn(AdvantajeField<?> field, int capacity, Charset charset) {
+        super(field, capacity);
+        AdvantajeFieldType fieldType = field.getFieldType();
+        this.fieldOffset = field.getOffset();
+        this.storageLength = field.getStorageLength();
+        boolean unicode = fieldType == AdvantajeFieldType.NCHAR || fieldType == AdvantajeFieldType.NVARCHAR;
+        this.unitLength = unicode ? 2 : 1;
+        this.codes = new int[capacity];
+        this.varString = fieldType == AdvantajeFieldType.VARCHAR_FOX || fieldType == AdvantajeFieldType.NVARCHAR;
+        this.dictionary = new AdvantajeStringDictionary(unicode ? StandardCharsets.UTF_16LE : charset, !varString);
+    }
+
+    public int[] getCodes() {
+        return codes;
+    }
+
+    public AdvantajeStringDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public String getValue(int row) {
+        return dictionary.getValue(codes[row]);
+    }
+
+    @Override
+    void clear() {
+        super.clear();
+        if (dictionary.size() > MAX_DICTIONARY_SIZE) {
+            dictionary.clear();
+        }
+    }
+
+    @Override
+    void read(int row, ByteBuffer recordBuffer, int recordOffset) {
+        int start = recordOffset + fieldOffset;
+        int end = start + storageLength;
+        if (varString) {
+            int size = recordBuffer.getShort(end - 2);
+            int maxSize = (storageLength - 2) / unitLength;
+            end = start + Math.max(0, Math.min(size, maxSize)) * unitLength;
+        }
+        while (start < end && isBlankUnit(recordBuffer, start)) {
+            start += unitLength;
+        }
+        while (end > start && isBlankUnit(recordBuffer, end - unitLength)) {
+            end -= unitLength;
+        }
+        codes[row] = dictionary.getCode(recordBuffer, start, end);
+    }
+
+    private boolean isBlankUnit(ByteBuffer recordBuffer, int offset) {
+        if (unitLength == 1) {
+            return AdvantajeRawValues.isBlank(recordBuffer.get(offset));
+        }
+        return recordBuffer.getChar(offset) <= ' ';
+    }
+}
@@ -0,0 +1,148 @@
+package be.valuya.advantaje.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Assigns a code to each distinct string, keyed on its encoded bytes, so that repeated values are decoded once and
+ * share a single String instance. Not thread-safe.
+ */
+public class AdvantajeStringDictionary {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Charset charset;
+    private final boolean removeNulls;
+    private int[] slots;
+    private int[] hashes;
+    private int[] keyOffsets;
+    private byte[] keyData;
+    private String[] values;
+    private int size;
+    private int keyDataLength;
+
+    public AdvantajeStringDictionary(Charset charset) {
+        this(charset, false);
+    }
+
+    /**
+     * @param removeNulls Whether null chars are removed from the strings, as they are when decoding fixed-length
+     *                    string fields
+     */
+    public AdvantajeStringDictionary(Charset charset, boolean removeNulls) {
+        this.charset = charset;
+        this.removeNulls = removeNulls;
+        clear();
+    }
+
+    /**
+     * @return The code of the string encoded by the bytes from start (inclusive) to end (exclusive), added to this
+     * dictionary if absent
+     */
+    public int getCode(ByteBuffer buffer, int start, int end) {
+        int hash = AdvantajeRawValues.hash(buffer, start, end);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int slotValue = slots[slot];
+            if (slotValue == 0) {
+                int code = add(buffer, start, end, hash);
+                slots[slot] = code + 1;
+                if (size * 2 > slots.length) {
+                    rehash();
+                }
+                return code;
+            }
+            int code = slotValue - 1;
+            if (hashes[code] == hash && keyEquals(code, buffer, start, end)) {
+                return code;
+            }
+        }
+    }
+
+    /**
+     * @return The string for the bytes from start (inclusive) to end (exclusive), shared with previous lookups of the
+     * same bytes
+     */
+    public String getString(ByteBuffer buffer, int start, int end) {
+        int code = getCode(buffer, start, end);
+        return values[code];
+    }
+
+    public String getValue(int code) {
+        return values[code];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Remove all strings, releasing the memory they hold. Codes returned before are no longer valid.
+     */
+    public void clear() {
+        slots = new int[INITIAL_CAPACITY * 2];
+        hashes = new int[INITIAL_CAPACITY];
+        keyOffsets = new int[INITIAL_CAPACITY + 1];
+        keyData = new byte[INITIAL_CAPACITY * 8];
+        values = new String[INITIAL_CAPACITY];
+        size = 0;
+        keyDataLength = 0;
+    }
+
+    private int add(ByteBuffer buffer, int start, int end, int hash) {
+        int length = end - start;
+        if (size == values.length) {
+            int capacity = size * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            keyOffsets = Arrays.copyOf(keyOffsets, capacity + 1);
+            values = Arrays.copyOf(values, capacity);
+        }
+        if (keyDataLength + length > keyData.length) {
+            keyData = Arrays.copyOf(keyData, Math.max(keyData.length * 2, keyDataLength + length));
+        }
+        for (int i = 0; i < length; i++) {
+            keyData[keyDataLength + i] = buffer.get(start + i);
+        }
+        int code = size;
+        hashes[code] = hash;
+        keyOffsets[code] = keyDataLength;
+        String value = new String(keyData, keyDataLength, length, charset);
+        values[code] = removeNulls ? AdvantajeFieldDecoders.removeNulls(value) : value;
+        keyDataLength += length;
+        keyOffsets[code + 1] = keyDataLength;
+        size++;
+        return code;
+    }
+
+    private boolean keyEquals(int code, ByteBuffer buffer, int start, int end) {
+        int keyStart = keyOffsets[code];
+        int keyLength = keyOffsets[code + 1] - keyStart;
+        if (keyLength != end - start) {
+            return false;
+        }
+        for (int i = 0; i < keyLength; i++) {
+            if (keyData[keyStart + i] != buffer.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        int[] newSlots = new int[slots.length * 2];
+        int mask = newSlots.length - 1;
+        for (int code = 0; code < size; code++) {
+            int slot = hashes[code] & mask;
+            while (newSlots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            newSlots[slot] = code + 1;
+        }
+        slots = newSlots;
+    }
+}
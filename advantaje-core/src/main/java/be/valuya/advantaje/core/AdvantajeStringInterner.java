@@ -0,0 +1,70 @@
+package be.valuya.advantaje.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * A bounded cache of decoded strings keyed on their raw bytes, so that repeated values of a field share a single
+ * String instance and are decoded once.
+ * <p>
+ * Entries are stored in a direct-mapped table: a colliding value replaces the previous one, which keeps the memory
+ * bounded for high-cardinality fields. Entries are immutable, so the table may be shared between threads.
+ */
+final class AdvantajeStringInterner {
+
+    private static final int SLOT_COUNT = 1024;
+
+    private final Charset charset;
+    private final boolean removeNulls;
+    private final Entry[] entries = new Entry[SLOT_COUNT];
+
+    /**
+     * @param removeNulls Whether null chars are removed from decoded values
+     */
+    AdvantajeStringInterner(Charset charset, boolean removeNulls) {
+        this.charset = charset;
+        this.removeNulls = removeNulls;
+    }
+
+    String intern(ByteBuffer buffer, int start, int end) {
+        int hash = AdvantajeRawValues.hash(buffer, start, end);
+        int slot = hash & (SLOT_COUNT - 1);
+        Entry entry = entries[slot];
+        if (entry != null && entry.hash == hash && entry.matches(buffer, start, end)) {
+            return entry.value;
+        }
+        byte[] key = new byte[end - start];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = buffer.get(start + i);
+        }
+        String decodedValue = new String(key, charset);
+        String value = removeNulls ? AdvantajeFieldDecoders.removeNulls(decodedValue) : decodedValue;
+        entries[slot] = new Entry(hash, key, value);
+        return value;
+    }
+
+    private static final class Entry {
+
+        private final int hash;
+        private final byte[] key;
+        private final String value;
+
+        private Entry(int hash, byte[] key, String value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        private boolean matches(ByteBuffer buffer, int start, int end) {
+            if (key.length != end - start) {
+                return false;
+            }
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != buffer.get(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
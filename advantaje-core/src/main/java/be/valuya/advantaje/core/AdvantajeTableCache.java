@@ -0,0 +1,387 @@
+package be.valuya.advantaje.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * The record regions of tables, loaded in direct buffers outside the Java heap, so that tables read often are
+ * streamed without reading their file. Set it using {@link AdvantajeService#setTableCache(AdvantajeTableCache)}.
+ * <p>
+ * Cached tables are reloaded when their file size or last-modified time changes. Each table is loaded once, by the first
+ * caller requesting it, while other callers wait for it. The least recently used tables are evicted to keep the cached
+ * bytes under a budget; tables larger than the budget are never cached. Thread-safe.
+ * <p>
+ * The budget is soft: the direct buffers of evicted tables are freed by the garbage collector, once the streams and
+ * cursors still reading them are closed, so that direct memory may temporarily hold more than the budget. The memo file
+ * of an evicted table is closed when the last record source reading the table is closed.
+ */
+public class AdvantajeTableCache {
+
+    private static final int MAX_SEGMENT_LENGTH = 1 << 30;
+
+    private final long maxBytes;
+    private final Map<String, CachedTable> cachedTables = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, LoadingTable> loadingTables = new HashMap<>();
+    private long cachedBytes;
+
+    /**
+     * @param maxBytes The maximum number of record bytes kept in cache, for all tables
+     */
+    public AdvantajeTableCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    public synchronized int getTableCount() {
+        return cachedTables.size();
+    }
+
+    /**
+     * Load a table in cache, unless cached and unchanged, for instance to warm the cache up.
+     *
+     * @return Whether the table is cached, which is not the case for tables larger than the budget
+     */
+    public boolean load(Path path, Charset charset) {
+        Optional<CachedTable> cachedTableOptional = getTableOptional(path, charset);
+        cachedTableOptional.ifPresent(CachedTable::close);
+        return cachedTableOptional.isPresent();
+    }
+
+    public synchronized void invalidate(Path path, Charset charset) {
+        String cacheKey = AdvantajeVersionedCache.getTableCacheKey(path, charset);
+        // A table being loaded is returned to its loader, but not cached
+        loadingTables.remove(cacheKey);
+        CachedTable cachedTable = cachedTables.remove(cacheKey);
+        if (cachedTable != null) {
+            evict(cachedTable);
+        }
+    }
+
+    public synchronized void clear() {
+        cachedTables.values()
+                .forEach(this::evict);
+        cachedTables.clear();
+        loadingTables.clear();
+    }
+
+    /**
+     * @return The cached table, loaded if not cached or changed, or empty for tables larger than the budget. The
+     * returned table is referenced until closed, so that its memo file stays open until record sources are opened.
+     */
+    Optional<CachedTable> getTableOptional(Path path, Charset charset) {
+        BasicFileAttributes attributes = AdvantajeVersionedCache.readAttributes(path);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String cacheKey = AdvantajeVersionedCache.getTableCacheKey(path, charset);
+        while (true) {
+            LoadingTable loadingTable;
+            boolean loader = false;
+            synchronized (this) {
+                CachedTable cachedTable = cachedTables.get(cacheKey);
+                if (cachedTable != null && cachedTable.isValid(size, lastModified)) {
+                    cachedTable.acquire();
+                    return Optional.of(cachedTable);
+                }
+                if (size > maxBytes) {
+                    return Optional.empty();
+                }
+                loadingTable = loadingTables.get(cacheKey);
+                if (loadingTable == null || !loadingTable.isValid(size, lastModified)) {
+                    loadingTable = new LoadingTable(size, lastModified);
+                    loadingTables.put(cacheKey, loadingTable);
+                    loader = true;
+                }
+            }
+            if (loader) {
+                return Optional.of(load(cacheKey, loadingTable, path, charset));
+            }
+            // Look the loaded table up again, as it may have been evicted or invalidated since
+            AdvantajeVersionedCache.join(loadingTable.future);
+        }
+    }
+
+    /**
+     * @return The loaded table, referenced until closed, and cached unless invalidated while loading
+     */
+    private CachedTable load(String cacheKey, LoadingTable loadingTable, Path path, Charset charset) {
+        CachedTable loadedTable;
+        try {
+            loadedTable = loadTable(path, charset, loadingTable.size, loadingTable.lastModified);
+        } catch (RuntimeException | Error exception) {
+            synchronized (this) {
+                loadingTables.remove(cacheKey, loadingTable);
+            }
+            loadingTable.future.completeExceptionally(exception);
+            throw exception;
+        }
+        synchronized (this) {
+            // Otherwise, the reference held for the cache is handed over to the caller
+            if (loadingTables.remove(cacheKey, loadingTable)) {
+                CachedTable replacedTable = cachedTables.remove(cacheKey);
+                if (replacedTable != null) {
+                    evict(replacedTable);
+                }
+                evictLeastRecentlyUsed(maxBytes - loadedTable.byteSize);
+                cachedTables.put(cacheKey, loadedTable);
+                cachedBytes += loadedTable.byteSize;
+                loadedTable.acquire();
+            }
+        }
+        loadingTable.future.complete(null);
+        return loadedTable;
+    }
+
+    private void evictLeastRecentlyUsed(long maxCachedBytes) {
+        Iterator<CachedTable> iterator = cachedTables.values().iterator();
+        while (cachedBytes > maxCachedBytes && iterator.hasNext()) {
+            CachedTable cachedTable = iterator.next();
+            iterator.remove();
+            evict(cachedTable);
+        }
+    }
+
+    private void evict(CachedTable cachedTable) {
+        cachedBytes -= cachedTable.byteSize;
+        cachedTable.release();
+    }
+
+    private static CachedTable loadTable(Path path, Charset charset, long size, long lastModified) {
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer tableHeaderBuffer = readFully(fileChannel, 0, AdvantajeTableReader.TABLE_HEADER_LENGTH, false);
+            int headerLength = AdvantajeTableReader.getHeaderLength(tableHeaderBuffer);
+            ByteBuffer headerBuffer = readFully(fileChannel, 0, headerLength, false);
+            AdvantajeTableReader tableReader = new AdvantajeTableReader();
+            AdvantajeTableMetaData metaData = tableReader.openTable(headerBuffer, charset);
+
+            int recordLength = metaData.getRecordLength();
+            long availableRecordCount = (fileChannel.size() - headerLength) / recordLength;
+            int recordCount = (int) Math.max(0, Math.min(metaData.getRecordCount(), availableRecordCount));
+            int recordsPerSegment = Math.max(1, MAX_SEGMENT_LENGTH / recordLength);
+
+            int segmentCount = (recordCount + recordsPerSegment - 1) / recordsPerSegment;
+            ByteBuffer[] segments = new ByteBuffer[segmentCount];
+            for (int segmentIndex = 0; segmentIndex < segmentCount; segmentIndex++) {
+                long firstRecordNumber = (long) segmentIndex * recordsPerSegment;
+                long segmentRecordCount = Math.min(recordsPerSegment, recordCount - firstRecordNumber);
+                long segmentPosition = headerLength + firstRecordNumber * recordLength;
+                segments[segmentIndex] = readFully(fileChannel, segmentPosition, (int) (segmentRecordCount * recordLength), true);
+            }
+            AdvantajeMemoFile memoFile = AdvantajeTableFile.findMemoFilePath(path)
+                    .map(AdvantajeMemoFile::new)
+                    .orElse(null);
+            return new CachedTable(size, lastModified, metaData, segments, recordsPerSegment, recordCount, charset, memoFile);
+        } catch (IOException exception) {
+            throw new AdvantajeException("Error loading table " + path, exception);
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel fileChannel, long position, int length, boolean direct) throws IOException {
+        ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int readBytes = fileChannel.read(buffer, position + buffer.position());
+            if (readBytes < 0) {
+                throw new AdvantajeException("Unexpected end of table file");
+            }
+        }
+        buffer.flip();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return direct ? buffer.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN) : buffer;
+    }
+
+    /**
+     * A table file version being loaded, completed once loaded and cached.
+     */
+    private static class LoadingTable {
+
+        private final long size;
+        private final long lastModified;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private LoadingTable(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        private boolean isValid(long size, long lastModified) {
+            return this.size == size && this.lastModified == lastModified;
+        }
+    }
+
+    /**
+     * The records of a table file version, held in direct buffers. References are counted: the cache holds one while
+     * the table is cached, each lookup holds one until the table is closed, and each record source holds one until
+     * closed. The memo file is closed when the last reference is released.
+     */
+    static class CachedTable implements Closeable {
+
+        private final long size;
+        private final long lastModified;
+        private final AdvantajeTableMetaData metaData;
+        private final ByteBuffer[] segments;
+        private final int recordsPerSegment;
+        private final int recordCount;
+        private final long byteSize;
+        private final Charset charset;
+        private final AdvantajeMemoFile memoFile;
+        private int referenceCount = 1;
+
+        CachedTable(long size, long lastModified, AdvantajeTableMetaData metaData, ByteBuffer[] segments,
+                    int recordsPerSegment, int recordCount, Charset charset, AdvantajeMemoFile memoFile) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.metaData = metaData;
+            this.segments = segments;
+            this.recordsPerSegment = recordsPerSegment;
+            this.recordCount = recordCount;
+            this.byteSize = Stream.of(segments)
+                    .mapToLong(ByteBuffer::capacity)
+                    .sum();
+            this.charset = charset;
+            this.memoFile = memoFile;
+        }
+
+        boolean isValid(long size, long lastModified) {
+            return this.size == size && this.lastModified == lastModified;
+        }
+
+        AdvantajeTableMetaData getMetaData() {
+            return metaData;
+        }
+
+        AdvantajeRecordSource openRecordSource() {
+            return openRecordSource(0, recordCount);
+        }
+
+        /**
+         * @return A record source referencing this table until closed
+         */
+        AdvantajeRecordSource openRecordSource(int fromRecordNumber, int toRecordNumber) {
+            acquire();
+            AdvantajeRecordSource recordSource = new AdvantajeBufferRecordSource(metaData, segments, recordsPerSegment,
+                    fromRecordNumber, toRecordNumber);
+            return new ReferencingRecordSource(recordSource, this);
+        }
+
+        /**
+         * @see AdvantajeTableFile#aggregate(AdvantajeFilter, List, AdvantajeAggregate...)
+         */
+        List<AdvantajeGroup> aggregate(AdvantajeFilter filter, List<String> groupByFieldNames, AdvantajeAggregate... aggregates) {
+            AdvantajeRecordPredicate recordPredicate = filter == null ? null : filter.bind(metaData, charset);
+            AdvantajeAggregator aggregator = new AdvantajeAggregator(metaData, charset, recordPredicate, groupByFieldNames, aggregates);
+            return aggregator.aggregate(recordCount, this::openRecordSource);
+        }
+
+        /**
+         * @param fieldNames The names of the fields to read, or none to read all fields
+         */
+        AdvantajeSchema createSchema(String... fieldNames) {
+            List<AdvantajeField<?>> fields = metaData.selectFields(fieldNames);
+            return new AdvantajeSchema(fields, charset, memoFile);
+        }
+
+        /**
+         * Release the reference held by the lookup of this table.
+         */
+        @Override
+        public void close() {
+            release();
+        }
+
+        private synchronized void acquire() {
+            if (referenceCount == 0) {
+                throw new AdvantajeException("Cached table released");
+            }
+            referenceCount++;
+        }
+
+        private synchronized void release() {
+            referenceCount--;
+            if (referenceCount == 0 && memoFile != null) {
+                memoFile.close();
+            }
+        }
+    }
+
+    /**
+     * A record source releasing its reference to a cached table when closed. Split sources are read while this source
+     * is open, and share its reference.
+     */
+    private static class ReferencingRecordSource implements AdvantajeRecordSource {
+
+        private final AdvantajeRecordSource recordSource;
+        private final CachedTable cachedTable;
+        private boolean closed;
+
+        private ReferencingRecordSource(AdvantajeRecordSource recordSource, CachedTable cachedTable) {
+            this.recordSource = recordSource;
+            this.cachedTable = cachedTable;
+        }
+
+        @Override
+        public AdvantajeTableMetaData getMetaData() {
+            return recordSource.getMetaData();
+        }
+
+        @Override
+        public boolean next() {
+            return recordSource.next();
+        }
+
+        @Override
+        public int getRecordNumber() {
+            return recordSource.getRecordNumber();
+        }
+
+        @Override
+        public ByteBuffer getRecordBuffer() {
+            return recordSource.getRecordBuffer();
+        }
+
+        @Override
+        public int getRecordOffset() {
+            return recordSource.getRecordOffset();
+        }
+
+        @Override
+        public long estimateSize() {
+            return recordSource.estimateSize();
+        }
+
+        @Override
+        public AdvantajeRecordSource trySplit() {
+            return recordSource.trySplit();
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            recordSource.close();
+            cachedTable.release();
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package be.valuya.advantaje.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A table file memory-mapped for reading. The record region is mapped in segments holding a whole number of records,
+ * so that tables larger than 2GB can be read and no record crosses a segment boundary.
+ */
+public class AdvantajeTableFile implements Closeable {
+
+    private static final int MAX_SEGMENT_LENGTH = 1 << 30;
+
+    private final Path path;
+    private final Charset charset;
+    private final FileChannel fileChannel;
+    private final ByteBuffer headerBuffer;
+    private final AdvantajeTableMetaData metaData;
+    private final int recordCount;
+    private final int recordsPerSegment;
+    private final ByteBuffer[] segments;
+    private final AdvantajeMemoFile memoFile;
+    private final AdvantajeSchema schema;
+    private final long fileSize;
+    private final long lastModified;
+    private final AdvantajeIndexCache indexCache;
+    private final Map<String, AdvantajeIndex> indexes = new ConcurrentHashMap<>();
+
+    private AdvantajeTableFile(Path path, Charset charset, FileChannel fileChannel, AdvantajeMetaDataCache metaDataCache,
+                               AdvantajeIndexCache indexCache) throws IOException {
+        this.path = path;
+        this.charset = charset;
+        this.fileChannel = fileChannel;
+        this.indexCache = indexCache;
+
+        this.fileSize = fileChannel.size();
+        this.lastModified = Files.getLastModifiedTime(path).toMillis();
+        ByteBuffer tableHeaderBuffer = map(0, Math.min(fileSize, AdvantajeTableReader.TABLE_HEADER_LENGTH));
+        int headerLength = AdvantajeTableReader.getHeaderLength(tableHeaderBuffer);
+        this.headerBuffer = map(0, Math.min(fileSize, headerLength));
+        AdvantajeDecodePlan decodePlan;
+        if (metaDataCache == null) {
+            this.metaData = readMetaData();
+            decodePlan = AdvantajeDecodePlan.compile(metaData.getFields(), charset);
+        } else {
+            AdvantajeMetaDataCache.CacheEntry cacheEntry = metaDataCache.getEntry(path, charset, fileSize, lastModified, this::readMetaData);
+            this.metaData = cacheEntry.getMetaData();
+            decodePlan = cacheEntry.getDecodePlan();
+        }
+
+        int recordLength = metaData.getRecordLength();
+        long availableRecordCount = (fileSize - metaData.getHeaderLength()) / recordLength;
+        this.recordCount = (int) Math.max(0, Math.min(metaData.getRecordCount(), availableRecordCount));
+        this.recordsPerSegment = Math.max(1, MAX_SEGMENT_LENGTH / recordLength);
+
+        int segmentCount = (recordCount + recordsPerSegment - 1) / recordsPerSegment;
+        this.segments = new ByteBuffer[segmentCount];
+        for (int segmentIndex = 0; segmentIndex < segmentCount; segmentIndex++) {
+            long firstRecordNumber = (long) segmentIndex * recordsPerSegment;
+            long segmentRecordCount = Math.min(recordsPerSegment, recordCount - firstRecordNumber);
+            long segmentPosition = metaData.getHeaderLength() + firstRecordNumber * recordLength;
+            segments[segmentIndex] = map(segmentPosition, segmentRecordCount * recordLength);
+        }
+        this.memoFile = findMemoFilePath(path)
+                .map(AdvantajeMemoFile::new)
+                .orElse(null);
+        this.schema = new AdvantajeSchema(metaData.getFields(), charset, memoFile, decodePlan);
+    }
+
+    public static AdvantajeTableFile open(Path path, Charset charset) {
+        return open(path, charset, null);
+    }
+
+    /**
+     * @param metaDataCache A cache from which the table metadata is read, unless the table file changed. May be null.
+     */
+    public static AdvantajeTableFile open(Path path, Charset charset, AdvantajeMetaDataCache metaDataCache) {
+        return open(path, charset, metaDataCache, null);
+    }
+
+    /**
+     * @param metaDataCache A cache from which the table metadata is read, unless the table file changed. May be null.
+     * @param indexCache    A cache from which the table indexes are read, unless the table file changed. May be null.
+     */
+    public static AdvantajeTableFile open(Path path, Charset charset, AdvantajeMetaDataCache metaDataCache,
+                                          AdvantajeIndexCache indexCache) {
+        try {
+            FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                return new AdvantajeTableFile(path, charset, fileChannel, metaDataCache, indexCache);
+            } catch (IOException | RuntimeException exception) {
+                fileChannel.close();
+                throw exception;
+            }
+        } catch (IOException exception) {
+            throw new AdvantajeException("Error opening table " + path, exception);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public AdvantajeTableMetaData getMetaData() {
+        return metaData;
+    }
+
+    /**
+     * @return A read-only little-endian view of the table header, including the field headers
+     */
+    public ByteBuffer getHeaderBuffer() {
+        return headerBuffer.asReadOnlyBuffer()
+                .order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @return The number of records present in the file, which may be lower than the header record count for a
+     * truncated file.
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return The memo file (.adm) next to this table, which is only mapped when memo content is read. May be null.
+     */
+    public AdvantajeMemoFile getMemoFile() {
+        return memoFile;
+    }
+
+    /**
+     * @return The schema of the records holding all fields of this table
+     */
+    public AdvantajeSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * @param fieldNames The names of the fields to read, or none to read all fields
+     * @return A schema for the records read from this table, resolving memo fields against its memo file
+     */
+    public AdvantajeSchema createSchema(String... fieldNames) {
+        List<AdvantajeField<?>> fields = metaData.selectFields(fieldNames);
+        return new AdvantajeSchema(fields, charset, memoFile);
+    }
+
+    /**
+     * Read a record using its offset, without reading the preceding records. The record may be marked deleted.
+     *
+     * @param recordNumber The record number, starting at 0
+     */
+    public AdvantajeRecord readRecord(int recordNumber) {
+        try (AdvantajeRecordSource recordSource = openRecordSource(recordNumber, recordNumber + 1)) {
+            recordSource.next();
+            return schema.createRecord(recordSource.getRecordBuffer(), recordSource.getRecordOffset());
+        }
+    }
+
+    /**
+     * Read records using their offsets. Records are read in file order, whatever the requested order, so that
+     * neighbouring records are read together. Records marked deleted are included.
+     *
+     * @param recordNumbers The record numbers, starting at 0, in any order
+     * @param fieldNames    The fields to decode, or none to decode all fields
+     * @return The records, in the requested order
+     */
+    public List<AdvantajeRecord> readRecords(int[] recordNumbers, String... fieldNames) {
+        AdvantajeSchema recordSchema = createSchema(fieldNames);
+        int recordCount = recordNumbers.length;
+        int[] fileOrder = AdvantajeSorts.sortedOrder(recordCount,
+                (left, right) -> Integer.compare(recordNumbers[left], recordNumbers[right]));
+        int[] sortedRecordNumbers = new int[recordCount];
+        for (int i = 0; i < recordCount; i++) {
+            sortedRecordNumbers[i] = recordNumbers[fileOrder[i]];
+        }
+
+        AdvantajeRecord[] records = new AdvantajeRecord[recordCount];
+        try (AdvantajeRecordSource recordSource = openRecordSource(sortedRecordNumbers)) {
+            AdvantajeRecord previousRecord = null;
+            for (int i = 0; recordSource.next(); i++) {
+                boolean sameRecord = i > 0 && sortedRecordNumbers[i] == sortedRecordNumbers[i - 1];
+                if (!sameRecord) {
+                    previousRecord = recordSchema.createRecord(recordSource.getRecordBuffer(), recordSource.getRecordOffset());
+                }
+                records[fileOrder[i]] = previousRecord;
+            }
+        }
+        return Arrays.asList(records);
+    }
+
+    /**
+     * @param fromRecordNumber First record number, inclusive, for instance to resume an interrupted scan
+     * @param fieldNames       The fields to decode, or none to decode all fields
+     * @return A stream of the live records, which does not close this table file
+     */
+    public Stream<AdvantajeRecord> streamRecords(int fromRecordNumber, String... fieldNames) {
+        AdvantajeSchema recordSchema = createSchema(fieldNames);
+        AdvantajeRecordSource recordSource = openRecordSource(fromRecordNumber, recordCount);
+        AdvantajeSpliteraor spliteraor = new AdvantajeSpliteraor(recordSource, recordSchema, null);
+        return StreamSupport.stream(spliteraor, false);
+    }
+
+    public AdvantajeRecordSource openRecordSource() {
+        return openRecordSource(0, recordCount);
+    }
+
+    /**
+     * @param fromRecordNumber First record number, inclusive
+     * @param toRecordNumber   Last record number, exclusive
+     */
+    public AdvantajeRecordSource openRecordSource(int fromRecordNumber, int toRecordNumber) {
+        if (fromRecordNumber < 0 || toRecordNumber > recordCount || fromRecordNumber > toRecordNumber) {
+            throw new IndexOutOfBoundsException("Invalid record range: " + fromRecordNumber + " - " + toRecordNumber);
+        }
+        return new AdvantajeBufferRecordSource(metaData, segments, recordsPerSegment, fromRecordNumber, toRecordNumber);
+    }
+
+    /**
+     * @param recordNumbers The numbers of the records to read, in order
+     */
+    public AdvantajeRecordSource openRecordSource(int[] recordNumbers) {
+        for (int recordNumber : recordNumbers) {
+            checkRecordNumber(recordNumber);
+        }
+        return new AdvantajeBufferRecordSource(metaData, segments, recordsPerSegment, recordNumbers.clone());
+    }
+
+    /**
+     * @param fieldName The indexed field
+     * @return The index on this field, read from the index cache of this table, or built by scanning the table on first
+     * use
+     */
+    public AdvantajeIndex getIndex(String fieldName) {
+        return indexes.computeIfAbsent(fieldName, this::readIndex);
+    }
+
+    private AdvantajeIndex readIndex(String fieldName) {
+        if (indexCache == null) {
+            return AdvantajeIndex.build(this, fieldName);
+        }
+        return indexCache.getIndex(path, charset, fileSize, lastModified, fieldName, () -> AdvantajeIndex.build(this, fieldName));
+    }
+
+    /**
+     * Count the live and deleted records, reading only their status byte.
+     */
+    public AdvantajeRecordCounts countRecords() {
+        int deletedRecordCount = 0;
+        try (AdvantajeRecordSource recordSource = openRecordSource()) {
+            while (recordSource.next()) {
+                if (AdvantajeTableReader.isDeletedRecord(recordSource.getRecordBuffer(), recordSource.getRecordOffset())) {
+                    deletedRecordCount++;
+                }
+            }
+        }
+        return new AdvantajeRecordCounts(recordCount - deletedRecordCount, deletedRecordCount);
+    }
+
+    /**
+     * @param recordNumbers The numbers of the records to read, in order. Records marked deleted are included.
+     * @param fieldNames    The fields to decode, or none to decode all fields
+     * @return A stream of the records, which does not close this table file
+     */
+    public Stream<AdvantajeRecord> streamRecords(int[] recordNumbers, String... fieldNames) {
+        AdvantajeSchema recordSchema = createSchema(fieldNames);
+        AdvantajeRecordSource recordSource = openRecordSource(recordNumbers);
+        AdvantajeSpliteraor spliteraor = new AdvantajeSpliteraor(recordSource, recordSchema, null, true);
+        return StreamSupport.stream(spliteraor, false);
+    }
+
+    /**
+     * @param indexFieldName The indexed field
+     * @param fieldNames     The fields to decode, or none to decode all fields
+     * @return A stream of the records having a non-null value for the indexed field, sorted by that value
+     */
+    public Stream<AdvantajeRecord> streamByIndex(String indexFieldName, String... fieldNames) {
+        AdvantajeIndex index = getIndex(indexFieldName);
+        return streamRecords(index.getRecordNumbers(), fieldNames);
+    }
+
+    /**
+     * Read the records changed since a checkpoint, in a single pass decoding only the changed records. All changes are
+     * held in memory: use {@link #readChanges(AdvantajeCheckpoint, AdvantajeFilter, Consumer, String...)} to read the
+     * changes since an initial checkpoint of a large table.
+     *
+     * @param checkpoint The checkpoint returned by the previous read, or an initial checkpoint
+     * @param filter     A filter selecting the records to return, the same as for the previous read. May be null.
+     * @param fieldNames The fields to decode, or none to decode all fields
+     */
+    public AdvantajeChangeSet readChanges(AdvantajeCheckpoint checkpoint, AdvantajeFilter filter, String... fieldNames) {
+        List<AdvantajeChange> changes = new ArrayList<>();
+        AdvantajeCheckpoint nextCheckpoint = readChanges(checkpoint, filter, changes::add, fieldNames);
+        return new AdvantajeChangeSet(changes, nextCheckpoint);
+    }
+
+    /**
+     * Read the records changed since a checkpoint, in a single pass decoding only the changed records, passing each
+     * change to a consumer as it is read.
+     *
+     * @param checkpoint     The checkpoint returned by the previous read, or an initial checkpoint
+     * @param filter         A filter selecting the records to return, the same as for the previous read. May be null.
+     * @param changeConsumer Receives each change, in record number order
+     * @param fieldNames     The fields to decode, or none to decode all fields
+     * @return The checkpoint to use for the next read
+     */
+    public AdvantajeCheckpoint readChanges(AdvantajeCheckpoint checkpoint, AdvantajeFilter filter,
+                                           Consumer<AdvantajeChange> changeConsumer, String... fieldNames) {
+        AdvantajeRecordPredicate recordPredicate = filter == null ? null : filter.bind(metaData, charset);
+        AdvantajeSchema recordSchema = createSchema(fieldNames);
+        return AdvantajeChangeReader.readChanges(this, checkpoint, recordPredicate, recordSchema, changeConsumer);
+    }
+
+    /**
+     * Group the live records and compute aggregates on their raw bytes, without decoding records. Ranges of records
+     * are aggregated in parallel in the common fork-join pool. String keys are trimmed, and CISSTRING keys are grouped
+     * ignoring case and returned in upper case.
+     *
+     * @param filter            A filter selecting the aggregated records. May be null.
+     * @param groupByFieldNames The fields to group by, or none to aggregate all records in a single group
+     * @return The groups, sorted by key values, nulls first
+     */
+    public List<AdvantajeGroup> aggregate(AdvantajeFilter filter, List<String> groupByFieldNames, AdvantajeAggregate... aggregates) {
+        AdvantajeRecordPredicate recordPredicate = filter == null ? null : filter.bind(metaData, charset);
+        AdvantajeAggregator aggregator = new AdvantajeAggregator(metaData, charset, recordPredicate, groupByFieldNames, aggregates);
+        return aggregator.aggregate(recordCount, this::openRecordSource);
+    }
+
+    @Override
+    public void close() {
+        try {
+            fileChannel.close();
+        } catch (IOException e) {
+            throw new AdvantajeException(e);
+        } finally {
+            if (memoFile != null) {
+                memoFile.close();
+            }
+        }
+    }
+
+    private void checkRecordNumber(int recordNumber) {
+        if (recordNumber < 0 || recordNumber >= recordCount) {
+            throw new IndexOutOfBoundsException("Invalid record number: " + recordNumber);
+        }
+    }
+
+    static Optional<Path> findMemoFilePath(Path path) {
+        String fileName = path.getFileName().toString();
+        int extensionIndex = fileName.lastIndexOf('.');
+        String baseName = extensionIndex < 0 ? fileName : fileName.substring(0, extensionIndex);
+        return Stream.of(".adm", ".ADM")
+                .map(extension -> path.resolveSibling(baseName + extension))
+                .filter(Files::isRegularFile)
+                .findFirst();
+    }
+
+    private AdvantajeTableMetaData readMetaData() {
+        AdvantajeTableReader tableReader = new AdvantajeTableReader();
+        return tableReader.openTable(headerBuffer.duplicate().order(ByteOrder.LITTLE_ENDIAN), charset);
+    }
+
+    private MappedByteBuffer map(long position, long size) throws IOException {
+        MappedByteBuffer mappedByteBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        mappedByteBuffer.order(ByteOrder.LITTLE_ENDIAN);
+        return mappedByteBuffer;
+    }
+}
@@ -1,15 +1,28 @@
 package be.valuya.advantaje.core;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class AdvantajeTableMetaData {
 
     private final int recordCount;
     private List<AdvantajeField<?>> fields;
+    private final int headerLength;
+    private final int recordLength;
 
     public AdvantajeTableMetaData(int recordCount, List<AdvantajeField<?>> fields) {
+        this(recordCount, fields,
+                AdvantajeTableReader.TABLE_HEADER_LENGTH + fields.size() * AdvantajeTableReader.FIELD_HEADER_LENGTH,
+                AdvantajeTableReader.getRecordLength(fields));
+    }
+
+    public AdvantajeTableMetaData(int recordCount, List<AdvantajeField<?>> fields, int headerLength, int recordLength) {
         this.recordCount = recordCount;
         this.fields = fields;
+        this.headerLength = headerLength;
+        this.recordLength = recordLength;
     }
 
     public int getRecordCount() {
@@ -20,4 +33,42 @@ public class AdvantajeTableMetaData {
         return fields;
     }
 
+    public AdvantajeField<?> getField(String fieldName) {
+        return getFieldOptional(fieldName)
+                .orElseThrow(() -> new AdvantajeException("No such field: " + fieldName));
+    }
+
+    public Optional<AdvantajeField<?>> getFieldOptional(String fieldName) {
+        return fields.stream()
+                .filter(field -> field.getName().equals(fieldName))
+                .findFirst();
+    }
+
+    /**
+     * @param fieldNames The names of the fields to select, or none to select all fields
+     * @return The matching fields, in the requested order
+     */
+    public List<AdvantajeField<?>> selectFields(String... fieldNames) {
+        if (fieldNames.length == 0) {
+            return fields;
+        }
+        return Stream.of(fieldNames)
+                .map(this::getField)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return The offset of the first record in the table file
+     */
+    public int getHeaderLength() {
+        return headerLength;
+    }
+
+    /**
+     * @return The length of each record, including its header
+     */
+    public int getRecordLength() {
+        return recordLength;
+    }
+
 }
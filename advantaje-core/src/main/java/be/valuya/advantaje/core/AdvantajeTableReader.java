@@ -5,280 +5,209 @@ import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.time.temporal.JulianFields;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 public class AdvantajeTableReader {
-    private long offset;
+
+    /**
+     * Length of the table header, up to the first field header.
+     */
+    public static final int TABLE_HEADER_LENGTH = 0x190;
+    /**
+     * Length of each field header, following the table header.
+     */
+    public static final int FIELD_HEADER_LENGTH = 0xC8;
+    /**
+     * Length of the header preceding the field values in each record.
+     */
+    public static final int RECORD_HEADER_LENGTH = 5;
+    /**
+     * Flag set in the status byte starting deleted records.
+     */
+    public static final byte RECORD_DELETED_FLAG = 0x01;
+    /**
+     * Status byte of records written by this library.
+     */
+    public static final byte LIVE_RECORD_STATUS = 0x04;
+
+    /**
+     * String fields up to this length, like journal, currency or vat codes, are interned by default.
+     */
+    public static final int DEFAULT_INTERNED_MAX_LENGTH = 16;
+
+    private static final int FIELD_COUNT_OFFSET = 0x166;
+
+    /**
+     * The schema of the records read by the last call, reused while reading the same fields
+     */
+    private AdvantajeSchema lastSchema;
 
     public AdvantajeTableMetaData openTable(InputStream inputStream, Charset charset) {
-        offset = 0;
+        byte[] tableHeader = readBuffer(inputStream, TABLE_HEADER_LENGTH);
+        ByteBuffer tableHeaderBuffer = ByteBuffer.wrap(tableHeader).order(ByteOrder.LITTLE_ENDIAN);
+        int headerLength = getHeaderLength(tableHeaderBuffer);
+
+        byte[] fieldHeaders = readBuffer(inputStream, headerLength - TABLE_HEADER_LENGTH);
+        ByteBuffer headerBuffer = ByteBuffer.allocate(headerLength)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .put(tableHeader)
+                .put(fieldHeaders);
+        headerBuffer.flip();
+        return openTable(headerBuffer, charset);
+    }
+
+    /**
+     * Parse the table header from a little-endian buffer positioned at the start of the table.
+     */
+    public AdvantajeTableMetaData openTable(ByteBuffer headerBuffer, Charset charset) {
         List<AdvantajeField<?>> fields = new ArrayList<>();
-        readBuffer(inputStream, 0x18); // Advantage table headers
-        int recordCount = readInt(inputStream);
-        byte[] unknownB = readBuffer(inputStream, 0x14a);
-        short fieldCount = readShort(inputStream);
-        byte[] unknownC = readBuffer(inputStream, 0x28);
+        readBuffer(headerBuffer, 0x18); // Advantage table headers
+        int recordCount = readInt(headerBuffer);
+        byte[] unknownB = readBuffer(headerBuffer, 0x14a);
+        short fieldCount = readShort(headerBuffer);
+        byte[] unknownC = readBuffer(headerBuffer, 0x28);
 
         for (int i = 0; i < fieldCount; i++) {
-            String fieldName = readString(inputStream, 0x80, charset);
+            String fieldName = readString(headerBuffer, 0x80, charset);
 
-            byte unknown1 = readByte(inputStream);
-            int fieldTypeCode = readShort(inputStream);
+            byte unknown1 = readByte(headerBuffer);
+            int fieldTypeCode = readShort(headerBuffer);
             AdvantajeFieldType fieldType = AdvantajeFieldType.fromCode(fieldTypeCode);
-            int fieldStartOffset = readShort(inputStream);
-            int unknown2 = readShort(inputStream);
-            int fieldLength = readShort(inputStream);
-            byte[] unknown3 = readBuffer(inputStream, 0x3f);
+            int fieldStartOffset = readShort(headerBuffer);
+            int unknown2 = readShort(headerBuffer);
+            int fieldLength = readShort(headerBuffer);
+            byte[] unknown3 = readBuffer(headerBuffer, 0x3f);
 
             AdvantajeField field = new AdvantajeField(fieldName, fieldType);
             field.setLength(fieldLength);
+            field.setOffset(fieldStartOffset);
+            field.setInterned(isInternedByDefault(fieldType, fieldLength));
             fields.add(field);
         }
 
-        return new AdvantajeTableMetaData(recordCount, fields);
-    }
-
-
-    public AdvantajeRecord readNextLine(InputStream inputStream, List<AdvantajeField<?>> fields, Charset charset) {
-        // after last field
-        readByte(inputStream); // unknown
-        readInt(inputStream); // unknown
-        AdvantajeRecord advantajeRecord = new AdvantajeRecord();
-        fields.stream()
-                .map(field -> getAdvantajeValue(inputStream, field, charset))
-                .forEach(advantajeRecord::put);
-        return advantajeRecord;
+        int headerLength = TABLE_HEADER_LENGTH + fieldCount * FIELD_HEADER_LENGTH;
+        int recordLength = getRecordLength(fields);
+        return new AdvantajeTableMetaData(recordCount, fields, headerLength, recordLength);
     }
 
-    private <T> AdvantajeValue<T> getAdvantajeValue(InputStream inputStream, AdvantajeField<T> field, Charset charset) {
-        Optional<T> valueOptional = readValue(inputStream, field, charset);
-        return new AdvantajeValue<>(field, valueOptional);
-    }
-
-    private <T> Optional<T> readValue(InputStream inputStream, AdvantajeField<T> field, Charset charset) {
-        AdvantajeFieldType fieldType = field.getFieldType();
-        int length = field.getLength();
-//        System.out.println(fieldType + "(" + length + ") " + field.getName() + "@" + offset);
-        switch (fieldType) {
-            case LOGICAL: {
-                checkLength(length, 1);
-                return (Optional<T>) readBooleanOptional(inputStream);
-            }
-            case NUMERIC: {
-                checkLength(length, 2);
-                short shortValue = readShort(inputStream);
-                return (Optional<T>) Optional.of(shortValue);
-            }
-            case DATE: {
-                checkLength(length, 4);
-                return (Optional<T>) readIntegerOptional(inputStream)
-                        .flatMap(this::getDateFromIntOptional);
-            }
-            case STRING: {
-                String stringValue = readString(inputStream, length, charset);
-                return (Optional<T>) Optional.of(stringValue);
-            }
-            case MEMO:
-                break;
-            case BINARY: {
-                return (Optional<T>) readBufferOptional(inputStream, length);
-            }
-            case IMAGE: {
-                return (Optional<T>) readBufferOptional(inputStream, length);
-            }
-            case DOUBLE: {
-                checkLength(length, 8);
-                return (Optional<T>) readDoubleOptional(inputStream);
-            }
-            case INTEGER: {
-                checkLength(length, 4);
-                return (Optional<T>) readIntegerOptional(inputStream);
-            }
-            case SHORTINT: {
-                checkLength(length, 2);
-                return (Optional<T>) Optional.of(readShort(inputStream));
-            }
-            case TIME: {
-                checkLength(length, 4);
-                return (Optional<T>) readLocalTimeOptional(inputStream);
-            }
-            case TIMESTAMP: {
-                checkLength(length, 8);
-                return (Optional<T>) readLocalDateTimeOptional(inputStream);
-            }
-            case AUTOINC:
-                checkLength(length, 4);
-                return (Optional<T>) readIntegerOptional(inputStream);
-            case RAW: {
-                return (Optional<T>) readBufferOptional(inputStream, length);
-            }
-            case CURRENCY: {
-                checkLength(length, 8);
-                return (Optional<T>) readDoubleOptional(inputStream);
-            }
-            case MONEY: {
-                checkLength(length, 8);
-                return (Optional<T>) readLongOptional(inputStream);
-            }
-            case CISSTRING: {
-                String stringValue = readString(inputStream, length, charset);
-                return (Optional<T>) Optional.of(stringValue);
-            }
-            case RAWVERSION: {
-                checkLength(length, 4);
-                return (Optional<T>) readIntegerOptional(inputStream);
-            }
-            case MODTIME: {
-                checkLength(length, 8);
-                return (Optional<T>) readLocalTimeOptional(inputStream);
-            }
-            case VARCHAR_FOX: {
-                String stringValue = readVarString(inputStream, length, charset);
-                return (Optional<T>) Optional.of(stringValue);
-            }
-            case VARBINARY_FOX: {
-                return (Optional<T>) readBufferOptional(inputStream, length);
-            }
-            case NCHAR: {
-                String stringValue = readString(inputStream, length * 2, StandardCharsets.UTF_16LE);
-                return (Optional<T>) Optional.of(stringValue);
-            }
-            case NVARCHAR: {
-                String stringValue = readVarString(inputStream, length * 2 + 2, StandardCharsets.UTF_16LE);
-                return (Optional<T>) Optional.of(stringValue);
-            }
-            case NMEMO:
-                break;
-        }
-        throw new IllegalArgumentException("Unhandled field type: " + fieldType);
+    /**
+     * @param tableHeaderBuffer A little-endian buffer holding at least the {@link #TABLE_HEADER_LENGTH} first bytes of the table
+     * @return The length of the whole header, including the field headers
+     */
+    public static int getHeaderLength(ByteBuffer tableHeaderBuffer) {
+        short fieldCount = tableHeaderBuffer.getShort(FIELD_COUNT_OFFSET);
+        return TABLE_HEADER_LENGTH + fieldCount * FIELD_HEADER_LENGTH;
     }
 
-    private Optional<LocalDateTime> readLocalDateTimeOptional(InputStream inputStream) {
-        Optional<LocalDate> localDateOptional = readIntegerOptional(inputStream)
-                .flatMap(this::getDateFromIntOptional);
-        Optional<LocalTime> localTimeOptional = readLocalTimeOptional(inputStream);
-        return localDateOptional
-                .flatMap(localDate -> localTimeOptional.map(localTime -> addLocalTime(localDate, localTime)));
+    private static boolean isInternedByDefault(AdvantajeFieldType fieldType, int fieldLength) {
+        boolean stringField = fieldType == AdvantajeFieldType.STRING || fieldType == AdvantajeFieldType.CISSTRING;
+        return stringField && fieldLength <= DEFAULT_INTERNED_MAX_LENGTH;
     }
 
-    private Optional<LocalTime> readLocalTimeOptional(InputStream inputStream) {
-        return readIntegerOptional(inputStream)
-                .map(this::convertMillisToLocalTime);
+    /**
+     * @return Whether the record starting at recordOffset in the buffer is marked deleted, in its status byte
+     */
+    public static boolean isDeletedRecord(ByteBuffer buffer, int recordOffset) {
+        return (buffer.get(recordOffset) & RECORD_DELETED_FLAG) != 0;
     }
 
-    private LocalDateTime addLocalTime(LocalDate localDate, LocalTime localTime) {
-        return localDate.atTime(localTime);
+    public static int getRecordLength(List<AdvantajeField<?>> fields) {
+        return RECORD_HEADER_LENGTH + fields.stream()
+                .mapToInt(AdvantajeField::getStorageLength)
+                .sum();
     }
 
-    private LocalTime convertMillisToLocalTime(long millis) {
-        if (millis < 0) {
-            return LocalTime.MIN;
-        }
-        return LocalTime.ofNanoOfDay(millis * 1000L * 1000L);
+    /**
+     * @param fields All the fields of the table. The schema of the records is created once for successive calls with
+     *               the same fields and charset.
+     */
+    public AdvantajeRecord readNextLine(InputStream inputStream, List<AdvantajeField<?>> fields, Charset charset) {
+        return readNextLine(inputStream, getSchema(fields, charset));
     }
 
-    private void checkLength(int length, int i) {
-        if (length != i) {
-            throw new IllegalArgumentException();
-        }
+    /**
+     * @param schema The schema of the records, holding all the fields of the table
+     */
+    public AdvantajeRecord readNextLine(InputStream inputStream, AdvantajeSchema schema) {
+        int recordLength = getRecordLength(schema.getFields());
+        byte[] recordBytes = readBuffer(inputStream, recordLength);
+        ByteBuffer recordBuffer = ByteBuffer.wrap(recordBytes).order(ByteOrder.LITTLE_ENDIAN);
+        return readRecord(recordBuffer, 0, schema);
     }
 
-    private Optional<LocalDate> getDateFromIntOptional(int dateInt) {
-        if (dateInt == 0) {
-            return Optional.empty();
-        }
-        LocalDate localDate = LocalDate.MIN.with(JulianFields.JULIAN_DAY, dateInt);
-        return Optional.of(localDate);
+    /**
+     * Read the record starting at recordOffset in a little-endian buffer. The buffer position is modified. The schema
+     * of the records is created once for successive calls with the same fields and charset.
+     *
+     * @param fields The fields to read, which may be any subset of the table fields. Other fields are skipped.
+     */
+    public AdvantajeRecord readRecord(ByteBuffer buffer, int recordOffset, List<AdvantajeField<?>> fields, Charset charset) {
+        return readRecord(buffer, recordOffset, getSchema(fields, charset));
     }
 
-    private boolean readBoolean(InputStream inputStream) {
-        return readBooleanOptional(inputStream)
-                .orElseThrow(() -> new IllegalArgumentException("Missing expected boolean value"));
+    /**
+     * Read the record starting at recordOffset in a little-endian buffer. The buffer position is modified.
+     * Values are decoded when first accessed.
+     */
+    public AdvantajeRecord readRecord(ByteBuffer buffer, int recordOffset, AdvantajeSchema schema) {
+        return schema.createRecord(buffer, recordOffset);
     }
 
-    private Optional<Boolean> readBooleanOptional(InputStream inputStream) {
-        byte byteValue = readByte(inputStream);
-        if (byteValue == 'T') {
-            return Optional.of(true);
+    private AdvantajeSchema getSchema(List<AdvantajeField<?>> fields, Charset charset) {
+        AdvantajeSchema schema = lastSchema;
+        if (schema == null || schema.getCharset() != charset || !schema.getFields().equals(fields)) {
+            schema = new AdvantajeSchema(fields, charset);
+            lastSchema = schema;
         }
-        if (byteValue == 'F') {
-            return Optional.of(false);
-        }
-        return Optional.empty();
+        return schema;
     }
 
-    private String readString(InputStream inputStream, int size, Charset charset) {
-        byte[] buffer = readBuffer(inputStream, size);
-        String untrimmedString = new String(buffer, charset);
+    private String readString(ByteBuffer buffer, int size, Charset charset) {
+        byte[] bytes = readBuffer(buffer, size);
+        String untrimmedString = new String(bytes, charset);
         return untrimmedString.replace("\0", "").trim();
     }
 
-    /**
-     * Read a string field which store the string size at the end of the field.
-     */
-    private String readVarString(InputStream inputStream, int fieldSize, Charset charset) {
-        byte[] buffer = readBuffer(inputStream, fieldSize - 2);
-        String untrimmedString = new String(buffer, charset);
-        short size = readShort(inputStream);
-        return untrimmedString.substring(0, size).trim();
-    }
-
     public byte readByte(InputStream inputStream) {
         byte[] bytes = readBuffer(inputStream, 1);
         return bytes[0];
     }
 
-    private short readShort(InputStream inputStream) {
-        byte[] bytes = readBuffer(inputStream, 2);
-        ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-        return byteBuffer.order(ByteOrder.LITTLE_ENDIAN).getShort();
+    private byte readByte(ByteBuffer buffer) {
+        return buffer.get();
+    }
+
+    private short readShort(ByteBuffer buffer) {
+        return buffer.getShort();
     }
 
-    private int readInt(InputStream inputStream) {
-        return readIntegerOptional(inputStream)
+    private int readInt(ByteBuffer buffer) {
+        return readIntegerOptional(buffer)
                 .orElseThrow(() -> new IllegalArgumentException("Missing expected int value"));
     }
 
-    private Optional<Integer> readIntegerOptional(InputStream inputStream) {
-        byte[] bytes = readBuffer(inputStream, 4);
-        ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-        int intValue = byteBuffer.order(ByteOrder.LITTLE_ENDIAN).getInt();
+    private Optional<Integer> readIntegerOptional(ByteBuffer buffer) {
+        int intValue = buffer.getInt();
         if (intValue == Integer.MIN_VALUE || intValue == Integer.MAX_VALUE) {
             return Optional.empty();
         }
         return Optional.of(intValue);
     }
 
-    private Optional<Long> readLongOptional(InputStream inputStream) {
-        byte[] bytes = readBuffer(inputStream, 8);
-        ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-        long longValue = byteBuffer.order(ByteOrder.LITTLE_ENDIAN).getLong();
-//        if (intValue == Integer.MIN_VALUE || intValue == Integer.MAX_VALUE) {
-//            return Optional.empty();
-//        }
-        return Optional.of(longValue);
-    }
-
-    private double readDouble(InputStream inputStream) {
-        return readDoubleOptional(inputStream)
-                .orElseThrow(() -> new IllegalArgumentException("Missing expected double value"));
+    private byte[] readBuffer(ByteBuffer buffer, int size) {
+        return readBufferOptional(buffer, size)
+                .orElseThrow(() -> new RuntimeException("buffer underrun"));
     }
 
-    private Optional<Double> readDoubleOptional(InputStream inputStream) {
-        byte[] bytes = readBuffer(inputStream, 8);
-        ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-        double doubleValue = byteBuffer.order(ByteOrder.LITTLE_ENDIAN).getDouble();
-        if (doubleValue == -1.58E-322 || doubleValue == Double.MIN_VALUE || doubleValue == Double.MAX_VALUE) {
+    private Optional<byte[]> readBufferOptional(ByteBuffer buffer, int size) {
+        if (buffer.remaining() < size) {
             return Optional.empty();
         }
-        return Optional.of(doubleValue);
+        byte[] bytes = new byte[size];
+        buffer.get(bytes);
+        return Optional.of(bytes);
     }
 
     private byte[] readBuffer(InputStream inputStream, int size) {
@@ -289,8 +218,14 @@ public class AdvantajeTableReader {
     private Optional<byte[]> readBufferOptional(InputStream inputStream, int size) {
         try {
             byte[] buffer = new byte[size];
-            int readBytes = inputStream.read(buffer);
-            offset += readBytes;
+            int readBytes = 0;
+            while (readBytes < size) {
+                int chunkBytes = inputStream.read(buffer, readBytes, size - readBytes);
+                if (chunkBytes < 0) {
+                    break;
+                }
+                readBytes += chunkBytes;
+            }
             if (readBytes != size) {
                 return Optional.empty();
             }
@@ -0,0 +1,288 @@
+package be.valuya.advantaje.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Writes a table: its header, then fixed-length records, buffered in a large direct buffer. The header record count
+ * is written when the writer is closed.
+ * <p>
+ * Records read from a table are written by copying the bytes of their fields, unless another value was put. Memo
+ * fields reference the memo file of the table they were read from, which should be copied along.
+ */
+public class AdvantajeTableWriter implements Closeable {
+
+    private static final int WRITE_BUFFER_LENGTH = 1 << 20;
+    private static final String TABLE_SIGNATURE = "Advantage Table";
+    private static final int RECORD_COUNT_OFFSET = 0x18;
+    private static final int HEADER_LENGTH_OFFSET = 0x20;
+    private static final int RECORD_LENGTH_OFFSET = 0x24;
+    private static final int FIELD_COUNT_OFFSET = 0x166;
+    private static final int FIELD_NAME_LENGTH = 0x80;
+
+    private final Path path;
+    private final FileChannel fileChannel;
+    private final AdvantajeTableMetaData metaData;
+    private final List<AdvantajeField<?>> fields;
+    private final Charset charset;
+    private final int recordLength;
+    private final ByteBuffer writeBuffer;
+    private int recordCount;
+    private ByteBuffer sourceBuffer;
+    private ByteBuffer sourceView;
+
+    private AdvantajeTableWriter(Path path, FileChannel fileChannel, AdvantajeTableMetaData metaData, Charset charset,
+                                 ByteBuffer headerBuffer) throws IOException {
+        this.path = path;
+        this.fileChannel = fileChannel;
+        this.metaData = metaData;
+        this.fields = metaData.getFields();
+        this.charset = charset;
+        this.recordLength = metaData.getRecordLength();
+        int bufferRecordCount = Math.max(1, WRITE_BUFFER_LENGTH / recordLength);
+        this.writeBuffer = ByteBuffer.allocateDirect(bufferRecordCount * recordLength)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        writeFully(headerBuffer);
+    }
+
+    /**
+     * Create a table with a header holding the fields. Fields without offsets are laid out in order, in copies of the
+     * fields held by the metadata of this writer.
+     */
+    public static AdvantajeTableWriter create(Path path, AdvantajeTableMetaData metaData, Charset charset) {
+        List<AdvantajeField<?>> fields = metaData.getFields();
+        AdvantajeTableMetaData tableMetaData = metaData;
+        if (fields.stream().allMatch(field -> field.getOffset() == 0)) {
+            List<AdvantajeField<?>> laidOutFields = new ArrayList<>();
+            int fieldOffset = AdvantajeTableReader.RECORD_HEADER_LENGTH;
+            for (AdvantajeField<?> field : fields) {
+                laidOutFields.add(field.withOffset(fieldOffset));
+                fieldOffset += field.getStorageLength();
+            }
+            tableMetaData = new AdvantajeTableMetaData(metaData.getRecordCount(), laidOutFields);
+        }
+        ByteBuffer headerBuffer = createHeaderBuffer(tableMetaData, charset);
+        return create(path, tableMetaData, charset, headerBuffer);
+    }
+
+    /**
+     * Create a table with the header of another table, so that records read from that table can be copied.
+     */
+    public static AdvantajeTableWriter create(Path path, AdvantajeTableFile sourceTableFile) {
+        ByteBuffer headerBuffer = sourceTableFile.getHeaderBuffer();
+        return create(path, sourceTableFile.getMetaData(), sourceTableFile.getCharset(), headerBuffer);
+    }
+
+    private static AdvantajeTableWriter create(Path path, AdvantajeTableMetaData metaData, Charset charset, ByteBuffer headerBuffer) {
+        try {
+            FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                return new AdvantajeTableWriter(path, fileChannel, metaData, charset, headerBuffer);
+            } catch (IOException | RuntimeException exception) {
+                fileChannel.close();
+                throw exception;
+            }
+        } catch (IOException exception) {
+            throw new AdvantajeException("Error creating table " + path, exception);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public AdvantajeTableMetaData getMetaData() {
+        return metaData;
+    }
+
+    /**
+     * @return The number of records written
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Write a record holding the fields of this table. Missing values are written as null values. The record header
+     * holds the record number in the written table, as for raw records.
+     */
+    public void writeRecord(AdvantajeRecord record) {
+        int recordOffset = reserveRecord();
+        byte recordStatus = AdvantajeTableReader.LIVE_RECORD_STATUS;
+        if (record.isDeleted()) {
+            recordStatus |= AdvantajeTableReader.RECORD_DELETED_FLAG;
+        }
+        writeBuffer.put(recordOffset, recordStatus);
+        writeBuffer.putInt(recordOffset + 1, recordCount);
+        AdvantajeSchema recordSchema = record.getSchema();
+        for (AdvantajeField<?> field : fields) {
+            if (recordSchema == null) {
+                Object value = getValue(record.getValueMap(), field.getName());
+                AdvantajeFieldEncoders.encode(field, value, writeBuffer, recordOffset, charset);
+                continue;
+            }
+            int fieldIndex = recordSchema.getFieldIndex(field.getName());
+            if (fieldIndex < 0) {
+                AdvantajeFieldEncoders.encode(field, null, writeBuffer, recordOffset, charset);
+            } else if (record.isEncoded(fieldIndex) && hasSameEncoding(field, recordSchema.getField(fieldIndex), recordSchema.getCharset())) {
+                int recordBytesOffset = recordSchema.getRecordBytesOffset(fieldIndex);
+                writeBuffer.position(recordOffset + field.getOffset());
+                writeBuffer.put(record.getRecordBytes(), recordBytesOffset, field.getStorageLength());
+            } else {
+                Object value = record.getValueOptional(fieldIndex).orElse(null);
+                AdvantajeFieldEncoders.encode(field, value, writeBuffer, recordOffset, charset);
+            }
+        }
+        writeBuffer.position(recordOffset + recordLength);
+        recordCount++;
+    }
+
+    /**
+     * Write records in encounter order.
+     */
+    public void writeRecords(Stream<AdvantajeRecord> records) {
+        records.forEachOrdered(this::writeRecord);
+    }
+
+    /**
+     * Copy the bytes of a record of a table having the same record layout, without decoding it. The record number of
+     * the record header is replaced by the record number in the written table, as for decoded records.
+     */
+    public void writeRawRecord(ByteBuffer recordBuffer, int recordOffset) {
+        if (recordBuffer != sourceBuffer) {
+            sourceBuffer = recordBuffer;
+            sourceView = recordBuffer.duplicate();
+        }
+        int writeOffset = reserveRecord();
+        sourceView.limit(recordOffset + recordLength);
+        sourceView.position(recordOffset);
+        writeBuffer.put(sourceView);
+        writeBuffer.putInt(writeOffset + 1, recordCount);
+        writeBuffer.position(writeOffset + recordLength);
+        recordCount++;
+    }
+
+    /**
+     * Copy the records of a table having the same record layout, without decoding them.
+     *
+     * @param recordPredicate A predicate selecting the records to copy. May be null.
+     * @return The number of records copied
+     */
+    public int copyRecords(AdvantajeRecordSource recordSource, AdvantajeRecordPredicate recordPredicate) {
+        int copiedRecordCount = 0;
+        while (recordSource.next()) {
+            ByteBuffer recordBuffer = recordSource.getRecordBuffer();
+            int recordOffset = recordSource.getRecordOffset();
+            if (recordPredicate != null && !recordPredicate.test(recordBuffer, recordOffset)) {
+                continue;
+            }
+            writeRawRecord(recordBuffer, recordOffset);
+            copiedRecordCount++;
+        }
+        return copiedRecordCount;
+    }
+
+    /**
+     * Write the buffered records and the header record count, then close the file.
+     */
+    @Override
+    public void close() {
+        try {
+            flush();
+            ByteBuffer recordCountBuffer = ByteBuffer.allocate(4)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(0, recordCount);
+            while (recordCountBuffer.hasRemaining()) {
+                fileChannel.write(recordCountBuffer, RECORD_COUNT_OFFSET + recordCountBuffer.position());
+            }
+        } catch (IOException exception) {
+            throw new AdvantajeException("Error writing table " + path, exception);
+        } finally {
+            try {
+                fileChannel.close();
+            } catch (IOException exception) {
+                throw new AdvantajeException(exception);
+            }
+        }
+    }
+
+    /**
+     * @return The offset of a record in the write buffer, having room for it
+     */
+    private int reserveRecord() {
+        if (writeBuffer.remaining() < recordLength) {
+            try {
+                flush();
+            } catch (IOException exception) {
+                throw new AdvantajeException("Error writing table " + path, exception);
+            }
+        }
+        return writeBuffer.position();
+    }
+
+    private void flush() throws IOException {
+        writeBuffer.flip();
+        writeFully(writeBuffer);
+        writeBuffer.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            fileChannel.write(buffer);
+        }
+    }
+
+    private boolean hasSameEncoding(AdvantajeField<?> field, AdvantajeField<?> recordField, Charset recordCharset) {
+        return field.getFieldType() == recordField.getFieldType()
+                && field.getLength() == recordField.getLength()
+                && charset.equals(recordCharset);
+    }
+
+    private static Object getValue(Map<String, AdvantajeValue<?>> valueMap, String fieldName) {
+        AdvantajeValue<?> advantajeValue = valueMap.get(fieldName);
+        if (advantajeValue == null) {
+            return null;
+        }
+        return advantajeValue.getValueOptional().orElse(null);
+    }
+
+    /**
+     * Create a header holding the table signature, the record count, the header and record lengths and the fields.
+     * Other header bytes, unknown to this library, are zero.
+     */
+    private static ByteBuffer createHeaderBuffer(AdvantajeTableMetaData metaData, Charset charset) {
+        List<AdvantajeField<?>> fields = metaData.getFields();
+        int headerLength = AdvantajeTableReader.TABLE_HEADER_LENGTH + fields.size() * AdvantajeTableReader.FIELD_HEADER_LENGTH;
+        ByteBuffer headerBuffer = ByteBuffer.allocate(headerLength)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        headerBuffer.put(TABLE_SIGNATURE.getBytes(StandardCharsets.US_ASCII));
+        headerBuffer.putInt(RECORD_COUNT_OFFSET, 0);
+        headerBuffer.putInt(HEADER_LENGTH_OFFSET, headerLength);
+        headerBuffer.putInt(RECORD_LENGTH_OFFSET, metaData.getRecordLength());
+        headerBuffer.putShort(FIELD_COUNT_OFFSET, (short) fields.size());
+        for (int fieldIndex = 0; fieldIndex < fields.size(); fieldIndex++) {
+            AdvantajeField<?> field = fields.get(fieldIndex);
+            int fieldHeaderOffset = AdvantajeTableReader.TABLE_HEADER_LENGTH + fieldIndex * AdvantajeTableReader.FIELD_HEADER_LENGTH;
+            byte[] nameBytes = field.getName().getBytes(charset);
+            headerBuffer.position(fieldHeaderOffset);
+            headerBuffer.put(nameBytes, 0, Math.min(nameBytes.length, FIELD_NAME_LENGTH));
+            headerBuffer.putShort(fieldHeaderOffset + FIELD_NAME_LENGTH + 1, (short) field.getFieldType().getCode());
+            headerBuffer.putShort(fieldHeaderOffset + FIELD_NAME_LENGTH + 3, (short) field.getOffset());
+            headerBuffer.putShort(fieldHeaderOffset + FIELD_NAME_LENGTH + 7, (short) field.getLength());
+        }
+        headerBuffer.clear();
+        return headerBuffer;
+    }
+}
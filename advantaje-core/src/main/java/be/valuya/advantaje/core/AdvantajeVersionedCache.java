@@ -0,0 +1,194 @@
+package be.valuya.advantaje.core;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Values built from a table file, valid as long as the table file size and last-modified time are unchanged. Each value
+ * is built once, by the first caller requesting it, while other callers wait for it. Values are evicted, least
+ * recently used first, when their total byte size exceeds a budget. Thread-safe.
+ *
+ * @param <V> The cached values
+ */
+class AdvantajeVersionedCache<V> {
+
+    private final long maxByteSize;
+    private final ToLongFunction<V> byteSizeFunction;
+    private final Map<String, CacheEntry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedByteSize;
+
+    /**
+     * @param maxByteSize      The number of bytes the cached values may hold
+     * @param byteSizeFunction Computes the number of bytes held by a value
+     */
+    AdvantajeVersionedCache(long maxByteSize, ToLongFunction<V> byteSizeFunction) {
+        if (maxByteSize < 0) {
+            throw new IllegalArgumentException("Invalid cache byte size: " + maxByteSize);
+        }
+        this.maxByteSize = maxByteSize;
+        this.byteSizeFunction = byteSizeFunction;
+    }
+
+    static String getTableCacheKey(Path path, Charset charset) {
+        return path.toAbsolutePath().normalize() + "|" + charset.name() + "|";
+    }
+
+    static BasicFileAttributes readAttributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException exception) {
+            throw new AdvantajeException("Error reading attributes of " + path, exception);
+        }
+    }
+
+    /**
+     * @param cacheKey      The value key, starting with the {@link #getTableCacheKey(Path, Charset) table cache key}
+     * @param size          The current table file size
+     * @param lastModified  The current table file last-modified time
+     * @param valueSupplier Builds the value, when not cached or outdated
+     */
+    V get(String cacheKey, long size, long lastModified, Supplier<V> valueSupplier) {
+        CacheEntry<V> cacheEntry;
+        boolean builder = false;
+        synchronized (this) {
+            cacheEntry = entries.get(cacheKey);
+            if (cacheEntry == null || !cacheEntry.isValid(size, lastModified)) {
+                if (cacheEntry != null) {
+                    removeEntry(cacheKey);
+                }
+                cacheEntry = new CacheEntry<>(size, lastModified);
+                entries.put(cacheKey, cacheEntry);
+                builder = true;
+            }
+        }
+        if (builder) {
+            build(cacheKey, cacheEntry, valueSupplier);
+        }
+        return join(cacheEntry.future);
+    }
+
+    /**
+     * @return The value of a future, waiting for it, or rethrow the exception it completed with
+     */
+    static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw exception;
+        }
+    }
+
+    /**
+     * @return The number of cached values, including those being built
+     */
+    synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * @return The number of bytes held by the cached values
+     */
+    synchronized long getByteSize() {
+        return cachedByteSize;
+    }
+
+    /**
+     * Remove the values whose key starts with a prefix.
+     */
+    synchronized void invalidate(String cacheKeyPrefix) {
+        List<String> removedCacheKeys = new ArrayList<>();
+        for (String cacheKey : entries.keySet()) {
+            if (cacheKey.startsWith(cacheKeyPrefix)) {
+                removedCacheKeys.add(cacheKey);
+            }
+        }
+        removedCacheKeys.forEach(this::removeEntry);
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        cachedByteSize = 0;
+    }
+
+    private void build(String cacheKey, CacheEntry<V> cacheEntry, Supplier<V> valueSupplier) {
+        V value;
+        try {
+            value = valueSupplier.get();
+        } catch (RuntimeException | Error exception) {
+            synchronized (this) {
+                if (entries.get(cacheKey) == cacheEntry) {
+                    entries.remove(cacheKey);
+                }
+            }
+            cacheEntry.future.completeExceptionally(exception);
+            throw exception;
+        }
+        long byteSize = byteSizeFunction.applyAsLong(value);
+        synchronized (this) {
+            cacheEntry.future.complete(value);
+            if (entries.get(cacheKey) == cacheEntry) {
+                cacheEntry.byteSize = byteSize;
+                cachedByteSize += byteSize;
+                evict();
+            }
+        }
+    }
+
+    private void evict() {
+        Iterator<CacheEntry<V>> entryIterator = entries.values().iterator();
+        while (cachedByteSize > maxByteSize && entryIterator.hasNext()) {
+            CacheEntry<V> cacheEntry = entryIterator.next();
+            // Values being built have no byte size yet, and are kept for their waiting callers
+            if (cacheEntry.future.isDone()) {
+                cachedByteSize -= cacheEntry.byteSize;
+                entryIterator.remove();
+            }
+        }
+    }
+
+    private void removeEntry(String cacheKey) {
+        CacheEntry<V> cacheEntry = entries.remove(cacheKey);
+        if (cacheEntry != null) {
+            cachedByteSize -= cacheEntry.byteSize;
+        }
+    }
+
+    /**
+     * A value built from a table file version.
+     */
+    private static class CacheEntry<V> {
+
+        private final long size;
+        private final long lastModified;
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+        private long byteSize;
+
+        private CacheEntry(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        private boolean isValid(long size, long lastModified) {
+            return this.size == size && this.lastModified == lastModified;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package be.valuya.advantaje.core;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static be.valuya.advantaje.core.AdvantajeTestTables.CHARSET;
+import static be.valuya.advantaje.core.AdvantajeTestTables.RECORD_COUNT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Aggregates generated tables holding a field of each type, checking groups and aggregates against the generated
+ * values.
+ */
+@RunWith(Parameterized.class)
+public class AdvantajeAggregateTest {
+
+    private static final double DELTA = 1e-6;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AdvantajeFieldType fieldType;
+    private final int length;
+    private final AdvantajeService service = new AdvantajeService();
+    private Path tablePath;
+    private List<Object> values;
+
+    public AdvantajeAggregateTest(AdvantajeFieldType fieldType, int length) {
+        this.fieldType = fieldType;
+        this.length = length;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> getFieldTypes() {
+        return AdvantajeTestTables.getFieldTypes();
+    }
+
+    @Before
+    public void generateTable() throws IOException {
+        AdvantajeTableGenerator generator = AdvantajeTestTables.createGenerator(fieldType, length);
+        tablePath = temporaryFolder.newFile("values.adt").toPath();
+        generator.write(tablePath);
+        values = AdvantajeTestTables.getValues(generator);
+    }
+
+    @Test
+    public void testGroupBy() {
+        Map<Object, Long> expectedCounts = values.stream()
+                .map(this::toKeyValue)
+                .collect(Collectors.groupingBy(Optional::ofNullable, Collectors.counting()))
+                .entrySet().stream()
+                .collect(Collectors.toMap(entry -> entry.getKey().orElse(null), Map.Entry::getValue));
+
+        List<AdvantajeGroup> groups = service.aggregate(tablePath, CHARSET, null, Arrays.asList("VALUE"),
+                AdvantajeAggregate.count(), AdvantajeAggregate.sum("HID"));
+        Map<Object, Long> counts = new HashMap<>();
+        long idSum = 0;
+        for (AdvantajeGroup group : groups) {
+            Object keyValue = group.getKeyValueOptional(0).orElse(null);
+            assertFalse("Duplicate group " + keyValue, counts.containsKey(keyValue));
+            counts.put(keyValue, group.getCount());
+            assertEquals(group.getCount(), group.getLong(0));
+            idSum += group.getLong(1);
+        }
+        assertEquals(expectedCounts, counts);
+        assertEquals((long) RECORD_COUNT * (RECORD_COUNT + 1) / 2, idSum);
+        if (expectedCounts.containsKey(null)) {
+            // Nulls first
+            assertEquals(Collections.singletonList(null), groups.get(0).getKeyValues());
+        }
+    }
+
+    @Test
+    public void testAggregates() {
+        assumeTrue(isNumeric());
+        List<Number> numbers = values.stream()
+                .filter(Objects::nonNull)
+                .map(Number.class::cast)
+                .collect(Collectors.toList());
+
+        List<AdvantajeGroup> groups = service.aggregate(tablePath, CHARSET, null, Collections.emptyList(),
+                AdvantajeAggregate.count("VALUE"), AdvantajeAggregate.sum("VALUE"),
+                AdvantajeAggregate.min("VALUE"), AdvantajeAggregate.max("VALUE"));
+        assertEquals(1, groups.size());
+        AdvantajeGroup group = groups.get(0);
+        assertTrue(group.getKeyValues().isEmpty());
+        assertEquals(RECORD_COUNT, group.getCount());
+        assertEquals(numbers.size(), group.getLong(0));
+        if (AdvantajeRawValues.isFloatingPoint(fieldType)) {
+            assertEquals(numbers.stream().mapToDouble(Number::doubleValue).sum(), group.getDouble(1), DELTA);
+            assertEquals(numbers.stream().mapToDouble(Number::doubleValue).min().orElse(0), group.getDouble(2), DELTA);
+            assertEquals(numbers.stream().mapToDouble(Number::doubleValue).max().orElse(0), group.getDouble(3), DELTA);
+        } else {
+            assertEquals(numbers.stream().mapToLong(Number::longValue).sum(), group.getLong(1));
+            assertEquals(numbers.stream().mapToLong(Number::longValue).min().orElse(0), group.getLong(2));
+            assertEquals(numbers.stream().mapToLong(Number::longValue).max().orElse(0), group.getLong(3));
+        }
+    }
+
+    @Test
+    public void testFilteredAggregates() throws IOException {
+        int deletedRecordNumber = 0;
+        AdvantajeTestTables.markDeleted(tablePath, deletedRecordNumber);
+        AdvantajeFilter filter = AdvantajeFilter.range("HID", null, RECORD_COUNT / 2);
+
+        List<AdvantajeGroup> groups = service.aggregate(tablePath, CHARSET, filter, Collections.emptyList(),
+                AdvantajeAggregate.count("VALUE"), AdvantajeAggregate.min("HID"), AdvantajeAggregate.max("HID"));
+        // Deleted records are not aggregated
+        long expectedValueCount = values.subList(deletedRecordNumber + 1, RECORD_COUNT / 2).stream()
+                .filter(Objects::nonNull)
+                .count();
+        AdvantajeGroup group = groups.get(0);
+        assertEquals(RECORD_COUNT / 2 - 1, group.getCount());
+        assertEquals(expectedValueCount, group.getLong(0));
+        assertEquals(2, group.getLong(1));
+        assertEquals(RECORD_COUNT / 2, group.getLong(2));
+    }
+
+    @Test
+    public void testParallelAggregates() throws IOException {
+        assumeTrue(fieldType == AdvantajeFieldType.MONEY);
+        // Records are aggregated by several tasks, of which groups are merged
+        int recordCount = AdvantajeAggregator.TASK_RECORD_COUNT * 2 + 100;
+        AdvantajeTableGenerator generator = AdvantajeTestTables.createGenerator(fieldType, length);
+        generator.setRecordCount(recordCount);
+        generator.write(tablePath);
+        List<Object> generatedValues = AdvantajeTestTables.getValues(generator);
+        Map<Boolean, Long> expectedSums = generatedValues.stream()
+                .collect(Collectors.partitioningBy(value -> ((Long) value) % 2 == 0,
+                        Collectors.summingLong(value -> (Long) value)));
+
+        AdvantajeFilter evenFilter = AdvantajeFilter.in("VALUE", generatedValues.stream()
+                .filter(value -> ((Long) value) % 2 == 0)
+                .distinct()
+                .toArray());
+        List<AdvantajeGroup> groups = service.aggregate(tablePath, CHARSET, null, Collections.emptyList(),
+                AdvantajeAggregate.sum("VALUE"), AdvantajeAggregate.max("HID"));
+        assertEquals(recordCount, groups.get(0).getCount());
+        assertEquals(expectedSums.get(true) + expectedSums.get(false), groups.get(0).getLong(0));
+        assertEquals(recordCount, groups.get(0).getLong(1));
+
+        List<AdvantajeGroup> evenGroups = service.aggregate(tablePath, CHARSET, evenFilter, Collections.emptyList(),
+                AdvantajeAggregate.sum("VALUE"));
+        assertEquals((long) expectedSums.get(true), evenGroups.get(0).getLong(0));
+    }
+
+    @Test
+    public void testUnsupportedAggregate() {
+        assumeTrue(AdvantajeRawValues.isFixedString(fieldType));
+        try {
+            service.aggregate(tablePath, CHARSET, null, Collections.emptyList(), AdvantajeAggregate.sum("VALUE"));
+            fail("Summed a string field");
+        } catch (AdvantajeException exception) {
+            assertTrue(exception.getMessage(), exception.getMessage().startsWith("Unsupported field type: " + fieldType + " for "));
+        }
+    }
+
+    /**
+     * @return The key value of the group of a value: CISSTRING values are grouped ignoring case
+     */
+    private Object toKeyValue(Object value) {
+        if (fieldType == AdvantajeFieldType.CISSTRING && value != null) {
+            return ((String) value).toUpperCase();
+        }
+        return value;
+    }
+
+    private boolean isNumeric() {
+        switch (fieldType) {
+            case NUMERIC:
+            case SHORTINT:
+            case INTEGER:
+            case AUTOINC:
+            case RAWVERSION:
+            case MONEY:
+            case DOUBLE:
+            case CURRENCY:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
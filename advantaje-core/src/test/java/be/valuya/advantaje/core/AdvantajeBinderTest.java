@@ -0,0 +1,160 @@
+package be.valuya.advantaje.core;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static be.valuya.advantaje.core.AdvantajeTestTables.CHARSET;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AdvantajeBinderTest {
+
+    private static final int RECORD_COUNT = 500;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AdvantajeService service = new AdvantajeService();
+    private Path tablePath;
+    private List<AdvantajeRecord> records;
+
+    @Before
+    public void generateTable() throws IOException {
+        AdvantajeTableGenerator generator = AdvantajeTableGenerator.entryLines();
+        generator.setRecordCount(RECORD_COUNT);
+        generator.setNullRatio(0.2);
+        generator.setCharset(CHARSET);
+        tablePath = temporaryFolder.newFile("entries.adt").toPath();
+        generator.write(tablePath);
+        try (Stream<AdvantajeRecord> generatedRecords = generator.streamRecords()) {
+            records = generatedRecords.collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void testBindFields() {
+        List<EntryLine> entryLines;
+        try (Stream<EntryLine> boundEntryLines = service.streamTable(tablePath, CHARSET, EntryLine.class)) {
+            entryLines = boundEntryLines.collect(Collectors.toList());
+        }
+        assertEquals(RECORD_COUNT, entryLines.size());
+        for (int recordNumber = 0; recordNumber < RECORD_COUNT; recordNumber++) {
+            AdvantajeRecord record = records.get(recordNumber);
+            EntryLine entryLine = entryLines.get(recordNumber);
+            assertEquals(record.<Integer>getValue("HID").intValue(), entryLine.hid);
+            assertEquals(record.<String>getValue("ACCOUNT"), entryLine.account);
+            assertEquals(record.<Short>getValue("PERIOD").intValue(), entryLine.period);
+            assertEquals(record.getValueOptional("DATE").orElse(null), entryLine.date);
+            assertEquals(record.<Long>getValue("AMOUNT").longValue(), entryLine.amount);
+            assertEquals(record.getValueOptional("RATE").orElse(null), entryLine.rate);
+            assertEquals(record.<Boolean>getValueOptional("VALIDATED").orElse(false), entryLine.validated);
+            assertEquals(record.getValueOptional("CREATED").orElse(null), entryLine.created);
+        }
+    }
+
+    @Test
+    public void testBindConstructor() {
+        AdvantajeFilter filter = AdvantajeFilter.range("HID", RECORD_COUNT - 9, null);
+        List<EntryAmount> entryAmounts;
+        try (Stream<EntryAmount> boundEntryAmounts = service.streamTable(tablePath, CHARSET, filter, EntryAmount.class)) {
+            entryAmounts = boundEntryAmounts.collect(Collectors.toList());
+        }
+        assertEquals(10, entryAmounts.size());
+        for (EntryAmount entryAmount : entryAmounts) {
+            AdvantajeRecord record = records.get(entryAmount.id - 1);
+            assertEquals(record.getValueOptional("AMOUNT").orElse(null), entryAmount.amount);
+            assertEquals(record.getValueOptional("JOURNAL").orElse(null), entryAmount.journal);
+        }
+    }
+
+    @Test
+    public void testBindInvalidType() {
+        try (Stream<InvalidEntry> invalidEntries = service.streamTable(tablePath, CHARSET, InvalidEntry.class)) {
+            invalidEntries.count();
+            fail("Bound a DATE field to an int");
+        } catch (AdvantajeException exception) {
+            String message = exception.getCause().getMessage();
+            assertTrue(message, message.startsWith("Cannot bind DATE field DATE to "));
+        }
+    }
+
+    @Test
+    public void testBinderReusedForRecompiledPlan() {
+        AdvantajeSchema schema = createSchema(AdvantajeTableReader.RECORD_HEADER_LENGTH);
+        AdvantajeBinder<EntryAmount> binder = AdvantajeBinder.create(EntryAmount.class, schema);
+        // Evict the plan of the schema from the plan cache
+        for (int i = 0; i < AdvantajeDecodePlan.MAX_CACHED_PLAN_COUNT; i++) {
+            AdvantajeField<?> field = AdvantajeTestTables.createField("EVICTING" + i, AdvantajeFieldType.INTEGER, 4);
+            AdvantajeDecodePlan.compile(Arrays.asList(field), CHARSET);
+        }
+        AdvantajeSchema recompiledSchema = createSchema(AdvantajeTableReader.RECORD_HEADER_LENGTH);
+        assertNotSame(schema.getDecodePlan(), recompiledSchema.getDecodePlan());
+        assertSame(binder, AdvantajeBinder.create(EntryAmount.class, recompiledSchema));
+    }
+
+    @Test
+    public void testBinderCacheBounded() {
+        AdvantajeSchema schema = createSchema(AdvantajeTableReader.RECORD_HEADER_LENGTH + 1);
+        AdvantajeBinder<EntryAmount> binder = AdvantajeBinder.create(EntryAmount.class, schema);
+        assertSame(binder, AdvantajeBinder.create(EntryAmount.class, schema));
+        for (int i = 0; i < AdvantajeBinder.MAX_CACHED_BINDER_COUNT; i++) {
+            AdvantajeBinder.create(EntryAmount.class, createSchema(AdvantajeTableReader.RECORD_HEADER_LENGTH + 2 + i));
+        }
+        assertNotSame(binder, AdvantajeBinder.create(EntryAmount.class, schema));
+    }
+
+    /**
+     * @return A schema holding the fields bound to {@link EntryAmount}, the first one at an offset
+     */
+    private static AdvantajeSchema createSchema(int offset) {
+        AdvantajeField<?> idField = AdvantajeTestTables.createField("HID", AdvantajeFieldType.AUTOINC, 4).withOffset(offset);
+        AdvantajeField<?> amountField = AdvantajeTestTables.createField("AMOUNT", AdvantajeFieldType.MONEY, 8).withOffset(offset + 4);
+        AdvantajeField<?> journalField = AdvantajeTestTables.createField("JOURNAL", AdvantajeFieldType.CISSTRING, 4).withOffset(offset + 12);
+        return new AdvantajeSchema(Arrays.asList(idField, amountField, journalField), CHARSET);
+    }
+
+    private static class EntryLine {
+
+        private int hid;
+        private String account;
+        private int period;
+        private LocalDate date;
+        private long amount;
+        private Double rate;
+        private boolean validated;
+        private LocalDateTime created;
+    }
+
+    private static class EntryAmount {
+
+        private final int id;
+        private final Long amount;
+        private final String journal;
+
+        private EntryAmount(@AdvantajeFieldName("HID") int id, @AdvantajeFieldName("AMOUNT") Long amount,
+                            @AdvantajeFieldName("JOURNAL") String journal) {
+            this.id = id;
+            this.amount = amount;
+            this.journal = journal;
+        }
+    }
+
+    private static class InvalidEntry {
+
+        private int date;
+    }
+}
@@ -0,0 +1,199 @@
+package be.valuya.advantaje.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static be.valuya.advantaje.core.AdvantajeTestTables.CHARSET;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Replaces tables of a watched directory, checking the events published by the feed. Tables are written aside, then
+ * moved into the directory, so that the feed never reads a partially written table.
+ */
+public class AdvantajeChangeFeedTest {
+
+    private static final long EVENT_TIMEOUT_SECONDS = 10;
+    private static final long NO_EVENT_TIMEOUT_MILLIS = 200;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<AdvantajeField<?>> fields = Arrays.asList(
+            AdvantajeTestTables.createField("HID", AdvantajeFieldType.AUTOINC, 4),
+            AdvantajeTestTables.createField("AMOUNT", AdvantajeFieldType.INTEGER, 4));
+    private Path directory;
+    private Path tablePath;
+    private AdvantajeChangeFeed changeFeed;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = temporaryFolder.newFolder("dossier").toPath();
+        tablePath = directory.resolve("amounts.adt");
+    }
+
+    @After
+    public void closeChangeFeed() {
+        if (changeFeed != null) {
+            changeFeed.close();
+        }
+    }
+
+    @Test
+    public void testUpdate() throws IOException, InterruptedException {
+        int[] amounts = new int[300];
+        Arrays.fill(amounts, 10);
+        writeTable(tablePath, amounts);
+        changeFeed = new AdvantajeChangeFeed(directory, CHARSET).start();
+
+        amounts[200] = 20;
+        writeTable(tablePath, amounts);
+        AdvantajeChangeEvent event = takeEvents(1).get(0);
+        assertEquals(tablePath, event.getTablePath());
+        assertEquals(AdvantajeChangeType.UPDATED, event.getChange().getChangeType());
+        assertEquals(200, event.getChange().getRecordNumber());
+        AdvantajeRecord record = event.getChange().getRecordOptional()
+                .orElseThrow(AssertionError::new);
+        assertEquals(20, (int) record.<Integer>getValue("AMOUNT"));
+        assertNoEvent();
+    }
+
+    @Test
+    public void testInsertAndDelete() throws IOException, InterruptedException {
+        writeTable(tablePath, new int[]{10, 20, 30});
+        changeFeed = new AdvantajeChangeFeed(directory, CHARSET).start();
+
+        writeTable(tablePath, new int[]{10, 20, 30, 40, 50}, 1);
+        List<String> changes = describe(takeEvents(3));
+        assertEquals(Arrays.asList("DELETED 1", "INSERTED 3", "INSERTED 4"), changes);
+        assertNoEvent();
+
+        // Records removed from the end of the table are deleted
+        writeTable(tablePath, new int[]{10, 20});
+        assertEquals(Arrays.asList("UPDATED 1", "DELETED 2", "DELETED 3", "DELETED 4"), describe(takeEvents(4)));
+        assertNoEvent();
+    }
+
+    @Test
+    public void testTableCreatedAndRemoved() throws IOException, InterruptedException {
+        changeFeed = new AdvantajeChangeFeed(directory, CHARSET).start();
+
+        writeTable(tablePath, new int[]{10, 20});
+        assertEquals(Arrays.asList("INSERTED 0", "INSERTED 1"), describe(takeEvents(2)));
+
+        Files.delete(tablePath);
+        List<AdvantajeChangeEvent> events = takeEvents(2);
+        assertEquals(Arrays.asList("DELETED 0", "DELETED 1"), describe(events));
+        assertFalse(events.get(0).getChange().getRecordOptional().isPresent());
+        assertNoEvent();
+    }
+
+    @Test
+    public void testBackPressure() throws IOException, InterruptedException {
+        changeFeed = new AdvantajeChangeFeed(directory, CHARSET, 2).start();
+
+        int[] amounts = new int[100];
+        writeTable(tablePath, amounts);
+        // The feed waits for the consumer rather than dropping events
+        List<AdvantajeChangeEvent> events = takeEvents(amounts.length);
+        for (int recordNumber = 0; recordNumber < amounts.length; recordNumber++) {
+            assertEquals(recordNumber, events.get(recordNumber).getChange().getRecordNumber());
+        }
+        assertNoEvent();
+    }
+
+    @Test
+    public void testErrorHandler() throws IOException, InterruptedException {
+        Path brokenTablePath = directory.resolve("broken.adt");
+        Files.write(brokenTablePath, new byte[]{1, 2, 3});
+        List<AdvantajeException> exceptions = new CopyOnWriteArrayList<>();
+        changeFeed = new AdvantajeChangeFeed(directory, CHARSET);
+        changeFeed.setErrorHandler(exceptions::add);
+        changeFeed.start();
+        assertEquals(1, exceptions.size());
+
+        // Tables failing to be read are read again on their next modification
+        writeTable(brokenTablePath, new int[]{10});
+        AdvantajeChangeEvent event = takeEvents(1).get(0);
+        assertEquals(brokenTablePath, event.getTablePath());
+        assertEquals(AdvantajeChangeType.INSERTED, event.getChange().getChangeType());
+    }
+
+    @Test
+    public void testClose() throws InterruptedException {
+        changeFeed = new AdvantajeChangeFeed(directory, CHARSET).start();
+        changeFeed.close();
+        try {
+            changeFeed.poll(NO_EVENT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            fail("Polled a closed change feed");
+        } catch (AdvantajeException exception) {
+            assertEquals("Change feed closed: " + directory, exception.getMessage());
+        }
+        try {
+            changeFeed.take();
+            fail("Took an event from a closed change feed");
+        } catch (AdvantajeException exception) {
+            assertTrue(exception.getMessage().startsWith("Change feed closed: "));
+        }
+    }
+
+    private List<AdvantajeChangeEvent> takeEvents(int eventCount) throws InterruptedException {
+        List<AdvantajeChangeEvent> events = new ArrayList<>();
+        while (events.size() < eventCount) {
+            Optional<AdvantajeChangeEvent> eventOptional = changeFeed.poll(EVENT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            events.add(eventOptional.orElseThrow(() -> new AssertionError("Received " + events)));
+        }
+        return events;
+    }
+
+    private void assertNoEvent() throws InterruptedException {
+        Optional<AdvantajeChangeEvent> eventOptional = changeFeed.poll(NO_EVENT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertEquals(Optional.empty(), eventOptional);
+    }
+
+    /**
+     * Write a table aside, then move it to its path.
+     *
+     * @param deletedRecordNumbers The records to mark deleted
+     */
+    private void writeTable(Path path, int[] amounts, int... deletedRecordNumbers) throws IOException {
+        Path writtenPath = temporaryFolder.newFile().toPath();
+        AdvantajeTableMetaData metaData = new AdvantajeTableMetaData(0, fields);
+        try (AdvantajeTableWriter tableWriter = AdvantajeTableWriter.create(writtenPath, metaData, CHARSET)) {
+            for (int recordNumber = 0; recordNumber < amounts.length; recordNumber++) {
+                AdvantajeRecord record = new AdvantajeRecord();
+                record.put(new AdvantajeValue<Object>(fields.get(0), Optional.of(recordNumber + 1)));
+                record.put(new AdvantajeValue<Object>(fields.get(1), Optional.of(amounts[recordNumber])));
+                tableWriter.writeRecord(record);
+            }
+        }
+        for (int deletedRecordNumber : deletedRecordNumbers) {
+            AdvantajeTestTables.markDeleted(writtenPath, deletedRecordNumber);
+        }
+        Files.move(writtenPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static List<String> describe(List<AdvantajeChangeEvent> events) {
+        return events.stream()
+                .map(AdvantajeChangeEvent::getChange)
+                .map(change -> change.getChangeType() + " " + change.getRecordNumber())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,215 @@
+package be.valuya.advantaje.core;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static be.valuya.advantaje.core.AdvantajeTestTables.CHARSET;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Reads changes of tables rewritten between reads, each row holding a version and an amount, checking the changes
+ * detected from each checkpoint type.
+ */
+public class AdvantajeChangeReaderTest {
+
+    private static final LocalDateTime BASE_DATE_TIME = LocalDateTime.of(2020, 1, 1, 8, 0);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AdvantajeService service = new AdvantajeService();
+    private final List<AdvantajeField<?>> fields = Arrays.asList(
+            AdvantajeTestTables.createField("HID", AdvantajeFieldType.AUTOINC, 4),
+            AdvantajeTestTables.createField("VERSION", AdvantajeFieldType.RAWVERSION, 4),
+            AdvantajeTestTables.createField("MODIFIED", AdvantajeFieldType.MODTIME, 8),
+            AdvantajeTestTables.createField("AMOUNT", AdvantajeFieldType.INTEGER, 4));
+    private Path tablePath;
+
+    @Before
+    public void createTablePath() throws IOException {
+        tablePath = temporaryFolder.newFile("changes.adt").toPath();
+    }
+
+    @Test
+    public void testInitialRead() throws IOException {
+        writeTable(new int[][]{{1, 10}, {2, 20}, {3, 30}});
+        AdvantajeTestTables.markDeleted(tablePath, 1);
+
+        AdvantajeChangeSet changeSet = readChanges(AdvantajeCheckpoint.rowVersion("VERSION"), null);
+        // Records deleted before the initial checkpoint are not returned
+        assertEquals(Arrays.asList("INSERTED 0", "INSERTED 2"), describe(changeSet));
+        AdvantajeCheckpoint checkpoint = changeSet.getCheckpoint();
+        assertEquals(3, checkpoint.getRecordCount());
+        assertEquals(3, checkpoint.getMaxVersion());
+        assertEquals(Optional.of("VERSION"), checkpoint.getFieldNameOptional());
+
+        AdvantajeRecord record = changeSet.getChanges().get(1).getRecordOptional()
+                .orElseThrow(AssertionError::new);
+        assertEquals(30, (int) record.<Integer>getValue("AMOUNT"));
+    }
+
+    @Test
+    public void testRowVersion() throws IOException {
+        writeTable(new int[][]{{1, 10}, {2, 20}, {3, 30}, {4, 40}});
+        AdvantajeCheckpoint checkpoint = readChanges(AdvantajeCheckpoint.rowVersion("VERSION"), null).getCheckpoint();
+
+        writeTable(new int[][]{{1, 10}, {5, 21}, {3, 30}, {4, 40}, {6, 50}});
+        // Deleting a record does not change its version
+        AdvantajeTestTables.markDeleted(tablePath, 2);
+        AdvantajeChangeSet changeSet = readChanges(checkpoint, null);
+        assertEquals(Arrays.asList("UPDATED 1", "DELETED 2", "INSERTED 4"), describe(changeSet));
+        assertTrue(changeSet.getChanges().get(1).getRecordOptional()
+                .map(AdvantajeRecord::isDeleted)
+                .orElse(false));
+        assertEquals(6, changeSet.getCheckpoint().getMaxVersion());
+
+        assertEquals(0, readChanges(changeSet.getCheckpoint(), null).getChanges().size());
+    }
+
+    @Test
+    public void testModTime() throws IOException {
+        writeTable(new int[][]{{1, 10}, {2, 20}, {3, 30}});
+        AdvantajeCheckpoint checkpoint = readChanges(AdvantajeCheckpoint.modTime("MODIFIED"), null).getCheckpoint();
+        assertEquals(getModifiedMillis(3), checkpoint.getMaxVersion());
+
+        writeTable(new int[][]{{4, 11}, {2, 20}, {3, 30}});
+        AdvantajeChangeSet changeSet = readChanges(checkpoint, null);
+        assertEquals(Arrays.asList("UPDATED 0"), describe(changeSet));
+        assertEquals(getModifiedMillis(4), changeSet.getCheckpoint().getMaxVersion());
+    }
+
+    @Test
+    public void testRecordHash() throws IOException {
+        writeTable(new int[][]{{1, 10}, {2, 20}, {3, 30}});
+        AdvantajeCheckpoint checkpoint = readChanges(AdvantajeCheckpoint.recordHash(), null).getCheckpoint();
+        assertFalse(checkpoint.getFieldNameOptional().isPresent());
+
+        // Changes are detected without version change
+        writeTable(new int[][]{{1, 10}, {2, 21}, {3, 30}});
+        AdvantajeChangeSet changeSet = readChanges(checkpoint, null);
+        assertEquals(Arrays.asList("UPDATED 1"), describe(changeSet));
+        assertEquals(0, readChanges(changeSet.getCheckpoint(), null).getChanges().size());
+    }
+
+    @Test
+    public void testRemovedRecords() throws IOException {
+        writeTable(new int[][]{{1, 10}, {2, 20}, {3, 30}, {4, 40}});
+        AdvantajeTestTables.markDeleted(tablePath, 3);
+        AdvantajeCheckpoint checkpoint = readChanges(AdvantajeCheckpoint.rowVersion("VERSION"), null).getCheckpoint();
+
+        writeTable(new int[][]{{1, 10}, {2, 20}});
+        AdvantajeChangeSet changeSet = readChanges(checkpoint, null);
+        // Records removed from the end of the table are deleted without record, unless they were deleted already
+        assertEquals(Arrays.asList("DELETED 2"), describe(changeSet));
+        assertFalse(changeSet.getChanges().get(0).getRecordOptional().isPresent());
+        assertEquals(2, changeSet.getCheckpoint().getRecordCount());
+    }
+
+    @Test
+    public void testFilteredSelection() throws IOException {
+        AdvantajeFilter filter = AdvantajeFilter.range("AMOUNT", 20, null);
+        writeTable(new int[][]{{1, 10}, {2, 20}, {3, 30}});
+        AdvantajeChangeSet initialChangeSet = readChanges(AdvantajeCheckpoint.rowVersion("VERSION"), filter);
+        assertEquals(Arrays.asList("INSERTED 1", "INSERTED 2"), describe(initialChangeSet));
+
+        // Records entering the selection are inserted, records leaving it are deleted
+        writeTable(new int[][]{{4, 25}, {5, 15}, {3, 30}});
+        AdvantajeChangeSet changeSet = readChanges(initialChangeSet.getCheckpoint(), filter);
+        assertEquals(Arrays.asList("INSERTED 0", "DELETED 1"), describe(changeSet));
+        AdvantajeRecord leavingRecord = changeSet.getChanges().get(1).getRecordOptional()
+                .orElseThrow(AssertionError::new);
+        assertFalse(leavingRecord.isDeleted());
+        assertEquals(15, (int) leavingRecord.<Integer>getValue("AMOUNT"));
+    }
+
+    @Test
+    public void testProjectedFields() throws IOException {
+        writeTable(new int[][]{{1, 10}});
+        List<AdvantajeChange> changes = new ArrayList<>();
+        service.readChanges(tablePath, CHARSET, AdvantajeCheckpoint.recordHash(), null, changes::add, "AMOUNT");
+        AdvantajeRecord record = changes.get(0).getRecordOptional()
+                .orElseThrow(AssertionError::new);
+        assertEquals(Arrays.asList("AMOUNT"), new ArrayList<>(record.getValueMap().keySet()));
+    }
+
+    @Test
+    public void testInvalidVersionField() throws IOException {
+        writeTable(new int[][]{{1, 10}});
+        try {
+            readChanges(AdvantajeCheckpoint.modTime("AMOUNT"), null);
+            fail("Read modification times from an integer field");
+        } catch (AdvantajeException exception) {
+            assertEquals("Invalid field type INTEGER of field AMOUNT for MOD_TIME checkpoints", exception.getMessage());
+        }
+    }
+
+    @Test
+    public void testStoredCheckpoint() throws IOException, ClassNotFoundException {
+        writeTable(new int[][]{{1, 10}, {2, 20}});
+        AdvantajeCheckpoint checkpoint = readChanges(AdvantajeCheckpoint.recordHash(), null).getCheckpoint();
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+            objectOutputStream.writeObject(checkpoint);
+        }
+        AdvantajeCheckpoint storedCheckpoint;
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            storedCheckpoint = (AdvantajeCheckpoint) objectInputStream.readObject();
+        }
+        assertEquals(checkpoint.getRecordCount(), storedCheckpoint.getRecordCount());
+
+        writeTable(new int[][]{{1, 10}, {2, 22}});
+        assertEquals(Arrays.asList("UPDATED 1"), describe(readChanges(storedCheckpoint, null)));
+    }
+
+    private AdvantajeChangeSet readChanges(AdvantajeCheckpoint checkpoint, AdvantajeFilter filter) {
+        return service.readChanges(tablePath, CHARSET, checkpoint, filter);
+    }
+
+    /**
+     * Write the table, each row holding a version, from which the modification time is derived, and an amount.
+     */
+    private void writeTable(int[][] rows) {
+        AdvantajeTableMetaData metaData = new AdvantajeTableMetaData(0, fields);
+        try (AdvantajeTableWriter tableWriter = AdvantajeTableWriter.create(tablePath, metaData, CHARSET)) {
+            for (int recordNumber = 0; recordNumber < rows.length; recordNumber++) {
+                int version = rows[recordNumber][0];
+                AdvantajeRecord record = new AdvantajeRecord();
+                record.put(new AdvantajeValue<Object>(fields.get(0), Optional.of(recordNumber + 1)));
+                record.put(new AdvantajeValue<Object>(fields.get(1), Optional.of(version)));
+                record.put(new AdvantajeValue<Object>(fields.get(2), Optional.of(BASE_DATE_TIME.plusHours(version))));
+                record.put(new AdvantajeValue<Object>(fields.get(3), Optional.of(rows[recordNumber][1])));
+                tableWriter.writeRecord(record);
+            }
+        }
+    }
+
+    private static long getModifiedMillis(int version) {
+        LocalDateTime modified = BASE_DATE_TIME.plusHours(version);
+        return modified.toLocalDate().toEpochDay() * 24 * 60 * 60 * 1000 + modified.toLocalTime().toNanoOfDay() / 1000000;
+    }
+
+    private static List<String> describe(AdvantajeChangeSet changeSet) {
+        return changeSet.getChanges().stream()
+                .map(change -> change.getChangeType() + " " + change.getRecordNumber())
+                .collect(Collectors.toList());
+    }
+}
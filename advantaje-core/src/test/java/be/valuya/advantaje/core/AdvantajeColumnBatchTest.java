@@ -0,0 +1,179 @@
+package be.valuya.advantaje.core;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static be.valuya.advantaje.core.AdvantajeTestTables.CHARSET;
+import static be.valuya.advantaje.core.AdvantajeTestTables.RECORD_COUNT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Decodes generated tables holding a field of each type into column batches, checking the column values against the
+ * generated values.
+ */
+@RunWith(Parameterized.class)
+public class AdvantajeColumnBatchTest {
+
+    private static final int BATCH_CAPACITY = 100;
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AdvantajeFieldType fieldType;
+    private final int length;
+    private final AdvantajeService service = new AdvantajeService();
+    private Path tablePath;
+    private List<Object> values;
+
+    public AdvantajeColumnBatchTest(AdvantajeFieldType fieldType, int length) {
+        this.fieldType = fieldType;
+        this.length = length;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> getFieldTypes() {
+        return AdvantajeTestTables.getFieldTypes();
+    }
+
+    @Before
+    public void generateTable() throws IOException {
+        AdvantajeTableGenerator generator = AdvantajeTestTables.createGenerator(fieldType, length);
+        tablePath = temporaryFolder.newFile("values.adt").toPath();
+        generator.write(tablePath);
+        values = AdvantajeTestTables.getValues(generator);
+    }
+
+    @Test
+    public void testColumnBatch() {
+        List<Object> batchValues = new ArrayList<>();
+        try (AdvantajeCursor cursor = service.openCursor(tablePath, CHARSET)) {
+            AdvantajeColumnBatch batch = AdvantajeColumnBatch.create(cursor.getMetaData(), CHARSET, BATCH_CAPACITY, "VALUE");
+            assertEquals(1, batch.getColumnCount());
+            AdvantajeColumn column = batch.getColumn("VALUE");
+            int rowCount;
+            while ((rowCount = cursor.nextBatch(batch)) > 0) {
+                assertTrue(rowCount <= BATCH_CAPACITY);
+                for (int row = 0; row < rowCount; row++) {
+                    batchValues.add(readColumnValue(column, row));
+                }
+            }
+            assertEquals(0, batch.getSize());
+        }
+        assertEquals(values, batchValues);
+    }
+
+    @Test
+    public void testBatchReuse() {
+        try (AdvantajeCursor cursor = service.openCursor(tablePath, CHARSET)) {
+            AdvantajeColumnBatch batch = AdvantajeColumnBatch.create(cursor.getMetaData(), CHARSET, BATCH_CAPACITY);
+            assertEquals(2, batch.getColumnCount());
+            AdvantajeIntColumn idColumn = batch.getIntColumn("HID");
+            int[] ids = idColumn.getValues();
+            long[] nullBits = batch.getColumn("VALUE").getNullBits();
+            int batchCount = 0;
+            while (cursor.nextBatch(batch) > 0) {
+                // Each batch is decoded into the arrays of the previous one
+                assertSame(ids, idColumn.getValues());
+                assertSame(nullBits, batch.getColumn("VALUE").getNullBits());
+                for (int row = 0; row < batch.getSize(); row++) {
+                    assertEquals(batchCount * BATCH_CAPACITY + row + 1, ids[row]);
+                }
+                batchCount++;
+            }
+            assertEquals(RECORD_COUNT / BATCH_CAPACITY, batchCount);
+        }
+    }
+
+    @Test
+    public void testFilteredBatch() {
+        AdvantajeFilter filter = AdvantajeFilter.range("HID", RECORD_COUNT / 2 + 1, null);
+        List<Object> batchValues = new ArrayList<>();
+        try (AdvantajeCursor cursor = service.openCursor(tablePath, CHARSET, filter)) {
+            AdvantajeColumnBatch batch = AdvantajeColumnBatch.create(cursor.getMetaData(), CHARSET, BATCH_CAPACITY - 1, "VALUE");
+            AdvantajeColumn column = batch.getColumn(0);
+            while (cursor.nextBatch(batch) > 0) {
+                for (int row = 0; row < batch.getSize(); row++) {
+                    batchValues.add(readColumnValue(column, row));
+                }
+            }
+        }
+        assertEquals(values.subList(RECORD_COUNT / 2, RECORD_COUNT), batchValues);
+    }
+
+    @Test
+    public void testColumnType() {
+        try (AdvantajeCursor cursor = service.openCursor(tablePath, CHARSET)) {
+            AdvantajeColumnBatch batch = AdvantajeColumnBatch.create(cursor.getMetaData(), CHARSET, BATCH_CAPACITY);
+            assumeTrue(batch.getColumn("VALUE") instanceof AdvantajeStringColumn);
+            assertSame(batch.getColumn("VALUE"), batch.getStringColumn("VALUE"));
+            try {
+                batch.getIntColumn("VALUE");
+                fail("Read a string column as int column");
+            } catch (AdvantajeException exception) {
+                assertEquals("Column VALUE is not a AdvantajeIntColumn", exception.getMessage());
+            }
+            try {
+                batch.getColumn("MISSING");
+                fail("Found a column for a missing field");
+            } catch (AdvantajeException exception) {
+                assertEquals("No such column: MISSING", exception.getMessage());
+            }
+        }
+    }
+
+    private Object readColumnValue(AdvantajeColumn column, int row) {
+        if (column instanceof AdvantajeStringColumn) {
+            return ((AdvantajeStringColumn) column).getValue(row);
+        }
+        if (column.isNull(row)) {
+            return null;
+        }
+        if (column instanceof AdvantajeDoubleColumn) {
+            return ((AdvantajeDoubleColumn) column).getValue(row);
+        }
+        if (column instanceof AdvantajeLongColumn) {
+            long longValue = ((AdvantajeLongColumn) column).getValue(row);
+            if (fieldType == AdvantajeFieldType.TIMESTAMP) {
+                LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(longValue, MILLIS_PER_DAY));
+                return date.atTime(getTime((int) Math.floorMod(longValue, MILLIS_PER_DAY)));
+            }
+            return longValue;
+        }
+        int intValue = ((AdvantajeIntColumn) column).getValue(row);
+        switch (fieldType) {
+            case LOGICAL:
+                return intValue == 1;
+            case NUMERIC:
+            case SHORTINT:
+                return (short) intValue;
+            case DATE:
+                return LocalDate.ofEpochDay(intValue);
+            case TIME:
+            case MODTIME:
+                return getTime(intValue);
+            default:
+                return intValue;
+        }
+    }
+
+    private static LocalTime getTime(int millis) {
+        return LocalTime.ofNanoOfDay(millis * 1000000L);
+    }
+}
@@ -0,0 +1,157 @@
+package be.valuya.advantaje.core;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.CharBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static be.valuya.advantaje.core.AdvantajeTestTables.CHARSET;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+@RunWith(Parameterized.class)
+public class AdvantajeCursorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AdvantajeFieldType fieldType;
+    private final int length;
+    private final AdvantajeService service = new AdvantajeService();
+    private Path tablePath;
+    private List<Object> values;
+
+    public AdvantajeCursorTest(AdvantajeFieldType fieldType, int length) {
+        this.fieldType = fieldType;
+        this.length = length;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> getFieldTypes() {
+        return AdvantajeTestTables.getFieldTypes();
+    }
+
+    @Before
+    public void generateTable() throws IOException {
+        AdvantajeTableGenerator generator = AdvantajeTestTables.createGenerator(fieldType, length);
+        tablePath = temporaryFolder.newFile("values.adt").toPath();
+        generator.write(tablePath);
+        values = AdvantajeTestTables.getValues(generator);
+    }
+
+    @Test
+    public void testCursor() {
+        assertEquals(values, readCursorValues(tablePath));
+    }
+
+    @Test
+    public void testCursorInputStream() throws IOException {
+        List<Object> cursorValues = new ArrayList<>();
+        try (InputStream inputStream = Files.newInputStream(tablePath);
+             AdvantajeCursor cursor = service.openCursor(inputStream, CHARSET)) {
+            int fieldIndex = cursor.getFieldIndex("VALUE");
+            while (cursor.next()) {
+                cursorValues.add(readCursorValue(cursor, fieldIndex));
+            }
+        }
+        assertEquals(values, cursorValues);
+    }
+
+    @Test
+    public void testNullChars() throws IOException {
+        assumeTrue(fieldType == AdvantajeFieldType.STRING || fieldType == AdvantajeFieldType.CISSTRING
+                || fieldType == AdvantajeFieldType.NCHAR);
+        List<String> writtenValues = Arrays.asList("A\0B", " \0A\0\0B C\0", "\0\0", "AB");
+        Path nullCharsPath = temporaryFolder.newFile("nulls.adt").toPath();
+        List<AdvantajeField<?>> fields = Arrays.asList(
+                AdvantajeTestTables.createField("HID", AdvantajeFieldType.AUTOINC, 4),
+                AdvantajeTestTables.createField("VALUE", fieldType, length));
+        AdvantajeTableMetaData metaData = new AdvantajeTableMetaData(0, fields);
+        try (AdvantajeTableWriter tableWriter = AdvantajeTableWriter.create(nullCharsPath, metaData, CHARSET)) {
+            for (int recordNumber = 0; recordNumber < writtenValues.size(); recordNumber++) {
+                AdvantajeRecord record = new AdvantajeRecord();
+                record.put(new AdvantajeValue<Object>(fields.get(0), Optional.of(recordNumber + 1)));
+                record.put(new AdvantajeValue<Object>(fields.get(1), Optional.of(writtenValues.get(recordNumber))));
+                tableWriter.writeRecord(record);
+            }
+        }
+
+        List<Object> streamValues = AdvantajeTestTables.readValues(service, nullCharsPath);
+        assertEquals(Arrays.asList("AB", "AB C", "", "AB"), streamValues);
+        assertEquals(streamValues, readCursorValues(nullCharsPath));
+    }
+
+    private List<Object> readCursorValues(Path path) {
+        List<Object> cursorValues = new ArrayList<>();
+        try (AdvantajeCursor cursor = service.openCursor(path, CHARSET)) {
+            int fieldIndex = cursor.getFieldIndex("VALUE");
+            while (cursor.next()) {
+                cursorValues.add(readCursorValue(cursor, fieldIndex));
+            }
+        }
+        return cursorValues;
+    }
+
+    private Object readCursorValue(AdvantajeCursor cursor, int fieldIndex) {
+        switch (fieldType) {
+            case NUMERIC:
+            case SHORTINT:
+                return (short) cursor.getInt(fieldIndex);
+            case MONEY:
+                return cursor.getLong(fieldIndex);
+            case STRING:
+            case CISSTRING:
+            case NCHAR: {
+                CharBuffer charBuffer = CharBuffer.allocate(length);
+                int charCount = cursor.getString(fieldIndex, charBuffer);
+                charBuffer.flip();
+                assertEquals(charCount, charBuffer.remaining());
+                return charBuffer.toString();
+            }
+            default:
+        }
+        if (cursor.isNull(fieldIndex)) {
+            return null;
+        }
+        switch (fieldType) {
+            case LOGICAL:
+                return cursor.getBoolean(fieldIndex);
+            case DATE:
+                return LocalDate.ofEpochDay(cursor.getEpochDay(fieldIndex));
+            case DOUBLE:
+            case CURRENCY:
+                return cursor.getDouble(fieldIndex);
+            case INTEGER:
+            case AUTOINC:
+            case RAWVERSION:
+                return cursor.getInt(fieldIndex);
+            case TIME:
+            case MODTIME:
+                return getTime(cursor.getMillisOfDay(fieldIndex));
+            case TIMESTAMP:
+                return LocalDate.ofEpochDay(cursor.getEpochDay(fieldIndex))
+                        .atTime(getTime(cursor.getMillisOfDay(fieldIndex)));
+            default:
+                throw new AssertionError(fieldType);
+        }
+    }
+
+    private static LocalTime getTime(int millis) {
+        return LocalTime.ofNanoOfDay(millis * 1000000L);
+    }
+}
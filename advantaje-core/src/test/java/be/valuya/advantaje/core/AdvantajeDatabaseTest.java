@@ -0,0 +1,138 @@
+package be.valuya.advantaje.core;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static be.valuya.advantaje.core.AdvantajeTestTables.CHARSET;
+import static be.valuya.advantaje.core.AdvantajeTestTables.RECORD_COUNT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AdvantajeDatabaseTest {
+
+    private static final List<String> TABLE_NAMES = Arrays.asList("amounts", "dates", "names", "rates", "times");
+    private static final int TABLE_CONCURRENCY = 2;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path directory;
+
+    @Before
+    public void generateTables() throws IOException {
+        directory = temporaryFolder.newFolder("dossier").toPath();
+        List<AdvantajeFieldType> fieldTypes = Arrays.asList(AdvantajeFieldType.MONEY, AdvantajeFieldType.DATE,
+                AdvantajeFieldType.STRING, AdvantajeFieldType.DOUBLE, AdvantajeFieldType.TIME);
+        List<Integer> lengths = Arrays.asList(8, 4, 20, 8, 4);
+        for (int tableIndex = 0; tableIndex < TABLE_NAMES.size(); tableIndex++) {
+            AdvantajeTableGenerator generator = AdvantajeTestTables.createGenerator(fieldTypes.get(tableIndex), lengths.get(tableIndex));
+            generator.setRecordCount(RECORD_COUNT + tableIndex);
+            generator.write(directory.resolve(TABLE_NAMES.get(tableIndex) + ".adt"));
+        }
+        Files.write(directory.resolve("broken.adt"), new byte[]{1, 2, 3});
+        Files.write(directory.resolve("notes.txt"), new byte[]{1, 2, 3});
+    }
+
+    @Test
+    public void testOpen() {
+        try (AdvantajeDatabase database = AdvantajeDatabase.open(directory, CHARSET)) {
+            assertEquals(TABLE_NAMES, new ArrayList<>(database.getTableNames()));
+            assertEquals(Collections.singleton("broken"), database.getTableFailures().keySet());
+            assertEquals(RECORD_COUNT + 2, database.getTableMetaData("NAMES").getRecordCount());
+            assertEquals(directory.resolve("names.adt"), database.getTablePath("Names"));
+            try {
+                database.getTableMetaData("notes");
+                fail("Found a table for a file without table extension");
+            } catch (AdvantajeException exception) {
+                assertEquals("No such table: notes", exception.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testOpenWithMetaDataCache() {
+        AdvantajeMetaDataCache metaDataCache = new AdvantajeMetaDataCache();
+        try (AdvantajeDatabase database = AdvantajeDatabase.open(directory, CHARSET, metaDataCache)) {
+            assertEquals(TABLE_NAMES.size(), database.getTableNames().size());
+            assertEquals(TABLE_NAMES.size(), metaDataCache.getSize());
+        }
+    }
+
+    @Test
+    public void testProcessTables() {
+        Map<String, Long> completedCounts = new ConcurrentHashMap<>();
+        Map<String, Long> counts;
+        try (AdvantajeDatabase database = AdvantajeDatabase.open(directory, CHARSET, TABLE_CONCURRENCY)) {
+            counts = database.processTables(TABLE_NAMES, Stream::count, completedCounts::put)
+                    .join();
+        }
+        assertEquals(TABLE_NAMES, new ArrayList<>(counts.keySet()));
+        for (int tableIndex = 0; tableIndex < TABLE_NAMES.size(); tableIndex++) {
+            assertEquals(RECORD_COUNT + tableIndex, (long) counts.get(TABLE_NAMES.get(tableIndex)));
+        }
+        assertEquals(counts, completedCounts);
+    }
+
+    @Test
+    public void testOwnedExecutorTableConcurrency() {
+        try (AdvantajeDatabase database = AdvantajeDatabase.open(directory, CHARSET, TABLE_CONCURRENCY)) {
+            assertTableConcurrency(database);
+        }
+    }
+
+    @Test
+    public void testExecutorTableConcurrency() throws InterruptedException {
+        ExecutorService executorService = Executors.newCachedThreadPool();
+        try (AdvantajeDatabase database = AdvantajeDatabase.open(directory, CHARSET, executorService, TABLE_CONCURRENCY)) {
+            assertTableConcurrency(database);
+        } finally {
+            executorService.shutdown();
+        }
+        assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Check that no more tables than the database concurrency are processed at the same time, table processors
+     * included.
+     */
+    private static void assertTableConcurrency(AdvantajeDatabase database) {
+        AtomicInteger processedTableCount = new AtomicInteger();
+        AtomicInteger maxProcessedTableCount = new AtomicInteger();
+        Function<Stream<AdvantajeRecord>, Long> tableProcessor = records -> {
+            int tableCount = processedTableCount.incrementAndGet();
+            maxProcessedTableCount.accumulateAndGet(tableCount, Math::max);
+            try {
+                Thread.sleep(50);
+                return records.count();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(exception);
+            } finally {
+                processedTableCount.decrementAndGet();
+            }
+        };
+        database.processTables(TABLE_NAMES, tableProcessor, null)
+                .join();
+        assertTrue(maxProcessedTableCount.get() + " tables processed at the same time",
+                maxProcessedTableCount.get() <= TABLE_CONCURRENCY);
+    }
+}
@@ -0,0 +1,85 @@
+package be.valuya.advantaje.core;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks encoded bytes against the file format, so that a layout error shared by the encoders and decoders does not
+ * go unnoticed by round trips.
+ */
+public class AdvantajeFieldEncodersTest {
+
+    private static final int JULIAN_DAY_2000_01_01 = 2451545;
+    private static final LocalDate DATE = LocalDate.of(2000, 1, 2);
+    private static final LocalTime TIME = LocalTime.of(1, 2, 3, 4000000);
+    private static final int TIME_MILLIS = ((60 + 2) * 60 + 3) * 1000 + 4;
+
+    @Test
+    public void testDate() {
+        ByteBuffer buffer = encode(AdvantajeFieldType.DATE, 4, DATE);
+        assertEquals(JULIAN_DAY_2000_01_01 + 1, buffer.getInt(0));
+        assertEquals(0, encode(AdvantajeFieldType.DATE, 4, null).getInt(0));
+    }
+
+    @Test
+    public void testTime() {
+        ByteBuffer buffer = encode(AdvantajeFieldType.TIME, 4, TIME);
+        assertEquals(TIME_MILLIS, buffer.getInt(0));
+        assertEquals(Integer.MIN_VALUE, encode(AdvantajeFieldType.TIME, 4, null).getInt(0));
+    }
+
+    @Test
+    public void testTimestamp() {
+        ByteBuffer buffer = encode(AdvantajeFieldType.TIMESTAMP, 8, LocalDateTime.of(DATE, TIME));
+        assertEquals(JULIAN_DAY_2000_01_01 + 1, buffer.getInt(0));
+        assertEquals(TIME_MILLIS, buffer.getInt(4));
+    }
+
+    @Test
+    public void testModTime() {
+        ByteBuffer buffer = encode(AdvantajeFieldType.MODTIME, 8, LocalDateTime.of(DATE, TIME));
+        assertEquals(TIME_MILLIS, buffer.getInt(0));
+        assertEquals(JULIAN_DAY_2000_01_01 + 1, buffer.getInt(4));
+    }
+
+    @Test
+    public void testNumbers() {
+        assertEquals(-12, encode(AdvantajeFieldType.SHORTINT, 2, (short) -12).getShort(0));
+        assertEquals(123456, encode(AdvantajeFieldType.INTEGER, 4, 123456).getInt(0));
+        assertEquals(Integer.MIN_VALUE, encode(AdvantajeFieldType.INTEGER, 4, null).getInt(0));
+        assertEquals(-1234500L, encode(AdvantajeFieldType.MONEY, 8, -1234500L).getLong(0));
+        assertEquals(12.5, encode(AdvantajeFieldType.DOUBLE, 8, 12.5).getDouble(0), 0);
+        assertEquals(AdvantajeRawValues.DOUBLE_NULL_VALUE, encode(AdvantajeFieldType.DOUBLE, 8, null).getDouble(0), 0);
+    }
+
+    @Test
+    public void testLogical() {
+        assertEquals('T', encode(AdvantajeFieldType.LOGICAL, 1, true).get(0));
+        assertEquals('F', encode(AdvantajeFieldType.LOGICAL, 1, false).get(0));
+        assertEquals(' ', encode(AdvantajeFieldType.LOGICAL, 1, null).get(0));
+    }
+
+    @Test
+    public void testStrings() {
+        assertArrayEquals("AB  ".getBytes(StandardCharsets.ISO_8859_1), encode(AdvantajeFieldType.STRING, 4, "AB").array());
+        assertArrayEquals(new byte[]{'A', 0, 'B', 0, ' ', 0}, encode(AdvantajeFieldType.NCHAR, 3, "AB").array());
+    }
+
+    private static ByteBuffer encode(AdvantajeFieldType fieldType, int length, Object value) {
+        AdvantajeField<?> field = new AdvantajeField<>("VALUE", fieldType);
+        field.setLength(length);
+        ByteBuffer buffer = ByteBuffer.allocate(field.getStorageLength())
+                .order(ByteOrder.LITTLE_ENDIAN);
+        AdvantajeFieldEncoders.encode(field, value, buffer, 0, StandardCharsets.ISO_8859_1);
+        return buffer;
+    }
+}
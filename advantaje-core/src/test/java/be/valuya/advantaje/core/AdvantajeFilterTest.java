@@ -0,0 +1,201 @@
+package be.valuya.advantaje.core;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static be.valuya.advantaje.core.AdvantajeTestTables.CHARSET;
+import static be.valuya.advantaje.core.AdvantajeTestTables.RECORD_COUNT;
+import static be.valuya.advantaje.core.AdvantajeTestTables.compareFilterValues;
+import static be.valuya.advantaje.core.AdvantajeTestTables.toFilterValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Filters generated tables on a field of each filterable type, checking the records matched on raw bytes against the
+ * generated values.
+ */
+@RunWith(Parameterized.class)
+public class AdvantajeFilterTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AdvantajeFieldType fieldType;
+    private final int length;
+    private final AdvantajeService service = new AdvantajeService();
+    private Path tablePath;
+    private List<Object> values;
+
+    public AdvantajeFilterTest(AdvantajeFieldType fieldType, int length) {
+        this.fieldType = fieldType;
+        this.length = length;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> getFieldTypes() {
+        return AdvantajeTestTables.getFilterableFieldTypes();
+    }
+
+    @Before
+    public void generateTable() throws IOException {
+        AdvantajeTableGenerator generator = AdvantajeTestTables.createGenerator(fieldType, length);
+        tablePath = temporaryFolder.newFile("values.adt").toPath();
+        generator.write(tablePath);
+        values = AdvantajeTestTables.getValues(generator);
+    }
+
+    @Test
+    public void testEqualTo() {
+        Object filterValue = getFirstValue();
+        AdvantajeFilter filter = AdvantajeFilter.equalTo("VALUE", toFilterValue(filterValue));
+        List<Integer> expectedIds = getIds(recordNumber -> isEqualValue(values.get(recordNumber), filterValue));
+        assertFalse(expectedIds.isEmpty());
+        assertEquals(expectedIds, streamIds(filter));
+        assertEquals(expectedIds, readCursorIds(filter));
+    }
+
+    @Test
+    public void testIn() {
+        Object firstValue = getFirstValue();
+        Object lastValue = values.get(getLastValueRecordNumber());
+        AdvantajeFilter filter = AdvantajeFilter.in("VALUE", toFilterValue(firstValue), toFilterValue(lastValue));
+        List<Integer> expectedIds = getIds(recordNumber -> isEqualValue(values.get(recordNumber), firstValue)
+                || isEqualValue(values.get(recordNumber), lastValue));
+        assertEquals(expectedIds, streamIds(filter));
+    }
+
+    @Test
+    public void testNot() {
+        Object filterValue = getFirstValue();
+        AdvantajeFilter filter = AdvantajeFilter.not(AdvantajeFilter.equalTo("VALUE", toFilterValue(filterValue)));
+        // Null values match neither the filter nor its negation
+        List<Integer> expectedIds = getIds(recordNumber -> values.get(recordNumber) != null
+                && !isEqualValue(values.get(recordNumber), filterValue));
+        assertEquals(expectedIds, streamIds(filter));
+        assertEquals(expectedIds, readCursorIds(filter));
+        assertEquals(expectedIds, streamIds(AdvantajeFilter.not(AdvantajeFilter.not(filter))));
+    }
+
+    @Test
+    public void testRange() {
+        assumeTrue(fieldType != AdvantajeFieldType.CISSTRING);
+        List<Object> sortedValues = values.stream()
+                .filter(Objects::nonNull)
+                .map(AdvantajeTestTables::toFilterValue)
+                .sorted(AdvantajeTestTables::compareFilterValues)
+                .collect(Collectors.toList());
+        Object fromValue = sortedValues.get(sortedValues.size() / 4);
+        Object toValue = sortedValues.get(sortedValues.size() * 3 / 4);
+
+        List<Integer> expectedIds = getIds(recordNumber -> isInRange(values.get(recordNumber), fromValue, toValue));
+        assertFalse(expectedIds.isEmpty());
+        assertEquals(expectedIds, streamIds(AdvantajeFilter.range("VALUE", fromValue, toValue)));
+        assertEquals(expectedIds, readCursorIds(AdvantajeFilter.range("VALUE", fromValue, toValue)));
+
+        List<Integer> expectedFromIds = getIds(recordNumber -> isInRange(values.get(recordNumber), fromValue, null));
+        assertEquals(expectedFromIds, streamIds(AdvantajeFilter.range("VALUE", fromValue, null)));
+    }
+
+    @Test
+    public void testAndOr() {
+        Object filterValue = getFirstValue();
+        AdvantajeFilter valueFilter = AdvantajeFilter.equalTo("VALUE", toFilterValue(filterValue));
+        AdvantajeFilter idFilter = AdvantajeFilter.range("HID", 1, RECORD_COUNT / 10);
+
+        List<Integer> expectedAndIds = getIds(recordNumber -> recordNumber < RECORD_COUNT / 10
+                && values.get(recordNumber) != null && !isEqualValue(values.get(recordNumber), filterValue));
+        assertEquals(expectedAndIds, streamIds(AdvantajeFilter.and(idFilter, AdvantajeFilter.not(valueFilter))));
+
+        List<Integer> expectedOrIds = getIds(recordNumber -> recordNumber < RECORD_COUNT / 10
+                || isEqualValue(values.get(recordNumber), filterValue));
+        assertEquals(expectedOrIds, streamIds(AdvantajeFilter.or(idFilter, valueFilter)));
+
+        // Records of unknown value match neither an or filter nor its negation, unless matched by another filter
+        List<Integer> expectedNotOrIds = getIds(recordNumber -> recordNumber >= RECORD_COUNT / 10
+                && values.get(recordNumber) != null && !isEqualValue(values.get(recordNumber), filterValue));
+        assertEquals(expectedNotOrIds, streamIds(AdvantajeFilter.not(AdvantajeFilter.or(idFilter, valueFilter))));
+    }
+
+    private Object getFirstValue() {
+        return values.stream()
+                .filter(AdvantajeFilterTest::isValue)
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+    }
+
+    private int getLastValueRecordNumber() {
+        for (int recordNumber = RECORD_COUNT - 1; recordNumber >= 0; recordNumber--) {
+            if (isValue(values.get(recordNumber))) {
+                return recordNumber;
+            }
+        }
+        throw new AssertionError("No value");
+    }
+
+    private List<Integer> getIds(IntPredicate recordNumberPredicate) {
+        List<Integer> ids = new ArrayList<>();
+        for (int recordNumber = 0; recordNumber < RECORD_COUNT; recordNumber++) {
+            if (recordNumberPredicate.test(recordNumber)) {
+                ids.add(recordNumber + 1);
+            }
+        }
+        return ids;
+    }
+
+    private List<Integer> streamIds(AdvantajeFilter filter) {
+        try (Stream<AdvantajeRecord> records = service.streamTable(tablePath, CHARSET, filter, "HID")) {
+            return records
+                    .map(record -> record.<Integer>getValue("HID"))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private List<Integer> readCursorIds(AdvantajeFilter filter) {
+        List<Integer> cursorIds = new ArrayList<>();
+        try (AdvantajeCursor cursor = service.openCursor(tablePath, CHARSET, filter)) {
+            int fieldIndex = cursor.getFieldIndex("HID");
+            while (cursor.next()) {
+                cursorIds.add(cursor.getInt(fieldIndex));
+            }
+        }
+        return cursorIds;
+    }
+
+    private boolean isEqualValue(Object value, Object filterValue) {
+        if (value == null) {
+            return false;
+        }
+        if (fieldType == AdvantajeFieldType.CISSTRING) {
+            return ((String) value).equalsIgnoreCase((String) filterValue);
+        }
+        return value.equals(filterValue);
+    }
+
+    private static boolean isInRange(Object value, Object fromValue, Object toValue) {
+        if (value == null) {
+            return false;
+        }
+        Object filterValue = toFilterValue(value);
+        return compareFilterValues(filterValue, fromValue) >= 0
+                && (toValue == null || compareFilterValues(filterValue, toValue) <= 0);
+    }
+
+    private static boolean isValue(Object value) {
+        return value != null && !"".equals(value);
+    }
+}
@@ -0,0 +1,200 @@
+package be.valuya.advantaje.core;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static be.valuya.advantaje.core.AdvantajeTestTables.CHARSET;
+import static be.valuya.advantaje.core.AdvantajeTestTables.RECORD_COUNT;
+import static be.valuya.advantaje.core.AdvantajeTestTables.toFilterValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Indexes generated tables on a field of each indexable type, checking lookups against the generated values.
+ */
+@RunWith(Parameterized.class)
+public class AdvantajeIndexTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AdvantajeFieldType fieldType;
+    private final int length;
+    private Path tablePath;
+    private List<Object> values;
+
+    public AdvantajeIndexTest(AdvantajeFieldType fieldType, int length) {
+        this.fieldType = fieldType;
+        this.length = length;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> getFieldTypes() {
+        return AdvantajeTestTables.getFilterableFieldTypes();
+    }
+
+    @Before
+    public void generateTable() throws IOException {
+        AdvantajeTableGenerator generator = AdvantajeTestTables.createGenerator(fieldType, length);
+        tablePath = temporaryFolder.newFile("values.adt").toPath();
+        generator.write(tablePath);
+        values = AdvantajeTestTables.getValues(generator);
+    }
+
+    @Test
+    public void testBuild() {
+        try (AdvantajeTableFile tableFile = AdvantajeTableFile.open(tablePath, CHARSET)) {
+            AdvantajeIndex index = tableFile.getIndex("VALUE");
+            assertSame(index, tableFile.getIndex("VALUE"));
+            assertEquals("VALUE", index.getField().getName());
+            // Null values are not indexed
+            long indexedCount = values.stream()
+                    .filter(Objects::nonNull)
+                    .count();
+            assertEquals(indexedCount, index.size());
+            assertTrue(index.getByteSize() >= indexedCount * Integer.BYTES);
+
+            List<Object> indexedValues = getValues(index.getRecordNumbers());
+            assertTrue(indexedValues.stream().allMatch(Objects::nonNull));
+            assertSorted(indexedValues);
+        }
+    }
+
+    @Test
+    public void testSeek() {
+        Object key = values.stream()
+                .filter(value -> value != null && !"".equals(value))
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+        int[] expectedRecordNumbers = IntStream.range(0, RECORD_COUNT)
+                .filter(recordNumber -> isEqualKey(values.get(recordNumber), key))
+                .toArray();
+        try (AdvantajeTableFile tableFile = AdvantajeTableFile.open(tablePath, CHARSET)) {
+            AdvantajeIndex index = tableFile.getIndex("VALUE");
+            int[] recordNumbers = index.seek(toFilterValue(key));
+            assertEquals(Arrays.toString(expectedRecordNumbers), Arrays.toString(recordNumbers));
+
+            List<AdvantajeRecord> records = tableFile.readRecords(recordNumbers, "HID");
+            for (int i = 0; i < recordNumbers.length; i++) {
+                assertEquals(recordNumbers[i] + 1, (int) records.get(i).<Integer>getValue("HID"));
+            }
+        }
+    }
+
+    @Test
+    public void testRange() {
+        List<Object> sortedKeys = values.stream()
+                .filter(Objects::nonNull)
+                .map(AdvantajeTestTables::toFilterValue)
+                .sorted(getKeyComparator())
+                .collect(Collectors.toList());
+        Object fromKey = sortedKeys.get(sortedKeys.size() / 4);
+        Object toKey = sortedKeys.get(sortedKeys.size() * 3 / 4);
+        try (AdvantajeTableFile tableFile = AdvantajeTableFile.open(tablePath, CHARSET)) {
+            AdvantajeIndex index = tableFile.getIndex("VALUE");
+            int[] recordNumbers = index.range(fromKey, toKey);
+            List<Object> rangeValues = getValues(recordNumbers);
+            assertSorted(rangeValues);
+            long expectedCount = sortedKeys.stream()
+                    .filter(key -> getKeyComparator().compare(key, fromKey) >= 0 && getKeyComparator().compare(key, toKey) <= 0)
+                    .count();
+            assertEquals(expectedCount, recordNumbers.length);
+
+            assertEquals(index.size(), index.range(null, null).length);
+            if (getKeyComparator().compare(fromKey, toKey) < 0) {
+                assertEquals(0, index.range(toKey, fromKey).length);
+            }
+        }
+    }
+
+    @Test
+    public void testStreamByIndex() {
+        List<Object> indexedValues;
+        try (AdvantajeTableFile tableFile = AdvantajeTableFile.open(tablePath, CHARSET);
+             Stream<AdvantajeRecord> records = tableFile.streamByIndex("VALUE", "HID", "VALUE")) {
+            indexedValues = records
+                    .peek(record -> assertEquals(values.get(record.<Integer>getValue("HID") - 1),
+                            record.getValueOptional("VALUE").orElse(null)))
+                    .map(record -> record.getValue("VALUE"))
+                    .collect(Collectors.toList());
+        }
+        assertSorted(indexedValues);
+        assertEquals(values.stream().filter(Objects::nonNull).count(), indexedValues.size());
+    }
+
+    @Test
+    public void testIndexCache() throws IOException {
+        AdvantajeIndexCache indexCache = new AdvantajeIndexCache();
+        AdvantajeService service = new AdvantajeService();
+        service.setIndexCache(indexCache);
+        AdvantajeIndex index;
+        try (AdvantajeTableFile tableFile = service.openTable(tablePath, CHARSET)) {
+            index = tableFile.getIndex("VALUE");
+        }
+        try (AdvantajeTableFile tableFile = service.openTable(tablePath, CHARSET)) {
+            assertSame(index, tableFile.getIndex("VALUE"));
+        }
+        assertSame(index, indexCache.getIndex(tablePath, CHARSET, "VALUE"));
+        assertEquals(1, indexCache.getSize());
+        assertEquals(index.getByteSize(), indexCache.getByteSize());
+
+        // A changed table is indexed again
+        AdvantajeTableGenerator generator = AdvantajeTestTables.createGenerator(fieldType, length);
+        generator.setRecordCount(RECORD_COUNT / 2);
+        generator.write(tablePath);
+        AdvantajeIndex changedIndex = indexCache.getIndex(tablePath, CHARSET, "VALUE");
+        assertNotSame(index, changedIndex);
+        assertEquals(1, indexCache.getSize());
+
+        indexCache.invalidate(tablePath, CHARSET);
+        assertEquals(0, indexCache.getSize());
+        assertEquals(0, indexCache.getByteSize());
+        assertNotSame(changedIndex, indexCache.getIndex(tablePath, CHARSET, "VALUE"));
+    }
+
+    private List<Object> getValues(int[] recordNumbers) {
+        List<Object> recordValues = new ArrayList<>();
+        for (int recordNumber : recordNumbers) {
+            recordValues.add(values.get(recordNumber));
+        }
+        return recordValues;
+    }
+
+    private void assertSorted(List<Object> sortedValues) {
+        Comparator<Object> keyComparator = getKeyComparator();
+        for (int i = 1; i < sortedValues.size(); i++) {
+            Object previousKey = toFilterValue(sortedValues.get(i - 1));
+            Object key = toFilterValue(sortedValues.get(i));
+            assertTrue(previousKey + " sorted before " + key, keyComparator.compare(previousKey, key) <= 0);
+        }
+    }
+
+    private boolean isEqualKey(Object value, Object key) {
+        return value != null && getKeyComparator().compare(toFilterValue(value), toFilterValue(key)) == 0;
+    }
+
+    private Comparator<Object> getKeyComparator() {
+        if (fieldType == AdvantajeFieldType.CISSTRING) {
+            return (key, otherKey) -> String.CASE_INSENSITIVE_ORDER.compare((String) key, (String) otherKey);
+        }
+        return AdvantajeTestTables::compareFilterValues;
+    }
+}
@@ -0,0 +1,188 @@
+package be.valuya.advantaje.core;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static be.valuya.advantaje.core.AdvantajeTestTables.CHARSET;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Joins entry lines to accounts keyed on a case-insensitive code.
+ */
+public class AdvantajeJoinIndexTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AdvantajeService service = new AdvantajeService();
+    private Path accountsPath;
+    private Path entriesPath;
+
+    @Before
+    public void writeTables() throws IOException {
+        accountsPath = temporaryFolder.newFile("accounts.adt").toPath();
+        entriesPath = temporaryFolder.newFile("entries.adt").toPath();
+        // Two accounts have code 400000, one padded with blanks, and code ab is matched ignoring case
+        writeTable(accountsPath, Arrays.asList(
+                AdvantajeTestTables.createField("CODE", AdvantajeFieldType.CISSTRING, 10),
+                AdvantajeTestTables.createField("NAME", AdvantajeFieldType.STRING, 20),
+                AdvantajeTestTables.createField("MEMO", AdvantajeFieldType.MEMO, 9)),
+                new Object[][]{
+                        {"400000", "Clients", null},
+                        {"440000", "Fournisseurs", null},
+                        {"", "Blank", null},
+                        {"400000 ", "Clients bis", null},
+                        {"ab", "Lower", null},
+                });
+        writeTable(entriesPath, Arrays.asList(
+                AdvantajeTestTables.createField("HID", AdvantajeFieldType.AUTOINC, 4),
+                AdvantajeTestTables.createField("ACCOUNT", AdvantajeFieldType.STRING, 10),
+                AdvantajeTestTables.createField("AMOUNT", AdvantajeFieldType.INTEGER, 4)),
+                new Object[][]{
+                        {1, "440000", 10},
+                        {2, "400000", 20},
+                        {3, "", 30},
+                        {4, "999999", 40},
+                        {5, "AB", 50},
+                });
+    }
+
+    @Test
+    public void testJoin() {
+        AdvantajeJoinIndex joinIndex = service.getJoinIndex(accountsPath, CHARSET, "CODE", "NAME");
+        assertEquals(5, joinIndex.size());
+        assertEquals("CODE", joinIndex.getKeyField().getName());
+        assertEquals(Arrays.asList("NAME"), joinIndex.getFields().stream()
+                .map(AdvantajeField::getName)
+                .collect(Collectors.toList()));
+
+        // Records matching several rows are joined to each of them, in record order. Unmatched records are skipped,
+        // blank keys match as empty strings.
+        assertEquals(Arrays.asList("1 Fournisseurs", "2 Clients", "2 Clients bis", "3 Blank", "5 Lower"),
+                join(null, joinIndex, "ACCOUNT"));
+        assertEquals(Arrays.asList("2 Clients", "2 Clients bis"),
+                join(AdvantajeFilter.range("AMOUNT", 15, 25), joinIndex, "ACCOUNT"));
+    }
+
+    @Test
+    public void testDeletedRows() throws IOException {
+        AdvantajeTestTables.markDeleted(accountsPath, 3);
+        AdvantajeJoinIndex joinIndex = service.getJoinIndex(accountsPath, CHARSET, "CODE", "NAME");
+        assertEquals(4, joinIndex.size());
+        assertEquals(Arrays.asList("2 Clients"), join(AdvantajeFilter.equalTo("HID", 2), joinIndex, "ACCOUNT"));
+    }
+
+    @Test
+    public void testProjectedFields() {
+        AdvantajeJoinIndex joinIndex = service.getJoinIndex(accountsPath, CHARSET, "CODE", "NAME");
+        try (Stream<AdvantajeRecord> records = service.joinTable(entriesPath, CHARSET, null, "ACCOUNT", joinIndex, "AMOUNT")) {
+            AdvantajeRecord record = records.findFirst()
+                    .orElseThrow(AssertionError::new);
+            assertEquals(Arrays.asList("AMOUNT", "NAME"), new ArrayList<>(record.getValueMap().keySet()));
+            assertEquals(10, (int) record.<Integer>getValue("AMOUNT"));
+        }
+    }
+
+    @Test
+    public void testInvalidKeys() {
+        try {
+            service.getJoinIndex(accountsPath, CHARSET, "MEMO");
+            fail("Built a join index on a memo field");
+        } catch (AdvantajeException exception) {
+            assertEquals("Unsupported join key field type: MEMO for field MEMO", exception.getMessage());
+        }
+        try {
+            service.getJoinIndex(accountsPath, CHARSET, "CODE", "MEMO");
+            fail("Joined a memo field");
+        } catch (AdvantajeException exception) {
+            assertEquals("Unsupported joined field type: MEMO for field MEMO", exception.getMessage());
+        }
+
+        AdvantajeJoinIndex joinIndex = service.getJoinIndex(accountsPath, CHARSET, "CODE", "NAME");
+        try {
+            join(null, joinIndex, "AMOUNT");
+            fail("Joined an integer key to a string key");
+        } catch (AdvantajeException exception) {
+            assertEquals("Join key field AMOUNT of type INTEGER can not be compared to CODE of type CISSTRING",
+                    exception.getMessage());
+        }
+    }
+
+    @Test
+    public void testJoinIndexCache() throws IOException {
+        AdvantajeJoinIndexCache joinIndexCache = new AdvantajeJoinIndexCache();
+        service.setJoinIndexCache(joinIndexCache);
+        AdvantajeJoinIndex joinIndex = service.getJoinIndex(accountsPath, CHARSET, "CODE", "NAME");
+        assertSame(joinIndex, service.getJoinIndex(accountsPath, CHARSET, "CODE", "NAME"));
+        assertSame(joinIndex, joinIndexCache.getJoinIndex(accountsPath, CHARSET, "CODE", "NAME"));
+        assertEquals(1, joinIndexCache.getSize());
+        assertEquals(joinIndex.getByteSize(), joinIndexCache.getByteSize());
+
+        // Each key and joined fields have their own index
+        AdvantajeJoinIndex codeJoinIndex = service.getJoinIndex(accountsPath, CHARSET, "CODE", "CODE", "NAME");
+        assertNotSame(joinIndex, codeJoinIndex);
+        assertEquals(2, joinIndexCache.getSize());
+
+        // A changed table is indexed again
+        Files.setLastModifiedTime(accountsPath, FileTime.fromMillis(Files.getLastModifiedTime(accountsPath).toMillis() + 1000));
+        AdvantajeJoinIndex changedJoinIndex = service.getJoinIndex(accountsPath, CHARSET, "CODE", "NAME");
+        assertNotSame(joinIndex, changedJoinIndex);
+        assertEquals(2, joinIndexCache.getSize());
+
+        joinIndexCache.invalidate(accountsPath, CHARSET);
+        assertEquals(0, joinIndexCache.getSize());
+        assertEquals(0, joinIndexCache.getByteSize());
+    }
+
+    @Test
+    public void testJoinIndexCacheBudget() {
+        AdvantajeJoinIndex joinIndex = service.getJoinIndex(accountsPath, CHARSET, "CODE", "NAME");
+        AdvantajeJoinIndexCache joinIndexCache = new AdvantajeJoinIndexCache(joinIndex.getByteSize());
+        joinIndexCache.getJoinIndex(accountsPath, CHARSET, "CODE", "NAME");
+        joinIndexCache.getJoinIndex(entriesPath, CHARSET, "ACCOUNT", "AMOUNT");
+        // The least recently used index is evicted
+        assertEquals(1, joinIndexCache.getSize());
+        assertFalse(joinIndexCache.getByteSize() > joinIndex.getByteSize());
+    }
+
+    /**
+     * @return The id of each joined entry, followed by its account name
+     */
+    private List<String> join(AdvantajeFilter filter, AdvantajeJoinIndex joinIndex, String keyFieldName) {
+        try (Stream<AdvantajeRecord> records = service.joinTable(entriesPath, CHARSET, filter, keyFieldName, joinIndex, "HID")) {
+            return records
+                    .map(record -> record.getValue("HID") + " " + record.getValue("NAME"))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static void writeTable(Path path, List<AdvantajeField<?>> fields, Object[][] rows) {
+        AdvantajeTableMetaData metaData = new AdvantajeTableMetaData(0, fields);
+        try (AdvantajeTableWriter tableWriter = AdvantajeTableWriter.create(path, metaData, CHARSET)) {
+            for (Object[] row : rows) {
+                AdvantajeRecord record = new AdvantajeRecord();
+                for (int fieldIndex = 0; fieldIndex < fields.size(); fieldIndex++) {
+                    record.put(new AdvantajeValue<Object>(fields.get(fieldIndex), Optional.ofNullable(row[fieldIndex])));
+                }
+                tableWriter.writeRecord(record);
+            }
+        }
+    }
+}
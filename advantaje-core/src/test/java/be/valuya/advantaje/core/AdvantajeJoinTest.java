@@ -0,0 +1,91 @@
+package be.valuya.advantaje.core;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static be.valuya.advantaje.core.AdvantajeTestTables.CHARSET;
+import static be.valuya.advantaje.core.AdvantajeTestTables.RECORD_COUNT;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Joins a table referencing generated tables holding a field of each type, checking the joined values against the
+ * generated values.
+ */
+@RunWith(Parameterized.class)
+public class AdvantajeJoinTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AdvantajeFieldType fieldType;
+    private final int length;
+    private final AdvantajeService service = new AdvantajeService();
+    private Path tablePath;
+    private Path probePath;
+    private List<Object> values;
+
+    public AdvantajeJoinTest(AdvantajeFieldType fieldType, int length) {
+        this.fieldType = fieldType;
+        this.length = length;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> getFieldTypes() {
+        return AdvantajeTestTables.getFieldTypes();
+    }
+
+    @Before
+    public void generateTables() throws IOException {
+        AdvantajeTableGenerator generator = AdvantajeTestTables.createGenerator(fieldType, length);
+        tablePath = temporaryFolder.newFile("values.adt").toPath();
+        generator.write(tablePath);
+        values = AdvantajeTestTables.getValues(generator);
+
+        // References from 1 to RECORD_COUNT + 10, of which the last ones match no record
+        AdvantajeTableGenerator probeGenerator = new AdvantajeTableGenerator();
+        probeGenerator.addField("REF", AdvantajeFieldType.AUTOINC, 4);
+        probeGenerator.setRecordCount(RECORD_COUNT + 10);
+        probePath = temporaryFolder.newFile("probe.adt").toPath();
+        probeGenerator.write(probePath);
+    }
+
+    @Test
+    public void testJoin() {
+        AdvantajeJoinIndex joinIndex = service.getJoinIndex(tablePath, CHARSET, "HID", "VALUE");
+        assertEquals(RECORD_COUNT, joinIndex.size());
+        List<Object> joinedValues = new ArrayList<>();
+        try (Stream<AdvantajeRecord> records = service.joinTable(probePath, CHARSET, null, "REF", joinIndex, "REF")) {
+            records.forEachOrdered(record -> {
+                assertEquals(joinedValues.size() + 1, (int) record.<Integer>getValue("REF"));
+                joinedValues.add(record.getValueOptional("VALUE").orElse(null));
+            });
+        }
+        assertEquals(values, joinedValues);
+    }
+
+    @Test
+    public void testParallelJoin() {
+        AdvantajeJoinIndex joinIndex = service.getJoinIndex(tablePath, CHARSET, "HID", "VALUE");
+        AdvantajeFilter filter = AdvantajeFilter.range("REF", RECORD_COUNT / 2 + 1, null);
+        List<Object> joinedValues;
+        try (Stream<AdvantajeRecord> records = service.joinTable(probePath, CHARSET, filter, "REF", joinIndex, "REF")) {
+            joinedValues = records
+                    .parallel()
+                    .map(record -> record.getValueOptional("VALUE").orElse(null))
+                    .collect(Collectors.toList());
+        }
+        assertEquals(values.subList(RECORD_COUNT / 2, RECORD_COUNT), joinedValues);
+    }
+}
@@ -0,0 +1,177 @@
+package be.valuya.advantaje.core;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static be.valuya.advantaje.core.AdvantajeTestTables.CHARSET;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AdvantajeMemoFileTest {
+
+    private static final int BLOCK_SIZE = 8;
+    private static final List<String> TEXTS = Arrays.asList("First memo", null, "", "A memo spanning several blocks of the memo file",
+            "\u00c9t\u00e9");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AdvantajeService service = new AdvantajeService();
+    private Path tablePath;
+    private Path memoPath;
+    private List<AdvantajeMemo> memos;
+
+    @Before
+    public void writeTable() throws IOException {
+        tablePath = temporaryFolder.newFile("notes.adt").toPath();
+        memoPath = temporaryFolder.getRoot().toPath().resolve("notes.adm");
+        memos = writeMemoFile(memoPath, TEXTS);
+
+        List<AdvantajeField<?>> fields = Arrays.asList(
+                AdvantajeTestTables.createField("HID", AdvantajeFieldType.AUTOINC, 4),
+                AdvantajeTestTables.createField("NOTES", AdvantajeFieldType.MEMO, 9));
+        AdvantajeTableMetaData metaData = new AdvantajeTableMetaData(0, fields);
+        try (AdvantajeTableWriter tableWriter = AdvantajeTableWriter.create(tablePath, metaData, CHARSET)) {
+            for (int recordNumber = 0; recordNumber < memos.size(); recordNumber++) {
+                AdvantajeRecord record = new AdvantajeRecord();
+                record.put(new AdvantajeValue<Object>(fields.get(0), Optional.of(recordNumber + 1)));
+                record.put(new AdvantajeValue<Object>(fields.get(1), Optional.ofNullable(memos.get(recordNumber))));
+                tableWriter.writeRecord(record);
+            }
+        }
+    }
+
+    @Test
+    public void testStreamMemos() {
+        List<String> texts;
+        try (Stream<AdvantajeRecord> records = service.streamTable(tablePath, CHARSET)) {
+            texts = records
+                    .map(record -> record.<AdvantajeMemo>getValueOptional("NOTES")
+                            .map(AdvantajeMemo::getText)
+                            .orElse(null))
+                    .collect(Collectors.toList());
+        }
+        // Empty memos are stored as null references
+        assertEquals(Arrays.asList("First memo", null, null, "A memo spanning several blocks of the memo file", "\u00c9t\u00e9"), texts);
+    }
+
+    @Test
+    public void testMemoReadAfterClose() {
+        List<AdvantajeRecord> records;
+        try (Stream<AdvantajeRecord> recordStream = service.streamTable(tablePath, CHARSET)) {
+            records = recordStream.collect(Collectors.toList());
+        }
+        AdvantajeMemo memo = records.get(0).<AdvantajeMemo>getValue("NOTES");
+        assertEquals(memos.get(0).getBlockNumber(), memo.getBlockNumber());
+        assertEquals(memos.get(0).getLength(), memo.getLength());
+        try {
+            memo.getText();
+            fail("Read memo content once the stream was closed");
+        } catch (AdvantajeException exception) {
+            assertTrue(exception.getMessage(), exception.getMessage().startsWith("Memo file closed: "));
+        }
+    }
+
+    @Test
+    public void testLazyOpen() {
+        // The file is only opened once content is read
+        AdvantajeMemoFile memoFile = new AdvantajeMemoFile(temporaryFolder.getRoot().toPath().resolve("missing.adm"));
+        try {
+            memoFile.readContent(1, 1);
+            fail("Read a missing memo file");
+        } catch (AdvantajeException exception) {
+            assertTrue(exception.getMessage(), exception.getMessage().startsWith("Error opening memo file "));
+        }
+        memoFile.close();
+        try {
+            memoFile.readContent(1, 1);
+            fail("Read a closed memo file");
+        } catch (AdvantajeException exception) {
+            assertTrue(exception.getMessage(), exception.getMessage().startsWith("Memo file closed: "));
+        }
+    }
+
+    @Test
+    public void testContentCache() {
+        AdvantajeMemo memo = memos.get(3);
+        try (AdvantajeMemoFile memoFile = new AdvantajeMemoFile(memoPath)) {
+            byte[] content = memoFile.readContent(memo.getBlockNumber(), memo.getLength());
+            assertArrayEquals(TEXTS.get(3).getBytes(CHARSET), content);
+            assertSame(content, memoFile.readContent(memo.getBlockNumber(), memo.getLength()));
+        }
+        try (AdvantajeMemoFile memoFile = new AdvantajeMemoFile(memoPath, memo.getLength() - 1)) {
+            byte[] content = memoFile.readContent(memo.getBlockNumber(), memo.getLength());
+            assertArrayEquals(TEXTS.get(3).getBytes(CHARSET), content);
+            assertNotSame(content, memoFile.readContent(memo.getBlockNumber(), memo.getLength()));
+        }
+    }
+
+    @Test
+    public void testContentOutOfBounds() throws IOException {
+        long fileSize = Files.size(memoPath);
+        try (AdvantajeMemoFile memoFile = new AdvantajeMemoFile(memoPath)) {
+            memoFile.readContent((int) (fileSize / BLOCK_SIZE), BLOCK_SIZE + 1);
+            fail("Read content past the end of the memo file");
+        } catch (AdvantajeException exception) {
+            assertTrue(exception.getMessage(), exception.getMessage().startsWith("Memo content out of bounds in "));
+        }
+    }
+
+    @Test
+    public void testNoMemoFile() throws IOException {
+        Files.delete(memoPath);
+        try (Stream<AdvantajeRecord> records = service.streamTable(tablePath, CHARSET)) {
+            AdvantajeMemo memo = records.findFirst()
+                    .orElseThrow(AssertionError::new)
+                    .getValue("NOTES");
+            assertNull(memo.getMemoFile());
+            assertFalse(AdvantajeTableFile.findMemoFilePath(tablePath).isPresent());
+        }
+    }
+
+    /**
+     * Write a memo file holding texts from block 1, block 0 holding the header with the block size.
+     *
+     * @return The memo referencing each text, or null for null texts
+     */
+    private static List<AdvantajeMemo> writeMemoFile(Path path, List<String> texts) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1024)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putShort(0x06, (short) BLOCK_SIZE);
+        List<AdvantajeMemo> memos = new ArrayList<>();
+        int blockNumber = 1;
+        for (String text : texts) {
+            if (text == null) {
+                memos.add(null);
+                continue;
+            }
+            byte[] bytes = text.getBytes(CHARSET);
+            buffer.position(blockNumber * BLOCK_SIZE);
+            buffer.put(bytes);
+            memos.add(new AdvantajeMemo(AdvantajeFieldType.MEMO, blockNumber, bytes.length, CHARSET));
+            blockNumber += Math.max(1, (bytes.length + BLOCK_SIZE - 1) / BLOCK_SIZE);
+        }
+        Files.write(path, Arrays.copyOf(buffer.array(), blockNumber * BLOCK_SIZE));
+        return memos;
+    }
+}
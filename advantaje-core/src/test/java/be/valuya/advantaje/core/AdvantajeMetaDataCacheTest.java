@@ -0,0 +1,145 @@
+package be.valuya.advantaje.core;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static be.valuya.advantaje.core.AdvantajeTestTables.CHARSET;
+import static be.valuya.advantaje.core.AdvantajeTestTables.RECORD_COUNT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AdvantajeMetaDataCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path tablePath;
+    private Path sidecarPath;
+
+    @Before
+    public void generateTable() throws IOException {
+        tablePath = temporaryFolder.newFile("values.adt").toPath();
+        sidecarPath = temporaryFolder.getRoot().toPath().resolve("metadata.cache");
+        AdvantajeTestTables.createGenerator(AdvantajeFieldType.STRING, 20)
+                .write(tablePath);
+    }
+
+    @Test
+    public void testCachedMetaData() {
+        AdvantajeMetaDataCache metaDataCache = new AdvantajeMetaDataCache();
+        AdvantajeTableMetaData metaData = metaDataCache.getMetaData(tablePath, CHARSET);
+        assertEquals(RECORD_COUNT, metaData.getRecordCount());
+        assertSame(metaData, metaDataCache.getMetaData(tablePath, CHARSET));
+        assertEquals(1, metaDataCache.getSize());
+        assertFalse(metaDataCache.getSidecarPathOptional().isPresent());
+
+        // Tables opened with the cache share its metadata
+        try (AdvantajeTableFile tableFile = AdvantajeTableFile.open(tablePath, CHARSET, metaDataCache)) {
+            assertSame(metaData, tableFile.getMetaData());
+        }
+    }
+
+    @Test
+    public void testChangedTable() throws IOException {
+        AdvantajeMetaDataCache metaDataCache = new AdvantajeMetaDataCache();
+        AdvantajeTableMetaData metaData = metaDataCache.getMetaData(tablePath, CHARSET);
+
+        AdvantajeTableGenerator generator = AdvantajeTestTables.createGenerator(AdvantajeFieldType.STRING, 20);
+        generator.setRecordCount(RECORD_COUNT / 2);
+        generator.write(tablePath);
+        AdvantajeTableMetaData changedMetaData = metaDataCache.getMetaData(tablePath, CHARSET);
+        assertNotSame(metaData, changedMetaData);
+        assertEquals(RECORD_COUNT / 2, changedMetaData.getRecordCount());
+        assertEquals(1, metaDataCache.getSize());
+
+        metaDataCache.invalidate(tablePath, CHARSET);
+        assertEquals(0, metaDataCache.getSize());
+        metaDataCache.getMetaData(tablePath, CHARSET);
+        metaDataCache.clear();
+        assertEquals(0, metaDataCache.getSize());
+    }
+
+    @Test
+    public void testSidecar() throws IOException {
+        AdvantajeMetaDataCache metaDataCache = new AdvantajeMetaDataCache(sidecarPath);
+        AdvantajeTableMetaData metaData = metaDataCache.getMetaData(tablePath, CHARSET);
+        metaDataCache.save();
+        assertTrue(Files.isRegularFile(sidecarPath));
+
+        // The header is overwritten, keeping the file size and modification time: only cached metadata is valid
+        FileTime lastModifiedTime = Files.getLastModifiedTime(tablePath);
+        byte[] tableBytes = Files.readAllBytes(tablePath);
+        Arrays.fill(tableBytes, 0, metaData.getHeaderLength(), (byte) 0);
+        Files.write(tablePath, tableBytes);
+        Files.setLastModifiedTime(tablePath, lastModifiedTime);
+
+        AdvantajeMetaDataCache loadedMetaDataCache = new AdvantajeMetaDataCache(sidecarPath);
+        assertEquals(1, loadedMetaDataCache.getSize());
+        AdvantajeTableMetaData loadedMetaData = loadedMetaDataCache.getMetaData(tablePath, CHARSET);
+        assertEquals(metaData.getRecordCount(), loadedMetaData.getRecordCount());
+        assertEquals(metaData.getHeaderLength(), loadedMetaData.getHeaderLength());
+        assertEquals(metaData.getRecordLength(), loadedMetaData.getRecordLength());
+        List<AdvantajeField<?>> fields = metaData.getFields();
+        List<AdvantajeField<?>> loadedFields = loadedMetaData.getFields();
+        assertEquals(fields.size(), loadedFields.size());
+        for (int fieldIndex = 0; fieldIndex < fields.size(); fieldIndex++) {
+            AdvantajeField<?> field = fields.get(fieldIndex);
+            AdvantajeField<?> loadedField = loadedFields.get(fieldIndex);
+            assertEquals(field.getName(), loadedField.getName());
+            assertEquals(field.getFieldType(), loadedField.getFieldType());
+            assertEquals(field.getOffset(), loadedField.getOffset());
+            assertEquals(field.getLength(), loadedField.getLength());
+            assertEquals(field.isInterned(), loadedField.isInterned());
+        }
+
+        AdvantajeService service = new AdvantajeService();
+        service.setMetaDataCache(loadedMetaDataCache);
+        try (Stream<AdvantajeRecord> records = service.streamTable(tablePath, CHARSET)) {
+            assertEquals(RECORD_COUNT, records.count());
+        }
+    }
+
+    @Test
+    public void testUnreadableSidecar() throws IOException {
+        // A sidecar of another version is ignored, then overwritten
+        try (DataOutputStream outputStream = new DataOutputStream(Files.newOutputStream(sidecarPath))) {
+            outputStream.writeInt(0x41444d43);
+            outputStream.writeInt(1);
+            outputStream.writeInt(1);
+        }
+        AdvantajeMetaDataCache metaDataCache = new AdvantajeMetaDataCache(sidecarPath);
+        assertEquals(0, metaDataCache.getSize());
+        metaDataCache.getMetaData(tablePath, CHARSET);
+        metaDataCache.save();
+        assertEquals(1, new AdvantajeMetaDataCache(sidecarPath).getSize());
+
+        Files.write(sidecarPath, new byte[]{1, 2, 3});
+        assertEquals(0, new AdvantajeMetaDataCache(sidecarPath).getSize());
+    }
+
+    @Test
+    public void testSaveWithoutSidecar() {
+        AdvantajeMetaDataCache metaDataCache = new AdvantajeMetaDataCache();
+        try {
+            metaDataCache.save();
+            fail("Saved a cache without sidecar file");
+        } catch (AdvantajeException exception) {
+            assertEquals("No sidecar file for this cache", exception.getMessage());
+        }
+    }
+}
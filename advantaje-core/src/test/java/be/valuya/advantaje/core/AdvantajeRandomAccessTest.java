@@ -0,0 +1,136 @@
+package be.valuya.advantaje.core;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static be.valuya.advantaje.core.AdvantajeTestTables.CHARSET;
+import static be.valuya.advantaje.core.AdvantajeTestTables.RECORD_COUNT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AdvantajeRandomAccessTest {
+
+    private static final int DELETED_RECORD_NUMBER = 10;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path tablePath;
+    private List<Object> values;
+
+    @Before
+    public void generateTable() throws IOException {
+        AdvantajeTableGenerator generator = AdvantajeTestTables.createGenerator(AdvantajeFieldType.STRING, 20);
+        tablePath = temporaryFolder.newFile("values.adt").toPath();
+        generator.write(tablePath);
+        values = AdvantajeTestTables.getValues(generator);
+        AdvantajeTestTables.markDeleted(tablePath, DELETED_RECORD_NUMBER);
+    }
+
+    @Test
+    public void testReadRecord() {
+        try (AdvantajeTableFile tableFile = AdvantajeTableFile.open(tablePath, CHARSET)) {
+            assertEquals(RECORD_COUNT, tableFile.getRecordCount());
+            for (int recordNumber : new int[]{0, 1, RECORD_COUNT / 2, RECORD_COUNT - 1}) {
+                AdvantajeRecord record = tableFile.readRecord(recordNumber);
+                assertEquals(recordNumber + 1, (int) record.<Integer>getValue("HID"));
+                assertEquals(values.get(recordNumber), record.getValue("VALUE"));
+                assertFalse(record.isDeleted());
+            }
+            // Records marked deleted are read as well
+            AdvantajeRecord deletedRecord = tableFile.readRecord(DELETED_RECORD_NUMBER);
+            assertTrue(deletedRecord.isDeleted());
+            assertEquals(values.get(DELETED_RECORD_NUMBER), deletedRecord.getValue("VALUE"));
+        }
+    }
+
+    @Test
+    public void testReadRecordOutOfBounds() {
+        try (AdvantajeTableFile tableFile = AdvantajeTableFile.open(tablePath, CHARSET)) {
+            for (int recordNumber : new int[]{-1, RECORD_COUNT}) {
+                try {
+                    tableFile.readRecord(recordNumber);
+                    fail("Read record " + recordNumber);
+                } catch (IndexOutOfBoundsException expected) {
+                    // Expected
+                }
+            }
+            try {
+                tableFile.readRecords(new int[]{0, RECORD_COUNT});
+                fail("Read record " + RECORD_COUNT);
+            } catch (IndexOutOfBoundsException exception) {
+                assertEquals("Invalid record number: " + RECORD_COUNT, exception.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testReadRecords() {
+        int[] recordNumbers = {RECORD_COUNT - 1, 3, 500, 3, DELETED_RECORD_NUMBER, 0};
+        try (AdvantajeTableFile tableFile = AdvantajeTableFile.open(tablePath, CHARSET)) {
+            List<AdvantajeRecord> records = tableFile.readRecords(recordNumbers, "VALUE");
+            assertEquals(recordNumbers.length, records.size());
+            for (int i = 0; i < recordNumbers.length; i++) {
+                AdvantajeRecord record = records.get(i);
+                assertEquals(values.get(recordNumbers[i]), record.getValue("VALUE"));
+                assertEquals(recordNumbers[i] == DELETED_RECORD_NUMBER, record.isDeleted());
+                assertFalse(record.getValueMap().containsKey("HID"));
+            }
+            // A record requested twice is read once
+            assertSame(records.get(1), records.get(3));
+
+            assertTrue(tableFile.readRecords(new int[0]).isEmpty());
+        }
+    }
+
+    @Test
+    public void testStreamRecordNumbers() {
+        int[] recordNumbers = {7, 2, DELETED_RECORD_NUMBER, RECORD_COUNT - 1};
+        try (AdvantajeTableFile tableFile = AdvantajeTableFile.open(tablePath, CHARSET);
+             Stream<AdvantajeRecord> records = tableFile.streamRecords(recordNumbers, "HID")) {
+            List<Integer> ids = records
+                    .map(record -> record.<Integer>getValue("HID"))
+                    .collect(Collectors.toList());
+            assertEquals(Arrays.asList(8, 3, DELETED_RECORD_NUMBER + 1, RECORD_COUNT), ids);
+        }
+    }
+
+    @Test
+    public void testStreamFromRecordNumber() {
+        int fromRecordNumber = RECORD_COUNT - 20;
+        try (AdvantajeTableFile tableFile = AdvantajeTableFile.open(tablePath, CHARSET);
+             Stream<AdvantajeRecord> records = tableFile.streamRecords(fromRecordNumber)) {
+            List<Object> streamedValues = records
+                    .map(record -> record.getValueOptional("VALUE").orElse(null))
+                    .collect(Collectors.toList());
+            assertEquals(values.subList(fromRecordNumber, RECORD_COUNT), streamedValues);
+        }
+        try (AdvantajeTableFile tableFile = AdvantajeTableFile.open(tablePath, CHARSET);
+             Stream<AdvantajeRecord> records = tableFile.streamRecords(0)) {
+            // Deleted records are skipped
+            assertEquals(RECORD_COUNT - 1, records.count());
+        }
+    }
+
+    @Test
+    public void testCountRecords() {
+        try (AdvantajeTableFile tableFile = AdvantajeTableFile.open(tablePath, CHARSET)) {
+            AdvantajeRecordCounts recordCounts = tableFile.countRecords();
+            assertEquals(RECORD_COUNT - 1, recordCounts.getLiveRecordCount());
+            assertEquals(1, recordCounts.getDeletedRecordCount());
+            assertEquals(RECORD_COUNT, recordCounts.getRecordCount());
+        }
+    }
+}
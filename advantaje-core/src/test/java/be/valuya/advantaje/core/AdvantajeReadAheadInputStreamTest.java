@@ -0,0 +1,144 @@
+package be.valuya.advantaje.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static be.valuya.advantaje.core.AdvantajeTestTables.CHARSET;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class AdvantajeReadAheadInputStreamTest {
+
+    private static final int BLOCK_COUNT = 2;
+    private static final int BLOCK_SIZE = 1000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testReadToEnd() throws IOException {
+        byte[] bytes = createBytes(10 * BLOCK_SIZE + 123);
+        try (InputStream inputStream = new AdvantajeReadAheadInputStream(new ByteArrayInputStream(bytes), BLOCK_COUNT, BLOCK_SIZE)) {
+            assertArrayEquals(bytes, readFully(inputStream, 777));
+            assertEquals(-1, inputStream.read());
+            assertEquals(-1, inputStream.read(new byte[10], 0, 10));
+            assertEquals(0, inputStream.available());
+        }
+    }
+
+    @Test
+    public void testReadBytesToEnd() throws IOException {
+        byte[] bytes = createBytes(3 * BLOCK_SIZE);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (InputStream inputStream = new AdvantajeReadAheadInputStream(new ByteArrayInputStream(bytes), BLOCK_COUNT, BLOCK_SIZE)) {
+            int byteValue;
+            while ((byteValue = inputStream.read()) >= 0) {
+                outputStream.write(byteValue);
+            }
+            assertEquals(-1, inputStream.read());
+        }
+        assertArrayEquals(bytes, outputStream.toByteArray());
+    }
+
+    @Test
+    public void testReadEmpty() throws IOException {
+        try (InputStream inputStream = new AdvantajeReadAheadInputStream(new ByteArrayInputStream(new byte[0]), BLOCK_COUNT, BLOCK_SIZE)) {
+            assertEquals(-1, inputStream.read(new byte[10], 0, 10));
+            assertEquals(-1, inputStream.read());
+        }
+    }
+
+    @Test
+    public void testReadFailure() throws IOException {
+        byte[] bytes = createBytes(2 * BLOCK_SIZE);
+        IOException failure = new IOException("Disk failure");
+        InputStream failingInputStream = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw failure;
+            }
+        };
+        InputStream sourceInputStream = new SequenceInputStream(new ByteArrayInputStream(bytes), failingInputStream);
+        try (InputStream inputStream = new AdvantajeReadAheadInputStream(sourceInputStream, BLOCK_COUNT, BLOCK_SIZE)) {
+            byte[] readBytes = new byte[bytes.length];
+            int readLength = 0;
+            try {
+                while (true) {
+                    int chunkLength = inputStream.read(readBytes, readLength, Math.max(1, readBytes.length - readLength));
+                    if (chunkLength < 0) {
+                        fail("End of stream read instead of the failure");
+                    }
+                    readLength += chunkLength;
+                }
+            } catch (IOException exception) {
+                assertSame(failure, exception);
+            }
+            assertEquals(bytes.length, readLength);
+            assertArrayEquals(bytes, readBytes);
+            assertEquals(-1, inputStream.read());
+            assertEquals(-1, inputStream.read(new byte[10], 0, 10));
+        }
+    }
+
+    @Test
+    public void testReadAfterClose() throws IOException {
+        byte[] bytes = createBytes(10 * BLOCK_SIZE);
+        InputStream inputStream = new AdvantajeReadAheadInputStream(new ByteArrayInputStream(bytes), BLOCK_COUNT, BLOCK_SIZE);
+        assertEquals(bytes[0] & 0xff, inputStream.read());
+        inputStream.close();
+        try {
+            readFully(inputStream, BLOCK_SIZE);
+            fail("Read after close");
+        } catch (IOException exception) {
+            assertEquals("Read-ahead stream closed", exception.getMessage());
+        }
+    }
+
+    @Test
+    public void testStreamTable() throws IOException {
+        AdvantajeTableGenerator generator = AdvantajeTestTables.createGenerator(AdvantajeFieldType.STRING, 20);
+        Path tablePath = temporaryFolder.newFile("values.adt").toPath();
+        generator.write(tablePath);
+
+        AdvantajeService service = new AdvantajeService();
+        service.setReadAheadBlockCount(BLOCK_COUNT);
+        service.setReadAheadBlockSize(BLOCK_SIZE);
+        List<Object> values = new ArrayList<>();
+        try (InputStream inputStream = Files.newInputStream(tablePath);
+             Stream<AdvantajeRecord> records = service.streamTable(inputStream, CHARSET)) {
+            records.forEachOrdered(record -> values.add(record.getValueOptional("VALUE").orElse(null)));
+        }
+        assertEquals(AdvantajeTestTables.getValues(generator), values);
+    }
+
+    private static byte[] readFully(InputStream inputStream, int chunkLength) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] chunk = new byte[chunkLength];
+        int readLength;
+        while ((readLength = inputStream.read(chunk, 0, chunk.length)) >= 0) {
+            outputStream.write(chunk, 0, readLength);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] createBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,154 @@
+package be.valuya.advantaje.core;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static be.valuya.advantaje.core.AdvantajeTestTables.CHARSET;
+import static be.valuya.advantaje.core.AdvantajeTestTables.RECORD_COUNT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Generates a table holding a field of each type, then streams it back, checking the values read against the
+ * generated ones.
+ */
+@RunWith(Parameterized.class)
+public class AdvantajeRoundTripTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AdvantajeFieldType fieldType;
+    private final int length;
+    private final AdvantajeService service = new AdvantajeService();
+    private Path tablePath;
+    private List<Object> values;
+
+    public AdvantajeRoundTripTest(AdvantajeFieldType fieldType, int length) {
+        this.fieldType = fieldType;
+        this.length = length;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> getFieldTypes() {
+        return AdvantajeTestTables.getFieldTypes();
+    }
+
+    @Before
+    public void generateTable() throws IOException {
+        AdvantajeTableGenerator generator = AdvantajeTestTables.createGenerator(fieldType, length);
+        tablePath = temporaryFolder.newFile("values.adt").toPath();
+        generator.write(tablePath);
+        values = AdvantajeTestTables.getValues(generator);
+    }
+
+    @Test
+    public void testGeneratedValues() {
+        assertEquals(RECORD_COUNT, values.size());
+        Class<?> valueType = getValueType();
+        boolean hasBlankValues = false;
+        for (int recordNumber = 0; recordNumber < RECORD_COUNT; recordNumber++) {
+            Object value = values.get(recordNumber);
+            if (value == null || "".equals(value)) {
+                hasBlankValues = true;
+                continue;
+            }
+            assertTrue(value + " is not a " + valueType.getSimpleName(), valueType.isInstance(value));
+            if (fieldType == AdvantajeFieldType.AUTOINC || fieldType == AdvantajeFieldType.RAWVERSION) {
+                assertEquals(recordNumber + 1, value);
+            }
+        }
+        assertEquals(hasBlankValues(), hasBlankValues);
+    }
+
+    @Test
+    public void testStream() {
+        assertEquals(values, AdvantajeTestTables.readValues(service, tablePath));
+    }
+
+    @Test
+    public void testStreamProjection() {
+        List<Object> projectedValues;
+        try (Stream<AdvantajeRecord> records = service.streamTable(tablePath, CHARSET, "VALUE")) {
+            projectedValues = records
+                    .map(record -> record.getValueOptional("VALUE").orElse(null))
+                    .collect(Collectors.toList());
+        }
+        assertEquals(values, projectedValues);
+    }
+
+    @Test
+    public void testStreamInputStream() throws IOException {
+        List<Object> inputStreamValues = new ArrayList<>();
+        try (InputStream inputStream = Files.newInputStream(tablePath);
+             Stream<AdvantajeRecord> records = service.streamTable(inputStream, CHARSET)) {
+            records.forEachOrdered(record -> inputStreamValues.add(record.getValueOptional("VALUE").orElse(null)));
+        }
+        assertEquals(values, inputStreamValues);
+    }
+
+    private Class<?> getValueType() {
+        switch (fieldType) {
+            case LOGICAL:
+                return Boolean.class;
+            case NUMERIC:
+            case SHORTINT:
+                return Short.class;
+            case DATE:
+                return LocalDate.class;
+            case STRING:
+            case CISSTRING:
+            case NCHAR:
+                return String.class;
+            case DOUBLE:
+            case CURRENCY:
+                return Double.class;
+            case INTEGER:
+            case AUTOINC:
+            case RAWVERSION:
+                return Integer.class;
+            case TIME:
+            case MODTIME:
+                return LocalTime.class;
+            case TIMESTAMP:
+                return LocalDateTime.class;
+            case MONEY:
+                return Long.class;
+            default:
+                throw new AssertionError(fieldType);
+        }
+    }
+
+    /**
+     * @return Whether the generator writes null values, or blank strings, for the field type
+     */
+    private boolean hasBlankValues() {
+        switch (fieldType) {
+            case NUMERIC:
+            case SHORTINT:
+            case AUTOINC:
+            case RAWVERSION:
+            case MONEY:
+                return false;
+            default:
+                return true;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package be.valuya.advantaje.core;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static be.valuya.advantaje.core.AdvantajeTestTables.CHARSET;
+import static be.valuya.advantaje.core.AdvantajeTestTables.RECORD_COUNT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AdvantajeScanListenerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AdvantajeService service = new AdvantajeService();
+    private final RecordingScanListener scanListener = new RecordingScanListener();
+    private Path tablePath;
+    private List<Object> values;
+
+    @Before
+    public void generateTable() throws IOException {
+        AdvantajeTableGenerator generator = AdvantajeTestTables.createGenerator(AdvantajeFieldType.INTEGER, 4);
+        tablePath = temporaryFolder.newFile("values.adt").toPath();
+        generator.write(tablePath);
+        values = AdvantajeTestTables.getValues(generator);
+        service.setScanListener(scanListener);
+    }
+
+    @Test
+    public void testStreamScan() {
+        assertEquals(values, AdvantajeTestTables.readValues(service, tablePath));
+        assertEquals(1, scanListener.openedTableNames.size());
+        assertEquals("values.adt", scanListener.openedTableNames.get(0));
+        assertEquals(1, scanListener.endedScans.size());
+        AdvantajeScanStatistics statistics = scanListener.endedScans.get(0);
+        assertEquals(RECORD_COUNT, statistics.getRecordsRead());
+        assertEquals(RECORD_COUNT, statistics.getRecordsReturned());
+        assertEquals(RECORD_COUNT * (long) statistics.getMetaData().getRecordLength(), statistics.getBytesRead());
+        assertTrue(statistics.getDurationNanos() >= 0);
+        assertNull(statistics.getAttachment());
+        // HID and VALUE of each record
+        assertEquals(2 * RECORD_COUNT, scanListener.decodedValueCount.get());
+    }
+
+    @Test
+    public void testFilteredScan() {
+        AdvantajeFilter filter = AdvantajeFilter.range("HID", 1, 10);
+        try (Stream<AdvantajeRecord> records = service.streamTable(tablePath, CHARSET, filter, "HID")) {
+            assertEquals(10, records.count());
+        }
+        AdvantajeScanStatistics statistics = scanListener.endedScans.get(0);
+        assertEquals(RECORD_COUNT, statistics.getRecordsRead());
+        assertEquals(RECORD_COUNT - 10, statistics.getFilteredRecordsSkipped());
+        assertEquals(10, statistics.getRecordsReturned());
+    }
+
+    @Test
+    public void testCursorScan() {
+        int recordCount = 0;
+        try (AdvantajeCursor cursor = service.openCursor(tablePath, CHARSET)) {
+            int fieldIndex = cursor.getFieldIndex("HID");
+            while (cursor.next()) {
+                recordCount++;
+                assertEquals(recordCount, cursor.getInt(fieldIndex));
+            }
+            assertTrue(scanListener.endedScans.isEmpty());
+        }
+        assertEquals(RECORD_COUNT, recordCount);
+        assertEquals(1, scanListener.endedScans.size());
+        assertEquals(RECORD_COUNT, scanListener.endedScans.get(0).getRecordsReturned());
+        // Cursors do not time value decoding
+        assertEquals(0, scanListener.decodedValueCount.get());
+    }
+
+    /**
+     * Records scans, checking that the object attached when a scan starts is kept until it ends.
+     */
+    private static class RecordingScanListener implements AdvantajeScanListener {
+
+        private final List<String> openedTableNames = new ArrayList<>();
+        private final List<AdvantajeScanStatistics> endedScans = new ArrayList<>();
+        private final AtomicLong decodedValueCount = new AtomicLong();
+
+        @Override
+        public void tableOpened(String tableName, AdvantajeTableMetaData metaData, long durationNanos) {
+            openedTableNames.add(tableName);
+        }
+
+        @Override
+        public void scanStarted(AdvantajeScanStatistics statistics) {
+            assertNull(statistics.getAttachment());
+            statistics.setAttachment(this);
+        }
+
+        @Override
+        public synchronized void scanEnded(AdvantajeScanStatistics statistics) {
+            assertSame(this, statistics.getAttachment());
+            statistics.setAttachment(null);
+            endedScans.add(statistics);
+        }
+
+        @Override
+        public boolean isValueDecodingTimed() {
+            return true;
+        }
+
+        @Override
+        public void valueDecoded(String tableName, AdvantajeField<?> field, long durationNanos) {
+            assertEquals("values.adt", tableName);
+            decodedValueCount.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package be.valuya.advantaje.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static be.valuya.advantaje.core.AdvantajeTestTables.CHARSET;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdvantajeStringColumnTest {
+
+    private static final int BATCH_CAPACITY = 1000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AdvantajeService service = new AdvantajeService();
+
+    @Test
+    public void testRemoveNulls() throws IOException {
+        List<String> texts = Arrays.asList("AB\u0000CD", "\u0000ABCD", "ABCD", " AB\u0000", "");
+        Path tablePath = writeTable(texts);
+
+        List<String> decodedTexts;
+        try (Stream<AdvantajeRecord> records = service.streamTable(tablePath, CHARSET)) {
+            decodedTexts = records
+                    .map(record -> record.<String>getValueOptional("NAME").orElse(""))
+                    .collect(Collectors.toList());
+        }
+        assertEquals(Arrays.asList("ABCD", "ABCD", "ABCD", "AB", ""), decodedTexts);
+
+        try (AdvantajeCursor cursor = service.openCursor(tablePath, CHARSET)) {
+            AdvantajeColumnBatch batch = AdvantajeColumnBatch.create(cursor.getMetaData(), CHARSET, BATCH_CAPACITY, "NAME");
+            AdvantajeStringColumn column = batch.getStringColumn("NAME");
+            int rowCount = cursor.nextBatch(batch);
+            List<String> columnTexts = new ArrayList<>();
+            for (int row = 0; row < rowCount; row++) {
+                columnTexts.add(column.getValue(row));
+            }
+            assertEquals(decodedTexts, columnTexts);
+        }
+    }
+
+    @Test
+    public void testBoundedDictionary() throws IOException {
+        int distinctCount = AdvantajeStringColumn.MAX_DICTIONARY_SIZE + 5 * BATCH_CAPACITY;
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < distinctCount; i++) {
+            texts.add("N" + i);
+        }
+        Path tablePath = writeTable(texts);
+
+        try (AdvantajeCursor cursor = service.openCursor(tablePath, CHARSET)) {
+            AdvantajeColumnBatch batch = AdvantajeColumnBatch.create(cursor.getMetaData(), CHARSET, BATCH_CAPACITY, "NAME");
+            AdvantajeStringColumn column = batch.getStringColumn("NAME");
+            int readCount = 0;
+            int maxDictionarySize = 0;
+            boolean cleared = false;
+            int rowCount;
+            while ((rowCount = cursor.nextBatch(batch)) > 0) {
+                int dictionarySize = column.getDictionary().size();
+                cleared |= dictionarySize < maxDictionarySize;
+                maxDictionarySize = Math.max(maxDictionarySize, dictionarySize);
+                for (int row = 0; row < rowCount; row++) {
+                    assertEquals(texts.get(readCount++), column.getValue(row));
+                }
+            }
+            assertEquals(distinctCount, readCount);
+            assertTrue("Dictionary cleared", cleared);
+            assertTrue(maxDictionarySize + " strings in dictionary",
+                    maxDictionarySize <= AdvantajeStringColumn.MAX_DICTIONARY_SIZE + BATCH_CAPACITY);
+        }
+    }
+
+    private Path writeTable(List<String> texts) throws IOException {
+        Path tablePath = temporaryFolder.newFile().toPath();
+        List<AdvantajeField<?>> fields = Arrays.asList(AdvantajeTestTables.createField("NAME", AdvantajeFieldType.STRING, 8));
+        AdvantajeTableMetaData metaData = new AdvantajeTableMetaData(0, fields);
+        try (AdvantajeTableWriter tableWriter = AdvantajeTableWriter.create(tablePath, metaData, CHARSET)) {
+            for (String text : texts) {
+                AdvantajeRecord record = new AdvantajeRecord();
+                record.put(new AdvantajeValue<Object>(fields.get(0), Optional.of(text)));
+                tableWriter.writeRecord(record);
+            }
+        }
+        return tablePath;
+    }
+}
@@ -0,0 +1,162 @@
+package be.valuya.advantaje.core;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static be.valuya.advantaje.core.AdvantajeTestTables.CHARSET;
+import static be.valuya.advantaje.core.AdvantajeTestTables.RECORD_COUNT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AdvantajeTableCacheTest {
+
+    private static final long MAX_BYTES = 1L << 20;
+    private static final int THREAD_COUNT = 8;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AdvantajeService service = new AdvantajeService();
+    private final AdvantajeTableCache tableCache = new AdvantajeTableCache(MAX_BYTES);
+    private Path tablePath;
+    private List<Object> values;
+
+    @Before
+    public void generateTable() throws IOException {
+        AdvantajeTableGenerator generator = AdvantajeTestTables.createGenerator(AdvantajeFieldType.STRING, 20);
+        tablePath = temporaryFolder.newFile("values.adt").toPath();
+        generator.write(tablePath);
+        values = AdvantajeTestTables.getValues(generator);
+        service.setTableCache(tableCache);
+    }
+
+    @Test
+    public void testStreamTableCache() {
+        assertEquals(values, AdvantajeTestTables.readValues(service, tablePath));
+        assertEquals(1, tableCache.getTableCount());
+        long cachedBytes = tableCache.getCachedBytes();
+        assertEquals(RECORD_COUNT * (5 + 4 + 20), cachedBytes);
+
+        assertEquals(values, AdvantajeTestTables.readValues(service, tablePath));
+        assertEquals(1, tableCache.getTableCount());
+        assertEquals(cachedBytes, tableCache.getCachedBytes());
+    }
+
+    @Test
+    public void testReloadChangedTable() throws IOException {
+        assertTrue(tableCache.load(tablePath, CHARSET));
+
+        AdvantajeTableGenerator generator = AdvantajeTestTables.createGenerator(AdvantajeFieldType.STRING, 20);
+        generator.setRecordCount(RECORD_COUNT / 2);
+        generator.setSeed(generator.getSeed() + 1);
+        generator.write(tablePath);
+
+        assertEquals(AdvantajeTestTables.getValues(generator), AdvantajeTestTables.readValues(service, tablePath));
+        assertEquals(1, tableCache.getTableCount());
+        assertEquals(RECORD_COUNT / 2 * (5 + 4 + 20), tableCache.getCachedBytes());
+    }
+
+    @Test
+    public void testTableLargerThanBudget() {
+        AdvantajeTableCache smallTableCache = new AdvantajeTableCache(100);
+        service.setTableCache(smallTableCache);
+        assertFalse(smallTableCache.load(tablePath, CHARSET));
+        assertEquals(values, AdvantajeTestTables.readValues(service, tablePath));
+        assertEquals(0, smallTableCache.getTableCount());
+        assertEquals(0, smallTableCache.getCachedBytes());
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() throws IOException {
+        AdvantajeTableGenerator generator = AdvantajeTestTables.createGenerator(AdvantajeFieldType.STRING, 20);
+        Path otherTablePath = temporaryFolder.newFile("other.adt").toPath();
+        generator.write(otherTablePath);
+        long tableSize = Files.size(tablePath);
+        AdvantajeTableCache singleTableCache = new AdvantajeTableCache(tableSize + tableSize / 2);
+        service.setTableCache(singleTableCache);
+
+        assertTrue(singleTableCache.load(tablePath, CHARSET));
+        assertTrue(singleTableCache.load(otherTablePath, CHARSET));
+        assertEquals(1, singleTableCache.getTableCount());
+        assertEquals(values, AdvantajeTestTables.readValues(service, tablePath));
+        assertEquals(1, singleTableCache.getTableCount());
+    }
+
+    @Test
+    public void testConcurrentLoad() throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(THREAD_COUNT);
+        ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+        List<AdvantajeTableCache.CachedTable> cachedTables = new ArrayList<>();
+        try {
+            List<Future<AdvantajeTableCache.CachedTable>> futures = new ArrayList<>();
+            for (int i = 0; i < THREAD_COUNT; i++) {
+                futures.add(executorService.submit(() -> {
+                    barrier.await();
+                    return tableCache.getTableOptional(tablePath, CHARSET)
+                            .orElseThrow(AssertionError::new);
+                }));
+            }
+            for (Future<AdvantajeTableCache.CachedTable> future : futures) {
+                cachedTables.add(future.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executorService.shutdownNow();
+            cachedTables.forEach(AdvantajeTableCache.CachedTable::close);
+        }
+        for (AdvantajeTableCache.CachedTable cachedTable : cachedTables) {
+            assertSame(cachedTables.get(0), cachedTable);
+        }
+        assertEquals(1, tableCache.getTableCount());
+        assertEquals(RECORD_COUNT * (5 + 4 + 20), tableCache.getCachedBytes());
+    }
+
+    @Test
+    public void testInvalidateWhileStreaming() {
+        assertEquals(values, readValuesInvalidating(() -> tableCache.invalidate(tablePath, CHARSET)));
+        assertEquals(0, tableCache.getTableCount());
+        assertEquals(0, tableCache.getCachedBytes());
+        assertEquals(values, AdvantajeTestTables.readValues(service, tablePath));
+        assertEquals(1, tableCache.getTableCount());
+    }
+
+    @Test
+    public void testClearWhileStreaming() {
+        assertEquals(values, readValuesInvalidating(tableCache::clear));
+        assertEquals(0, tableCache.getTableCount());
+        assertEquals(0, tableCache.getCachedBytes());
+    }
+
+    /**
+     * @return The values streamed from the cached table, invalidating the cache once half of them are read
+     */
+    private List<Object> readValuesInvalidating(Runnable invalidation) {
+        List<Object> readValues = new ArrayList<>();
+        try (Stream<AdvantajeRecord> records = service.streamTable(tablePath, CHARSET)) {
+            Iterator<AdvantajeRecord> recordIterator = records.iterator();
+            while (recordIterator.hasNext()) {
+                if (readValues.size() == RECORD_COUNT / 2) {
+                    invalidation.run();
+                }
+                readValues.add(recordIterator.next().getValueOptional("VALUE").orElse(null));
+            }
+        }
+        return readValues;
+    }
+}
@@ -0,0 +1,123 @@
+package be.valuya.advantaje.core;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static be.valuya.advantaje.core.AdvantajeTestTables.CHARSET;
+import static be.valuya.advantaje.core.AdvantajeTestTables.RECORD_COUNT;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Copies and writes generated tables holding a field of each type, checking that the written tables read the
+ * generated values.
+ */
+@RunWith(Parameterized.class)
+public class AdvantajeTableCopyTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AdvantajeFieldType fieldType;
+    private final int length;
+    private final AdvantajeService service = new AdvantajeService();
+    private Path tablePath;
+    private List<Object> values;
+
+    public AdvantajeTableCopyTest(AdvantajeFieldType fieldType, int length) {
+        this.fieldType = fieldType;
+        this.length = length;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> getFieldTypes() {
+        return AdvantajeTestTables.getFieldTypes();
+    }
+
+    @Before
+    public void generateTable() throws IOException {
+        AdvantajeTableGenerator generator = AdvantajeTestTables.createGenerator(fieldType, length);
+        tablePath = temporaryFolder.newFile("values.adt").toPath();
+        generator.write(tablePath);
+        values = AdvantajeTestTables.getValues(generator);
+    }
+
+    @Test
+    public void testCopyTable() throws IOException {
+        Path copyPath = temporaryFolder.newFile("copy.adt").toPath();
+        int copiedRecordCount = service.copyTable(tablePath, copyPath, CHARSET, null);
+        assertEquals(RECORD_COUNT, copiedRecordCount);
+        assertEquals(values, AdvantajeTestTables.readValues(service, copyPath));
+    }
+
+    @Test
+    public void testCompactTable() throws IOException {
+        int deletedRecordNumber = RECORD_COUNT / 2;
+        AdvantajeTestTables.markDeleted(tablePath, deletedRecordNumber);
+        Path copyPath = temporaryFolder.newFile("compacted.adt").toPath();
+        AdvantajeFilter filter = AdvantajeFilter.range("HID", null, RECORD_COUNT - 10);
+        int copiedRecordCount = service.copyTable(tablePath, copyPath, CHARSET, filter);
+        assertEquals(RECORD_COUNT - 11, copiedRecordCount);
+
+        // Copied records keep their values, deleted records are left out
+        List<Object> expectedValues = new ArrayList<>(values.subList(0, RECORD_COUNT - 10));
+        expectedValues.remove(deletedRecordNumber);
+        List<Object> copiedValues;
+        try (Stream<AdvantajeRecord> records = service.streamTable(copyPath, CHARSET)) {
+            copiedValues = records
+                    .map(record -> record.getValueOptional("VALUE").orElse(null))
+                    .collect(Collectors.toList());
+        }
+        assertEquals(expectedValues, copiedValues);
+        try (AdvantajeTableFile tableFile = AdvantajeTableFile.open(copyPath, CHARSET)) {
+            assertEquals(copiedRecordCount, tableFile.countRecords().getLiveRecordCount());
+        }
+    }
+
+    @Test
+    public void testWriteRecords() throws IOException {
+        Path writtenPath = temporaryFolder.newFile("written.adt").toPath();
+        AdvantajeTableMetaData metaData = new AdvantajeTableMetaData(0, createFields());
+        try (AdvantajeTableWriter tableWriter = AdvantajeTableWriter.create(writtenPath, metaData, CHARSET);
+             Stream<AdvantajeRecord> records = service.streamTable(tablePath, CHARSET)) {
+            tableWriter.writeRecords(records);
+            assertEquals(RECORD_COUNT, tableWriter.getRecordCount());
+        }
+        assertEquals(values, AdvantajeTestTables.readValues(service, writtenPath));
+    }
+
+    @Test
+    public void testWriteValues() throws IOException {
+        Path writtenPath = temporaryFolder.newFile("encoded.adt").toPath();
+        List<AdvantajeField<?>> fields = createFields();
+        AdvantajeTableMetaData metaData = new AdvantajeTableMetaData(0, fields);
+        try (AdvantajeTableWriter tableWriter = AdvantajeTableWriter.create(writtenPath, metaData, CHARSET)) {
+            for (int recordNumber = 0; recordNumber < RECORD_COUNT; recordNumber++) {
+                AdvantajeRecord record = new AdvantajeRecord();
+                record.put(new AdvantajeValue<Object>(fields.get(0), Optional.of(recordNumber + 1)));
+                record.put(new AdvantajeValue<Object>(fields.get(1), Optional.ofNullable(values.get(recordNumber))));
+                tableWriter.writeRecord(record);
+            }
+        }
+        assertEquals(values, AdvantajeTestTables.readValues(service, writtenPath));
+    }
+
+    private List<AdvantajeField<?>> createFields() {
+        return Arrays.asList(
+                AdvantajeTestTables.createField("HID", AdvantajeFieldType.AUTOINC, 4),
+                AdvantajeTestTables.createField("VALUE", fieldType, length));
+    }
+}
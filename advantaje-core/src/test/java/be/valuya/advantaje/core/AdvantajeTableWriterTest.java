@@ -0,0 +1,64 @@
+package be.valuya.advantaje.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static be.valuya.advantaje.core.AdvantajeTestTables.CHARSET;
+import static org.junit.Assert.assertEquals;
+
+public class AdvantajeTableWriterTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AdvantajeService service = new AdvantajeService();
+
+    @Test
+    public void testHeader() throws IOException {
+        List<AdvantajeField<?>> fields = Arrays.asList(
+                AdvantajeTestTables.createField("HID", AdvantajeFieldType.AUTOINC, 4),
+                AdvantajeTestTables.createField("CODE", AdvantajeFieldType.STRING, 10));
+        Path tablePath = temporaryFolder.newFile("header.adt").toPath();
+        AdvantajeTableMetaData metaData = new AdvantajeTableMetaData(0, fields);
+        try (AdvantajeTableWriter tableWriter = AdvantajeTableWriter.create(tablePath, metaData, CHARSET)) {
+            for (int id = 1; id <= 3; id++) {
+                AdvantajeRecord record = new AdvantajeRecord();
+                record.put(new AdvantajeValue<Object>(fields.get(0), Optional.of(id)));
+                record.put(new AdvantajeValue<Object>(fields.get(1), Optional.of("CODE" + id)));
+                tableWriter.writeRecord(record);
+            }
+        }
+
+        ByteBuffer headerBuffer = ByteBuffer.wrap(Files.readAllBytes(tablePath))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        int headerLength = AdvantajeTableReader.TABLE_HEADER_LENGTH + 2 * AdvantajeTableReader.FIELD_HEADER_LENGTH;
+        int recordLength = AdvantajeTableReader.RECORD_HEADER_LENGTH + 4 + 10;
+        assertEquals("Advantage Table", new String(headerBuffer.array(), 0, 15, StandardCharsets.US_ASCII));
+        assertEquals(3, headerBuffer.getInt(0x18));
+        assertEquals(headerLength, headerBuffer.getInt(0x20));
+        assertEquals(recordLength, headerBuffer.getInt(0x24));
+        assertEquals(headerLength + 3 * recordLength, headerBuffer.capacity());
+
+        List<String> codes;
+        try (Stream<AdvantajeRecord> records = service.streamTable(tablePath, CHARSET, "CODE")) {
+            codes = records
+                    .map(record -> record.<String>getValue("CODE"))
+                    .collect(Collectors.toList());
+        }
+        assertEquals(Arrays.asList("CODE1", "CODE2", "CODE3"), codes);
+        assertEquals(0, fields.get(1).getOffset());
+    }
+}
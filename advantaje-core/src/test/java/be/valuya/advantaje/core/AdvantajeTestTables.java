@@ -0,0 +1,154 @@
+package be.valuya.advantaje.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Generated tables holding a HID AUTOINC field, numbering records from 1, and a VALUE field of each type.
+ */
+final class AdvantajeTestTables {
+
+    static final Charset CHARSET = StandardCharsets.ISO_8859_1;
+    static final int RECORD_COUNT = 1000;
+    static final double NULL_RATIO = 0.2;
+
+    private AdvantajeTestTables() {
+    }
+
+    /**
+     * @return The field types and lengths of parameterized tests
+     */
+    static Collection<Object[]> getFieldTypes() {
+        return Arrays.asList(new Object[][]{
+                {AdvantajeFieldType.LOGICAL, 1},
+                {AdvantajeFieldType.NUMERIC, 2},
+                {AdvantajeFieldType.SHORTINT, 2},
+                {AdvantajeFieldType.DATE, 4},
+                {AdvantajeFieldType.STRING, 20},
+                {AdvantajeFieldType.CISSTRING, 20},
+                {AdvantajeFieldType.NCHAR, 20},
+                {AdvantajeFieldType.DOUBLE, 8},
+                {AdvantajeFieldType.CURRENCY, 8},
+                {AdvantajeFieldType.INTEGER, 4},
+                {AdvantajeFieldType.AUTOINC, 4},
+                {AdvantajeFieldType.RAWVERSION, 4},
+                {AdvantajeFieldType.TIME, 4},
+                {AdvantajeFieldType.TIMESTAMP, 8},
+                {AdvantajeFieldType.MODTIME, 8},
+                {AdvantajeFieldType.MONEY, 8},
+        });
+    }
+
+    /**
+     * @return The field types and lengths of parameterized tests of filters and indexes
+     */
+    static Collection<Object[]> getFilterableFieldTypes() {
+        return getFieldTypes().stream()
+                .filter(parameters -> isFilterable((AdvantajeFieldType) parameters[0]))
+                .collect(Collectors.toList());
+    }
+
+    static AdvantajeTableGenerator createGenerator(AdvantajeFieldType fieldType, int length) {
+        AdvantajeTableGenerator generator = new AdvantajeTableGenerator();
+        generator.addField("HID", AdvantajeFieldType.AUTOINC, 4);
+        generator.addField("VALUE", fieldType, length);
+        generator.setRecordCount(RECORD_COUNT);
+        generator.setNullRatio(NULL_RATIO);
+        generator.setCharset(CHARSET);
+        return generator;
+    }
+
+    /**
+     * @return The VALUE of each generated record, or null
+     */
+    static List<Object> getValues(AdvantajeTableGenerator generator) {
+        try (Stream<AdvantajeRecord> records = generator.streamRecords()) {
+            return records
+                    .map(record -> record.getValueOptional("VALUE").orElse(null))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * @return The VALUE of each record of a table, or null, checking that records are read in order
+     */
+    static List<Object> readValues(AdvantajeService service, Path path) {
+        List<Object> readValues = new ArrayList<>();
+        try (Stream<AdvantajeRecord> records = service.streamTable(path, CHARSET)) {
+            records.forEachOrdered(record -> {
+                assertEquals(readValues.size() + 1, (int) record.<Integer>getValue("HID"));
+                readValues.add(record.getValueOptional("VALUE").orElse(null));
+            });
+        }
+        return readValues;
+    }
+
+    /**
+     * @return The filter value matching a decoded value: milliseconds of day for times
+     */
+    static Object toFilterValue(Object value) {
+        if (value instanceof LocalTime) {
+            LocalTime time = (LocalTime) value;
+            return time.toNanoOfDay() / 1000000;
+        }
+        return value;
+    }
+
+    /**
+     * Compare filter values the way filters and indexes do: numbers by value, other values by their natural order.
+     */
+    @SuppressWarnings("unchecked")
+    static int compareFilterValues(Object value, Object otherValue) {
+        if (value instanceof Number) {
+            return Double.compare(((Number) value).doubleValue(), ((Number) otherValue).doubleValue());
+        }
+        return ((Comparable<Object>) value).compareTo(otherValue);
+    }
+
+    /**
+     * @return A field without offset, laid out when writing a table
+     */
+    static AdvantajeField<?> createField(String name, AdvantajeFieldType fieldType, int length) {
+        AdvantajeField<?> field = new AdvantajeField<>(name, fieldType);
+        field.setLength(length);
+        return field;
+    }
+
+    /**
+     * Mark a record of a table deleted, setting the deleted flag of its status byte.
+     */
+    static void markDeleted(Path path, int recordNumber) throws IOException {
+        AdvantajeTableMetaData metaData;
+        try (AdvantajeTableFile tableFile = AdvantajeTableFile.open(path, CHARSET)) {
+            metaData = tableFile.getMetaData();
+        }
+        long recordPosition = metaData.getHeaderLength() + (long) recordNumber * metaData.getRecordLength();
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer statusBuffer = ByteBuffer.allocate(1);
+            fileChannel.read(statusBuffer, recordPosition);
+            statusBuffer.put(0, (byte) (statusBuffer.get(0) | AdvantajeTableReader.RECORD_DELETED_FLAG));
+            statusBuffer.rewind();
+            fileChannel.write(statusBuffer, recordPosition);
+        }
+    }
+
+    private static boolean isFilterable(AdvantajeFieldType fieldType) {
+        return AdvantajeRawValues.isIntegral(fieldType)
+                || AdvantajeRawValues.isFloatingPoint(fieldType)
+                || AdvantajeRawValues.isFixedString(fieldType);
+    }
+}
@@ -0,0 +1,215 @@
+package be.valuya.advantaje.core;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Writes synthetic tables with a configurable schema, record count and null ratio, using
+ * {@link AdvantajeTableWriter}. Tables are deterministic for a given seed, so that benchmarks are comparable between
+ * runs, and tests can check the values read against the generated ones.
+ * <p>
+ * Shared by the core tests and the benchmarks, this class is not part of the advantaje-core artifact.
+ */
+public class AdvantajeTableGenerator {
+
+    private static final LocalDate DATE_MIN = LocalDate.of(2000, 1, 1);
+    private static final int DATE_RANGE = 25 * 365;
+    private static final int MILLIS_PER_DAY = 24 * 60 * 60 * 1000;
+    private static final String[] WORDS = {"ACH", "VEN", "BNK", "OD", "EUR", "USD", "21", "6", "0", "CAISSE", "FOURN", "CLIENT"};
+
+    private final List<AdvantajeField<?>> fields = new ArrayList<>();
+    private int recordCount = 100000;
+    private double nullRatio = 0.1;
+    private long seed = 42;
+    private Charset charset = StandardCharsets.ISO_8859_1;
+
+    /**
+     * @return A generator for a table shaped like accounting entry lines
+     */
+    public static AdvantajeTableGenerator entryLines() {
+        AdvantajeTableGenerator generator = new AdvantajeTableGenerator();
+        generator.addField("HID", AdvantajeFieldType.AUTOINC, 4);
+        generator.addField("ACCOUNT", AdvantajeFieldType.STRING, 10);
+        generator.addField("JOURNAL", AdvantajeFieldType.CISSTRING, 4);
+        generator.addField("PERIOD", AdvantajeFieldType.SHORTINT, 2);
+        generator.addField("DATE", AdvantajeFieldType.DATE, 4);
+        generator.addField("AMOUNT", AdvantajeFieldType.MONEY, 8);
+        generator.addField("RATE", AdvantajeFieldType.DOUBLE, 8);
+        generator.addField("VALIDATED", AdvantajeFieldType.LOGICAL, 1);
+        generator.addField("REMARK", AdvantajeFieldType.STRING, 40);
+        generator.addField("LABEL", AdvantajeFieldType.NCHAR, 20);
+        generator.addField("CREATED", AdvantajeFieldType.TIMESTAMP, 8);
+        generator.addField("VERSION", AdvantajeFieldType.RAWVERSION, 4);
+        return generator;
+    }
+
+    /**
+     * @param length The field length, in characters for NCHAR fields
+     */
+    public void addField(String name, AdvantajeFieldType fieldType, int length) {
+        AdvantajeField<?> field = new AdvantajeField<>(name, fieldType);
+        field.setLength(length);
+        fields.add(field);
+    }
+
+    /**
+     * @return The fields of the generated tables, without offsets: they are laid out in copies when writing
+     */
+    public List<AdvantajeField<?>> getFields() {
+        return fields;
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    public void setRecordCount(int recordCount) {
+        this.recordCount = recordCount;
+    }
+
+    public double getNullRatio() {
+        return nullRatio;
+    }
+
+    /**
+     * @param nullRatio The ratio of null values, for field types having a null value, or of blank strings
+     */
+    public void setNullRatio(double nullRatio) {
+        this.nullRatio = nullRatio;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public void setCharset(Charset charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * Generate the records of the table, the same for each call. Values are the ones read back from the written
+     * table: strings are trimmed and fit the field length, MODTIME values only hold the time.
+     */
+    public Stream<AdvantajeRecord> streamRecords() {
+        Iterator<AdvantajeRecord> recordIterator = new RecordIterator();
+        Spliterator<AdvantajeRecord> spliterator = Spliterators.spliterator(recordIterator, recordCount,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    public void write(Path path) {
+        AdvantajeTableMetaData metaData = new AdvantajeTableMetaData(recordCount, fields);
+        try (AdvantajeTableWriter tableWriter = AdvantajeTableWriter.create(path, metaData, charset);
+             Stream<AdvantajeRecord> records = streamRecords()) {
+            tableWriter.writeRecords(records);
+        }
+    }
+
+    private AdvantajeRecord createRecord(int recordNumber, Random random) {
+        AdvantajeRecord record = new AdvantajeRecord();
+        for (AdvantajeField<?> field : fields) {
+            Object value = createValue(field, recordNumber, random);
+            record.put(new AdvantajeValue<Object>(field, Optional.ofNullable(value)));
+        }
+        return record;
+    }
+
+    private Object createValue(AdvantajeField<?> field, int recordNumber, Random random) {
+        boolean nullValue = random.nextDouble() < nullRatio;
+        AdvantajeFieldType fieldType = field.getFieldType();
+        switch (fieldType) {
+            case LOGICAL:
+                return nullValue ? null : random.nextBoolean();
+            case NUMERIC:
+            case SHORTINT:
+                return (short) random.nextInt(100);
+            case DATE:
+                return nullValue ? null : nextDate(random);
+            case STRING:
+            case CISSTRING:
+            case NCHAR:
+                return nullValue ? "" : nextString(random, field.getLength());
+            case DOUBLE:
+            case CURRENCY:
+                return nullValue ? null : random.nextInt(10000000) / 100d;
+            case INTEGER:
+                return nullValue ? null : random.nextInt(1000000);
+            case AUTOINC:
+            case RAWVERSION:
+                return recordNumber + 1;
+            case TIME:
+            case MODTIME:
+                return nullValue ? null : nextTime(random);
+            case TIMESTAMP:
+                return nullValue ? null : nextDate(random).atTime(nextTime(random));
+            case MONEY:
+                return (random.nextInt(20000000) - 10000000) * 100L;
+            default:
+                throw new IllegalArgumentException("Unsupported field type: " + fieldType + " for field " + field.getName());
+        }
+    }
+
+    private static LocalDate nextDate(Random random) {
+        return DATE_MIN.plusDays(random.nextInt(DATE_RANGE));
+    }
+
+    private static LocalTime nextTime(Random random) {
+        return LocalTime.ofNanoOfDay(random.nextInt(MILLIS_PER_DAY) * 1000000L);
+    }
+
+    /**
+     * @return A value from a small vocabulary, like codes, or a unique-looking value, like remarks
+     */
+    private static String nextString(Random random, int length) {
+        String value = WORDS[random.nextInt(WORDS.length)];
+        if (random.nextBoolean()) {
+            value += " " + random.nextInt(1000000);
+        }
+        if (value.length() > length) {
+            return value.substring(0, length).trim();
+        }
+        return value;
+    }
+
+    private class RecordIterator implements Iterator<AdvantajeRecord> {
+
+        private final Random random = new Random(seed);
+        private int recordNumber;
+
+        @Override
+        public boolean hasNext() {
+            return recordNumber < recordCount;
+        }
+
+        @Override
+        public AdvantajeRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            AdvantajeRecord record = createRecord(recordNumber, random);
+            recordNumber++;
+            return record;
+        }
+    }
+}
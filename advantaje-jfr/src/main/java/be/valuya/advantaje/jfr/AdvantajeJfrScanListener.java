@@ -0,0 +1,213 @@
+package be.valuya.advantaje.jfr;
+
+import be.valuya.advantaje.core.AdvantajeField;
+import be.valuya.advantaje.core.AdvantajeScanListener;
+import be.valuya.advantaje.core.AdvantajeScanStatistics;
+import be.valuya.advantaje.core.AdvantajeTableMetaData;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records table reads as JDK Flight Recorder events, in the Advantaje category:
+ * <ul>
+ * <li>be.valuya.advantaje.TableOpen, for each table opened by path</li>
+ * <li>be.valuya.advantaje.Scan, spanning each scan, with its record and byte counts</li>
+ * <li>be.valuya.advantaje.ValueDecoding, periodically, with the number of values decoded for each table field and the
+ * time spent decoding them. Values are only timed while this event is enabled, and only when decoded by the records
+ * of streams: values read by cursors, column batches and bound objects are not counted.</li>
+ * </ul>
+ * Events are only created while enabled in a running recording. Built for Java 11 or later, which provide the jdk.jfr
+ * module, apart from the Java 8 core module.
+ */
+public class AdvantajeJfrScanListener implements AdvantajeScanListener, Closeable {
+
+    private final EventType tableOpenEventType = EventType.getEventType(TableOpenEvent.class);
+    private final EventType scanEventType = EventType.getEventType(ScanEvent.class);
+    private final EventType valueDecodingEventType = EventType.getEventType(ValueDecodingEvent.class);
+    private final Map<String, ValueDecodingCounter> valueDecodingCounters = new ConcurrentHashMap<>();
+    private final Runnable valueDecodingHook = this::emitValueDecodingEvents;
+
+    public AdvantajeJfrScanListener() {
+        FlightRecorder.addPeriodicEvent(ValueDecodingEvent.class, valueDecodingHook);
+    }
+
+    @Override
+    public void tableOpened(String tableName, AdvantajeTableMetaData metaData, long durationNanos) {
+        if (!tableOpenEventType.isEnabled()) {
+            return;
+        }
+        TableOpenEvent tableOpenEvent = new TableOpenEvent();
+        tableOpenEvent.tableName = tableName;
+        tableOpenEvent.fieldCount = metaData.getFields().size();
+        tableOpenEvent.recordCount = metaData.getRecordCount();
+        tableOpenEvent.openDuration = durationNanos;
+        tableOpenEvent.commit();
+    }
+
+    @Override
+    public void scanStarted(AdvantajeScanStatistics statistics) {
+        if (!scanEventType.isEnabled()) {
+            return;
+        }
+        ScanEvent scanEvent = new ScanEvent();
+        scanEvent.begin();
+        statistics.setAttachment(scanEvent);
+    }
+
+    @Override
+    public void scanEnded(AdvantajeScanStatistics statistics) {
+        Object attachment = statistics.getAttachment();
+        if (!(attachment instanceof ScanEvent)) {
+            return;
+        }
+        statistics.setAttachment(null);
+        ScanEvent scanEvent = (ScanEvent) attachment;
+        scanEvent.end();
+        if (!scanEvent.shouldCommit()) {
+            return;
+        }
+        scanEvent.tableName = statistics.getTableName();
+        scanEvent.recordsRead = statistics.getRecordsRead();
+        scanEvent.bytesRead = statistics.getBytesRead();
+        scanEvent.deletedRecordsSkipped = statistics.getDeletedRecordsSkipped();
+        scanEvent.filteredRecordsSkipped = statistics.getFilteredRecordsSkipped();
+        scanEvent.recordsReturned = statistics.getRecordsReturned();
+        scanEvent.commit();
+    }
+
+    @Override
+    public boolean isValueDecodingTimed() {
+        return valueDecodingEventType.isEnabled();
+    }
+
+    @Override
+    public void valueDecoded(String tableName, AdvantajeField<?> field, long durationNanos) {
+        String counterKey = tableName + "." + field.getName();
+        ValueDecodingCounter valueDecodingCounter = valueDecodingCounters.computeIfAbsent(counterKey,
+                key -> new ValueDecodingCounter(tableName, field));
+        valueDecodingCounter.valueCount.increment();
+        valueDecodingCounter.durationNanos.add(durationNanos);
+    }
+
+    /**
+     * Stop emitting periodic value decoding events.
+     */
+    @Override
+    public void close() {
+        FlightRecorder.removePeriodicEvent(valueDecodingHook);
+    }
+
+    private void emitValueDecodingEvents() {
+        for (ValueDecodingCounter valueDecodingCounter : valueDecodingCounters.values()) {
+            long valueCount = valueDecodingCounter.valueCount.sumThenReset();
+            long durationNanos = valueDecodingCounter.durationNanos.sumThenReset();
+            if (valueCount == 0) {
+                continue;
+            }
+            ValueDecodingEvent valueDecodingEvent = new ValueDecodingEvent();
+            valueDecodingEvent.tableName = valueDecodingCounter.tableName;
+            valueDecodingEvent.fieldName = valueDecodingCounter.field.getName();
+            valueDecodingEvent.fieldType = valueDecodingCounter.field.getFieldType().name();
+            valueDecodingEvent.valueCount = valueCount;
+            valueDecodingEvent.decodingDuration = durationNanos;
+            valueDecodingEvent.commit();
+        }
+    }
+
+    private static class ValueDecodingCounter {
+
+        private final String tableName;
+        private final AdvantajeField<?> field;
+        private final LongAdder valueCount = new LongAdder();
+        private final LongAdder durationNanos = new LongAdder();
+
+        private ValueDecodingCounter(String tableName, AdvantajeField<?> field) {
+            this.tableName = tableName;
+            this.field = field;
+        }
+    }
+
+    @Name("be.valuya.advantaje.TableOpen")
+    @Label("Table Open")
+    @Category("Advantaje")
+    @StackTrace(false)
+    static class TableOpenEvent extends Event {
+
+        @Label("Table")
+        String tableName;
+
+        @Label("Field Count")
+        int fieldCount;
+
+        @Label("Header Record Count")
+        int recordCount;
+
+        @Label("Open Duration")
+        @Timespan
+        long openDuration;
+    }
+
+    @Name("be.valuya.advantaje.Scan")
+    @Label("Table Scan")
+    @Category("Advantaje")
+    @StackTrace(false)
+    static class ScanEvent extends Event {
+
+        @Label("Table")
+        String tableName;
+
+        @Label("Records Read")
+        long recordsRead;
+
+        @Label("Bytes Read")
+        long bytesRead;
+
+        @Label("Deleted Records Skipped")
+        long deletedRecordsSkipped;
+
+        @Label("Filtered Records Skipped")
+        long filteredRecordsSkipped;
+
+        @Label("Records Returned")
+        long recordsReturned;
+    }
+
+    @Name("be.valuya.advantaje.ValueDecoding")
+    @Label("Value Decoding")
+    @Description("Values decoded for a table field since the previous event")
+    @Category("Advantaje")
+    @StackTrace(false)
+    @Period("1 s")
+    static class ValueDecodingEvent extends Event {
+
+        @Label("Table")
+        String tableName;
+
+        @Label("Field")
+        String fieldName;
+
+        @Label("Field Type")
+        String fieldType;
+
+        @Label("Value Count")
+        long valueCount;
+
+        @Label("Decoding Duration")
+        @Timespan
+        long decodingDuration;
+    }
+}